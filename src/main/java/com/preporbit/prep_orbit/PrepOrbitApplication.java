@@ -2,8 +2,10 @@ package com.preporbit.prep_orbit;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class PrepOrbitApplication {
 
 	public static void main(String[] args) {
@@ -31,6 +31,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
     }
 
+    @ExceptionHandler(LlmRejectedException.class)
+    public ResponseEntity<Map<String,Object>> handleLlmRejected(LlmRejectedException ex) {
+        log.warn("AI request shed: {}", ex.getMessage());
+        Map<String,Object> body = baseBody(ex.getMessage());
+        body.put("code", "AI_BUSY");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfterMs() / 1000)))
+                .body(body);
+    }
+
     @ExceptionHandler(InterviewAccessException.class)
     public ResponseEntity<Map<String,Object>> handleAccess(InterviewAccessException ex) {
         Map<String,Object> body = baseBody(ex.getMessage());
@@ -1,9 +1,7 @@
 package com.preporbit.prep_orbit.config;
 
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
 
 @Configuration
 public class InterviewAIConfig {
@@ -17,11 +15,6 @@ public class InterviewAIConfig {
     @Value("${interview.ai.api.url:https://generativelanguage.googleapis.com/v1beta/models}")
     private String apiBaseUrl;
 
-    @Bean(name = "interviewRestTemplate")
-    public RestTemplate interviewRestTemplate() {
-        return new RestTemplate();
-    }
-
     public String getGoogleApiKey() {
         String key = (googleApiKey != null && !googleApiKey.isBlank())
                 ? googleApiKey
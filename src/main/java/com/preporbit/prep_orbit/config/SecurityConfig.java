@@ -86,7 +86,9 @@ public class SecurityConfig {
                         // ✅ Public endpoints - no authentication required
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/api/auth/**").permitAll()
-                        .requestMatchers("/health", "/actuator/**").permitAll()
+                        .requestMatchers("/health", "/actuator/health", "/actuator/health/**").permitAll()
+                        // ✅ Metrics and the llm endpoint expose upstream errors and routing internals
+                        .requestMatchers("/actuator/**").authenticated()
                         .requestMatchers("OPTIONS", "/**").permitAll()
                         .requestMatchers("/api/vapi/webhook").permitAll()
                         .requestMatchers("/api/vapi/health").permitAll()
@@ -7,6 +7,7 @@ import com.preporbit.prep_orbit.model.InterviewFeedback;
 import com.preporbit.prep_orbit.repository.InterviewRepository;
 import com.preporbit.prep_orbit.service.InterviewFeedbackService;
 import com.preporbit.prep_orbit.service.InterviewService;
+import com.preporbit.prep_orbit.service.llm.LlmStreamRelay;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,6 +16,7 @@ import org.springframework.http.*;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -24,6 +26,7 @@ import java.util.*;
  * InterviewFeedbackController
  * Responsibilities:
  *  - Secure, idempotent feedback generation (returns existing if already present)
+ *  - SSE streaming variant relaying partial model output
  *  - Ownership / authorization enforcement
  *  - Retrieval endpoints
  *
@@ -40,6 +43,7 @@ public class InterviewFeedbackController {
     @Autowired private InterviewFeedbackService feedbackService;
     @Autowired private InterviewRepository interviewRepository;
     @Autowired private InterviewService interviewService;
+    @Autowired private LlmStreamRelay streamRelay;
 
     /* ====================== AUTH / SECURITY ====================== */
 
@@ -78,16 +82,7 @@ public class InterviewFeedbackController {
             InterviewFeedback existing = feedbackService.getExisting(interviewId, userId).get();
             logger.info("♻️ Returning existing feedback id={} interviewId={}", existing.getId(), interviewId);
 
-            Map<String,Object> body = new HashMap<>();
-            body.put("success", true);
-            body.put("message", "Feedback already exists");
-            body.put("feedbackId", existing.getId());
-            body.put("feedback", existing);
-            body.put("interviewId", interviewId);
-            body.put("hasFeedback", true);
-            body.put("analysisComplete", true);
-            body.put("timestamp", OffsetDateTime.now().toString());
-            return ResponseEntity.ok(body);
+            return ResponseEntity.ok(feedbackBody(existing, interviewId, "Feedback already exists"));
         }
 
         // Force correct IDs (ignore client-passed values)
@@ -95,22 +90,60 @@ public class InterviewFeedbackController {
         feedbackDto.setUserId(userId);
 
         InterviewFeedback saved = feedbackService.generateComprehensiveFeedback(feedbackDto);
+        markHasFeedback(interview);
 
-        // Mark interview
+        return ResponseEntity.ok(feedbackBody(saved, interviewId, "Comprehensive feedback generated"));
+    }
+
+    /**
+     * Streaming variant of feedback generation (Server-Sent Events).
+     * Emits "chunk" events with partial model output, then a "complete" event carrying
+     * the same body as the POST endpoint once the feedback is parsed and persisted.
+     */
+    @PostMapping(value = "/{interviewId}/feedback/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeedback(@PathVariable Long interviewId,
+                                     @Valid @RequestBody InterviewFeedbackDto feedbackDto) {
+
+        String username = getAuthenticatedUsername();
+        Long userId = interviewService.getUserIdByUsername(username);
+
+        logger.info("📡 Feedback STREAM interviewId={} user={}", interviewId, username);
+
+        Interview interview = interviewRepository.findByIdAndUserId(interviewId, userId)
+                .orElseThrow(() -> new InterviewAccessException("Interview not found or access denied"));
+
+        Optional<InterviewFeedback> existing = feedbackService.getExisting(interviewId, userId);
+        if (existing.isPresent()) {
+            return streamRelay.completed(feedbackBody(existing.get(), interviewId, "Feedback already exists"));
+        }
+
+        feedbackDto.setInterviewId(interviewId);
+        feedbackDto.setUserId(userId);
+
+        return streamRelay.relay("interview feedback " + interviewId, onChunk -> {
+            InterviewFeedback saved = feedbackService.generateComprehensiveFeedback(feedbackDto, onChunk);
+            markHasFeedback(interview);
+            return feedbackBody(saved, interviewId, "Comprehensive feedback generated");
+        });
+    }
+
+    private void markHasFeedback(Interview interview) {
         interview.setHasFeedback(true);
         interview.setUpdatedAt(LocalDateTime.now());
         interviewRepository.save(interview);
+    }
 
+    private Map<String,Object> feedbackBody(InterviewFeedback feedback, Long interviewId, String message) {
         Map<String,Object> body = new HashMap<>();
         body.put("success", true);
-        body.put("message", "Comprehensive feedback generated");
-        body.put("feedbackId", saved.getId());
-        body.put("feedback", saved);
+        body.put("message", message);
+        body.put("feedbackId", feedback.getId());
+        body.put("feedback", feedback);
         body.put("interviewId", interviewId);
         body.put("hasFeedback", true);
         body.put("analysisComplete", true);
         body.put("timestamp", OffsetDateTime.now().toString());
-        return ResponseEntity.ok(body);
+        return body;
     }
 
     /* ====================== RETRIEVAL ====================== */
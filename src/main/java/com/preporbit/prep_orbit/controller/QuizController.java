@@ -1,14 +1,18 @@
 package com.preporbit.prep_orbit.controller;
 
 import com.preporbit.prep_orbit.dto.*;
+import com.preporbit.prep_orbit.model.QuizSession;
 import com.preporbit.prep_orbit.model.UserWeakness;
 import com.preporbit.prep_orbit.repository.UserRepository;
 import com.preporbit.prep_orbit.repository.UserWeaknessRepository;
 import com.preporbit.prep_orbit.service.QuizService;
+import com.preporbit.prep_orbit.service.llm.LlmStreamRelay;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.nio.file.AccessDeniedException;
 import java.util.List;
@@ -23,6 +27,8 @@ public class QuizController {
     private UserRepository userRepository;
     @Autowired
     private UserWeaknessRepository userWeaknessRepository;
+    @Autowired
+    private LlmStreamRelay streamRelay;
 
 
     // Start a quiz session and return sessionId and questions
@@ -48,6 +54,16 @@ public class QuizController {
         System.out.println("Authenticated as: " + authentication.getName());
         return quizService.submitQuiz(sessionId, request);
     }
+
+    // Submit answers and stream the AI session feedback as Server-Sent Events
+    // ("chunk" events with partial output, then "complete" with the QuizResultDto)
+    @PostMapping(value = "/{sessionId}/submit/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter submitQuizStream(@PathVariable Long sessionId,
+                                       @RequestBody QuizSubmitRequestDto request) {
+        QuizSession session = quizService.requireOwnedSession(sessionId);
+        return streamRelay.relay("quiz session " + sessionId,
+                onChunk -> quizService.submitQuiz(session, request, onChunk));
+    }
     @GetMapping("/user/{userId}/weaknesses")
     public List<UserWeakness> getUserWeaknesses(@PathVariable Long userId) throws AccessDeniedException {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -3,24 +3,31 @@ package com.preporbit.prep_orbit.controller;
 import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
 import com.preporbit.prep_orbit.dto.ResumeHistoryDto;
 import com.preporbit.prep_orbit.model.ResumeAnalysis;
+import com.preporbit.prep_orbit.service.ResumeAnalysisJobService;
 import com.preporbit.prep_orbit.service.ResumeAnalysisService;
 import com.preporbit.prep_orbit.service.PDFToImageService; // Add this import
+import com.preporbit.prep_orbit.service.ResumeDocumentSession;
+import com.preporbit.prep_orbit.exception.ResumeJobLimitException;
 import io.opencensus.resource.Resource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/resume")
@@ -30,23 +37,28 @@ public class ResumeAnalysisController {
 
     private final ResumeAnalysisService resumeAnalysisService;
     private final PDFToImageService pdfToImageService; // Add this
+    private final ResumeAnalysisJobService analysisJobs;
 
     @Value("${resume.analysis.max-file-size:50MB}")
     private String maxFileSize;
 
     public ResumeAnalysisController(ResumeAnalysisService resumeAnalysisService,
-                                    PDFToImageService pdfToImageService) { // Add parameter
+                                    PDFToImageService pdfToImageService,
+                                    ResumeAnalysisJobService analysisJobs) {
         this.resumeAnalysisService = resumeAnalysisService;
         this.pdfToImageService = pdfToImageService; // Initialize
+        this.analysisJobs = analysisJobs;
     }
 
     @PostMapping("/analyze")
     public ResponseEntity<Map<String, Object>> analyzeResume(
-            @RequestParam("resume") MultipartFile file) {
+            @RequestParam("resume") MultipartFile file,
+            @RequestParam(value = "force", defaultValue = "false") boolean force) {
 
         Map<String, Object> response = new HashMap<>();
 
-        try {
+        // Parsed once: the capability check, extraction, analysis and storage share the document
+        try (ResumeDocumentSession document = resumeAnalysisService.openDocument(file)) {
             Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
             String userEmail = authentication.getName();
 
@@ -89,9 +101,9 @@ public class ResumeAnalysisController {
             boolean canConvertToImages = false;
             int imageCount = 0;
             try {
-                canConvertToImages = pdfToImageService.canConvertToImages(file);
+                canConvertToImages = pdfToImageService.canConvertToImages(document);
                 if (canConvertToImages) {
-                    imageCount = pdfToImageService.getImageCount(file);
+                    imageCount = pdfToImageService.getImageCount(document);
                 }
                 System.out.println("🖼️ Image conversion capability: " + canConvertToImages +
                         " (pages: " + imageCount + ")");
@@ -100,7 +112,7 @@ public class ResumeAnalysisController {
             }
 
             // Analyze resume with enhanced capabilities
-            ResumeAnalysisResponse analysis = resumeAnalysisService.analyzeResume(file, userEmail);
+            ResumeAnalysisResponse analysis = resumeAnalysisService.analyzeResume(document, userEmail, null, stage -> {}, force);
 
             // Enhanced response with more metadata
             response.put("success", true);
@@ -149,6 +161,126 @@ public class ResumeAnalysisController {
         }
     }
 
+    // Streaming analysis (Server-Sent Events): runs as a resume analysis job (spooled upload,
+    // bounded worker pool, per-user cap) and relays its events: "stage", "chunk" with partial
+    // AI output, then "complete" with the persisted analysis or "error".
+    @PostMapping(value = "/analyze/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> analyzeResumeStream(@RequestParam("resume") MultipartFile file,
+                                                 @RequestParam(value = "force", defaultValue = "false") boolean force) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userEmail = authentication.getName();
+
+        Map<String, Object> response = new HashMap<>();
+        if (file.isEmpty() || !"application/pdf".equals(file.getContentType())
+                || file.getSize() > getMaxFileSizeInBytes()) {
+            response.put("success", false);
+            response.put("message", "Please upload a PDF no larger than " + maxFileSize);
+            response.put("supportedFormats", List.of("application/pdf"));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON).body(response);
+        }
+
+        System.out.println("📡 Streaming resume analysis for user: " + userEmail);
+        SseEmitter emitter;
+        try {
+            emitter = analysisJobs.submitAndSubscribe(file, userEmail, force, this::analysisBody);
+        } catch (ResumeJobLimitException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).contentType(MediaType.APPLICATION_JSON)
+                    .body(response);
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Resume analysis is busy, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30")
+                    .contentType(MediaType.APPLICATION_JSON).body(response);
+        }
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    // Job-based analysis: returns a job id at once; the pipeline runs on the resume worker pool.
+    // Progress via GET /jobs/{id} (polling) or GET /jobs/{id}/events (SSE: stage, chunk, complete | error)
+    @PostMapping("/jobs")
+    public ResponseEntity<Map<String, Object>> submitAnalysisJob(
+            @RequestParam("resume") MultipartFile file,
+            @RequestParam(value = "force", defaultValue = "false") boolean force) throws IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String userEmail = authentication.getName();
+
+        Map<String, Object> response = new HashMap<>();
+        if (file.isEmpty() || !"application/pdf".equals(file.getContentType())
+                || file.getSize() > getMaxFileSizeInBytes()) {
+            response.put("success", false);
+            response.put("message", "Please upload a PDF no larger than " + maxFileSize);
+            response.put("supportedFormats", List.of("application/pdf"));
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        ResumeAnalysisJobService.JobView job;
+        try {
+            job = analysisJobs.submit(file, userEmail, force, this::analysisBody);
+        } catch (ResumeJobLimitException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(response);
+        } catch (RejectedExecutionException e) {
+            response.put("success", false);
+            response.put("message", "Resume analysis is busy, please try again shortly");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "30").body(response);
+        }
+        response.put("success", true);
+        response.put("jobId", job.jobId());
+        response.put("stage", job.stage().name().toLowerCase());
+        response.put("statusUrl", "/api/resume/jobs/" + job.jobId());
+        response.put("eventsUrl", "/api/resume/jobs/" + job.jobId() + "/events");
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getAnalysisJob(@PathVariable String jobId) {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        ResumeAnalysisJobService.JobView job = analysisJobs.find(jobId, userEmail);
+        Map<String, Object> response = new HashMap<>();
+        if (job == null) {
+            response.put("success", false);
+            response.put("message", "Analysis job not found: " + jobId);
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        response.put("success", true);
+        response.put("jobId", job.jobId());
+        response.put("stage", job.stage().name().toLowerCase());
+        response.put("createdAt", job.createdAt().toString());
+        response.put("updatedAt", job.updatedAt().toString());
+        if (job.analysisId() != null) response.put("analysisId", job.analysisId());
+        if (job.result() != null) response.put("result", job.result());
+        if (job.error() != null) response.put("error", job.error());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<?> streamAnalysisJob(@PathVariable String jobId) {
+        String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
+        SseEmitter emitter = analysisJobs.subscribe(jobId, userEmail);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).contentType(MediaType.APPLICATION_JSON)
+                    .body(Map.of("success", false, "message", "Analysis job not found: " + jobId));
+        }
+        return ResponseEntity.ok().contentType(MediaType.TEXT_EVENT_STREAM).body(emitter);
+    }
+
+    // Final payload of the streaming and job endpoints
+    private Map<String, Object> analysisBody(ResumeAnalysisResponse analysis) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", true);
+        body.put("analysisId", analysis.getId());
+        body.put("overallScore", analysis.getOverallScore());
+        body.put("scores", analysis.getScores());
+        body.put("suggestions", analysis.getSuggestions());
+        body.put("details", analysis.getDetails());
+        body.put("extractedText", analysis.getExtractedText());
+        body.put("pageImages", analysis.getPageImages());
+        return body;
+    }
+
     // NEW: Endpoint to check analysis capabilities
     @PostMapping("/check-capabilities")
     public ResponseEntity<Map<String, Object>> checkAnalysisCapabilities(
@@ -171,9 +303,13 @@ public class ResumeAnalysisController {
 
             Map<String, Object> capabilities = new HashMap<>();
 
-            // Check image conversion capability
-            boolean canConvertToImages = pdfToImageService.canConvertToImages(file);
-            int imageCount = canConvertToImages ? pdfToImageService.getImageCount(file) : 0;
+            // Check image conversion capability (one parse and render for both answers)
+            boolean canConvertToImages;
+            int imageCount;
+            try (ResumeDocumentSession document = resumeAnalysisService.openDocument(file)) {
+                canConvertToImages = pdfToImageService.canConvertToImages(document);
+                imageCount = canConvertToImages ? pdfToImageService.getImageCount(document) : 0;
+            }
 
             capabilities.put("canConvertToImages", canConvertToImages);
             capabilities.put("imageCount", imageCount);
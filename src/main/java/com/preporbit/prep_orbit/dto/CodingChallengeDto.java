@@ -10,13 +10,16 @@ import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class CodingChallengeDto {
+    @LlmSchema(exclude = true)
     private Long id;
     private String title;
 
     @JsonProperty("problem_statement")
     private String description;
 
+    @LlmSchema(required = false)
     private int timeLimitMs;
+    @LlmSchema(required = false)
     private int memoryLimitKb;
 
     @JsonProperty("input_specification")
@@ -26,6 +29,7 @@ public class CodingChallengeDto {
     private String outputSpec;
 
     private List<String> topics;
+    @LlmSchema(allowed = {"easy", "medium", "hard"})
     private String difficulty;
 
     @JsonProperty("test_cases")
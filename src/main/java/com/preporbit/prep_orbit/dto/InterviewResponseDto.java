@@ -2,6 +2,7 @@ package com.preporbit.prep_orbit.dto;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import com.preporbit.prep_orbit.model.Interview;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +15,8 @@ import java.util.stream.Collectors;
 public class InterviewResponseDto {
 
     private static final Logger logger = LoggerFactory.getLogger(InterviewResponseDto.class);
+    // Built once: a DTO is not a bean, and a String[] reader needs no application settings
+    private static final ObjectReader QUESTIONS_READER = new ObjectMapper().readerFor(String[].class);
 
     private Long id;
     private String role;
@@ -62,8 +65,7 @@ public class InterviewResponseDto {
             return List.of();
         }
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            String[] arr = mapper.readValue(questionsJson, String[].class);
+            String[] arr = QUESTIONS_READER.readValue(questionsJson);
             return Arrays.stream(arr)
                     .map(q -> q == null ? "" : q.trim())
                     .filter(q -> !q.isEmpty())
@@ -1,11 +1,20 @@
 package com.preporbit.prep_orbit.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
 public class LiveFeedbackDto {
+    @LlmSchema(exclude = true)
     private String question;
+    @LlmSchema(exclude = true)
     private String correctAns;
+    @LlmSchema(exclude = true)
     private String userAns;
+    @LlmSchema(description = "Concise feedback, at most 3 lines")
     private String feedback;
+    @LlmSchema(description = "Integer rating from 1 to 10")
     private Integer rating;
+    @LlmSchema(description = "One short improvement suggestion")
     private String suggestion;
 
     public LiveFeedbackDto() {}
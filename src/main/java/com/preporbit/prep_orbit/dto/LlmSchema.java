@@ -0,0 +1,34 @@
+package com.preporbit.prep_orbit.dto;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Fine-tunes how a DTO property appears in the Gemini {@code responseSchema}
+ * generated from it by the LLM JSON codec. Unannotated properties are derived
+ * from their Java type and are required. Lives with the DTOs so they carry no
+ * dependency on the service layer.
+ */
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface LlmSchema {
+
+    /** Hint for the model, sent as the property description. */
+    String description() default "";
+
+    /** Fixed key set for Map-typed properties (Gemini objects need declared properties). */
+    String[] keys() default {};
+
+    /** Allowed values for string properties. */
+    String[] allowed() default {};
+
+    /** Describe this property with another type's schema (e.g. a typed view of a loose Map). */
+    Class<?> as() default Void.class;
+
+    /** Leave the property out of the schema (server-populated fields). */
+    boolean exclude() default false;
+
+    boolean required() default true;
+}
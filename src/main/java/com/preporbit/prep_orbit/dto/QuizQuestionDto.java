@@ -9,6 +9,7 @@ import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
  */
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class QuizQuestionDto {
+    @LlmSchema(exclude = true)
     private Long id;
 
     @JsonAlias({"questionText", "question"})
@@ -17,12 +18,14 @@ public class QuizQuestionDto {
     // Handles arrays, comma-separated strings, and objects with keys "A", "B", "C", "D"
     @JsonAlias({"choices", "options"})
     @JsonDeserialize(using = ChoicesDeserializer.class)
+    @LlmSchema(description = "Exactly four option texts in A, B, C, D order, without letter prefixes")
     private String[] choices;
 
     private String topic;
 
     // Accepts multiple aliases for correct answer field
     @JsonAlias({"correctAnswer", "correct_answer", "answer", "correct"})
+    @LlmSchema(allowed = {"A", "B", "C", "D"})
     private String correctAnswer;
 
     // Getters and Setters
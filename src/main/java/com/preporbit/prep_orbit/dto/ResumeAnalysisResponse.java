@@ -4,12 +4,18 @@ import java.util.List;
 import java.util.Map;
 
 public class ResumeAnalysisResponse {
+    @LlmSchema(exclude = true)
     private Long id;
+    @LlmSchema(description = "Overall score from 20 to 100")
     private int overallScore;
+    @LlmSchema(keys = {"content", "contact", "skills", "experience", "education", "formatting", "keywords", "structure"},
+            description = "Section scores from 0 to 100")
     private Map<String, Integer> scores;
     private List<Suggestion> suggestions;
     private String extractedText;
+    @LlmSchema(as = AnalysisDetails.class)
     private Map<String, Object> details;
+    @LlmSchema(exclude = true)
     private List<String> pageImages;  // ✅ add this
 
     // Default constructor
@@ -19,6 +25,7 @@ public class ResumeAnalysisResponse {
         private String title;
         private String description;
         private String category;
+        @LlmSchema(allowed = {"high", "medium", "low"})
         private String severity;
 
         public Suggestion() {}
@@ -43,6 +50,17 @@ public class ResumeAnalysisResponse {
         public void setSeverity(String severity) { this.severity = severity; }
     }
 
+    // Typed shape of the AI-produced "details" map (response schema only)
+    public record AnalysisDetails(int wordCount,
+                                  boolean hasContactInfo,
+                                  boolean hasSkillsSection,
+                                  boolean hasExperience,
+                                  boolean hasEducation,
+                                  @LlmSchema(required = false) String visualQuality,
+                                  @LlmSchema(required = false) String readability,
+                                  String analysisMethod,
+                                  boolean isImageBased) {}
+
     // Existing getters & setters...
     public int getOverallScore() { return overallScore; }
     public void setOverallScore(int overallScore) { this.overallScore = overallScore; }
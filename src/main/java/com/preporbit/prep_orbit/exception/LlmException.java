@@ -0,0 +1,29 @@
+package com.preporbit.prep_orbit.exception;
+
+/**
+ * Raised by the LLM gateway when an upstream generation call fails.
+ * statusCode is the upstream HTTP status (0 for transport / timeout failures).
+ */
+public class LlmException extends RuntimeException {
+
+    private final int statusCode;
+    private final boolean retryable;
+
+    public LlmException(String msg) {
+        this(msg, 0, false, null);
+    }
+
+    public LlmException(String msg, int statusCode, boolean retryable, Throwable cause) {
+        super(msg, cause);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
@@ -0,0 +1,19 @@
+package com.preporbit.prep_orbit.exception;
+
+/**
+ * Raised when the LLM gateway sheds a request instead of queueing it
+ * (limiter queue full or queue wait exceeded). Never retried by the gateway.
+ */
+public class LlmRejectedException extends LlmException {
+
+    private final long retryAfterMs;
+
+    public LlmRejectedException(String msg, long retryAfterMs) {
+        super(msg, 0, false, null);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
@@ -0,0 +1,10 @@
+package com.preporbit.prep_orbit.exception;
+
+/**
+ * Raised when a user already has the maximum number of resume analysis jobs in flight.
+ */
+public class ResumeJobLimitException extends RuntimeException {
+    public ResumeJobLimitException(String msg) {
+        super(msg);
+    }
+}
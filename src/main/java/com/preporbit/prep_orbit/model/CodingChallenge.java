@@ -33,6 +33,10 @@ public class CodingChallenge {
     @Column(name = "topic")
     private List<String> topics;
 
+    // Pre-generated by the batch pool and not yet handed to a user
+    @Column(name = "daily_pool")
+    private Boolean dailyPool;
+
     // Getters and setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
@@ -63,4 +67,7 @@ public class CodingChallenge {
 
     public List<String> getTopics() { return topics; }
     public void setTopics(List<String> topics) { this.topics = topics; }
+
+    public boolean isDailyPool() { return Boolean.TRUE.equals(dailyPool); }
+    public void setDailyPool(boolean dailyPool) { this.dailyPool = dailyPool; }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.preporbit.prep_orbit.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * One non-interactive generation request waiting for, or done by, batch execution.
+ * The request itself (preamble, prompt, generation config) is stored as JSON so the
+ * job survives restarts; results are written back by the kind's handler.
+ */
+@Entity
+@Table(name = "llm_batch_jobs", indexes = {
+        @Index(name = "idx_llm_batch_jobs_status", columnList = "status, created_at"),
+        @Index(name = "idx_llm_batch_jobs_batch", columnList = "batch_name")
+})
+public class LlmBatchJob {
+
+    public enum Status { PENDING, SUBMITTED, SUCCEEDED, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /** Handler key, e.g. "daily-challenge". */
+    @Column(nullable = false, length = 64)
+    private String kind;
+
+    /** Caller's correlation key (optional). */
+    @Column(name = "ref_key")
+    private String refKey;
+
+    @Column(nullable = false, length = 64)
+    private String profile;
+
+    @Column(nullable = false, length = 128)
+    private String model;
+
+    @Column(name = "request_json", nullable = false, columnDefinition = "TEXT")
+    private String requestJson;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    /** Gemini batch resource ("batches/…") or "paced:…" for rate-paced gateway calls. */
+    @Column(name = "batch_name")
+    private String batchName;
+
+    @Column(name = "result_text", columnDefinition = "TEXT")
+    private String resultText;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private int attempts;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "submitted_at")
+    private LocalDateTime submittedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public LlmBatchJob() {}
+
+    public LlmBatchJob(String kind, String refKey, String profile, String model, String requestJson) {
+        this.kind = kind;
+        this.refKey = refKey;
+        this.profile = profile;
+        this.model = model;
+        this.requestJson = requestJson;
+    }
+
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public String getRefKey() { return refKey; }
+    public void setRefKey(String refKey) { this.refKey = refKey; }
+
+    public String getProfile() { return profile; }
+    public void setProfile(String profile) { this.profile = profile; }
+
+    public String getModel() { return model; }
+    public void setModel(String model) { this.model = model; }
+
+    public String getRequestJson() { return requestJson; }
+    public void setRequestJson(String requestJson) { this.requestJson = requestJson; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getBatchName() { return batchName; }
+    public void setBatchName(String batchName) { this.batchName = batchName; }
+
+    public String getResultText() { return resultText; }
+    public void setResultText(String resultText) { this.resultText = resultText; }
+
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSubmittedAt() { return submittedAt; }
+    public void setSubmittedAt(LocalDateTime submittedAt) { this.submittedAt = submittedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -5,7 +5,9 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "resume_analyses")
+@Table(name = "resume_analyses", indexes = {
+        @Index(name = "idx_resume_analyses_user_hash", columnList = "user_id, content_hash")
+})
 public class ResumeAnalysis {
 
     @Id
@@ -21,6 +23,10 @@ public class ResumeAnalysis {
     @Column(name = "file_size")
     private Long fileSize;
 
+    // SHA-256 (hex) of the uploaded bytes; identical re-uploads reuse this analysis
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "overall_score", nullable = false)
     private Integer overallScore;
 
@@ -134,6 +140,9 @@ public class ResumeAnalysis {
     public Long getFileSize() { return fileSize; }
     public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
 
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+
     public Integer getOverallScore() { return overallScore; }
     public void setOverallScore(Integer overallScore) { this.overallScore = overallScore; }
 
@@ -1,12 +1,20 @@
 package com.preporbit.prep_orbit.repository;
 
 import com.preporbit.prep_orbit.model.CodingChallenge;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 
 import java.util.List;
+import java.util.Optional;
 
 public interface CodingChallengeRepository extends JpaRepository<CodingChallenge, Long> {
     List<CodingChallenge> findByDifficulty(String difficulty);
     List<CodingChallenge> findByTitleContainingIgnoreCase(String keyword);
 
+    // Oldest pre-generated daily challenge, locked so two users can't claim the same one
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<CodingChallenge> findFirstByDailyPoolTrueOrderByIdAsc();
+
+    long countByDailyPoolTrue();
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.preporbit.prep_orbit.repository;
+
+import com.preporbit.prep_orbit.model.LlmBatchJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+public interface LlmBatchJobRepository extends JpaRepository<LlmBatchJob, Long> {
+
+    List<LlmBatchJob> findByStatusOrderByCreatedAtAsc(LlmBatchJob.Status status, Pageable page);
+
+    List<LlmBatchJob> findByBatchNameAndStatus(String batchName, LlmBatchJob.Status status);
+
+    long countByKindAndStatusIn(String kind, Collection<LlmBatchJob.Status> statuses);
+
+    @Query("SELECT DISTINCT j.batchName FROM LlmBatchJob j WHERE j.status = 'SUBMITTED' AND j.batchName LIKE 'batches/%'")
+    List<String> findSubmittedBatchNames();
+
+    // Paced jobs run in memory; after a restart they are re-queued
+    @Query("SELECT j FROM LlmBatchJob j WHERE j.status = 'SUBMITTED' AND j.batchName LIKE 'paced:%' AND j.submittedAt < :before")
+    List<LlmBatchJob> findStalePaced(@Param("before") LocalDateTime before);
+}
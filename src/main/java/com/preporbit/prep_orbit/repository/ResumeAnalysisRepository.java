@@ -56,4 +56,8 @@ public interface ResumeAnalysisRepository extends JpaRepository<ResumeAnalysis,
     Boolean hasAnalyzedToday(@Param("userId") Long userId, @Param("startOfDay") LocalDateTime startOfDay, @Param("endOfDay") LocalDateTime endOfDay);
 
     List<ResumeAnalysis> findByUserId(Long userId);
+
+    // Latest analysis of byte-identical upload (content hash) since a cutoff
+    Optional<ResumeAnalysis> findFirstByUserIdAndContentHashAndCreatedAtAfterOrderByCreatedAtDesc(
+            Long userId, String contentHash, LocalDateTime createdAfter);
 }
\ No newline at end of file
@@ -1,7 +1,9 @@
 package com.preporbit.prep_orbit.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.preporbit.prep_orbit.dto.CodingChallengeDto;
+import com.preporbit.prep_orbit.service.llm.LlmJsonCodec;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -11,40 +13,41 @@ import java.util.List;
 public class AICodingChallengeGeneratorService {
 
     private final GeminiService geminiService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LlmJsonCodec jsonCodec;
 
-    public AICodingChallengeGeneratorService(GeminiService geminiService) {
+    public AICodingChallengeGeneratorService(GeminiService geminiService, LlmJsonCodec jsonCodec) {
         this.geminiService = geminiService;
+        this.jsonCodec = jsonCodec;
     }
 
     public CodingChallengeDto generateChallenge(List<String> topics, String difficulty) {
         // 1. Build AI prompt
         String prompt = buildPrompt(topics, difficulty);
 
-        // 2. Call Gemini API
-        String aiResponse = geminiService.askGemini(prompt);
-        if (aiResponse == null || aiResponse.isEmpty()) {
+        // 2. Call Gemini API (schema-constrained JSON decoded straight into the DTO)
+        CodingChallengeDto challenge = geminiService.askGeminiJson(prompt, LlmProfile.CHALLENGE_GENERATION,
+                CodingChallengeDto.class);
+        if (challenge == null) {
             throw new RuntimeException("AI model overloaded or failed to respond.");
         }
+        return challenge;
+    }
 
-        // 3. Clean AI response and parse to CodingChallengeDto
-        try {
-            String cleanResponse = aiResponse.trim();
-            if (cleanResponse.startsWith("```")) {
-                // Remove first line (backticks, possibly 'json')
-                cleanResponse = cleanResponse.substring(cleanResponse.indexOf('\n') + 1);
-                int lastBackticks = cleanResponse.lastIndexOf("```");
-                if (lastBackticks != -1) {
-                    cleanResponse = cleanResponse.substring(0, lastBackticks);
-                }
-            }
-            cleanResponse = cleanResponse.trim();
+    // Same prompt and schema as generateChallenge, for LlmBatchService (result decoded by decodeChallenge)
+    public LlmRequest buildBatchRequest(List<String> topics, String difficulty) {
+        return LlmRequest.builder(LlmProfile.CHALLENGE_GENERATION)
+                .prompt(buildPrompt(topics, difficulty))
+                .responseSchema(jsonCodec.schemaFor(jsonCodec.type(CodingChallengeDto.class)))
+                .build();
+    }
 
-            CodingChallengeDto challenge = objectMapper.readValue(cleanResponse, CodingChallengeDto.class);
-            return challenge;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to parse AI response: " + e.getMessage() + "\nAI Response: " + aiResponse);
+    public CodingChallengeDto decodeChallenge(String text) {
+        CodingChallengeDto challenge = jsonCodec.<CodingChallengeDto>decodeRepairing(text,
+                jsonCodec.type(CodingChallengeDto.class)).value();
+        if (challenge == null || challenge.getTitle() == null) {
+            throw new IllegalStateException("Batch result is not a coding challenge");
         }
+        return challenge;
     }
 
     private String buildPrompt(List<String> topics, String difficulty) {
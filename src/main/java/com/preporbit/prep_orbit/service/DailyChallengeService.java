@@ -2,11 +2,18 @@ package com.preporbit.prep_orbit.service;
 
 import com.preporbit.prep_orbit.dto.CodingChallengeDto;
 import com.preporbit.prep_orbit.model.CodingChallenge;
+import com.preporbit.prep_orbit.model.LlmBatchJob;
 import com.preporbit.prep_orbit.model.User;
 import com.preporbit.prep_orbit.model.UserChallengeStats;
 import com.preporbit.prep_orbit.repository.UserRepository;
 import com.preporbit.prep_orbit.repository.CodingChallengeRepository;
 import com.preporbit.prep_orbit.repository.UserChallengeStatsRepository;
+import com.preporbit.prep_orbit.service.llm.LlmBatchHandler;
+import com.preporbit.prep_orbit.service.llm.LlmBatchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -16,12 +23,19 @@ import java.util.List;
 import java.util.Optional;
 
 @Service
-public class DailyChallengeService {
+public class DailyChallengeService implements LlmBatchHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DailyChallengeService.class);
+
+    static final String BATCH_KIND = "daily-challenge";
 
     private final UserChallengeStatsRepository userChallengeStatsRepository;
     private final UserRepository userRepository;
     private final CodingChallengeRepository codingChallengeRepository;
     private final AICodingChallengeGeneratorService aiGenerator;
+    private final LlmBatchService batchService;
+    private final boolean poolEnabled;
+    private final int poolTarget;
 
     // Default topics and difficulty for daily challenges
     private static final List<String> DEFAULT_TOPICS = Arrays.asList("arrays", "strings", "algorithms");
@@ -31,11 +45,17 @@ public class DailyChallengeService {
             UserChallengeStatsRepository userChallengeStatsRepository,
             UserRepository userRepository,
             CodingChallengeRepository codingChallengeRepository,
-            AICodingChallengeGeneratorService aiGenerator) {
+            AICodingChallengeGeneratorService aiGenerator,
+            LlmBatchService batchService,
+            @Value("${daily-challenge.pool.enabled:true}") boolean poolEnabled,
+            @Value("${daily-challenge.pool.target:20}") int poolTarget) {
         this.userChallengeStatsRepository = userChallengeStatsRepository;
         this.userRepository = userRepository;
         this.codingChallengeRepository = codingChallengeRepository;
         this.aiGenerator = aiGenerator;
+        this.batchService = batchService;
+        this.poolEnabled = poolEnabled;
+        this.poolTarget = poolTarget;
     }
 
     @Transactional
@@ -81,20 +101,33 @@ public class DailyChallengeService {
         try {
             System.out.println("=== Generating new challenge for user ID: " + user.getId() + " ===");
 
-            // Generate new challenge using AI
-            CodingChallengeDto challengeDto = aiGenerator.generateChallenge(DEFAULT_TOPICS, DEFAULT_DIFFICULTY);
+            CodingChallengeDto challengeDto;
+            CodingChallenge codingChallenge;
 
-            if (challengeDto == null) {
-                throw new RuntimeException("AI service returned null challenge");
-            }
+            // Prefer a challenge pre-generated by the batch pool; live generation only when it's empty
+            Optional<CodingChallenge> pooled = codingChallengeRepository.findFirstByDailyPoolTrueOrderByIdAsc();
+            if (pooled.isPresent()) {
+                codingChallenge = pooled.get();
+                codingChallenge.setDailyPool(false);
+                codingChallengeRepository.save(codingChallenge);
+                challengeDto = convertToDto(codingChallenge);
+                System.out.println("Claimed pooled challenge with ID: " + codingChallenge.getId());
+            } else {
+                // Generate new challenge using AI
+                challengeDto = aiGenerator.generateChallenge(DEFAULT_TOPICS, DEFAULT_DIFFICULTY);
 
-            System.out.println("Generated challenge DTO: " + challengeDto.getTitle());
+                if (challengeDto == null) {
+                    throw new RuntimeException("AI service returned null challenge");
+                }
 
-            // Save to coding_challenges table
-            CodingChallenge codingChallenge = codingChallengeRepository.save(challengeDto.toModel());
-            challengeDto.setId(codingChallenge.getId());
+                System.out.println("Generated challenge DTO: " + challengeDto.getTitle());
 
-            System.out.println("Saved challenge with ID: " + codingChallenge.getId());
+                // Save to coding_challenges table
+                codingChallenge = codingChallengeRepository.save(challengeDto.toModel());
+                challengeDto.setId(codingChallenge.getId());
+
+                System.out.println("Saved challenge with ID: " + codingChallenge.getId());
+            }
 
             // Create user_challenge_stats record using constructor
             UserChallengeStats stats = new UserChallengeStats(user.getId(), codingChallenge.getId());
@@ -115,6 +148,33 @@ public class DailyChallengeService {
         }
     }
 
+    /* ====================== BATCH POOL ====================== */
+
+    // Tops the pool up through LlmBatchService, off-peak; results arrive via onResult
+    @Scheduled(cron = "${daily-challenge.pool.refill-cron:0 0 3 * * *}")
+    public void refillPool() {
+        if (!poolEnabled) return;
+        long missing = poolTarget - codingChallengeRepository.countByDailyPoolTrue() - batchService.outstanding(BATCH_KIND);
+        if (missing <= 0) return;
+        for (int i = 0; i < missing; i++) {
+            batchService.enqueue(BATCH_KIND, DEFAULT_DIFFICULTY, aiGenerator.buildBatchRequest(DEFAULT_TOPICS, DEFAULT_DIFFICULTY));
+        }
+        logger.info("📦 Queued {} daily challenge(s) for batch generation", missing);
+    }
+
+    @Override
+    public String kind() {
+        return BATCH_KIND;
+    }
+
+    @Override
+    @Transactional
+    public void onResult(LlmBatchJob job, String text) {
+        CodingChallenge challenge = aiGenerator.decodeChallenge(text).toModel();
+        challenge.setDailyPool(true);
+        codingChallengeRepository.save(challenge);
+    }
+
     private CodingChallengeDto convertToDto(CodingChallenge challenge) {
         try {
             CodingChallengeDto dto = new CodingChallengeDto();
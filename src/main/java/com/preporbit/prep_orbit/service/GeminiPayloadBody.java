@@ -0,0 +1,186 @@
+package com.preporbit.prep_orbit.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Base64;
+import java.util.Map;
+
+/**
+ * generateContent request body written straight to the socket sink.
+ *
+ * The JSON envelope comes from Jackson's {@link JsonGenerator} (full string
+ * escaping), and each page image is JPEG-encoded through a Base64 encoder
+ * directly into the sink, so no Base64 String, JSON String or body byte[]
+ * copy of the images is ever materialised. Re-writable: OkHttp may replay
+ * the body on a connection retry.
+ */
+final class GeminiPayloadBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final LlmRequest request;
+    private final ObjectMapper mapper;
+
+    GeminiPayloadBody(LlmRequest request, ObjectMapper mapper) {
+        this.request = request;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1; // streamed (chunked); image size is unknown until encoded
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        OutputStream out = new NonClosingOutputStream(sink.outputStream());
+        try (JsonGenerator gen = mapper.createGenerator(out)) {
+            writeRequest(gen, out, request);
+        }
+    }
+
+    /** One generateContent request object (also the per-entry {@code request} of a batch). */
+    static void writeRequest(JsonGenerator gen, OutputStream out, LlmRequest request) throws IOException {
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("contents");
+        gen.writeStartObject();
+        gen.writeArrayFieldStart("parts");
+
+        // The fixed preamble goes first: identical prefixes hit Gemini's implicit cache
+        if (request.hasPreamble()) {
+            gen.writeStartObject();
+            gen.writeStringField("text", request.getPreamble());
+            gen.writeEndObject();
+        }
+        if (!request.getPrompt().isEmpty() || !request.hasImages()) {
+            gen.writeStartObject();
+            gen.writeStringField("text", request.getPrompt());
+            gen.writeEndObject();
+        }
+
+        for (BufferedImage img : request.getImages()) {
+            gen.writeStartObject();
+            gen.writeObjectFieldStart("inline_data");
+            gen.writeStringField("mime_type", "image/jpeg");
+            gen.writeFieldName("data");
+            // Base64 needs no JSON escaping: open the string, stream the bytes, close it
+            gen.writeRawValue("\"");
+            gen.flush();
+            writeJpegBase64(img, out);
+            gen.writeRaw('"');
+            gen.writeEndObject();
+            gen.writeEndObject();
+        }
+
+        gen.writeEndArray();
+        gen.writeEndObject();
+        gen.writeEndArray();
+
+        if (!request.getGenerationConfig().isEmpty()) {
+            gen.writeObjectField("generationConfig", request.getGenerationConfig());
+        }
+        gen.writeEndObject();
+    }
+
+    /**
+     * batchGenerateContent body: inline requests, each tagged with a caller key that
+     * comes back in the response metadata.
+     */
+    static final class Batch extends RequestBody {
+        private final String displayName;
+        private final Map<String, LlmRequest> requests;
+        private final ObjectMapper mapper;
+
+        Batch(String displayName, Map<String, LlmRequest> requests, ObjectMapper mapper) {
+            this.displayName = displayName;
+            this.requests = requests;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            OutputStream out = new NonClosingOutputStream(sink.outputStream());
+            try (JsonGenerator gen = mapper.createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeObjectFieldStart("batch");
+                gen.writeStringField("display_name", displayName);
+                gen.writeObjectFieldStart("input_config");
+                gen.writeObjectFieldStart("requests");
+                gen.writeArrayFieldStart("requests");
+                for (Map.Entry<String, LlmRequest> entry : requests.entrySet()) {
+                    gen.writeStartObject();
+                    gen.writeFieldName("request");
+                    writeRequest(gen, out, entry.getValue());
+                    gen.writeObjectFieldStart("metadata");
+                    gen.writeStringField("key", entry.getKey());
+                    gen.writeEndObject();
+                    gen.writeEndObject();
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+                gen.writeEndObject();
+                gen.writeEndObject();
+                gen.writeEndObject();
+            }
+        }
+    }
+
+    /** JPEG-encodes {@code img} as Base64 into {@code out} (shared with {@link OpenAiRestClient}). */
+    static void writeJpegBase64(BufferedImage img, OutputStream out) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        OutputStream base64 = Base64.getEncoder().wrap(new NonClosingOutputStream(out));
+        // memory cache instead of ImageIO's default temp-file cache
+        try (MemoryCacheImageOutputStream ios = new MemoryCacheImageOutputStream(base64)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(img, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        base64.close(); // emits the final padding; the sink itself stays open
+    }
+
+    /** Lets wrapping streams be closed without closing the underlying sink. */
+    static final class NonClosingOutputStream extends FilterOutputStream {
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -1,31 +1,59 @@
 package com.preporbit.prep_orbit.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmResponse;
+import com.preporbit.prep_orbit.util.JsonCodecs;
 import okhttp3.*;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.Base64;
-import java.io.ByteArrayOutputStream;
-import javax.imageio.ImageIO;
-import java.awt.image.BufferedImage;
-import java.util.concurrent.TimeUnit;
-
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Low-level Gemini REST transport shared by all AI traffic.
+ *
+ * One OkHttpClient (one connection pool, one dispatcher) is used for every
+ * generateContent / streamGenerateContent / batches call; calls are enqueued
+ * asynchronously so no request thread is parked on the socket.
+ * Retry / orchestration lives in LlmGateway.
+ */
 @Component
 public class GeminiRestClient {
 
+    private static final Logger logger = LoggerFactory.getLogger(GeminiRestClient.class);
+
+    private static final int MIN_PRO_THINKING_BUDGET = 128;
+
     private final String apiKey;
-    private final String model;
+    private final String apiBase;
+    private final String apiRoot;
     private final OkHttpClient client;
-    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonCodecs json;
 
-    // Base API URL
-    private static final String GEMINI_API_BASE =
-            "https://generativelanguage.googleapis.com/v1/models/";
+    private static final Duration ADMIN_TIMEOUT = Duration.ofSeconds(30);
 
     public GeminiRestClient(
             @Value("${GOOGLE_API_KEY:}") String apiKey,
-            @Value("${resume.ai.model:gemini-2.5-flash}") String model) {
+            @Value("${GEMINI_API_BASE:${interview.ai.api.url:https://generativelanguage.googleapis.com/v1beta/models}}") String apiBase,
+            @Value("${llm.http.max-requests:64}") int maxRequests,
+            @Value("${llm.http.max-idle-connections:16}") int maxIdleConnections,
+            @Value("${llm.http.keep-alive-seconds:300}") long keepAliveSeconds,
+            JsonCodecs json) {
 
         if (apiKey == null || apiKey.isBlank()) {
             apiKey = System.getenv("GOOGLE_API_KEY");
@@ -34,95 +62,259 @@ public class GeminiRestClient {
             throw new IllegalStateException("GOOGLE_API_KEY not configured.");
         }
         this.apiKey = apiKey;
+        this.json = json;
+        this.apiBase = apiBase.endsWith("/") ? apiBase.substring(0, apiBase.length() - 1) : apiBase;
+        // ".../v1beta/models" → ".../v1beta" (batch operations live at the root)
+        String root = this.apiBase.endsWith("/models")
+                ? this.apiBase.substring(0, this.apiBase.length() - "/models".length())
+                : this.apiBase;
+        this.apiRoot = root;
 
-        if (model == null || model.isBlank()) {
-            this.model = "gemini-2.5-flash"; // default
-        } else {
-            this.model = model;
-        }
+        // Callbacks run on virtual threads; all traffic targets one host, so per-host == global cap
+        Dispatcher dispatcher = new Dispatcher(Executors.newVirtualThreadPerTaskExecutor());
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
 
-        // Custom timeouts (important for image analysis)
         this.client = new OkHttpClient.Builder()
-                .connectTimeout(30, TimeUnit.SECONDS)
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, keepAliveSeconds, TimeUnit.SECONDS))
+                .connectTimeout(10, TimeUnit.SECONDS)
                 .writeTimeout(60, TimeUnit.SECONDS)
-                .readTimeout(180, TimeUnit.SECONDS) // allow long responses
+                .readTimeout(180, TimeUnit.SECONDS) // allow long responses; per-call deadline set below
                 .build();
     }
 
-    /** Core request executor with retry */
-    private String executeWithRetry(Request request) throws Exception {
-        int maxRetries = 5;
-        int attempt = 0;
-
-        while (true) {
-            try (Response response = client.newCall(request).execute()) {
-                if (response.isSuccessful()) {
-                    return response.body().string();
-                } else if ((response.code() == 503 || response.code() == 504) && attempt < maxRetries) {
-                    long wait = (long) Math.pow(2, attempt) * 1000; // exponential backoff
-                    Thread.sleep(wait);
-                    attempt++;
-                } else {
-                    throw new RuntimeException("Gemini API error: " + response.code() + " - " + response.body().string());
+    /**
+     * Asynchronous generateContent call. The returned future completes with the
+     * parsed response or an {@link LlmException}; cancelling it cancels the HTTP call.
+     */
+    public CompletableFuture<LlmResponse> generateContent(LlmRequest request, String model, Duration timeout) {
+        final long start = System.nanoTime();
+        return execute(forModel(request, model), model + ":generateContent", timeout, body -> {
+            String raw = body.string();
+            return parseResponse(raw, model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        });
+    }
+
+    /**
+     * Streaming call ({@code streamGenerateContent?alt=sse}). Each text delta is passed
+     * to {@code onChunk} as it arrives; the future completes with the full text.
+     */
+    public CompletableFuture<LlmResponse> streamGenerateContent(LlmRequest request, String model, Duration timeout,
+                                                                Consumer<String> onChunk) {
+        final long start = System.nanoTime();
+        return execute(forModel(request, model), model + ":streamGenerateContent?alt=sse", timeout,
+                body -> readStream(body, model, start, onChunk));
+    }
+
+    /* ====================== BATCH ====================== */
+
+    /** One entry of a finished batch: the caller's key and either a response or an error message. */
+    public record BatchResult(String key, LlmResponse response, String error) {
+    }
+
+    /** Batch operation state ({@code BATCH_STATE_*}); results are present once {@code done}. */
+    public record BatchStatus(String name, String state, boolean done, List<BatchResult> results) {
+        public boolean succeeded() {
+            return done && "BATCH_STATE_SUCCEEDED".equals(state);
+        }
+    }
+
+    /**
+     * Submits inline requests ({@code POST models/{model}:batchGenerateContent}); keys come
+     * back with the results. Returns the batch resource name ({@code batches/…}).
+     */
+    public CompletableFuture<String> submitBatch(String model, String displayName, Map<String, LlmRequest> requests) {
+        Map<String, LlmRequest> adapted = new LinkedHashMap<>();
+        requests.forEach((key, request) -> adapted.put(key, forModel(request, model)));
+        return send(new Request.Builder()
+                .url(apiBase + "/" + model + ":batchGenerateContent")
+                .post(new GeminiPayloadBody.Batch(displayName, adapted, json.mapper())), ADMIN_TIMEOUT, body -> {
+            String name = json.tree().readTree(body.string()).path("name").asText(null);
+            if (name == null) throw new LlmException("batchGenerateContent response without a name");
+            return name;
+        });
+    }
+
+    public CompletableFuture<BatchStatus> getBatch(String name, String model) {
+        return send(new Request.Builder().url(apiRoot + "/" + name).get(), ADMIN_TIMEOUT,
+                body -> parseBatch(json.tree().readTree(body.string()), name, model));
+    }
+
+    private BatchStatus parseBatch(JsonNode root, String name, String model) {
+        JsonNode metadata = root.path("metadata");
+        String state = metadata.path("state").asText(root.path("state").asText("BATCH_STATE_UNSPECIFIED"));
+        boolean done = root.path("done").asBoolean(false);
+        List<BatchResult> results = new ArrayList<>();
+        if (done) {
+            JsonNode inlined = root.path("response").path("inlinedResponses").path("inlinedResponses");
+            if (inlined.isMissingNode()) {
+                inlined = metadata.path("output").path("inlinedResponses").path("inlinedResponses");
+            }
+            for (JsonNode entry : inlined) {
+                String key = entry.path("metadata").path("key").asText(null);
+                if (entry.has("error")) {
+                    results.add(new BatchResult(key, null, entry.path("error").path("message").asText("error")));
+                    continue;
                 }
-            } catch (java.net.SocketTimeoutException e) {
-                if (attempt < maxRetries) {
-                    long wait = (long) Math.pow(2, attempt) * 1000;
-                    Thread.sleep(wait);
-                    attempt++;
-                } else {
-                    throw new RuntimeException("Gemini API timeout after retries", e);
+                try {
+                    results.add(new BatchResult(key, parseResponse(entry.path("response"), model, 0), null));
+                } catch (LlmException e) {
+                    results.add(new BatchResult(key, null, e.getMessage()));
                 }
             }
         }
+        return new BatchStatus(name, state, done, results);
     }
 
-    /** Analyze resume using images + prompt */
-    public String analyzeResumeImages(BufferedImage[] images, String prompt) throws Exception {
-        StringBuilder imageParts = new StringBuilder();
-        for (BufferedImage img : images) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            // 👉 Tip: downscale & compress images before sending to reduce payload
-            ImageIO.write(img, "jpg", baos); // use JPEG instead of PNG
-            String base64Img = Base64.getEncoder().encodeToString(baos.toByteArray());
-            imageParts.append(String.format(
-                    "{\"inline_data\": {\"mime_type\": \"image/jpeg\", \"data\": \"%s\"}},", base64Img
-            ));
+    /**
+     * Fits profile generation params to {@code model}: thinking config exists from 2.5 on
+     * (older models reject it) and Pro models cannot switch thinking off.
+     */
+    static LlmRequest forModel(LlmRequest request, String model) {
+        if (!(request.getGenerationConfig().get("thinkingConfig") instanceof Map<?, ?> thinking)) return request;
+        if (model.startsWith("gemini-1") || model.startsWith("gemini-2.0")) {
+            return request.toBuilder().generationParam("thinkingConfig", null).build();
         }
-        if (imageParts.length() > 0) imageParts.setLength(imageParts.length() - 1);
-
-        String payload = String.format("""
-        {
-            "contents": [
-                {"parts":[
-                    {"text": "%s"},
-                    %s
-                ]}
-            ]
+        if (model.contains("-pro") && thinking.get("thinkingBudget") instanceof Integer budget
+                && budget >= 0 && budget < MIN_PRO_THINKING_BUDGET) {
+            return request.toBuilder()
+                    .generationParam("thinkingConfig", Map.of("thinkingBudget", MIN_PRO_THINKING_BUDGET))
+                    .build();
         }
-        """, prompt.replace("\"", "\\\""), imageParts);
+        return request;
+    }
 
-        Request request = new Request.Builder()
-                .url(GEMINI_API_BASE + model + ":generateContent?key=" + apiKey)
-                .post(RequestBody.create(payload, MediaType.get("application/json")))
-                .build();
+    /* ====================== HTTP ====================== */
 
-        return executeWithRetry(request);
+    @FunctionalInterface
+    private interface BodyHandler<T> {
+        T handle(ResponseBody body) throws IOException;
     }
 
-    /** Text-only resume analysis */
-    public String analyzeResumeText(String prompt) throws Exception {
-        String payload = String.format("""
-        {
-            "contents": [{"parts":[{"text": "%s"}]}]
+    private CompletableFuture<LlmResponse> execute(LlmRequest request, String path, Duration timeout,
+                                                   BodyHandler<LlmResponse> handler) {
+        // Payload is streamed to the socket (JsonGenerator + Base64-encoded images), see GeminiPayloadBody
+        return send(new Request.Builder()
+                .url(apiBase + "/" + path)
+                .post(new GeminiPayloadBody(request, json.mapper())), timeout, handler);
+    }
+
+    private <T> CompletableFuture<T> send(Request.Builder builder, Duration timeout, BodyHandler<T> handler) {
+        Request httpRequest = builder.header("x-goog-api-key", apiKey).build();
+
+        Call call = client.newCall(httpRequest);
+        call.timeout().timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.whenComplete((r, t) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(transportError(e));
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        int code = response.code();
+                        String raw = body == null ? "" : body.string();
+                        future.completeExceptionally(new LlmException(
+                                "Gemini API error: " + code + " - " + raw, code,
+                                code == 429 || code >= 500, null));
+                        return;
+                    }
+                    if (body == null) {
+                        throw new LlmException("Empty Gemini response body");
+                    }
+                    future.complete(handler.handle(body));
+                } catch (LlmException e) {
+                    future.completeExceptionally(e);
+                } catch (IOException e) {
+                    future.completeExceptionally(transportError(e));
+                } catch (Exception e) {
+                    future.completeExceptionally(new LlmException(
+                            "Failed to read Gemini response: " + e.getMessage(), 0, true, e));
+                }
+            }
+        });
+        return future;
+    }
+
+    private static LlmException transportError(IOException e) {
+        boolean timedOut = e instanceof InterruptedIOException;
+        return new LlmException(
+                (timedOut ? "Gemini call timed out: " : "Gemini transport error: ") + e.getMessage(),
+                0, true, e);
+    }
+
+    /* ====================== RESPONSE ====================== */
+
+    private LlmResponse parseResponse(String raw, String model, long elapsedMs) throws IOException {
+        return parseResponse(json.tree().readTree(raw), model, elapsedMs);
+    }
+
+    private LlmResponse parseResponse(JsonNode root, String model, long elapsedMs) {
+        JsonNode candidate = root.path("candidates").path(0);
+        if (candidate.isMissingNode()) {
+            String blockReason = root.path("promptFeedback").path("blockReason").asText("none");
+            throw new LlmException("No candidates returned from Gemini (blockReason=" + blockReason + ")");
         }
-        """, prompt.replace("\"", "\\\""));
 
-        Request request = new Request.Builder()
-                .url(GEMINI_API_BASE + model + ":generateContent?key=" + apiKey)
-                .post(RequestBody.create(payload, MediaType.get("application/json")))
-                .build();
+        StringBuilder text = new StringBuilder();
+        appendCandidateText(candidate, text);
+
+        String finishReason = candidate.path("finishReason").asText(null);
+        logger.debug("Gemini {} finished in {}ms (finishReason={})", model, elapsedMs, finishReason);
+        return new LlmResponse(text.toString(), model, finishReason, root.get("usageMetadata"), elapsedMs);
+    }
+
+    /** Reads SSE events ("data: {json}") until the stream ends, relaying text deltas. */
+    private LlmResponse readStream(ResponseBody body, String model, long start, Consumer<String> onChunk)
+            throws IOException {
+        BufferedSource source = body.source();
+        StringBuilder text = new StringBuilder();
+        String finishReason = null;
+        JsonNode usage = null;
+        long firstChunkMs = -1;
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) continue; // blank separators / comments
+            JsonNode event = json.tree().readTree(line.substring(5).trim());
+            JsonNode candidate = event.path("candidates").path(0);
+            if (candidate.isMissingNode() && text.isEmpty()) {
+                String blockReason = event.path("promptFeedback").path("blockReason").asText(null);
+                if (blockReason != null) {
+                    throw new LlmException("Gemini stream blocked (blockReason=" + blockReason + ")");
+                }
+            }
 
-        return executeWithRetry(request);
+            int before = text.length();
+            appendCandidateText(candidate, text);
+            if (text.length() > before) {
+                if (firstChunkMs < 0) firstChunkMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                onChunk.accept(text.substring(before));
+            }
+            if (candidate.hasNonNull("finishReason")) finishReason = candidate.get("finishReason").asText();
+            if (event.has("usageMetadata")) usage = event.get("usageMetadata");
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.debug("Gemini stream {} finished in {}ms (firstChunk={}ms, finishReason={})",
+                model, elapsed, firstChunkMs, finishReason);
+        return new LlmResponse(text.toString(), model, finishReason, usage, elapsed);
+    }
+
+    private static void appendCandidateText(JsonNode candidate, StringBuilder text) {
+        for (JsonNode part : candidate.path("content").path("parts")) {
+            if (part.path("thought").asBoolean(false)) continue; // skip thinking summaries
+            JsonNode t = part.get("text");
+            if (t != null) text.append(t.asText());
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,46 +1,159 @@
 package com.preporbit.prep_orbit.service;
 
-import com.google.genai.Client;
-import com.google.genai.errors.ServerException;
-import com.google.genai.types.GenerateContentResponse;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import com.preporbit.prep_orbit.service.llm.LlmGateway;
+import com.preporbit.prep_orbit.service.llm.LlmJsonCodec;
+import com.preporbit.prep_orbit.service.llm.LlmJsonRecovery;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.PromptCompactor;
+import com.preporbit.prep_orbit.service.llm.PromptTemplate;
+import com.preporbit.prep_orbit.service.llm.PromptTemplateRegistry;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 @Service
 public class GeminiService {
-    private final Client client;
-    private final GeminiRestClient geminiRestClient;
+    private final LlmGateway llmGateway;
+    private final LlmJsonCodec jsonCodec;
+    private final LlmJsonRecovery jsonRecovery;
+    private final PromptCompactor promptCompactor;
+    private final PromptTemplateRegistry templates;
+    private final String resumeModel;
 
-    public GeminiService(Client client, GeminiRestClient geminiRestClient) {
-        this.client = client;
-        this.geminiRestClient = geminiRestClient;
+    public GeminiService(LlmGateway llmGateway,
+                         LlmJsonCodec jsonCodec,
+                         LlmJsonRecovery jsonRecovery,
+                         PromptCompactor promptCompactor,
+                         PromptTemplateRegistry templates,
+                         @Value("${resume.ai.model:gemini-2.5-flash}") String resumeModel) {
+        this.llmGateway = llmGateway;
+        this.jsonCodec = jsonCodec;
+        this.jsonRecovery = jsonRecovery;
+        this.promptCompactor = promptCompactor;
+        this.templates = templates;
+        this.resumeModel = resumeModel;
     }
 
-    // Your existing method - keep this exactly as is
+    // Generic prompt entry point (chat endpoint and callers without a dedicated profile)
     public String askGemini(String prompt) {
-        System.out.println("🔤 Text Service hit");
+        return askGemini(prompt, LlmProfile.CHAT);
+    }
+
+    // Returns null when the model is unavailable so callers can use their own fallbacks.
+    // A request shed under load is not a failure to hide: LlmRejectedException propagates
+    // (GlobalExceptionHandler answers 503 with Retry-After).
+    public String askGemini(String prompt, LlmProfile profile) {
+        return askGemini(LlmRequest.builder(profile).prompt(prompt), profile);
+    }
+
+    // Template-rendered prompt: the fixed preamble goes first, where Gemini's implicit prefix cache can reuse it
+    public String askGemini(PromptTemplate.Rendered prompt, LlmProfile profile) {
+        return askGemini(LlmRequest.builder(profile).template(prompt), profile);
+    }
+
+    private String askGemini(LlmRequest.Builder request, LlmProfile profile) {
+        System.out.println("🔤 Text Service hit [" + profile.getKey() + "]");
         try {
-            GenerateContentResponse response =
-                    client.models.generateContent(
-                            "gemini-2.5-flash",
-                            prompt,
-                            null);
+            String text = llmGateway.call(request.build()).getText();
             System.out.println("✅ RAW Gemini output:");
-            System.out.println(response.text());
+            System.out.println(text);
+            return text;
+        } catch (LlmRejectedException e) {
+            throw e;
+        } catch (LlmException e) {
+            System.err.println("❌ Gemini API call failed: " + e.getMessage());
+            return null;
+        }
+    }
 
-            return response.text();
-        } catch (ServerException e) {
-            System.err.println("❌ Gemini API overloaded: " + e.getMessage());
+    // Streams text deltas to onChunk; returns the full text, or null on failure like askGemini
+    public String askGeminiStreaming(String prompt, LlmProfile profile, Consumer<String> onChunk) {
+        System.out.println("📡 Streaming Text Service hit [" + profile.getKey() + "]");
+        try {
+            return llmGateway.callStreaming(LlmRequest.of(profile, prompt), onChunk).getText();
+        } catch (LlmRejectedException e) {
+            throw e;
+        } catch (LlmException e) {
+            System.err.println("❌ Gemini streaming call failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    // Non-blocking variant; completes with null on failure, like askGemini
+    public CompletableFuture<String> askGeminiAsync(String prompt, LlmProfile profile) {
+        return llmGateway.generate(LlmRequest.of(profile, prompt))
+                .handle((resp, err) -> {
+                    if (err != null) {
+                        System.err.println("❌ Gemini async call failed: " + err.getMessage());
+                        return null;
+                    }
+                    return resp.getText();
+                });
+    }
+
+    // Structured output: Gemini is constrained to the JSON schema of `type` and the reply is
+    // decoded straight into it. Returns null on model or decode failure, like askGemini
+    // (shed requests propagate the same way).
+    public <T> T askGeminiJson(String prompt, LlmProfile profile, Class<T> type) {
+        return askGeminiJson(LlmRequest.builder(profile).prompt(prompt), profile, jsonCodec.type(type), null);
+    }
+
+    public <T> T askGeminiJson(String prompt, LlmProfile profile, TypeReference<T> type) {
+        return askGeminiJson(LlmRequest.builder(profile).prompt(prompt), profile, jsonCodec.type(type), null);
+    }
+
+    // Same as above; partial JSON output is relayed to onChunk when set (SSE endpoints)
+    public <T> T askGeminiJson(String prompt, LlmProfile profile, Class<T> type, Consumer<String> onChunk) {
+        return askGeminiJson(LlmRequest.builder(profile).prompt(prompt), profile, jsonCodec.type(type), onChunk);
+    }
+
+    public <T> T askGeminiJson(PromptTemplate.Rendered prompt, LlmProfile profile, Class<T> type) {
+        return askGeminiJson(LlmRequest.builder(profile).template(prompt), profile, jsonCodec.type(type), null);
+    }
+
+    public <T> T askGeminiJson(PromptTemplate.Rendered prompt, LlmProfile profile, TypeReference<T> type) {
+        return askGeminiJson(LlmRequest.builder(profile).template(prompt), profile, jsonCodec.type(type), null);
+    }
+
+    private <T> T askGeminiJson(LlmRequest.Builder request, LlmProfile profile, JavaType type, Consumer<String> onChunk) {
+        System.out.println("🧾 JSON Service hit [" + profile.getKey() + "] -> " + type.toCanonical());
+        try {
+            // Malformed or truncated output is repaired locally, with at most one "continue" call
+            return jsonRecovery.call(request
+                    .responseSchema(jsonCodec.schemaFor(type))
+                    .build(), type, onChunk);
+        } catch (LlmRejectedException e) {
+            throw e;
+        } catch (LlmException e) {
+            System.err.println("❌ Gemini JSON call failed: " + e.getMessage());
             return null;
         }
     }
 
     public String analyzeResumeText(String extractedText) {
+        return analyzeResumeText(extractedText, null);
+    }
+
+    public String analyzeResumeText(String extractedText, Consumer<String> onChunk) {
         System.out.println("📝 Starting resume text analysis...");
-        String prompt = buildResumeAnalysisPrompt(extractedText);
+        PromptTemplate.Rendered prompt = buildResumeAnalysisPrompt(extractedText);
         try {
-            return geminiRestClient.analyzeResumeText(prompt);
+            return generate(LlmRequest.builder(LlmProfile.RESUME_ANALYSIS)
+                    .model(resumeModel)
+                    .template(prompt)
+                    .responseSchema(jsonCodec.schemaFor(jsonCodec.type(ResumeAnalysisResponse.class)))
+                    .localFallback(this::createGeneralFallback)
+                    .build(), onChunk);
         } catch (Exception e) {
             System.err.println("❌ Gemini text analysis failed: " + e.getMessage());
             return createGeneralFallback();
@@ -49,10 +162,20 @@ public class GeminiService {
 
     // TRUE image-based analysis (multimodal Gemini call)
     public String analyzeResumeImages(BufferedImage[] images) {
+        return analyzeResumeImages(images, null);
+    }
+
+    public String analyzeResumeImages(BufferedImage[] images, Consumer<String> onChunk) {
         System.out.println("🖼️ Starting true image-based resume analysis (multimodal)...");
-        String prompt = buildImageAnalysisPrompt(images.length);
+        PromptTemplate.Rendered prompt = buildImageAnalysisPrompt(images.length);
         try {
-            return geminiRestClient.analyzeResumeImages(images, prompt);
+            return generate(LlmRequest.builder(LlmProfile.RESUME_IMAGE_ANALYSIS)
+                    .model(resumeModel)
+                    .template(prompt)
+                    .images(images)
+                    .responseSchema(jsonCodec.schemaFor(jsonCodec.type(ResumeAnalysisResponse.class)))
+                    .localFallback(this::createImageAnalysisFallback)
+                    .build(), onChunk);
         } catch (Exception e) {
             System.err.println("❌ Gemini image analysis failed: " + e.getMessage());
             return createImageAnalysisFallback();
@@ -61,19 +184,30 @@ public class GeminiService {
 
     // Smart analysis: text first, fallback to images
     public String analyzeResume(String extractedText, BufferedImage[] images) {
+        return analyzeResume(extractedText, images, null);
+    }
+
+    // Same as above; partial model output is relayed to onChunk when set (SSE endpoints)
+    public String analyzeResume(String extractedText, BufferedImage[] images, Consumer<String> onChunk) {
         System.out.println("🎯 Starting smart resume analysis...");
         if (isTextMeaningful(extractedText)) {
             System.out.println("✅ Using text-based analysis");
-            return analyzeResumeText(extractedText);
+            return analyzeResumeText(extractedText, onChunk);
         } else if (images != null && images.length > 0) {
             System.out.println("🖼️ Falling back to image-based analysis");
-            return analyzeResumeImages(images);
+            return analyzeResumeImages(images, onChunk);
         } else {
             System.out.println("⚠️ No meaningful content found, using fallback");
             return createGeneralFallback();
         }
     }
 
+    private String generate(LlmRequest request, Consumer<String> onChunk) {
+        return (onChunk == null
+                ? llmGateway.call(request)
+                : llmGateway.callStreaming(request, onChunk)).getText();
+    }
+
     // Helper: is extracted text meaningful for AI analysis?
     private boolean isTextMeaningful(String text) {
         if (text == null || text.trim().isEmpty()) return false;
@@ -84,104 +218,14 @@ public class GeminiService {
                 cleanText.matches(".*[a-zA-Z]{3,}.*");
     }
 
-    // Prompt for Gemini text analysis
-    private String buildResumeAnalysisPrompt(String extractedText) {
-        return String.format("""
-            Analyze this resume text comprehensively and provide detailed feedback in JSON format.
-            Return ONLY valid JSON without any markdown formatting or code blocks.
-
-            Resume Text Content:
-            %s
-
-            Required JSON structure:
-            {
-              "overallScore": number (20-100),
-              "scores": {
-                "content": number (0-100),
-                "contact": number (0-100),
-                "skills": number (0-100),
-                "experience": number (0-100),
-                "education": number (0-100),
-                "formatting": number (0-100),
-                "keywords": number (0-100),
-                "structure": number (0-100)
-              },
-              "suggestions": [
-                {
-                  "title": "string",
-                  "description": "string",
-                  "category": "string",
-                  "severity": "high|medium|low"
-                }
-              ],
-              "details": {
-                "wordCount": number,
-                "hasContactInfo": boolean,
-                "hasSkillsSection": boolean,
-                "hasExperience": boolean,
-                "hasEducation": boolean,
-                "analysisMethod": "text",
-                "isImageBased": false
-              },
-              "extractedText": "string (cleaned version of the input text)"
-            }
-
-            Focus your analysis on:
-            - Content quality and completeness
-            - Professional presentation
-            - Skills relevance and presentation
-            - Experience descriptions and impact
-            - Education details
-            - Contact information completeness
-            - ATS compatibility
-            - Industry-specific keywords
-            - Overall structure and flow
-            """, extractedText);
+    // Prompts for Gemini resume analysis (prompts/resume-*.txt): fixed preamble + per-resume input
+    private PromptTemplate.Rendered buildResumeAnalysisPrompt(String extractedText) {
+        return templates.render("resume-text-analysis",
+                Map.of("resumeText", promptCompactor.compact(LlmProfile.RESUME_ANALYSIS, extractedText)));
     }
 
-    // Prompt for Gemini image analysis
-    private String buildImageAnalysisPrompt(int numImages) {
-        return String.format("""
-            Analyze the attached resume image(s). Return ONLY valid JSON without markdown formatting.
-            Focus on layout, content sections (contact, skills, experience, education), overall structure, and visual presentation.
-            If text is unreadable, make a best effort assessment based on typical resume standards.
-
-            Number of images/pages: %d
-            Required JSON structure:
-            {
-              "overallScore": number (20-100),
-              "scores": {
-                "content": number (0-100),
-                "contact": number (0-100),
-                "skills": number (0-100),
-                "experience": number (0-100),
-                "education": number (0-100),
-                "formatting": number (0-100),
-                "keywords": number (0-100),
-                "structure": number (0-100)
-              },
-              "suggestions": [
-                {
-                  "title": "string",
-                  "description": "string",
-                  "category": "string",
-                  "severity": "high|medium|low"
-                }
-              ],
-              "details": {
-                "wordCount": number,
-                "hasContactInfo": boolean,
-                "hasSkillsSection": boolean,
-                "hasExperience": boolean,
-                "hasEducation": boolean,
-                "visualQuality": "string",
-                "readability": "string",
-                "analysisMethod": "image",
-                "isImageBased": true
-              },
-              "extractedText": "string (summary or best guess if text is unreadable)"
-            }
-            """, numImages);
+    private PromptTemplate.Rendered buildImageAnalysisPrompt(int numImages) {
+        return templates.render("resume-image-analysis", Map.of("pageCount", numImages));
     }
 
     // Fallback response for failed image analysis
@@ -284,16 +328,19 @@ public class GeminiService {
             """;
     }
 
-    // Health check method for the service
+    // Passive health check: judged from recent call outcomes, no test prompt is sent
     public boolean isServiceAvailable() {
-        try {
-            String testPrompt = "Test connection. Respond with 'OK'.";
-            String result = geminiRestClient.analyzeResumeText(testPrompt);
-            return result != null && result.contains("OK");
-        } catch (Exception e) {
-            System.err.println("🔍 Gemini REST service health check failed: " + e.getMessage());
-            return false;
+        return isServiceAvailable(LlmProfile.RESUME_ANALYSIS);
+    }
+
+    // Whether calls for this profile can be served right now; false means use the heuristic path
+    public boolean isServiceAvailable(LlmProfile profile) {
+        boolean resume = profile == LlmProfile.RESUME_ANALYSIS || profile == LlmProfile.RESUME_IMAGE_ANALYSIS;
+        boolean available = llmGateway.isAvailable(profile, resume ? resumeModel : null);
+        if (!available) {
+            System.err.println("🔍 Gemini unavailable for [" + profile.getKey() + "] (recent calls failing)");
         }
+        return available;
     }
 
     // Service status info
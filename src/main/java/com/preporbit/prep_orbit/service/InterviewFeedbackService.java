@@ -1,24 +1,31 @@
 package com.preporbit.prep_orbit.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.preporbit.prep_orbit.config.InterviewAIConfig;
 import com.preporbit.prep_orbit.dto.InterviewFeedbackDto;
 import com.preporbit.prep_orbit.exception.FeedbackThrottleException;
 import com.preporbit.prep_orbit.model.InterviewFeedback;
 import com.preporbit.prep_orbit.repository.InterviewFeedbackRepository;
 import com.preporbit.prep_orbit.repository.InterviewRepository;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import com.preporbit.prep_orbit.util.JsonExtractor;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.preporbit.prep_orbit.service.llm.LlmGateway;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmResponse;
+import com.preporbit.prep_orbit.service.llm.PromptCompactor;
+import com.preporbit.prep_orbit.service.llm.PromptTemplate;
+import com.preporbit.prep_orbit.service.llm.PromptTemplateRegistry;
 import org.springframework.beans.factory.annotation.*;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -28,8 +35,8 @@ import java.util.stream.Collectors;
  *  - Idempotent-friendly (controller enforces existing-first)
  *  - Throttle enforcement per interviewId
  *  - Transcript sanitization (remove system prompt echoes & duplicates)
- *  - Optional truncation for large transcripts
- *  - Gemini AI integration (comprehensive + fallback)
+ *  - Token-budget compaction for large transcripts (PromptCompactor)
+ *  - Gemini AI integration (comprehensive + fallback, optional streaming)
  *  - Score normalization (1–10)
  */
 @Service
@@ -38,7 +45,7 @@ public class InterviewFeedbackService {
     private static final Logger logger = LoggerFactory.getLogger(InterviewFeedbackService.class);
 
     /* Limits & thresholds */
-    private static final int MAX_TRANSCRIPT_CHARS = 12000;
+    private static final int MAX_INTERVIEWER_TURN_TOKENS = 60;
     private static final int MIN_THROTTLE_INTERVAL_SECONDS = 10;
     private static final int MAX_STRENGTHS_LENGTH = 5000;
     private static final int MAX_IMPROVEMENTS_LENGTH = 5000;
@@ -50,8 +57,10 @@ public class InterviewFeedbackService {
     @Autowired private InterviewFeedbackRepository feedbackRepository;
     @Autowired private InterviewRepository interviewRepository;
     @Autowired private InterviewAIConfig interviewAIConfig;
-    @Autowired @Qualifier("interviewRestTemplate") private RestTemplate restTemplate;
-    @Autowired private ObjectMapper objectMapper;
+    @Autowired private LlmGateway llmGateway;
+    @Autowired private JsonCodecs json;
+    @Autowired private PromptCompactor promptCompactor;
+    @Autowired private PromptTemplateRegistry templates;
 
     /* ====================== PUBLIC API ====================== */
 
@@ -66,7 +75,7 @@ public class InterviewFeedbackService {
 
         List<InterviewFeedbackDto.TranscriptMessage> sanitized =
                 sanitizeTranscript(feedbackDto.getTranscript());
-        sanitized = truncateTranscriptIfNeeded(sanitized);
+        sanitized = compactTranscript(sanitized);
         feedback.setTranscript(convertTranscriptToJson(sanitized));
 
         Map<String, Object> aiFeedback = generateAIFeedback(sanitized);
@@ -81,6 +90,15 @@ public class InterviewFeedbackService {
      * Generate comprehensive feedback (primary path).
      */
     public InterviewFeedback generateComprehensiveFeedback(@Valid InterviewFeedbackDto feedbackDto) {
+        return generateComprehensiveFeedback(feedbackDto, null);
+    }
+
+    /**
+     * Comprehensive feedback with partial model output relayed to {@code onChunk}
+     * (streaming endpoint). The final JSON is parsed and persisted exactly as above.
+     */
+    public InterviewFeedback generateComprehensiveFeedback(InterviewFeedbackDto feedbackDto,
+                                                           Consumer<String> onChunk) {
         throttle(feedbackDto.getInterviewId());
         validateInterviewExists(feedbackDto.getInterviewId());
 
@@ -93,13 +111,13 @@ public class InterviewFeedbackService {
 
         List<InterviewFeedbackDto.TranscriptMessage> sanitized =
                 sanitizeTranscript(feedbackDto.getTranscript());
-        sanitized = truncateTranscriptIfNeeded(sanitized);
+        sanitized = compactTranscript(sanitized);
 
         Map<String, Object> metrics = computeMetrics(feedbackDto, sanitized); // *** NEW
 
         feedback.setTranscript(convertTranscriptToJson(sanitized));
 
-        Map<String, Object> aiFeedback = generateComprehensiveAIFeedback(feedbackDto, sanitized, metrics); // *** CHANGED signature
+        Map<String, Object> aiFeedback = generateComprehensiveAIFeedback(feedbackDto, sanitized, metrics, onChunk);
         applyHeuristicCaps(aiFeedback, metrics); // *** NEW heuristic enforcement
         applyFeedbackMap(feedback, aiFeedback);
 
@@ -346,34 +364,55 @@ public class InterviewFeedbackService {
         return cleaned;
     }
 
-    private List<InterviewFeedbackDto.TranscriptMessage> truncateTranscriptIfNeeded(List<InterviewFeedbackDto.TranscriptMessage> msgs) {
-        int total = msgs.stream().mapToInt(m -> m.getContent() != null ? m.getContent().length() : 0).sum();
-        if (total <= MAX_TRANSCRIPT_CHARS) return msgs;
-
-        logger.warn("✂️ Truncating transcript ({} chars > {} limit)", total, MAX_TRANSCRIPT_CHARS);
-
-        int target = MAX_TRANSCRIPT_CHARS;
-        int firstBlockChars = (int) (target * 0.6);
-        int tailBlockChars  = (int) (target * 0.2);
+    /**
+     * Fits the transcript into the interview-feedback token budget: whitespace is
+     * collapsed first, then long interviewer turns are shortened (candidate answers
+     * carry the signal), and only then is the middle of the conversation dropped.
+     */
+    private List<InterviewFeedbackDto.TranscriptMessage> compactTranscript(List<InterviewFeedbackDto.TranscriptMessage> msgs) {
+        int budget = promptCompactor.budgetFor(LlmProfile.INTERVIEW_FEEDBACK);
+        List<InterviewFeedbackDto.TranscriptMessage> compacted = new ArrayList<>(msgs.size());
+        for (InterviewFeedbackDto.TranscriptMessage m : msgs) {
+            compacted.add(new InterviewFeedbackDto.TranscriptMessage(m.getRole(), promptCompactor.collapseWhitespace(m.getContent())));
+        }
+        int total = transcriptTokens(compacted);
+        if (total <= budget) return compacted;
+
+        logger.warn("✂️ Compacting transcript (~{} tokens > {} budget)", total, budget);
+        for (int i = 0; i < compacted.size() && total > budget; i++) {
+            InterviewFeedbackDto.TranscriptMessage m = compacted.get(i);
+            if ("user".equalsIgnoreCase(m.getRole())) continue;
+            int tokens = PromptCompactor.estimateTokens(m.getContent());
+            if (tokens <= MAX_INTERVIEWER_TURN_TOKENS) continue;
+            String shortened = promptCompactor.truncate(m.getContent(), MAX_INTERVIEWER_TURN_TOKENS);
+            compacted.set(i, new InterviewFeedbackDto.TranscriptMessage(m.getRole(), shortened));
+            total -= tokens - PromptCompactor.estimateTokens(shortened);
+        }
+        if (total <= budget) return compacted;
 
+        // Still too long: keep the opening (context) and the end (latest answers)
+        int headBudget = (int) (budget * 0.6);
+        int tailBudget = budget - headBudget;
         List<InterviewFeedbackDto.TranscriptMessage> head = new ArrayList<>();
         List<InterviewFeedbackDto.TranscriptMessage> tail = new ArrayList<>();
 
         int acc = 0;
-        for (InterviewFeedbackDto.TranscriptMessage m : msgs) {
-            int len = m.getContent() == null ? 0 : m.getContent().length();
-            if (acc + len > firstBlockChars) break;
+        int headEnd = 0;
+        for (InterviewFeedbackDto.TranscriptMessage m : compacted) {
+            int tokens = messageTokens(m);
+            if (acc + tokens > headBudget) break;
             head.add(m);
-            acc += len;
+            acc += tokens;
+            headEnd++;
         }
 
         acc = 0;
-        for (int i = msgs.size() - 1; i >= 0; i--) {
-            InterviewFeedbackDto.TranscriptMessage m = msgs.get(i);
-            int len = m.getContent() == null ? 0 : m.getContent().length();
-            if (acc + len > tailBlockChars) break;
+        for (int i = compacted.size() - 1; i >= headEnd; i--) {
+            InterviewFeedbackDto.TranscriptMessage m = compacted.get(i);
+            int tokens = messageTokens(m);
+            if (acc + tokens > tailBudget) break;
             tail.add(0, m);
-            acc += len;
+            acc += tokens;
         }
 
         InterviewFeedbackDto.TranscriptMessage marker =
@@ -389,24 +428,28 @@ public class InterviewFeedbackService {
         return merged;
     }
 
+    private int transcriptTokens(List<InterviewFeedbackDto.TranscriptMessage> msgs) {
+        return msgs.stream().mapToInt(this::messageTokens).sum();
+    }
+
+    // "role: content\n" as rendered into the prompt
+    private int messageTokens(InterviewFeedbackDto.TranscriptMessage m) {
+        return PromptCompactor.estimateTokens(m.getContent()) + 3;
+    }
+
     /* ====================== PROMPT BUILDERS ====================== */
 
-    private String buildBasicPrompt(List<InterviewFeedbackDto.TranscriptMessage> transcript) {
+    private PromptTemplate.Rendered buildBasicPrompt(List<InterviewFeedbackDto.TranscriptMessage> transcript) {
         StringBuilder transcriptText = new StringBuilder();
         for (InterviewFeedbackDto.TranscriptMessage message : transcript) {
             transcriptText.append(message.getRole()).append(": ").append(message.getContent()).append("\n");
         }
-        return
-                "Analyze this job interview transcript and provide detailed feedback.\n" +
-                        "Return ONLY valid JSON with keys:\n" +
-                        "{ \"feedback\": \"...\", \"overallScore\":7, \"communicationScore\":7, \"technicalScore\":6, \"problemSolvingScore\":7, \"strengths\":\"...\", \"improvements\":\"...\" }\n" +
-                        "Scores are integers 1-10.\n\n" +
-                        "Transcript:\n" + transcriptText;
+        return templates.render("interview-feedback-basic", Map.of("transcript", transcriptText));
     }
 
-    private String buildComprehensivePrompt(InterviewFeedbackDto dto,
-                                            List<InterviewFeedbackDto.TranscriptMessage> sanitized,
-                                            Map<String,Object> metrics) {
+    private PromptTemplate.Rendered buildComprehensivePrompt(InterviewFeedbackDto dto,
+                                                             List<InterviewFeedbackDto.TranscriptMessage> sanitized,
+                                                             Map<String,Object> metrics) {
         String transcriptBlock = sanitized.stream()
                 .map(m -> m.getRole() + ": " + m.getContent())
                 .collect(Collectors.joining("\n"));
@@ -419,33 +462,14 @@ public class InterviewFeedbackService {
             });
         }
 
-        int expected = (Integer) metrics.getOrDefault("expectedQuestions", 0);
-        int answered = (Integer) metrics.getOrDefault("userAnswerCount", 0);
-        int avgLen = (Integer) metrics.getOrDefault("avgAnswerLen", 0);
-        int coverage = (Integer) metrics.getOrDefault("coveragePct", 0);
-
-        String rubric =
-                "SCORING RUBRIC (MANDATORY):\n" +
-                        "- Start all scores at 10 then subtract penalties.\n" +
-                        "- Coverage (answered/expected): " + answered + "/" + expected + " (" + coverage + "%)\n" +
-                        "  * coverage < 50% => overallScore <= 4\n" +
-                        "  * 50-69% => overallScore <= 6\n" +
-                        "- Avg answer length (chars): " + avgLen + "\n" +
-                        "  * avgLen < 20 => technicalScore & problemSolvingScore <= 4\n" +
-                        "  * 20-34 => technicalScore & problemSolvingScore <= 6\n" +
-                        "- If answers are generic/no detail (e.g. 'I don't know', 'maybe', 'yes/no') reduce technical & problemSolving by 2–4.\n" +
-                        "- Use entire 1–10 range. 10 is exceptional depth + clarity. 5 is neutral/average. 3 is weak/superficial.\n" +
-                        "- Do NOT inflate scores when data is sparse.\n";
-
-        return
-                "You are an interview evaluator. Return ONLY JSON with keys:\n" +
-                        "{ \"feedback\":\"3-6 sentences summary\", \"overallScore\":5, \"communicationScore\":5, \"technicalScore\":5, \"problemSolvingScore\":5, \"strengths\":\"lines\", \"improvements\":\"lines\" }\n" +
-                        "Each score MUST be integer 1–10 and obey the rubric constraints. If constraints force a cap, apply it.\n\n" +
-                        rubric + "\n" +
-                        "TRANSCRIPT:\n" + transcriptBlock + "\n\n" +
-                        "DO NOT output raw numeric coverage percentages, character counts, or phrases like 'avgAnswerLen' in the feedback text.\n" +
-                        "QUESTION_ANSWER_PAIRS:\n" + responsesBlock + "\n" +
-                        "Return ONLY the JSON object.";
+        // Rubric and output contract are the fixed preamble of prompts/interview-feedback.txt
+        return templates.render("interview-feedback", Map.of(
+                "expected", metrics.getOrDefault("expectedQuestions", 0),
+                "answered", metrics.getOrDefault("userAnswerCount", 0),
+                "avgLen", metrics.getOrDefault("avgAnswerLen", 0),
+                "coverage", metrics.getOrDefault("coveragePct", 0),
+                "transcript", transcriptBlock,
+                "responses", responsesBlock));
     }
 
     /* ====================== AI FEEDBACK GENERATION ====================== */
@@ -455,8 +479,8 @@ public class InterviewFeedbackService {
             logger.warn("AI not configured; using BASIC fallback feedback");
             return createFallbackFeedback(true);
         }
-        String prompt = buildBasicPrompt(transcript);
-        Map<String, Object> parsed = callGemini(prompt);
+        PromptTemplate.Rendered prompt = buildBasicPrompt(transcript);
+        Map<String, Object> parsed = callGemini(prompt, null);
         if (parsed == null) return createFallbackFeedback(true);
         parsed.put("fallback", false);
         return parsed;
@@ -464,15 +488,16 @@ public class InterviewFeedbackService {
 
     private Map<String, Object> generateComprehensiveAIFeedback(InterviewFeedbackDto dto,
                                                                 List<InterviewFeedbackDto.TranscriptMessage> sanitized,
-                                                                Map<String, Object> metrics) {
+                                                                Map<String, Object> metrics,
+                                                                Consumer<String> onChunk) {
         if (!interviewAIConfig.isConfigured()) {
             logger.warn("AI not configured; using COMPREHENSIVE fallback feedback");
             Map<String, Object> fb = createComprehensiveFallbackFeedback(dto, true);
             fb.putAll(metrics);
             return fb;
         }
-        String prompt = buildComprehensivePrompt(dto, sanitized, metrics); // *** CHANGED
-        Map<String, Object> parsed = callGemini(prompt);
+        PromptTemplate.Rendered prompt = buildComprehensivePrompt(dto, sanitized, metrics); // *** CHANGED
+        Map<String, Object> parsed = callGemini(prompt, onChunk);
         if (parsed == null) {
             Map<String,Object> fb = createComprehensiveFallbackFeedback(dto, true);
             fb.putAll(metrics);
@@ -492,60 +517,35 @@ public class InterviewFeedbackService {
 
     private enum AIErrorType { NOT_CONFIGURED, TRANSPORT, EMPTY_CANDIDATES, PARSE_ERROR }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Object> callGemini(String prompt) {
-        long start = System.currentTimeMillis();
+    private Map<String, Object> callGemini(PromptTemplate.Rendered prompt, Consumer<String> onChunk) {
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            Map<String, Object> content = new HashMap<>();
-            Map<String, Object> part = new HashMap<>();
-            part.put("text", prompt);
-            content.put("parts", List.of(part));
-            requestBody.put("contents", List.of(content));
-
+            // Temperature and output cap come from the interview-feedback profile
             Map<String, Object> generationConfig = new HashMap<>();
-            generationConfig.put("temperature", 0.6);
             generationConfig.put("topK", 40);
             generationConfig.put("topP", 0.9);
-            generationConfig.put("maxOutputTokens", 1536);
-            requestBody.put("generationConfig", generationConfig);
 
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-            String url = interviewAIConfig.getGenerateContentUrl() + "?key=" + interviewAIConfig.getGoogleApiKey();
-
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
-            long elapsed = System.currentTimeMillis() - start;
-
-            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
-                logAIError(AIErrorType.TRANSPORT, "Status=" + response.getStatusCode());
+            LlmRequest request = LlmRequest.builder(LlmProfile.INTERVIEW_FEEDBACK)
+                    .model(interviewAIConfig.getAiModel())
+                    .template(prompt)
+                    .generationConfig(generationConfig)
+                    .build();
+            LlmResponse response = onChunk == null
+                    ? llmGateway.call(request)
+                    : llmGateway.callStreaming(request, onChunk);
+
+            String generatedText = response.getText();
+            if (generatedText == null || generatedText.isBlank()) {
+                logAIError(AIErrorType.EMPTY_CANDIDATES, "No text in candidate");
                 return null;
             }
 
-            List<Map<String, Object>> candidates = (List<Map<String, Object>>) response.getBody().get("candidates");
-            if (candidates == null || candidates.isEmpty()) {
-                logAIError(AIErrorType.EMPTY_CANDIDATES, "No candidates");
-                return null;
-            }
-
-            Map<String, Object> candContent = (Map<String, Object>) candidates.get(0).get("content");
-            List<Map<String, Object>> outParts = (List<Map<String, Object>>) candContent.get("parts");
-            if (outParts == null || outParts.isEmpty()) {
-                logAIError(AIErrorType.EMPTY_CANDIDATES, "No parts in candidate");
-                return null;
-            }
-
-            String generatedText = (String) outParts.get(0).get("text");
             Map<String, Object> parsed = parseFeedbackResponse(generatedText);
             if (parsed == null) {
                 logAIError(AIErrorType.PARSE_ERROR, "Parse returned null");
                 return null;
             }
 
-            Object usage = response.getBody().get("usageMetadata");
-            logger.info("🧠 AI call success in {}ms (usageMetadata={})", elapsed, usage);
+            logger.info("🧠 AI call success in {}ms (usageMetadata={})", response.getLatencyMs(), response.getUsage());
             return parsed;
 
         } catch (Exception e) {
@@ -561,13 +561,7 @@ public class InterviewFeedbackService {
     private Map<String, Object> parseFeedbackResponse(String generatedText) {
         try {
             if (generatedText == null) return null;
-            String trimmed = generatedText.trim();
-            int start = trimmed.indexOf('{');
-            int end = trimmed.lastIndexOf('}');
-            if (start != -1 && end != -1 && end > start) {
-                trimmed = trimmed.substring(start, end + 1);
-            }
-            return objectMapper.readValue(trimmed, Map.class);
+            return JsonExtractor.read(json.map(), generatedText);
         } catch (Exception e) {
             logger.error("Failed to parse AI JSON", e);
             return null;
@@ -603,7 +597,7 @@ public class InterviewFeedbackService {
 
     private String convertTranscriptToJson(List<InterviewFeedbackDto.TranscriptMessage> transcript) {
         try {
-            return objectMapper.writeValueAsString(transcript != null ? transcript : List.of());
+            return json.writer().writeValueAsString(transcript != null ? transcript : List.of());
         } catch (Exception e) {
             logger.error("Failed to serialize transcript", e);
             return "[]";
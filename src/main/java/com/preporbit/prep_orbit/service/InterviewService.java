@@ -6,15 +6,18 @@ import com.preporbit.prep_orbit.dto.InterviewResponseDto;
 import com.preporbit.prep_orbit.repository.InterviewFeedbackRepository;
 import com.preporbit.prep_orbit.repository.InterviewRepository;
 import com.preporbit.prep_orbit.config.InterviewAIConfig;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.preporbit.prep_orbit.repository.UserRepository;
+import com.preporbit.prep_orbit.util.JsonCodecs;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.http.*;
+import com.preporbit.prep_orbit.service.llm.LlmGateway;
+import com.preporbit.prep_orbit.service.llm.LlmJsonRecovery;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.PromptTemplate;
+import com.preporbit.prep_orbit.service.llm.PromptTemplateRegistry;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -36,11 +39,16 @@ public class InterviewService {
     private UserRepository userRepository;
 
     @Autowired
-    @Qualifier("interviewRestTemplate")
-    private RestTemplate restTemplate;
+    private LlmGateway llmGateway;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private JsonCodecs json;
+
+    @Autowired
+    private LlmJsonRecovery jsonRecovery;
+
+    @Autowired
+    private PromptTemplateRegistry templates;
 
     private static final String[] COVER_IMAGES = {
             "interview-cover-1.jpg",
@@ -91,64 +99,33 @@ public class InterviewService {
                 logger.warn("AI not configured, using fallback questions");
                 return createFallbackQuestionsJson(request);
             }
+            if (!llmGateway.isAvailable(LlmProfile.INTERVIEW_QUESTIONS, interviewAIConfig.getAiModel())) {
+                logger.warn("AI unavailable (recent calls failing), using fallback questions");
+                return createFallbackQuestionsJson(request);
+            }
 
-            String prompt = buildPrompt(request);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-
-            Map<String, Object> requestBody = new HashMap<>();
-            List<Map<String, Object>> contents = new ArrayList<>();
-            Map<String, Object> content = new HashMap<>();
-            List<Map<String, Object>> parts = new ArrayList<>();
-            Map<String, Object> part = new HashMap<>();
-            part.put("text", prompt);
-            parts.add(part);
-            content.put("parts", parts);
-            contents.add(content);
-            requestBody.put("contents", contents);
+            PromptTemplate.Rendered prompt = buildPrompt(request);
 
-            // Generation config for better output
+            // Sampling for better output; temperature and output cap come from the profile
             Map<String, Object> generationConfig = new HashMap<>();
-            generationConfig.put("temperature", 0.7);
             generationConfig.put("topK", 40);
             generationConfig.put("topP", 0.95);
-            generationConfig.put("maxOutputTokens", 2048);
-            requestBody.put("generationConfig", generationConfig);
-
-            HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
-            String url = interviewAIConfig.getGenerateContentUrl() + "?key=" + interviewAIConfig.getGoogleApiKey();
 
             logger.info("Calling Gemini API for question generation");
-            ResponseEntity<Map> response = restTemplate.postForEntity(url, entity, Map.class);
-
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                Map<String, Object> responseBody = response.getBody();
-
-                @SuppressWarnings("unchecked")
-                List<Map<String, Object>> candidates = (List<Map<String, Object>>) responseBody.get("candidates");
+            long started = System.nanoTime();
+            // First JSON array in the reply; a truncated list keeps its complete questions
+            // (one "continue" call for the rest) instead of dropping to canned ones
+            String[] questions = jsonRecovery.call(LlmRequest.builder(LlmProfile.INTERVIEW_QUESTIONS)
+                    .model(interviewAIConfig.getAiModel())
+                    .template(prompt)
+                    .generationConfig(generationConfig)
+                    .build(), String[].class);
 
-                if (candidates != null && !candidates.isEmpty()) {
+            // Clean and format the response
+            String cleanedQuestions = formatQuestions(questions);
 
-                    content = (Map<String, Object>) candidates.get(0).get("content");
-
-
-                     parts = (List<Map<String, Object>>) content.get("parts");
-
-                    String generatedText = (String) parts.get(0).get("text");
-
-                    // Clean and format the response
-                    String cleanedQuestions = cleanGeneratedQuestions(generatedText);
-
-                    logger.info("Questions generated successfully");
-                    return cleanedQuestions;
-                } else {
-                    throw new RuntimeException("No candidates returned from Gemini API");
-                }
-            } else {
-                throw new RuntimeException("Failed to call Gemini API: " + response.getStatusCode());
-            }
+            logger.info("Questions generated successfully in {}ms", (System.nanoTime() - started) / 1_000_000);
+            return cleanedQuestions;
 
         } catch (Exception e) {
             logger.error("Failed to generate questions with AI, using fallback", e);
@@ -156,52 +133,27 @@ public class InterviewService {
         }
     }
 
-    private String buildPrompt(InterviewRequestDto request) {
-        return String.format(
-                "Prepare questions for a job interview. " +
-                        "The job role is %s. " +
-                        "The job experience level is %s. " +
-                        "The tech stack used in the job is: %s. " +
-                        "The focus between behavioural and technical questions should lean towards: %s. " +
-                        "The amount of questions required is: %d. " +
-                        "Please return only the questions, without any additional text. Also don't ask for any written type question like writing codes and ask concise and precise question, avoid nesting multiple question in a single one" +
-                        "The questions are going to be read by a voice assistant so do not use '/' or '*' or any other special characters which might break the voice assistant. " +
-                        "Return the questions formatted exactly like this JSON array: " +
-                        "[\"Question 1\", \"Question 2\", \"Question 3\"] " +
-                        "Make sure the response is a valid JSON array with proper double quotes.",
-                request.getRole(),
-                request.getLevel(),
-                String.join(", ", request.getTechstack()),
-                request.getType(),
-                request.getAmount()
-        );
+    private PromptTemplate.Rendered buildPrompt(InterviewRequestDto request) {
+        return templates.render("interview-questions", Map.of(
+                "role", String.valueOf(request.getRole()),
+                "level", String.valueOf(request.getLevel()),
+                "techstack", String.join(", ", request.getTechstack()),
+                "type", String.valueOf(request.getType()),
+                "amount", String.valueOf(request.getAmount())
+        ));
     }
 
-    private String cleanGeneratedQuestions(String generatedText) {
+    private String formatQuestions(String[] questions) {
         try {
-            // Remove any markdown formatting or extra text
-            String cleaned = generatedText.trim();
-
-            // Find JSON array in the text
-            int startIndex = cleaned.indexOf('[');
-            int endIndex = cleaned.lastIndexOf(']');
-
-            if (startIndex != -1 && endIndex != -1 && endIndex > startIndex) {
-                cleaned = cleaned.substring(startIndex, endIndex + 1);
-            }
-
-            // Validate JSON format
-            try {
-                objectMapper.readValue(cleaned, String[].class);
-                return cleaned;
-            } catch (Exception e) {
-                // If JSON parsing fails, create a fallback
-                logger.warn("Generated text is not valid JSON, creating fallback questions");
+            if (questions == null || questions.length == 0) {
+                logger.warn("Generated text contains no questions, creating fallback questions");
                 return createFallbackQuestions();
             }
+            return json.writer(String[].class).writeValueAsString(questions);
 
         } catch (Exception e) {
-            logger.error("Error cleaning generated questions", e);
+            // If serialisation fails, create a fallback
+            logger.warn("Generated questions could not be serialised, creating fallback questions", e);
             return createFallbackQuestions();
         }
     }
@@ -216,7 +168,7 @@ public class InterviewService {
         );
 
         try {
-            return objectMapper.writeValueAsString(fallbackQuestions);
+            return json.writer().writeValueAsString(fallbackQuestions);
         } catch (Exception e) {
             return "[\"Tell me about yourself\", \"What interests you about this role?\", \"Describe a recent project\"]";
         }
@@ -225,7 +177,7 @@ public class InterviewService {
     private String createFallbackQuestionsJson(InterviewRequestDto request) {
         List<String> fallbackQuestions = getFallbackQuestions(request.getType(), request.getAmount());
         try {
-            return objectMapper.writeValueAsString(fallbackQuestions);
+            return json.writer().writeValueAsString(fallbackQuestions);
         } catch (Exception e) {
             logger.error("Failed to create fallback questions JSON", e);
             return createFallbackQuestions();
@@ -1,12 +1,14 @@
 package com.preporbit.prep_orbit.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -16,7 +18,14 @@ public class Judge0Service {
     @Value("${judge0.api.key}")
     private String apiKey;
 
-    private static final String JUDGE0_URL = "https://judge0-ce.p.rapidapi.com/submissions?base64_encoded=false&wait=true";
+    // Base URL is overridable (JUDGE0_URL) so tests can point at a local stub
+    @Value("${JUDGE0_URL:https://judge0-ce.p.rapidapi.com}")
+    private String judge0BaseUrl;
+
+    @Autowired
+    private JsonCodecs json;
+
+    private static final String SUBMISSIONS_PATH = "/submissions?base64_encoded=false&wait=true";
 
     public String executeCode(String sourceCode, int languageId, String stdin) {
         System.out.println("Loaded API Key: " + apiKey);
@@ -31,7 +40,7 @@ public class Judge0Service {
         RestTemplate restTemplate = new RestTemplate();
         HttpHeaders headers = new HttpHeaders();
         headers.set("X-RapidAPI-Key", apiKey);
-        headers.set("X-RapidAPI-Host", "judge0-ce.p.rapidapi.com");
+        headers.set("X-RapidAPI-Host", URI.create(judge0BaseUrl).getHost());
         headers.setContentType(MediaType.APPLICATION_JSON);
 
         // Log headers for debugging
@@ -46,8 +55,7 @@ public class Judge0Service {
         // Serialize payload to JSON
         String jsonBody;
         try {
-            ObjectMapper mapper = new ObjectMapper();
-            jsonBody = mapper.writeValueAsString(body);
+            jsonBody = json.writer().writeValueAsString(body);
             System.out.println("Serialized body: " + jsonBody);
         } catch (Exception e) {
             e.printStackTrace();
@@ -57,7 +65,8 @@ public class Judge0Service {
         HttpEntity<String> entity = new HttpEntity<>(jsonBody, headers);
 
         try {
-            ResponseEntity<Map> response = restTemplate.postForEntity(JUDGE0_URL, entity, Map.class);
+            ResponseEntity<Map> response = restTemplate.postForEntity(
+                    judge0BaseUrl.replaceAll("/+$", "") + SUBMISSIONS_PATH, entity, Map.class);
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 Object output = response.getBody().get("stdout");
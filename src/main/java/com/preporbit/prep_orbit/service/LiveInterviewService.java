@@ -1,6 +1,7 @@
 package com.preporbit.prep_orbit.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.google.api.gax.core.FixedCredentialsProvider;
 import com.google.auth.oauth2.GoogleCredentials;
 import com.google.cloud.speech.v1.SpeechClient;
@@ -12,7 +13,6 @@ import com.google.cloud.speech.v1.SpeechRecognitionResult;
 import com.google.protobuf.ByteString;
 import org.springframework.beans.factory.annotation.Value;
 
-import com.preporbit.prep_orbit.config.GeminiConfig;
 import com.preporbit.prep_orbit.dto.*;
 import com.preporbit.prep_orbit.model.LiveInterview;
 import com.preporbit.prep_orbit.model.InterviewQuestion;
@@ -22,6 +22,10 @@ import com.preporbit.prep_orbit.repository.LiveInterviewRepository;
 import com.preporbit.prep_orbit.repository.InterviewQuestionRepository;
 import com.preporbit.prep_orbit.repository.InterviewAnswerRepository;
 import com.preporbit.prep_orbit.repository.UserRepository;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmSpeculator;
+import com.preporbit.prep_orbit.service.llm.PromptTemplate;
+import com.preporbit.prep_orbit.service.llm.PromptTemplateRegistry;
 import jakarta.annotation.PostConstruct;
 
 
@@ -48,7 +52,6 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.multipart.MultipartFile;
@@ -68,8 +71,6 @@ import okhttp3.Response;
 import okhttp3.MultipartBody;
 import okhttp3.MediaType;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 // Google Cloud Speech-to-Text
 import com.google.cloud.speech.v1.SpeechSettings;
 import com.google.cloud.speech.v1.SpeechClient;
@@ -100,6 +101,10 @@ public class LiveInterviewService {
     private final InterviewAnswerRepository interviewAnswerRepository;
     private final UserRepository userRepository;
     private final GeminiService geminiService;
+    private final PromptTemplateRegistry templates;
+    private final LlmSpeculator speculator;
+
+    private static final String TTS_SPECULATION = "interview-tts";
 
     public LiveInterviewService(
             LiveInterviewRepository liveInterviewRepository,
@@ -107,13 +112,16 @@ public class LiveInterviewService {
             InterviewAnswerRepository interviewAnswerRepository,
             UserRepository userRepository,
             GeminiService geminiService,
-            GeminiConfig geminiConfig
+            PromptTemplateRegistry templates,
+            LlmSpeculator speculator
     ) {
         this.liveInterviewRepository = liveInterviewRepository;
         this.interviewQuestionRepository = interviewQuestionRepository;
         this.interviewAnswerRepository = interviewAnswerRepository;
         this.userRepository = userRepository;
         this.geminiService = geminiService;
+        this.templates = templates;
+        this.speculator = speculator;
     }
 
     // Helper: Get User object from userId
@@ -184,79 +192,83 @@ public class LiveInterviewService {
             return new ArrayList<>();
         }
 
-        String prompt = String.format(
-                "Generate 5 interview questions for a %s (%s, %s level). Respond ONLY with a JSON array of objects, each object with 'question' and 'expected_answer' fields. Example: [{\"question\": \"What is a hash map?\", \"expected_answer\": \"A hash map is ...\"}]",
-                dto.getPosition(), dto.getType(), dto.getLevel()
-        );
-        logger.info("Generating questions with prompt: {}", prompt);
+        if (!geminiService.isServiceAvailable(LlmProfile.LIVE_QUESTIONS)) {
+            logger.warn("Gemini unavailable, using fallback questions for liveInterviewId={}", liveInterviewId);
+            return saveQuestions(interview, fallbackQuestions(safeStr(dto.getType())));
+        }
 
-        String geminiResponse = geminiService.askGemini(prompt);
-        logger.info("Gemini response: {}", geminiResponse);
+        PromptTemplate.Rendered prompt = templates.render("live-questions", String.valueOf(userId), Map.of(
+                "position", safeStr(dto.getPosition()),
+                "type", safeStr(dto.getType()),
+                "level", safeStr(dto.getLevel())
+        ));
+        logger.info("Generating questions with prompt: {}", prompt.prompt());
+
+        // Schema-constrained JSON array decoded straight into GeneratedQuestion records
+        List<GeneratedQuestion> generated = geminiService.askGeminiJson(prompt, LlmProfile.LIVE_QUESTIONS,
+                new TypeReference<List<GeneratedQuestion>>() {});
+        if (generated == null || generated.stream().allMatch(g -> g.question() == null || g.question().isBlank())) {
+            logger.error("Gemini returned no usable questions for liveInterviewId={}, using fallback questions", liveInterviewId);
+            generated = fallbackQuestions(safeStr(dto.getType()));
+        }
+        List<QuestionDto> questionDtos = saveQuestions(interview, generated);
 
-        // Remove markdown code block if present
-        String cleanedResponse = geminiResponse.trim();
-        if (cleanedResponse.startsWith("```") || cleanedResponse.startsWith("`")) {
-            cleanedResponse = cleanedResponse.replaceAll("(?s)```json|```|`", "").trim();
+        logger.info("All generated questions: {}", questionDtos.stream().map(QuestionDto::getQuestion).toList());
+        // The client reads each question aloud next; synthesize the audio while it renders the list
+        for (QuestionDto q : questionDtos) {
+            speculator.speculate(TTS_SPECULATION, q.getQuestion(), () -> synthesizeSpeech(q.getQuestion()));
         }
-        // Remove leading/trailing newlines
-        cleanedResponse = cleanedResponse.replaceAll("^\\s+", "").replaceAll("\\s+$", "");
+        return questionDtos;
+    }
 
+    private List<QuestionDto> saveQuestions(LiveInterview interview, List<GeneratedQuestion> generated) {
         List<QuestionDto> questionDtos = new ArrayList<>();
-        ObjectMapper mapper = new ObjectMapper();
-
-        boolean parsedJson = false;
-        try {
-            List<Map<String, String>> questions = mapper.readValue(cleanedResponse, List.class);
-            for (Map<String, String> qObj : questions) {
-                String questionText = qObj.get("question");
-                String expectedAnswer = qObj.get("expected_answer");
-                if (questionText != null && !questionText.trim().isEmpty()) {
-                    InterviewQuestion question = new InterviewQuestion();
-                    question.setLiveInterview(interview);
-                    question.setQuestion(questionText.trim());
-                    question.setExpectedAnswer(expectedAnswer != null ? expectedAnswer.trim() : null);
-                    InterviewQuestion saved = interviewQuestionRepository.save(question);
-
-                    QuestionDto dtoObj = new QuestionDto();
-                    dtoObj.setId(saved.getId());
-                    dtoObj.setQuestion(saved.getQuestion());
-                    dtoObj.setExpectedAnswer(saved.getExpectedAnswer());
-                    questionDtos.add(dtoObj);
-                }
+        for (GeneratedQuestion generatedQuestion : generated) {
+            String questionText = generatedQuestion.question();
+            String expectedAnswer = generatedQuestion.expectedAnswer();
+            if (questionText != null && !questionText.trim().isEmpty()) {
+                InterviewQuestion question = new InterviewQuestion();
+                question.setLiveInterview(interview);
+                question.setQuestion(questionText.trim());
+                question.setExpectedAnswer(expectedAnswer != null ? expectedAnswer.trim() : null);
+                InterviewQuestion saved = interviewQuestionRepository.save(question);
+
+                QuestionDto dtoObj = new QuestionDto();
+                dtoObj.setId(saved.getId());
+                dtoObj.setQuestion(saved.getQuestion());
+                dtoObj.setExpectedAnswer(saved.getExpectedAnswer());
+                questionDtos.add(dtoObj);
             }
-            parsedJson = true;
-        } catch (Exception e) {
-            logger.error("Failed to parse Gemini JSON response, trying fallback.", e);
         }
+        return questionDtos;
+    }
 
-        // Fallback: parse the response line by line if JSON parsing fails
-        if (!parsedJson) {
-            String[] lines = cleanedResponse.split("\n");
-            for (String line : lines) {
-                // Try to extract lines that look like questions
-                String q = line.trim();
-                if (q.startsWith("\"")) q = q.substring(1);
-                if (q.endsWith("\"")) q = q.substring(0, q.length() - 1);
-                if (q.endsWith(",")) q = q.substring(0, q.length() - 1);
-                if (!q.isEmpty() && !q.startsWith("[") && !q.startsWith("]") && !q.equals(",")) {
-                    InterviewQuestion question = new InterviewQuestion();
-                    question.setLiveInterview(interview);
-                    question.setQuestion(q);
-                    // In fallback, expectedAnswer is unknown
-                    question.setExpectedAnswer(null);
-                    InterviewQuestion saved = interviewQuestionRepository.save(question);
-
-                    QuestionDto dtoObj = new QuestionDto();
-                    dtoObj.setId(saved.getId());
-                    dtoObj.setQuestion(saved.getQuestion());
-                    dtoObj.setExpectedAnswer(saved.getExpectedAnswer());
-                    questionDtos.add(dtoObj);
-                }
-            }
+    // Canned questions (with answer guidance for feedback) when the model is down or its output is unusable
+    private List<GeneratedQuestion> fallbackQuestions(String type) {
+        if ("behavioral".equalsIgnoreCase(type)) {
+            return List.of(
+                    new GeneratedQuestion("Tell me about a time when you had to work under pressure.",
+                            "A specific situation, the actions taken to prioritise and stay calm, and the outcome (STAR)."),
+                    new GeneratedQuestion("Describe a situation where you had to learn something new quickly.",
+                            "What had to be learned and why, the learning approach, and how it was applied successfully."),
+                    new GeneratedQuestion("How do you handle feedback and criticism?",
+                            "Listening without defensiveness, asking clarifying questions, and a concrete example of acting on feedback."),
+                    new GeneratedQuestion("Tell me about a time when you disagreed with a team member.",
+                            "The disagreement, how it was discussed respectfully with data, and the resolution reached."),
+                    new GeneratedQuestion("Tell me about a mistake you made and how you handled it.",
+                            "Owning the mistake, the fix, communication with those affected, and what changed afterwards."));
         }
-
-        logger.info("All generated questions: {}", questionDtos.stream().map(QuestionDto::getQuestion).toList());
-        return questionDtos;
+        return List.of(
+                new GeneratedQuestion("Describe a challenging technical problem you solved recently.",
+                        "The problem and constraints, the options considered, the chosen solution and its measurable result."),
+                new GeneratedQuestion("How do you approach debugging a complex issue?",
+                        "Reproduce, narrow down with logs/metrics/bisection, form and test hypotheses, fix and add a regression test."),
+                new GeneratedQuestion("Explain the difference between synchronous and asynchronous programming.",
+                        "Synchronous calls block until done; asynchronous work continues while waiting, via callbacks, futures or events."),
+                new GeneratedQuestion("How do you optimize application performance?",
+                        "Measure first, find the bottleneck (CPU, I/O, queries), fix the biggest cost, and verify with benchmarks."),
+                new GeneratedQuestion("How do you approach testing in your development process?",
+                        "Unit tests for logic, integration tests for boundaries, automation in CI, and tests written alongside code."));
     }
 
     // Get answers for a live interview for authenticated user
@@ -331,9 +343,6 @@ public class LiveInterviewService {
     }
 
     // Generate feedback for a submitted answer for authenticated user
-    // Replace ONLY the generateFeedbackForUser method and add the helper parseRatingFlexible + maybe logging.
-// Keep the rest of the class intact.
-
     // Generate feedback for a submitted answer for authenticated user
 
     public LiveFeedbackDto generateFeedbackForUser(Long answerId, Long userId) {
@@ -342,96 +351,26 @@ public class LiveInterviewService {
             return null;
         }
 
-        String prompt = String.format(
-                "Evaluate the interview answer. Compare expected vs user answer. " +
-                        "Consider minor typos acceptable. Provide concise feedback (<=3 lines), an integer rating 1-10, " +
-                        "and 1 short improvement suggestion. Respond ONLY with JSON:\n" +
-                        "{\"feedback\":\"...\",\"rating\":7,\"suggestion\":\"...\"}\n" +
-                        "Question: %s\nExpected Answer: %s\nUser's Answer: %s",
-                safeStr(answer.getQuestion().getQuestion()),
-                safeStr(answer.getCorrectAns()),
-                safeStr(answer.getAnswer())
-        );
-
-        String geminiResponse = geminiService.askGemini(prompt);
-        logger.debug("Raw Gemini response for answerId {}: {}", answerId, geminiResponse);
-
-        String raw = geminiResponse == null ? "" : geminiResponse.trim();
-
-        // Strip code fences & isolate JSON
-        String cleaned = raw
-                .replaceAll("```json", "")
-                .replaceAll("```", "")
-                .replaceAll("`", "")
-                .trim();
-
-        int jsStart = cleaned.indexOf('{');
-        int jsEnd = cleaned.lastIndexOf('}');
-        String jsonCandidate = (jsStart != -1 && jsEnd > jsStart)
-                ? cleaned.substring(jsStart, jsEnd + 1).trim()
-                : null;
-
-        String feedbackText = "";
-        Integer ratingValue = null;
-        String suggestion = "";
-
-        ObjectMapper mapper = new ObjectMapper();
-
-        // 1. Try JSON parse
-        if (jsonCandidate != null) {
-            try {
-                JsonNode node = mapper.readTree(jsonCandidate);
-                feedbackText = node.hasNonNull("feedback") ? node.get("feedback").asText().trim() : "";
-                if (node.has("rating")) {
-                    JsonNode rNode = node.get("rating");
-                    if (rNode.isNumber()) ratingValue = rNode.asInt();
-                    else if (rNode.isTextual()) ratingValue = parseRatingFlexible(rNode.asText());
-                }
-                suggestion = node.hasNonNull("suggestion") ? node.get("suggestion").asText().trim() : "";
-            } catch (Exception e) {
-                logger.debug("JSON parse failed, falling back. {}", e.getMessage());
-            }
-        }
-
-        // 2. Regex extraction if rating missing
-        if (ratingValue == null) {
-            // "rating": 8
-            var m = java.util.regex.Pattern.compile("\"rating\"\\s*:\\s*(\\d{1,2})").matcher(cleaned);
-            if (m.find()) {
-                ratingValue = Integer.parseInt(m.group(1));
-            }
-        }
-        if (ratingValue == null) {
-            // Rating: 8/10 or Rating - 8
-            var m2 = java.util.regex.Pattern.compile("(?i)rating\\s*[:\\-]?\\s*(\\d{1,2})(?:\\s*/\\s*10)?").matcher(cleaned);
-            if (m2.find()) {
-                ratingValue = Integer.parseInt(m2.group(1));
-            }
-        }
+        PromptTemplate.Rendered prompt = templates.render("live-feedback", String.valueOf(userId), Map.of(
+                "question", safeStr(answer.getQuestion().getQuestion()),
+                "expectedAnswer", safeStr(answer.getCorrectAns()),
+                "userAnswer", safeStr(answer.getAnswer())
+        ));
 
-        // 3. Suggestion fallback
-        if (suggestion.isEmpty()) {
-            var sm = java.util.regex.Pattern.compile("\"suggestion\"\\s*:\\s*\"([^\"]+)\"").matcher(cleaned);
-            if (sm.find()) {
-                suggestion = sm.group(1).trim();
-            } else {
-                var sm2 = java.util.regex.Pattern.compile("(?i)suggestion\\s*:\\s*(.+)").matcher(cleaned);
-                if (sm2.find()) suggestion = sm2.group(1).trim();
-            }
+        // Schema-constrained JSON decoded straight into the DTO (feedback, rating, suggestion);
+        // skipped while recent calls show Gemini down, so the answer is saved without waiting out a timeout
+        LiveFeedbackDto parsed = geminiService.isServiceAvailable(LlmProfile.LIVE_FEEDBACK)
+                ? geminiService.askGeminiJson(prompt, LlmProfile.LIVE_FEEDBACK, LiveFeedbackDto.class)
+                : null;
+        if (parsed == null) {
+            logger.warn("No usable Gemini feedback for answerId {}", answerId);
         }
 
-        // 4. Feedback fallback
-        if (feedbackText.isEmpty()) {
-            var fm = java.util.regex.Pattern.compile("\"feedback\"\\s*:\\s*\"([^\"]+)\"").matcher(cleaned);
-            if (fm.find()) {
-                feedbackText = fm.group(1).trim();
-            } else {
-                // As a last resort, take first 500 chars of cleaned text (avoid dumping whole model output)
-                feedbackText = cleaned.length() > 500 ? cleaned.substring(0, 500) : cleaned;
-            }
-        }
+        String feedbackText = parsed != null && parsed.getFeedback() != null ? parsed.getFeedback().trim() : "";
+        Integer ratingValue = parsed != null ? parsed.getRating() : null;
+        String suggestion = parsed != null && parsed.getSuggestion() != null ? parsed.getSuggestion().trim() : "";
 
-        // 5. Clamp rating
+        // Clamp rating
         if (ratingValue != null) {
             if (ratingValue < 0) ratingValue = 0;
             if (ratingValue > 10) ratingValue = 10;
@@ -458,23 +397,16 @@ public class LiveInterviewService {
         return dto;
     }
 
-    private Integer parseRatingFlexible(String raw) {
-        if (raw == null) return null;
-        var m = java.util.regex.Pattern.compile("(\\d{1,2})").matcher(raw);
-        if (m.find()) {
-            try {
-                int val = Integer.parseInt(m.group(1));
-                if (val >= 0 && val <= 10) return val;
-            } catch (NumberFormatException ignored) {}
-        }
-        return null;
-    }
-
     private String safeStr(Object o) {
         return o == null ? "" : o.toString();
     }
 
     public byte[] textToSpeechGoogle(String text) {
+        byte[] prefetched = speculator.claim(TTS_SPECULATION, text);
+        return prefetched != null ? prefetched : synthesizeSpeech(text);
+    }
+
+    private byte[] synthesizeSpeech(String text) {
         try {
             GoogleCredentials credentials = GoogleCredentials.fromStream(new FileInputStream(googleCredentialsPath));
             TextToSpeechSettings settings = TextToSpeechSettings.newBuilder()
@@ -556,4 +488,7 @@ public class LiveInterviewService {
         dto.setSuggestion(ans.getSuggestion()); // <-- stored suggestion if available
         return dto;
     }
-}
\ No newline at end of file
+
+    // One generated question (also the response schema sent to Gemini)
+    record GeneratedQuestion(String question, @JsonProperty("expected_answer") String expectedAnswer) {}
+}
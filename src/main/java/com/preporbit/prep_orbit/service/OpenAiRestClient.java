@@ -0,0 +1,341 @@
+package com.preporbit.prep_orbit.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.service.llm.LlmProvider;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmResponse;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import okhttp3.*;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Transport for OpenAI-compatible {@code /chat/completions} endpoints: OpenAI itself,
+ * or a local server (Ollama, vLLM, llama.cpp) exposing the same API.
+ *
+ * Features:
+ *  - Same async OkHttp pattern as {@link GeminiRestClient} (virtual-thread dispatcher,
+ *    per-call deadline, cancellation propagates to the socket)
+ *  - Preamble sent as the system message, prompt and page images as the user message
+ *  - Gemini {@code responseSchema} translated to a JSON Schema {@code response_format}
+ *  - SSE streaming ({@code stream: true}) relaying {@code delta.content}
+ *  - Finish reasons mapped to Gemini's ({@code stop} → STOP, {@code length} → MAX_TOKENS)
+ *
+ * Instances are created per configured provider by {@code LlmProviderRegistry}.
+ */
+public class OpenAiRestClient implements LlmProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAiRestClient.class);
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final Map<String, String> GENERATION_PARAMS = Map.of(
+            "temperature", "temperature",
+            "topP", "top_p",
+            "maxOutputTokens", "max_tokens",
+            "stopSequences", "stop",
+            "seed", "seed");
+
+    private final String name;
+    private final String baseUrl;
+    private final String apiKey;
+    private final Set<Capability> capabilities;
+    private final JsonCodecs json;
+    private final OkHttpClient client;
+
+    public OpenAiRestClient(String name, String baseUrl, String apiKey, Set<Capability> capabilities,
+                            int maxRequests, JsonCodecs json) {
+        this.name = name;
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.apiKey = apiKey;
+        this.capabilities = Set.copyOf(capabilities);
+        this.json = json;
+
+        Dispatcher dispatcher = new Dispatcher(Executors.newVirtualThreadPerTaskExecutor());
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequests);
+        this.client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .readTimeout(180, TimeUnit.SECONDS)
+                .build();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Set<Capability> getCapabilities() {
+        return capabilities;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> generate(LlmRequest request, String model, Duration timeout) {
+        final long start = System.nanoTime();
+        return send(request, model, false, timeout, body ->
+                parseResponse(body.string(), model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    @Override
+    public CompletableFuture<LlmResponse> stream(LlmRequest request, String model, Duration timeout,
+                                                 Consumer<String> onChunk) {
+        final long start = System.nanoTime();
+        return send(request, model, true, timeout, body -> readStream(body, model, start, onChunk));
+    }
+
+    /* ====================== HTTP ====================== */
+
+    @FunctionalInterface
+    private interface BodyHandler {
+        LlmResponse handle(ResponseBody body) throws IOException;
+    }
+
+    private CompletableFuture<LlmResponse> send(LlmRequest request, String model, boolean streaming,
+                                                Duration timeout, BodyHandler handler) {
+        Request.Builder builder = new Request.Builder()
+                .url(baseUrl + "/chat/completions")
+                .post(new PayloadBody(request, model, streaming));
+        if (apiKey != null && !apiKey.isBlank()) builder.header("Authorization", "Bearer " + apiKey);
+
+        Call call = client.newCall(builder.build());
+        call.timeout().timeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        CompletableFuture<LlmResponse> future = new CompletableFuture<>();
+        future.whenComplete((r, t) -> {
+            if (future.isCancelled()) call.cancel();
+        });
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call c, IOException e) {
+                future.completeExceptionally(transportError(e));
+            }
+
+            @Override
+            public void onResponse(Call c, Response response) {
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        int code = response.code();
+                        String raw = body == null ? "" : body.string();
+                        future.completeExceptionally(new LlmException(
+                                name + " API error: " + code + " - " + raw, code,
+                                code == 429 || code >= 500, null));
+                        return;
+                    }
+                    if (body == null) {
+                        throw new LlmException("Empty " + name + " response body");
+                    }
+                    future.complete(handler.handle(body));
+                } catch (LlmException e) {
+                    future.completeExceptionally(e);
+                } catch (IOException e) {
+                    future.completeExceptionally(transportError(e));
+                } catch (Exception e) {
+                    future.completeExceptionally(new LlmException(
+                            "Failed to read " + name + " response: " + e.getMessage(), 0, true, e));
+                }
+            }
+        });
+        return future;
+    }
+
+    private LlmException transportError(IOException e) {
+        boolean timedOut = e instanceof InterruptedIOException;
+        return new LlmException(
+                name + (timedOut ? " call timed out: " : " transport error: ") + e.getMessage(), 0, true, e);
+    }
+
+    /* ====================== RESPONSE ====================== */
+
+    private LlmResponse parseResponse(String raw, String model, long elapsedMs) throws IOException {
+        JsonNode root = json.tree().readTree(raw);
+        JsonNode choice = root.path("choices").path(0);
+        if (choice.isMissingNode()) {
+            throw new LlmException("No choices returned from " + name);
+        }
+        String text = choice.path("message").path("content").asText("");
+        String finishReason = finishReason(choice.path("finish_reason").asText(null));
+        logger.debug("{} {} finished in {}ms (finishReason={})", name, model, elapsedMs, finishReason);
+        return new LlmResponse(text, model, finishReason, root.get("usage"), elapsedMs);
+    }
+
+    /** Reads SSE events ("data: {json}") until "data: [DONE]" or the end of the body. */
+    private LlmResponse readStream(ResponseBody body, String model, long start, Consumer<String> onChunk)
+            throws IOException {
+        BufferedSource source = body.source();
+        StringBuilder text = new StringBuilder();
+        String finishReason = null;
+        JsonNode usage = null;
+
+        String line;
+        while ((line = source.readUtf8Line()) != null) {
+            if (!line.startsWith("data:")) continue;
+            String data = line.substring(5).trim();
+            if ("[DONE]".equals(data)) break;
+            JsonNode event = json.tree().readTree(data);
+            JsonNode choice = event.path("choices").path(0);
+            String delta = choice.path("delta").path("content").asText("");
+            if (!delta.isEmpty()) {
+                text.append(delta);
+                onChunk.accept(delta);
+            }
+            if (choice.hasNonNull("finish_reason")) finishReason = finishReason(choice.get("finish_reason").asText());
+            if (event.hasNonNull("usage")) usage = event.get("usage");
+        }
+
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        logger.debug("{} stream {} finished in {}ms (finishReason={})", name, model, elapsed, finishReason);
+        return new LlmResponse(text.toString(), model, finishReason, usage, elapsed);
+    }
+
+    private static String finishReason(String reason) {
+        if (reason == null) return null;
+        return switch (reason) {
+            case "stop" -> "STOP";
+            case "length" -> "MAX_TOKENS";
+            case "content_filter" -> "SAFETY";
+            default -> reason.toUpperCase();
+        };
+    }
+
+    /* ====================== REQUEST ====================== */
+
+    /** chat/completions body streamed to the socket, images Base64-encoded in place (as for Gemini). */
+    private final class PayloadBody extends RequestBody {
+        private final LlmRequest request;
+        private final String model;
+        private final boolean streaming;
+
+        PayloadBody(LlmRequest request, String model, boolean streaming) {
+            this.request = request;
+            this.model = model;
+            this.streaming = streaming;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            OutputStream out = new GeminiPayloadBody.NonClosingOutputStream(sink.outputStream());
+            try (JsonGenerator gen = json.mapper().createGenerator(out)) {
+                gen.writeStartObject();
+                gen.writeStringField("model", model);
+                if (streaming) gen.writeBooleanField("stream", true);
+
+                gen.writeArrayFieldStart("messages");
+                if (request.hasPreamble()) {
+                    gen.writeStartObject();
+                    gen.writeStringField("role", "system");
+                    gen.writeStringField("content", request.getPreamble());
+                    gen.writeEndObject();
+                }
+                gen.writeStartObject();
+                gen.writeStringField("role", "user");
+                if (!request.hasImages()) {
+                    gen.writeStringField("content", request.getPrompt());
+                } else {
+                    gen.writeArrayFieldStart("content");
+                    if (!request.getPrompt().isEmpty()) {
+                        gen.writeStartObject();
+                        gen.writeStringField("type", "text");
+                        gen.writeStringField("text", request.getPrompt());
+                        gen.writeEndObject();
+                    }
+                    for (BufferedImage img : request.getImages()) {
+                        gen.writeStartObject();
+                        gen.writeStringField("type", "image_url");
+                        gen.writeObjectFieldStart("image_url");
+                        gen.writeFieldName("url");
+                        gen.writeRawValue("\"data:image/jpeg;base64,");
+                        gen.flush();
+                        GeminiPayloadBody.writeJpegBase64(img, out);
+                        gen.writeRaw('"');
+                        gen.writeEndObject();
+                        gen.writeEndObject();
+                    }
+                    gen.writeEndArray();
+                }
+                gen.writeEndObject();
+                gen.writeEndArray();
+
+                Map<String, Object> config = request.getGenerationConfig();
+                for (Map.Entry<String, String> param : GENERATION_PARAMS.entrySet()) {
+                    Object value = config.get(param.getKey());
+                    if (value != null) gen.writeObjectField(param.getValue(), value);
+                }
+                Object schema = config.get("responseSchema");
+                if (schema instanceof JsonNode node) {
+                    gen.writeObjectFieldStart("response_format");
+                    gen.writeStringField("type", "json_schema");
+                    gen.writeObjectFieldStart("json_schema");
+                    gen.writeStringField("name", "response");
+                    gen.writeObjectField("schema", jsonSchema(node));
+                    gen.writeEndObject();
+                    gen.writeEndObject();
+                } else if ("application/json".equals(config.get("responseMimeType"))) {
+                    gen.writeObjectFieldStart("response_format");
+                    gen.writeStringField("type", "json_object");
+                    gen.writeEndObject();
+                }
+                gen.writeEndObject();
+            }
+        }
+    }
+
+    /** Gemini's OpenAPI-subset schema (upper-case types, propertyOrdering) as plain JSON Schema. */
+    JsonNode jsonSchema(JsonNode gemini) {
+        ObjectNode out = json.mapper().createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = gemini.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            switch (field.getKey()) {
+                case "type" -> out.put("type", value.asText().toLowerCase());
+                case "propertyOrdering" -> { /* Gemini-only */ }
+                case "items" -> out.set("items", jsonSchema(value));
+                case "properties" -> {
+                    ObjectNode props = out.putObject("properties");
+                    value.fields().forEachRemaining(p -> props.set(p.getKey(), jsonSchema(p.getValue())));
+                }
+                default -> out.set(field.getKey(), value.deepCopy());
+            }
+        }
+        if ("object".equals(out.path("type").asText())) {
+            out.put("additionalProperties", false);
+            if (!out.has("required")) out.set("required", json.mapper().createArrayNode());
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return name + "(" + baseUrl + ")";
+    }
+}
@@ -1,53 +1,43 @@
 package com.preporbit.prep_orbit.service;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.rendering.PDFRenderer;
-import org.apache.pdfbox.rendering.ImageType;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.List;
 
 @Service
 public class PDFToImageService {
 
-    public BufferedImage[] convertPDFToImages(MultipartFile file) throws IOException {
-        System.out.println("🔄 Converting PDF to images for analysis...");
-
-        try (InputStream inputStream = file.getInputStream();
-             PDDocument document = PDDocument.load(inputStream)) {
+    private static final int MAX_PAGES = 5; // Limit to first 5 pages for performance
 
-            PDFRenderer renderer = new PDFRenderer(document);
-            List<BufferedImage> images = new ArrayList<>();
+    private final PdfRenderEngine renderEngine;
 
-            int totalPages = document.getNumberOfPages();
-            int maxPages = Math.min(totalPages, 5); // Limit to first 5 pages for performance
-
-            System.out.println("📄 Processing " + maxPages + " pages (total: " + totalPages + ")...");
+    public PDFToImageService(PdfRenderEngine renderEngine) {
+        this.renderEngine = renderEngine;
+    }
 
-            for (int pageIndex = 0; pageIndex < maxPages; pageIndex++) {
-                try {
-                    System.out.println("🖼️ Converting page " + (pageIndex + 1) + "/" + maxPages);
+    public BufferedImage[] convertPDFToImages(MultipartFile file) throws IOException {
+        try (ResumeDocumentSession document = ResumeDocumentSession.of(file, renderEngine)) {
+            return convertPDFToImages(document);
+        }
+    }
 
-                    // Render at 200 DPI for good quality without being too large
-                    BufferedImage image = renderer.renderImageWithDPI(pageIndex, 200, ImageType.RGB);
-                    images.add(image);
+    // Renders through the request's document session, so later stages reuse the pages
+    public BufferedImage[] convertPDFToImages(ResumeDocumentSession document) throws IOException {
+        System.out.println("🔄 Converting PDF to images for analysis...");
 
-                    System.out.println("✅ Page " + (pageIndex + 1) + " converted successfully (" +
-                            image.getWidth() + "x" + image.getHeight() + ")");
+        try {
+            int totalPages = document.pageCount();
+            int maxPages = Math.min(totalPages, MAX_PAGES);
 
-                } catch (Exception e) {
-                    System.err.println("❌ Error converting page " + (pageIndex + 1) + ": " + e.getMessage());
-                    // Continue with other pages
-                }
-            }
+            // Rendered at ResumeDocumentSession.DPI (200): good quality without being too large;
+            // sessions opened with the render engine render the pages in parallel
+            System.out.println("📄 Processing " + maxPages + " pages (total: " + totalPages + ")...");
+            BufferedImage[] images = document.pageImages(maxPages);
 
-            System.out.println("🎯 Successfully converted " + images.size() + " pages to images");
-            return images.toArray(new BufferedImage[0]);
+            System.out.println("🎯 Successfully converted " + images.length + " pages to images");
+            return images;
 
         } catch (Exception e) {
             System.err.println("💥 Error in PDF to image conversion: " + e.getMessage());
@@ -56,8 +46,14 @@ public class PDFToImageService {
     }
 
     public boolean canConvertToImages(MultipartFile file) {
+        try (ResumeDocumentSession document = ResumeDocumentSession.of(file, renderEngine)) {
+            return canConvertToImages(document);
+        }
+    }
+
+    public boolean canConvertToImages(ResumeDocumentSession document) {
         try {
-            convertPDFToImages(file);
+            convertPDFToImages(document);
             return true;
         } catch (Exception e) {
             System.err.println("❌ Cannot convert PDF to images: " + e.getMessage());
@@ -66,11 +62,16 @@ public class PDFToImageService {
     }
 
     public int getImageCount(MultipartFile file) {
+        try (ResumeDocumentSession document = ResumeDocumentSession.of(file, renderEngine)) {
+            return getImageCount(document);
+        }
+    }
+
+    public int getImageCount(ResumeDocumentSession document) {
         try {
-            BufferedImage[] images = convertPDFToImages(file);
-            return images.length;
+            return convertPDFToImages(document).length;
         } catch (Exception e) {
             return 0;
         }
     }
-}
\ No newline at end of file
+}
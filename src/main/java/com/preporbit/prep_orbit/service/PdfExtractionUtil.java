@@ -21,9 +21,16 @@ public class PdfExtractionUtil {
     }
 
     public static ExtractionResult extract(InputStream in, int maxPages, boolean produceImages) throws Exception {
+        return extract(in, maxPages, produceImages, null);
+    }
+
+    // With a render engine the page images are rendered in parallel (each worker loads its own copy)
+    public static ExtractionResult extract(InputStream in, int maxPages, boolean produceImages,
+                                           PdfRenderEngine renderEngine) throws Exception {
         ExtractionResult result = new ExtractionResult();
+        byte[] bytes = in.readAllBytes();
 
-        try (PDDocument doc = PDDocument.load(in)) {
+        try (PDDocument doc = PDDocument.load(bytes)) {
 
             int total = doc.getNumberOfPages();
             int limit = Math.min(total, maxPages);
@@ -69,7 +76,14 @@ public class PdfExtractionUtil {
             }
 
             // Prepare images (for OCR or image analysis)
-            if (produceImages) {
+            if (produceImages && renderEngine != null && limit > 1) {
+                List<Integer> pages = new ArrayList<>();
+                for (int i = 0; i < limit; i++) pages.add(i);
+                for (PdfRenderEngine.PageRender page : renderEngine.render(bytes, pages, 200)) {
+                    if (page.error() != null) throw page.error();
+                    result.images.add(page.image());
+                }
+            } else if (produceImages) {
                 PDFRenderer renderer = new PDFRenderer(doc);
                 for (int i = 0; i < limit; i++) {
                     BufferedImage img = renderer.renderImageWithDPI(i, 200, ImageType.RGB);
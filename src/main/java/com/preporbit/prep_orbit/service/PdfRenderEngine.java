@@ -0,0 +1,185 @@
+package com.preporbit.prep_orbit.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Parallel PDF page rendering (and PNG encoding) on a CPU-sized pool.
+ *
+ * Features:
+ *  - Global cap: {@code pdf.render.threads} workers (default: available processors) with a
+ *    bounded queue; when it is full the caller renders its own share (natural backpressure)
+ *  - Per-request cap: one request's pages are split across at most
+ *    {@code pdf.render.per-request} tasks
+ *  - {@link PDDocument} is not thread-safe, so every task loads its own instance from the
+ *    upload bytes and renders a strided subset of the pages
+ *  - Per-page render time in each {@link PageRender}, as the {@code pdf.render.page} timer
+ *    and in one summary log line per request
+ */
+@Component
+public class PdfRenderEngine implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfRenderEngine.class);
+
+    /** One page's outcome: {@code image} (and render time) or the {@code error}. */
+    public record PageRender(int pageIndex, BufferedImage image, long renderMs, IOException error) {
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final int perRequest;
+    private final Timer pageTimer;
+    private final Timer pngTimer;
+
+    public PdfRenderEngine(MeterRegistry meterRegistry,
+                           @Value("${pdf.render.threads:0}") int threads,
+                           @Value("${pdf.render.per-request:4}") int perRequest,
+                           @Value("${pdf.render.queue-capacity:64}") int queueCapacity) {
+        int size = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger ids = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "pdf-render-" + ids.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.perRequest = Math.max(1, Math.min(perRequest, size));
+        this.pageTimer = Timer.builder("pdf.render.page").register(meterRegistry);
+        this.pngTimer = Timer.builder("pdf.render.png").register(meterRegistry);
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Renders {@code pages} (0-based) of the PDF in {@code pdf} at {@code dpi}; results are in
+     * the order of {@code pages}. A document that cannot be loaded fails every page.
+     */
+    public List<PageRender> render(byte[] pdf, List<Integer> pages, int dpi) {
+        if (pages.isEmpty()) return List.of();
+        long start = System.nanoTime();
+        int tasks = Math.min(perRequest, pages.size());
+
+        List<CompletableFuture<List<PageRender>>> parts = new ArrayList<>(tasks);
+        for (int t = 0; t < tasks; t++) {
+            List<Integer> share = stride(pages, t, tasks);
+            parts.add(tasks == 1
+                    ? CompletableFuture.completedFuture(renderShare(pdf, share, dpi))
+                    : CompletableFuture.supplyAsync(() -> renderShare(pdf, share, dpi), workers));
+        }
+        PageRender[] ordered = new PageRender[pages.size()];
+        for (CompletableFuture<List<PageRender>> part : parts) {
+            for (PageRender r : part.join()) {
+                ordered[pages.indexOf(r.pageIndex())] = r;
+            }
+        }
+        List<PageRender> results = List.of(ordered);
+        logger.info("🖼 Rendered {} pages with {} tasks in {} ms (per page: {})", pages.size(), tasks,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                results.stream().map(r -> (r.pageIndex() + 1) + "=" + (r.error() == null ? r.renderMs() + "ms" : "failed"))
+                        .collect(Collectors.joining(", ")));
+        return results;
+    }
+
+    /** PNG-encodes {@code images} in parallel (same caps); results in input order. */
+    public List<byte[]> encodePng(List<BufferedImage> images) throws IOException {
+        int tasks = Math.min(perRequest, images.size());
+        List<Integer> indexes = new ArrayList<>(images.size());
+        for (int i = 0; i < images.size(); i++) indexes.add(i);
+
+        List<CompletableFuture<Void>> parts = new ArrayList<>(tasks);
+        byte[][] out = new byte[images.size()][];
+        IOException[] errors = new IOException[images.size()];
+        for (int t = 0; t < tasks; t++) {
+            List<Integer> share = stride(indexes, t, tasks);
+            Runnable encode = () -> {
+                for (int i : share) {
+                    try {
+                        out[i] = png(images.get(i));
+                    } catch (IOException e) {
+                        errors[i] = e;
+                    }
+                }
+            };
+            parts.add(tasks == 1 ? CompletableFuture.runAsync(encode, Runnable::run)
+                    : CompletableFuture.runAsync(encode, workers));
+        }
+        parts.forEach(CompletableFuture::join);
+        for (IOException e : errors) {
+            if (e != null) throw e;
+        }
+        return List.of(out);
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    /* ====================== WORKERS ====================== */
+
+    /** Every {@code tasks}-th page starting at {@code offset}: cost spreads evenly across tasks. */
+    private static List<Integer> stride(List<Integer> pages, int offset, int tasks) {
+        List<Integer> share = new ArrayList<>();
+        for (int i = offset; i < pages.size(); i += tasks) share.add(pages.get(i));
+        return share;
+    }
+
+    private List<PageRender> renderShare(byte[] pdf, List<Integer> pages, int dpi) {
+        List<PageRender> out = new ArrayList<>(pages.size());
+        try (PDDocument doc = PDDocument.load(pdf)) {
+            PDFRenderer renderer = new PDFRenderer(doc);
+            for (int page : pages) {
+                long t0 = System.nanoTime();
+                try {
+                    BufferedImage image = renderer.renderImageWithDPI(page, dpi, ImageType.RGB);
+                    long nanos = System.nanoTime() - t0;
+                    pageTimer.record(nanos, TimeUnit.NANOSECONDS);
+                    out.add(new PageRender(page, image, TimeUnit.NANOSECONDS.toMillis(nanos), null));
+                } catch (IOException | RuntimeException e) {
+                    out.add(failed(page, e));
+                }
+            }
+        } catch (IOException e) {
+            for (int page : pages) {
+                if (out.stream().noneMatch(r -> r.pageIndex() == page)) out.add(failed(page, e));
+            }
+        }
+        return out;
+    }
+
+    private byte[] png(BufferedImage image) throws IOException {
+        long t0 = System.nanoTime();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        pngTimer.record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+        return out.toByteArray();
+    }
+
+    private static PageRender failed(int page, Exception e) {
+        IOException error = e instanceof IOException io ? io
+                : new IOException("Page " + (page + 1) + " render failed: " + e.getMessage(), e);
+        return new PageRender(page, null, 0, error);
+    }
+}
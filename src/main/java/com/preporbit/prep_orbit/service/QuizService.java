@@ -1,12 +1,12 @@
 package com.preporbit.prep_orbit.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.preporbit.prep_orbit.dto.*;
 import com.preporbit.prep_orbit.model.*;
 import com.preporbit.prep_orbit.repository.*;
-import com.preporbit.prep_orbit.util.JsonUtils;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmSpeculator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -15,14 +15,33 @@ import org.springframework.security.access.AccessDeniedException;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
 public class QuizService {
 
+    private static final String EXPLANATION_SPECULATION = "quiz-explanation";
+
+    // General questions (topic "general") so a quiz can still start when the model is down;
+    // choices must not contain commas (they are stored comma-joined)
+    private static final String[][] FALLBACK_QUESTIONS = {
+            {"What is the time complexity of binary search on a sorted array?", "O(1)", "O(log n)", "O(n)", "O(n log n)", "B"},
+            {"Which HTTP status code means the resource was not found?", "200", "301", "404", "500", "C"},
+            {"Which data structure follows last-in first-out order?", "Queue", "Stack", "Heap", "Graph", "B"},
+            {"Which SQL clause filters groups after GROUP BY?", "WHERE", "ORDER BY", "HAVING", "LIMIT", "C"},
+            {"What is the average lookup time of a hash table?", "O(1)", "O(log n)", "O(n)", "O(n^2)", "A"},
+            {"Which Git command records staged changes in the repository?", "git add", "git push", "git commit", "git fetch", "C"},
+            {"Which of these is not a primitive type in Java?", "int", "boolean", "String", "char", "C"},
+            {"Which principle says a class should have only one reason to change?", "Open/closed",
+                    "Single responsibility", "Liskov substitution", "Dependency inversion", "B"},
+    };
+
     @Autowired
     private GeminiService geminiService;
     @Autowired
+    private LlmSpeculator speculator;
+    @Autowired
     private QuizSessionRepository quizSessionRepo;
     @Autowired
     private QuizQuestionRepository quizQuestionRepo;
@@ -62,6 +81,7 @@ public class QuizService {
             entities.add(entity);
         }
         quizQuestionRepo.saveAll(entities);
+        speculateExplanations(entities);
 
         List<QuizQuestionDto> responseQuestions = entities.stream().map(q -> {
             QuizQuestionDto dto = new QuizQuestionDto();
@@ -85,55 +105,41 @@ public class QuizService {
                 "Generate " + numQuestions + " technical MCQ questions on these topics: " +
                         String.join(", ", topics) + ".\n\n" +
                         "Requirements:\n" +
-                        "- Exactly 4 options per question.\n" +
-                        "- The \"choices\" field MUST be ONE string made by joining the four option texts with the delimiter \",,,\" in A,,,B,,,C,,,D order.\n" +
+                        "- Exactly 4 options per question, listed in A, B, C, D order.\n" +
                         "- Do NOT prefix options with \"A)\", \"B)\", etc.\n" +
-                        "- Do NOT include the delimiter sequence \",,,\" inside any option text.\n" +
                         "- \"correctAnswer\" must be one of \"A\", \"B\", \"C\", or \"D\".\n" +
-                        "- \"topic\" must be one of the provided topics for each question.\n" +
-                        "- Return ONLY a valid JSON array. No extra text, no markdown, no comments.\n\n" +
-                        "Output format (schema, not an example of content):\n" +
-                        "[\n" +
-                        "  {\n" +
-                        "    \"questionText\": \"…\",\n" +
-                        "    \"choices\": \"option A text,,,option B text,,,option C text,,,option D text\",\n" +
-                        "    \"correctAnswer\": \"A\",\n" +
-                        "    \"topic\": \"…\"\n" +
-                        "  }\n" +
-                        "]";
-
-        String geminiResponse = geminiService.askGemini(prompt);
-
-        geminiResponse = stripMarkdownCodeBlock(geminiResponse);
-
-        if (geminiResponse == null || geminiResponse.isEmpty() || !geminiResponse.trim().startsWith("[")) {
-            System.err.println("Gemini did not return JSON. Raw response: " + geminiResponse);
-            return new ArrayList<>();
-        }
-
-        ObjectMapper mapper = new ObjectMapper();
-        try {
-            return mapper.readValue(geminiResponse, new TypeReference<List<QuizQuestionDto>>() {});
-        } catch (Exception e) {
-            System.err.println("Failed to parse Gemini response: " + e.getMessage() + "\nRaw response: " + geminiResponse);
-            return new ArrayList<>();
+                        "- \"topic\" must be one of the provided topics for each question.";
+
+        // Schema-constrained JSON array decoded straight into the DTOs
+        List<QuizQuestionDto> questions = geminiService.askGeminiJson(prompt, LlmProfile.QUIZ_GENERATION,
+                new TypeReference<List<QuizQuestionDto>>() {});
+        if (questions == null || questions.isEmpty()) {
+            System.err.println("Gemini did not return usable quiz questions, using fallback questions");
+            return fallbackQuestions(numQuestions);
         }
+        return questions;
     }
 
-    private String stripMarkdownCodeBlock(String input) {
-        if (input == null) return "";
-        input = input.trim();
-        if (input.startsWith("```")) {
-            int start = input.indexOf("\n") + 1;
-            int end = input.lastIndexOf("```");
-            if (start > 0 && end > start) {
-                return input.substring(start, end).trim();
-            }
+    private List<QuizQuestionDto> fallbackQuestions(int numQuestions) {
+        List<QuizQuestionDto> questions = new ArrayList<>();
+        for (int i = 0; i < Math.min(numQuestions, FALLBACK_QUESTIONS.length); i++) {
+            String[] q = FALLBACK_QUESTIONS[i];
+            QuizQuestionDto dto = new QuizQuestionDto();
+            dto.setQuestionText(q[0]);
+            dto.setChoices(new String[]{q[1], q[2], q[3], q[4]});
+            dto.setCorrectAnswer(q[5]);
+            dto.setTopic("general");
+            questions.add(dto);
         }
-        return input;
+        return questions;
     }
 
     public QuizResultDto submitQuiz(Long sessionId, QuizSubmitRequestDto request) throws AccessDeniedException {
+        return submitQuiz(requireOwnedSession(sessionId), request, null);
+    }
+
+    // Ownership check against the current security context (must run on the request thread)
+    public QuizSession requireOwnedSession(Long sessionId) throws AccessDeniedException {
         QuizSession session = quizSessionRepo.findById(sessionId)
                 .orElseThrow(() -> new IllegalArgumentException("Session ID not found: " + sessionId));
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -141,7 +147,11 @@ public class QuizService {
         if (!Objects.equals(session.getUsername(), loggedInUsername)) {
             throw new AccessDeniedException("You do not have access to this quiz session.");
         }
+        return session;
+    }
 
+    // Grades an owned session; when onChunk is set the session feedback is streamed to it
+    public QuizResultDto submitQuiz(QuizSession session, QuizSubmitRequestDto request, Consumer<String> onChunk) {
         List<FeedbackDto> feedbackList = new ArrayList<>();
         int correct = 0;
         List<UserAnswer> persistedAnswers = new ArrayList<>();
@@ -158,16 +168,22 @@ public class QuizService {
             if (isCorrect) correct++;
             else incorrectTopics.add(question.getTopic());
 
-            String hintPrompt = "Question: " + question.getQuestionText() + "\n"
-                    + "Correct Answer: " + question.getCorrectAnswer() + "\n"
-                    + "User Answer: " + dto.getUserAnswer() + "\n"
-                    + "Provide a helpful hint or explanation for this question based on the user's answer. Keep it as concise as possible and never exceeds five sentences";
-            String hint = "";
-            try {
-                hint = geminiService.askGemini(hintPrompt);
-            } catch (Exception e) {
-                System.err.println("Failed to get hint from Gemini: " + e.getMessage());
-                hint = "No hint available.";
+            // The explanation prefetched at quiz start only fits a correct answer; a wrong one
+            // gets the live hint built around what the user picked (the unclaimed entry expires)
+            String hint = isCorrect
+                    ? speculator.claim(EXPLANATION_SPECULATION, String.valueOf(question.getId()))
+                    : null;
+            if (hint == null) {
+                String hintPrompt = "Question: " + question.getQuestionText() + "\n"
+                        + "Correct Answer: " + question.getCorrectAnswer() + "\n"
+                        + "User Answer: " + dto.getUserAnswer() + "\n"
+                        + "Provide a helpful hint or explanation for this question based on the user's answer. Keep it as concise as possible and never exceeds five sentences";
+                try {
+                    hint = geminiService.askGemini(hintPrompt, LlmProfile.QUIZ_HINT);
+                } catch (Exception e) {
+                    System.err.println("Failed to get hint from Gemini: " + e.getMessage());
+                    hint = "No hint available.";
+                }
             }
 
             UserAnswer ua = new UserAnswer();
@@ -206,32 +222,16 @@ public class QuizService {
                 + "The topic with the highest incorrect and skipped questions should be marked as weakness too. "
                 + "Strong zones should be the one with highest correct. "
                 + "In suggestions, tell me how to overcome the weaknesses and relevant topics for the weak zones. "
-                + "Reply ONLY with a single JSON object and DO NOT write any explanation or text outside the JSON. "
-                + "Example output:\n"
-                + "{ \"strengths\": [\"...\"], \"weaknesses\": [\"...\"], \"suggestions\": [\"...\"] }";
-
-        String sessionFeedback = "";
-        List<String> strengths = new ArrayList<>();
-        List<String> weaknesses = new ArrayList<>();
-        List<String> suggestions = new ArrayList<>();
-
-        try {
-            sessionFeedback = geminiService.askGemini(sessionPrompt);
-            String cleanedJson = stripMarkdownCodeBlock(sessionFeedback);
-            cleanedJson = JsonUtils.extractFirstJsonObject(cleanedJson);
-
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(cleanedJson);
-            strengths = mapper.convertValue(node.get("strengths"), new TypeReference<List<String>>() {});
-            weaknesses = mapper.convertValue(node.get("weaknesses"), new TypeReference<List<String>>() {});
-            suggestions = mapper.convertValue(node.get("suggestions"), new TypeReference<List<String>>() {});
-        } catch (Exception e) {
-            System.err.println("Session feedback parse error: " + e.getMessage());
-            System.err.println("Raw Gemini output: " + sessionFeedback);
-            strengths = new ArrayList<>();
-            weaknesses = new ArrayList<>();
-            suggestions = new ArrayList<>();
+                + "Reply with the strengths, weaknesses and suggestions lists.";
+
+        SessionFeedback sessionFeedback = geminiService.askGeminiJson(sessionPrompt, LlmProfile.QUIZ_FEEDBACK,
+                SessionFeedback.class, onChunk);
+        if (sessionFeedback == null) {
+            System.err.println("Session feedback unavailable, returning empty lists");
         }
+        List<String> strengths = listOrEmpty(sessionFeedback == null ? null : sessionFeedback.strengths());
+        List<String> weaknesses = listOrEmpty(sessionFeedback == null ? null : sessionFeedback.weaknesses());
+        List<String> suggestions = listOrEmpty(sessionFeedback == null ? null : sessionFeedback.suggestions());
 
         double accuracy = 100.0 * correct / request.getAnswers().size();
         session.setScore(correct);
@@ -311,6 +311,7 @@ public class QuizService {
             questionEntities.add(question);
         }
         quizQuestionRepo.saveAll(questionEntities);
+        speculateExplanations(questionEntities);
 
         List<QuizQuestionDto> responseQuestions = questionEntities.stream().map(q -> {
             QuizQuestionDto dto = new QuizQuestionDto();
@@ -328,4 +329,24 @@ public class QuizService {
 
         return response;
     }
-}
\ No newline at end of file
+
+    // Hints are needed at submit time; for correct answers an explanation that doesn't depend on
+    // the user's answer can be generated while the quiz is being taken (within the speculation quota share)
+    private void speculateExplanations(List<QuizQuestion> questions) {
+        for (QuizQuestion q : questions) {
+            String prompt = "Question: " + q.getQuestionText() + "\n"
+                    + "Options (A, B, C, D): " + q.getChoices() + "\n"
+                    + "Correct Answer: " + q.getCorrectAnswer() + "\n"
+                    + "Explain why the correct answer is right and what the other options get wrong, as a hint for someone reviewing this question. Keep it as concise as possible and never exceeds five sentences";
+            speculator.speculate(EXPLANATION_SPECULATION, String.valueOf(q.getId()),
+                    LlmRequest.of(LlmProfile.QUIZ_HINT, prompt));
+        }
+    }
+
+    // Shape of the AI session feedback (also the response schema sent to Gemini)
+    record SessionFeedback(List<String> strengths, List<String> weaknesses, List<String> suggestions) {}
+
+    private static List<String> listOrEmpty(List<String> values) {
+        return values != null ? values : new ArrayList<>();
+    }
+}
@@ -0,0 +1,307 @@
+package com.preporbit.prep_orbit.service;
+
+import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
+import com.preporbit.prep_orbit.exception.ResumeJobLimitException;
+import com.preporbit.prep_orbit.service.ResumeAnalysisService.Stage;
+import com.preporbit.prep_orbit.util.SpooledMultipartFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Asynchronous resume analysis: the upload is accepted with a job id and the pipeline runs
+ * on a dedicated, bounded worker pool, so no servlet thread waits for extraction, the model
+ * calls, rendering and persistence.
+ *
+ * Features:
+ *  - {@code resume.jobs.workers} concurrent analyses, {@code resume.jobs.queue-capacity}
+ *    waiting; beyond that {@link #submit} is rejected ({@link RejectedExecutionException})
+ *  - At most {@code resume.jobs.per-user} unfinished jobs per user
+ *    ({@link ResumeJobLimitException}), so one user cannot fill the queue for everyone
+ *  - Uploads wait on disk ({@code resume.jobs.spool-dir}), not on the heap; the spooled
+ *    copy is deleted when the job finishes
+ *  - Progress QUEUED → EXTRACTING → ANALYZING → SAVING → SAVED (or FAILED), readable
+ *    with {@link #find} and pushed to SSE subscribers
+ *  - Event protocol as {@code LlmStreamRelay}, plus {@code stage}: {@code stage},
+ *    {@code chunk} (partial model text), then {@code complete} or {@code error}
+ *  - Jobs are owned by the submitting user; finished jobs are dropped after
+ *    {@code resume.jobs.retention} (the analysis itself is persisted)
+ */
+@Service
+public class ResumeAnalysisJobService implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResumeAnalysisJobService.class);
+
+    /** Point-in-time view of a job; {@code result} is set once SAVED. */
+    public record JobView(String jobId, Stage stage, Instant createdAt, Instant updatedAt,
+                          Long analysisId, Map<String, Object> result, String error) {
+    }
+
+    private final ResumeAnalysisService resumeAnalysisService;
+    private final ThreadPoolExecutor workers;
+    private final int perUser;
+    private final Path spoolDir;
+    private final Duration retention;
+    private final long emitterTimeoutMs;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public ResumeAnalysisJobService(ResumeAnalysisService resumeAnalysisService,
+                                    @Value("${resume.jobs.workers:4}") int workers,
+                                    @Value("${resume.jobs.queue-capacity:50}") int queueCapacity,
+                                    @Value("${resume.jobs.per-user:2}") int perUser,
+                                    @Value("${resume.jobs.spool-dir:${java.io.tmpdir}/resume-jobs}") String spoolDir,
+                                    @Value("${resume.jobs.retention:30m}") Duration retention,
+                                    @Value("${llm.stream.emitter-timeout-ms:300000}") long emitterTimeoutMs) {
+        this.resumeAnalysisService = resumeAnalysisService;
+        this.perUser = Math.max(1, perUser);
+        this.spoolDir = Path.of(spoolDir);
+        int size = Math.max(1, workers);
+        this.workers = new ThreadPoolExecutor(size, size, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                Thread.ofVirtual().name("resume-job-", 0).factory());
+        this.retention = retention;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Queues an analysis of {@code file} for {@code userEmail} ({@code force} skips the
+     * re-upload dedupe); {@code presenter} turns the
+     * persisted analysis into the {@code complete} payload. Throws
+     * {@link ResumeJobLimitException} when the user already has {@code per-user} jobs in
+     * flight and {@link RejectedExecutionException} when the queue is full.
+     */
+    public JobView submit(MultipartFile file, String userEmail, boolean force,
+                          Function<ResumeAnalysisResponse, Map<String, Object>> presenter) throws IOException {
+        return enqueue(file, userEmail, force, presenter, null);
+    }
+
+    /**
+     * {@link #submit} with an SSE subscriber attached before the job is queued, so no
+     * {@code chunk} is missed; same limits and exceptions.
+     */
+    public SseEmitter submitAndSubscribe(MultipartFile file, String userEmail, boolean force,
+                                         Function<ResumeAnalysisResponse, Map<String, Object>> presenter)
+            throws IOException {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        enqueue(file, userEmail, force, presenter, emitter);
+        return emitter;
+    }
+
+    private JobView enqueue(MultipartFile file, String userEmail, boolean force,
+                            Function<ResumeAnalysisResponse, Map<String, Object>> presenter,
+                            SseEmitter subscriber) throws IOException {
+        evictFinished();
+        Job job = new Job(UUID.randomUUID().toString(), userEmail);
+        synchronized (jobs) {
+            long inFlight = jobs.values().stream()
+                    .filter(j -> j.userEmail.equals(userEmail) && !j.isFinished()).count();
+            if (inFlight >= perUser) {
+                throw new ResumeJobLimitException("You already have " + inFlight
+                        + " resume analyses in progress; wait for one to finish");
+            }
+            jobs.put(job.id, job);
+        }
+        JobView queued = job.view();
+        // The multipart temp file is gone once the request thread returns
+        SpooledMultipartFile spooled;
+        try {
+            spooled = SpooledMultipartFile.spool(file, spoolDir);
+        } catch (IOException | RuntimeException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        if (subscriber != null) job.subscribe(subscriber);
+        try {
+            workers.execute(() -> run(job, spooled, force, presenter));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            spooled.close();
+            throw e;
+        }
+        logger.info("📥 Resume analysis job {} queued for {} ({} waiting)", job.id, userEmail,
+                workers.getQueue().size());
+        return queued;
+    }
+
+    /** The job if it exists and belongs to {@code userEmail}. */
+    public JobView find(String jobId, String userEmail) {
+        Job job = owned(jobId, userEmail);
+        return job == null ? null : job.view();
+    }
+
+    /**
+     * SSE stream of the job's progress: the current stage first, then live events; a
+     * finished job gets its terminal event immediately. Null when the job is unknown.
+     */
+    public SseEmitter subscribe(String jobId, String userEmail) {
+        Job job = owned(jobId, userEmail);
+        if (job == null) return null;
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    /* ====================== WORKER ====================== */
+
+    private void run(Job job, SpooledMultipartFile file, boolean force,
+                     Function<ResumeAnalysisResponse, Map<String, Object>> presenter) {
+        try (file; ResumeDocumentSession document = resumeAnalysisService.openDocument(file)) {
+            ResumeAnalysisResponse analysis = resumeAnalysisService.analyzeResume(document, job.userEmail,
+                    job::chunk, job::stage, force);
+            job.saved(analysis.getId(), presenter.apply(analysis));
+            logger.info("✅ Resume analysis job {} saved as analysis {}", job.id, analysis.getId());
+        } catch (Exception e) {
+            logger.error("❌ Resume analysis job {} failed: {}", job.id, e.getMessage());
+            job.failed(String.valueOf(e.getMessage()));
+        }
+    }
+
+    private Job owned(String jobId, String userEmail) {
+        Job job = jobs.get(jobId);
+        return job != null && job.userEmail.equals(userEmail) ? job : null;
+    }
+
+    private void evictFinished() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.isFinished() && job.updatedAt().isBefore(cutoff));
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+
+    /* ====================== JOB ====================== */
+
+    private static final class Job {
+        private final String id;
+        private final String userEmail;
+        private final Instant createdAt = Instant.now();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private Stage stage = Stage.QUEUED;
+        private Instant updatedAt = createdAt;
+        private Long analysisId;
+        private Map<String, Object> result;
+        private String error;
+
+        Job(String id, String userEmail) {
+            this.id = id;
+            this.userEmail = userEmail;
+        }
+
+        synchronized JobView view() {
+            return new JobView(id, stage, createdAt, updatedAt, analysisId, result, error);
+        }
+
+        synchronized boolean isFinished() {
+            return stage == Stage.SAVED || stage == Stage.FAILED;
+        }
+
+        synchronized Instant updatedAt() {
+            return updatedAt;
+        }
+
+        void stage(Stage next) {
+            synchronized (this) {
+                stage = next;
+                updatedAt = Instant.now();
+            }
+            broadcast("stage", stageEvent(next));
+        }
+
+        void chunk(String text) {
+            broadcast("chunk", text);
+        }
+
+        void saved(Long analysisId, Map<String, Object> result) {
+            List<SseEmitter> listeners;
+            synchronized (this) {
+                this.analysisId = analysisId;
+                this.result = result;
+                stage = Stage.SAVED;
+                updatedAt = Instant.now();
+                listeners = detach();
+            }
+            finish(listeners, "complete", result);
+        }
+
+        void failed(String message) {
+            List<SseEmitter> listeners;
+            synchronized (this) {
+                error = message;
+                stage = Stage.FAILED;
+                updatedAt = Instant.now();
+                listeners = detach();
+            }
+            finish(listeners, "error", Map.of("error", message));
+        }
+
+        /** Registered under the lock, so a subscriber never misses the terminal event. */
+        void subscribe(SseEmitter emitter) {
+            synchronized (this) {
+                send(emitter, "stage", stageEvent(stage));
+                if (!isFinished()) {
+                    emitters.add(emitter);
+                    emitter.onCompletion(() -> emitters.remove(emitter));
+                    emitter.onTimeout(() -> emitters.remove(emitter));
+                    emitter.onError(e -> emitters.remove(emitter));
+                    return;
+                }
+            }
+            finish(List.of(emitter), stage == Stage.SAVED ? "complete" : "error",
+                    stage == Stage.SAVED ? result : Map.of("error", error));
+        }
+
+        private List<SseEmitter> detach() {
+            List<SseEmitter> listeners = new ArrayList<>(emitters);
+            emitters.clear();
+            return listeners;
+        }
+
+        private Map<String, Object> stageEvent(Stage s) {
+            return Map.of("jobId", id, "stage", s.name().toLowerCase());
+        }
+
+        private void broadcast(String event, Object data) {
+            for (SseEmitter emitter : emitters) send(emitter, event, data);
+        }
+
+        private static void finish(List<SseEmitter> listeners, String event, Object data) {
+            for (SseEmitter emitter : listeners) {
+                send(emitter, event, data);
+                emitter.complete();
+            }
+        }
+
+        private static void send(SseEmitter emitter, String event, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data));
+            } catch (IOException | IllegalStateException e) {
+                // client went away; the job still completes and can be polled
+                logger.debug("SSE client disconnected during '{}' event: {}", event, e.getMessage());
+            }
+        }
+    }
+}
@@ -1,8 +1,6 @@
 package com.preporbit.prep_orbit.service;
 
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
 
 import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
@@ -11,28 +9,30 @@ import com.preporbit.prep_orbit.model.ResumeAnalysis;
 import com.preporbit.prep_orbit.model.User;
 import com.preporbit.prep_orbit.repository.ResumeAnalysisRepository;
 import com.preporbit.prep_orbit.repository.UserRepository;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.service.llm.LlmJsonCodec;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.PromptCompactor;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import com.preporbit.prep_orbit.util.StageScope;
 import net.sourceforge.tess4j.ITesseract;
 import net.sourceforge.tess4j.Tesseract;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.pdfbox.rendering.ImageType;
-import org.apache.pdfbox.rendering.PDFRenderer;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 
-import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
-import java.io.InputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -41,6 +41,10 @@ import java.util.stream.Collectors;
  * Features:
  *  - Multi-pass text extraction
  *  - Lazy PDF → image rendering
+ *  - Byte-identical re-uploads (SHA-256) within {@code resume.dedupe.window} reuse the
+ *    earlier analysis unless forced
+ *  - One PDF parse per request ({@link ResumeDocumentSession}): text, page renders and
+ *    PNG bytes are shared by extraction, analysis and storage
  *  - (OCR hook disabled by default)
  *  - AI (text) + fallback image analysis path
  *  - Fallback & diagnostic sanitization
@@ -51,84 +55,170 @@ import java.util.stream.Collectors;
 public class ResumeAnalysisService {
     @Value("${resume.images.base-dir:./resume-images}")
     private String imagesBaseDir;
+    @Value("${resume.dedupe.enabled:true}")
+    private boolean dedupeEnabled;
+    @Value("${resume.dedupe.window:7d}")
+    private Duration dedupeWindow;
 
 
     /* ===================== CONFIG FLAGS ===================== */
     private static final boolean ENABLE_OCR = false;               // Hook point if you add Tess4J later
     private static final int    MAX_IMAGE_PAGES = 5;               // Cap pages converted to images
-    private static final int    IMAGE_DPI = 200;                   // Balance clarity and performance
     private static final int    MIN_TEXT_LENGTH = 100;             // Meaningful threshold (characters)
     private static final int    MIN_WORDS = 20;
 // Meaningful threshold (words)
+    private static final TypeReference<List<ResumeAnalysisResponse.Suggestion>> SUGGESTIONS = new TypeReference<>() {};
+
+    /**
+     * Pipeline progress, in order; QUEUED / SAVED / FAILED are set by the job runner.
+     * Page images are rendered within EXTRACTING / ANALYZING (alongside the model call),
+     * so there is no separate rendering stage; SAVING is the final persist.
+     */
+    public enum Stage { QUEUED, EXTRACTING, ANALYZING, SAVING, SAVED, FAILED }
 
     /* ===================== DEPENDENCIES ===================== */
     private final GeminiService geminiService;
     private final ResumeAnalysisRepository resumeAnalysisRepository;
     private final UserRepository userRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final LlmJsonCodec jsonCodec;
+    private final PromptCompactor promptCompactor;
+    private final JsonCodecs json;
+    private final PdfRenderEngine renderEngine;
 
     public ResumeAnalysisService(GeminiService geminiService,
                                  ResumeAnalysisRepository resumeAnalysisRepository,
-                                 UserRepository userRepository) {
+                                 UserRepository userRepository,
+                                 LlmJsonCodec jsonCodec,
+                                 PromptCompactor promptCompactor,
+                                 JsonCodecs json,
+                                 PdfRenderEngine renderEngine) {
         this.geminiService = geminiService;
         this.resumeAnalysisRepository = resumeAnalysisRepository;
         this.userRepository = userRepository;
+        this.jsonCodec = jsonCodec;
+        this.promptCompactor = promptCompactor;
+        this.json = json;
+        this.renderEngine = renderEngine;
+    }
+
+    // Document session whose page renders and PNG encodes run on the shared render pool
+    public ResumeDocumentSession openDocument(MultipartFile file) {
+        return ResumeDocumentSession.of(file, renderEngine);
     }
 
     /* ===================== PUBLIC ENTRY ===================== */
     public ResumeAnalysisResponse analyzeResume(MultipartFile file, String userEmail) throws IOException {
+        return analyzeResume(file, userEmail, null);
+    }
+
+    // Same pipeline; when onChunk is set the AI analysis output is streamed to it as it is generated
+    public ResumeAnalysisResponse analyzeResume(MultipartFile file, String userEmail,
+                                                Consumer<String> onChunk) throws IOException {
+        return analyzeResume(file, userEmail, onChunk, false);
+    }
+
+    // force=true analyzes again even when the same file was analyzed within the dedupe window
+    public ResumeAnalysisResponse analyzeResume(MultipartFile file, String userEmail,
+                                                Consumer<String> onChunk, boolean force) throws IOException {
+        try (ResumeDocumentSession document = openDocument(file)) {
+            return analyzeResume(document, userEmail, onChunk, stage -> {}, force);
+        }
+    }
+
+    // Every stage below reads the same parsed document (text, renders and PNGs are memoized)
+    public ResumeAnalysisResponse analyzeResume(ResumeDocumentSession file, String userEmail,
+                                                Consumer<String> onChunk) throws IOException {
+        return analyzeResume(file, userEmail, onChunk, stage -> {}, false);
+    }
+
+    // Same pipeline; onStage hears each stage as it starts (job progress)
+    public ResumeAnalysisResponse analyzeResume(ResumeDocumentSession file, String userEmail,
+                                                Consumer<String> onChunk, Consumer<Stage> onStage,
+                                                boolean force) throws IOException {
         final long start = System.currentTimeMillis();
-        System.out.println("=== ▶ START Resume Analysis: " + file.getOriginalFilename() + " ===");
+        System.out.println("=== ▶ START Resume Analysis: " + file.getFilename() + " ===");
 
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        // 0. Byte-identical re-upload within the window: the earlier analysis (and its stored
+        //    page images) answers it, with no model call and no new row or image files
+        String contentHash = contentHash(file);
+        if (!force && contentHash != null) {
+            ResumeAnalysisResponse previous = findDuplicate(user.getId(), contentHash);
+            if (previous != null) return previous;
+        }
+
         // 1. Smart text extraction (without images first)
+        onStage.accept(Stage.EXTRACTING);
         ExtractionResult extraction = extractTextSmart(file);
         boolean textMeaningful = isTextMeaningful(extraction.extractedText);
 
         // 2. Decide analysis path (possibly render images lazily)
         AnalysisPlan plan = decideAnalysisPath(textMeaningful, extraction.imagePagesAvailable, extraction.extractedText);
 
+        // 2b. Recent calls show the model down: take the heuristic path now (and skip rendering)
+        if (!"fallback".equals(plan.method) && !geminiService.isServiceAvailable(
+                "image".equals(plan.method) ? LlmProfile.RESUME_IMAGE_ANALYSIS : LlmProfile.RESUME_ANALYSIS)) {
+            System.out.println("📌 AI unavailable, switching " + plan.method + " → fallback");
+            plan.method = "fallback";
+            plan.requiresImages = false;
+        }
+
         // 3. If plan needs images but we have none yet, convert now
-        BufferedImage[] images = null;
         if (plan.requiresImages && extraction.images == null) {
             extraction.images = renderImages(file, MAX_IMAGE_PAGES);
         }
-        images = extraction.images;
+        BufferedImage[] images = extraction.images;
 
-        // 4. Perform analysis
+        // 4. Analysis, summary and page rendering are independent: run them concurrently in one
+        //    scope (wall time is the longest stage, not the sum); a failure cancels the siblings
+        onStage.accept(Stage.ANALYZING);
+        String summaryInput = textMeaningful ? sanitizeExtractedText(extraction.extractedText) : null;
         ResumeAnalysisResponse response;
-        try {
-            switch (plan.method) {
-                case "text" -> response = performTextAnalysis(extraction.extractedText);
-                case "image" -> response = performImageAnalysis(images);
-                default -> response = createEnhancedFallbackAnalysis(extraction.extractedText);
-            }
-        } catch (Exception e) {
-            System.err.println("❌ Unexpected failure in analysis path: " + e.getMessage());
-            response = createEnhancedFallbackAnalysis(extraction.extractedText);
-            plan.method = "fallback";
+        String summary;
+        Map<String, Long> stageTimings;
+        try (StageScope scope = StageScope.open("resume-stages")) {
+            Supplier<ResumeAnalysisResponse> analysis = scope.fork("analysis",
+                    () -> analyze(plan, extraction.extractedText, images, onChunk));
+            // Without usable extracted text the summary needs the analysis transcript (below)
+            Supplier<String> summarized = summaryInput == null ? null
+                    : scope.fork("summary", () -> generateResumeSummary(summaryInput));
+            scope.fork("rendering", () -> file.pagePngs(MAX_IMAGE_PAGES));
+            scope.join();
+            response = analysis.get();
+            summary = summarized == null ? null : summarized.get();
+            stageTimings = scope.timings();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Resume analysis interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IOException("Resume analysis failed: " + e.getCause().getMessage(), e.getCause());
         }
 
-        // 5. Sanitize extracted text (remove diagnostic phrases)
         // 5. Sanitize extracted text
         String finalExtracted = sanitizeExtractedText(
                 (response.getExtractedText() == null || response.getExtractedText().isBlank())
                         ? extraction.extractedText : response.getExtractedText()
         );
+        if (summary == null) {
+            long summaryStart = System.currentTimeMillis();
+            summary = generateResumeSummary(finalExtracted);
+            stageTimings.put("summary", System.currentTimeMillis() - summaryStart);
+        }
 
 // 6. Enrich details
         Map<String, Object> details = ensureDetails(response);
         addCommonDetails(details, plan.method, images, finalExtracted, System.currentTimeMillis() - start);
-
-// 6b. Generate summary and attach it
-        String summary = generateResumeSummary(finalExtracted);
         details.put("summary", summary);
+        details.put("stageTimingsMs", stageTimings);
 
 // 7. Persist
-        // 7. Persist
-        ResumeAnalysis saved = saveAnalysis(user.getId(), file, response, finalExtracted,
+        // 7. Persist (stores the page images rendered above)
+        onStage.accept(Stage.SAVING);
+        ResumeAnalysis saved = saveAnalysis(user.getId(), file, contentHash, response, finalExtracted,
                 (long) details.getOrDefault("processingTimeMs", 0L));
 
         details.put("analysisId", saved.getId());
@@ -137,10 +227,7 @@ public class ResumeAnalysisService {
         response.setId(saved.getId());
         if (saved.getPageImagesJson() != null) {
             try {
-                List<String> pageImages = objectMapper.readValue(
-                        saved.getPageImagesJson(),
-                        objectMapper.getTypeFactory().constructCollectionType(List.class, String.class)
-                );
+                List<String> pageImages = json.stringList().readValue(saved.getPageImagesJson());
                 response.setPageImages(pageImages);
             } catch (Exception e) {
                 response.setPageImages(Collections.emptyList());
@@ -157,17 +244,34 @@ public class ResumeAnalysisService {
 
         return response;
     }
+    // The planned analysis; any failure degrades to the heuristic analysis (plan becomes "fallback")
+    private ResumeAnalysisResponse analyze(AnalysisPlan plan, String extractedText, BufferedImage[] images,
+                                           Consumer<String> onChunk) {
+        try {
+            return switch (plan.method) {
+                case "text" -> performTextAnalysis(extractedText, onChunk);
+                case "image" -> performImageAnalysis(images, onChunk);
+                default -> createEnhancedFallbackAnalysis(extractedText);
+            };
+        } catch (Exception e) {
+            System.err.println("❌ Unexpected failure in analysis path: " + e.getMessage());
+            plan.method = "fallback";
+            return createEnhancedFallbackAnalysis(extractedText);
+        }
+    }
+
     private String generateResumeSummary(String extractedText) {
         if (extractedText == null || extractedText.isBlank()) return "";
+        if (!geminiService.isServiceAvailable(LlmProfile.RESUME_SUMMARY)) return "";
 
         String prompt = "Summarize this resume in 3–4 sentences. " +
                 "Highlight candidate's skills, experience, and education. " +
-                "Resume:\n" + extractedText.substring(0, Math.min(3000, extractedText.length()));
+                "Resume:\n" + promptCompactor.compact(LlmProfile.RESUME_SUMMARY, extractedText);
 
         try {
-            String aiRaw = geminiService.askGemini(prompt);
+            String aiRaw = geminiService.askGemini(prompt, LlmProfile.RESUME_SUMMARY);
             if (aiRaw == null || aiRaw.isBlank()) return "";
-            return cleanAIResponse(aiRaw);
+            return aiRaw.trim();
         } catch (Exception e) {
             System.err.println("⚠️ Summary generation failed: " + e.getMessage());
             return "";
@@ -268,10 +372,7 @@ public class ResumeAnalysisService {
         // Add page images
         if (entity.getPageImagesJson() != null) {
             try {
-                List<String> pageImages = objectMapper.readValue(
-                        entity.getPageImagesJson(),
-                        new TypeReference<List<String>>() {}
-                );
+                List<String> pageImages = json.stringList().readValue(entity.getPageImagesJson());
                 dto.setPageImages(pageImages);
             } catch (Exception e) {
                 dto.setPageImages(Collections.emptyList());
@@ -286,6 +387,32 @@ public class ResumeAnalysisService {
 
 
 
+    /* ===================== DEDUPLICATION ===================== */
+
+    private String contentHash(ResumeDocumentSession file) {
+        try {
+            return file.contentHash();
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not hash upload: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private ResumeAnalysisResponse findDuplicate(Long userId, String contentHash) {
+        if (!dedupeEnabled) return null;
+        return resumeAnalysisRepository
+                .findFirstByUserIdAndContentHashAndCreatedAtAfterOrderByCreatedAtDesc(
+                        userId, contentHash, LocalDateTime.now().minus(dedupeWindow))
+                .map(previous -> {
+                    System.out.println("♻️ Identical upload already analyzed (ID=" + previous.getId()
+                            + "), reusing it; pass force=true to analyze again");
+                    ResumeAnalysisResponse response = convertToResponse(previous);
+                    response.getDetails().put("deduplicated", true);
+                    return response;
+                })
+                .orElse(null);
+    }
+
     /* ===================== EXTRACTION ===================== */
 
     private static class ExtractionResult {
@@ -294,29 +421,25 @@ public class ResumeAnalysisService {
         BufferedImage[] images; // only populated if rendering early (we delay by default)
     }
 
-    private ExtractionResult extractTextSmart(MultipartFile file) {
+    private ExtractionResult extractTextSmart(ResumeDocumentSession doc) {
         ExtractionResult result = new ExtractionResult();
         result.extractedText = "";
         result.imagePagesAvailable = false;
 
-        System.out.println("🔍 Extracting text (multi-pass) from " + file.getOriginalFilename());
+        System.out.println("🔍 Extracting text (multi-pass) from " + doc.getFilename());
 
-        try (InputStream is = file.getInputStream(); PDDocument doc = PDDocument.load(is)) {
-            int totalPages = doc.getNumberOfPages();
-            PDFTextStripper stripper = new PDFTextStripper();
-            stripper.setSortByPosition(true);
+        try {
+            int totalPages = doc.pageCount();
 
             // Pass 1: try normal PDFBox extraction
-            String raw = stripper.getText(doc);
+            String raw = doc.text();
             if (raw != null && raw.trim().length() >= 40) {
                 result.extractedText = raw.trim();
             } else {
                 // Pass 2: page-by-page accumulate
                 StringBuilder sb = new StringBuilder();
-                for (int p = 1; p <= totalPages; p++) {
-                    stripper.setStartPage(p);
-                    stripper.setEndPage(p);
-                    String pt = stripper.getText(doc);
+                for (int p = 0; p < totalPages; p++) {
+                    String pt = doc.pageText(p);
                     if (pt != null && !pt.isBlank()) sb.append(pt).append('\n');
                 }
                 if (sb.toString().trim().length() >= 40) {
@@ -332,7 +455,6 @@ public class ResumeAnalysisService {
             // Pass 3: OCR fallback (only if enabled and no text found)
             if (ENABLE_OCR && (result.extractedText.isBlank() || result.extractedText.length() < 40)) {
                 System.out.println("🔎 No text found, running OCR on pages...");
-                PDFRenderer renderer = new PDFRenderer(doc);
                 StringBuilder ocrText = new StringBuilder();
                 ITesseract tesseract = new Tesseract();
                 // Point this to your tessdata folder
@@ -340,9 +462,10 @@ public class ResumeAnalysisService {
                 tesseract.setLanguage("eng");
 
                 int total = Math.min(totalPages, MAX_IMAGE_PAGES);
+                doc.pageImages(total); // render every OCR page in one parallel batch
                 for (int i = 0; i < total; i++) {
                     try {
-                        BufferedImage img = renderer.renderImageWithDPI(i, IMAGE_DPI, ImageType.RGB);
+                        BufferedImage img = doc.pageImage(i);
                         String pageText = tesseract.doOCR(img);
                         if (pageText != null && !pageText.isBlank()) {
                             ocrText.append(pageText).append("\n");
@@ -366,25 +489,16 @@ public class ResumeAnalysisService {
         return result;
     }
 
-    private BufferedImage[] renderImages(MultipartFile file, int maxPages) {
+    private BufferedImage[] renderImages(ResumeDocumentSession doc, int maxPages) {
         System.out.println("🖼 Rendering images (lazy)...");
-        List<BufferedImage> list = new ArrayList<>();
-        try (InputStream is = file.getInputStream(); PDDocument doc = PDDocument.load(is)) {
-            PDFRenderer renderer = new PDFRenderer(doc);
-            int total = Math.min(doc.getNumberOfPages(), maxPages);
-            for (int i = 0; i < total; i++) {
-                try {
-                    BufferedImage img = renderer.renderImageWithDPI(i, IMAGE_DPI, ImageType.RGB);
-                    list.add(img);
-                } catch (Exception pe) {
-                    System.err.println("   ↳ Page " + (i + 1) + " render error: " + pe.getMessage());
-                }
-            }
+        BufferedImage[] images = new BufferedImage[0];
+        try {
+            images = doc.pageImages(maxPages);
         } catch (Exception e) {
             System.err.println("⚠️ Image rendering failed: " + e.getMessage());
         }
-        System.out.println("   ↳ Rendered pages: " + list.size());
-        return list.toArray(new BufferedImage[0]);
+        System.out.println("   ↳ Rendered pages: " + images.length);
+        return images;
     }
 
     /* ===================== ANALYSIS PATH DECISION ===================== */
@@ -416,10 +530,10 @@ public class ResumeAnalysisService {
 
     /* ===================== TEXT ANALYSIS ===================== */
 
-    private ResumeAnalysisResponse performTextAnalysis(String text) {
+    private ResumeAnalysisResponse performTextAnalysis(String text, Consumer<String> onChunk) {
         System.out.println("📝 Performing text-based analysis...");
         try {
-            String aiRaw = geminiService.analyzeResume(text, null);
+            String aiRaw = geminiService.analyzeResume(text, null, onChunk);
             if (aiRaw == null || aiRaw.isBlank()) {
                 System.out.println("   ↳ Empty AI response – combining with basic analysis.");
                 return combineBasicAndFallbackAI(text);
@@ -458,7 +572,7 @@ public class ResumeAnalysisService {
 
     /* ===================== IMAGE ANALYSIS ===================== */
 
-    private ResumeAnalysisResponse performImageAnalysis(BufferedImage[] images) {
+    private ResumeAnalysisResponse performImageAnalysis(BufferedImage[] images, Consumer<String> onChunk) {
         System.out.println("🖼 Performing image-based analysis...");
         if (images == null || images.length == 0) {
             System.out.println("   ↳ No images available, returning image fallback.");
@@ -466,7 +580,7 @@ public class ResumeAnalysisService {
         }
         try {
             // TODO: Ensure GeminiService.analyzeResume actually sends images properly (base64 parts).
-            String aiRaw = geminiService.analyzeResume("", images);
+            String aiRaw = geminiService.analyzeResume("", images, onChunk);
             if (aiRaw == null || aiRaw.isBlank()) {
                 System.out.println("   ↳ Empty AI image response, fallback.");
                 return createImageAnalysisFallback();
@@ -480,30 +594,13 @@ public class ResumeAnalysisService {
 
     /* ===================== AI / PARSING HELPERS ===================== */
 
-    private ResumeAnalysisResponse parseAI(String raw) throws IOException {
+    // Output is schema-constrained (see GeminiService), so it decodes straight into the DTO
+    private ResumeAnalysisResponse parseAI(String raw) {
         if (raw == null || raw.isBlank()) return createFallbackAnalysis();
 
         try {
-            JsonNode root = objectMapper.readTree(raw);
-
-            // If Gemini raw response with candidates → unwrap inner JSON string
-            if (root.has("candidates")) {
-                JsonNode textNode = root
-                        .path("candidates").get(0)
-                        .path("content").path("parts").get(0)
-                        .path("text");
-                if (!textNode.isMissingNode()) {
-                    String innerJson = cleanAIResponse(textNode.asText());
-                    return objectMapper.readValue(innerJson, ResumeAnalysisResponse.class);
-                }
-            }
-
-            // Else assume response is already in expected JSON format
-            String cleaned = cleanAIResponse(raw);
-            if (cleaned.isBlank()) cleaned = "{}";
-            return objectMapper.readValue(cleaned, ResumeAnalysisResponse.class);
-
-        } catch (Exception e) {
+            return jsonCodec.decode(raw, ResumeAnalysisResponse.class);
+        } catch (LlmException e) {
             System.err.println("⚠️ AI JSON parse error -> fallback: " + e.getMessage());
             return createFallbackAnalysis();
         }
@@ -590,14 +687,16 @@ public class ResumeAnalysisService {
     @Transactional
 
     private ResumeAnalysis saveAnalysis(Long userId,
-                                        MultipartFile file,
+                                        ResumeDocumentSession file,
+                                        String contentHash,
                                         ResumeAnalysisResponse analysis,
                                         String extractedText,
                                         long processingTimeMs) {
         try {
             // 1. Create entity with basic info
-            ResumeAnalysis entity = new ResumeAnalysis(userId, file.getOriginalFilename());
+            ResumeAnalysis entity = new ResumeAnalysis(userId, file.getFilename());
             entity.setFileSize(file.getSize());
+            entity.setContentHash(contentHash);
             entity.setOverallScore(analysis.getOverallScore());
             entity.setExtractedText(extractedText);
             entity.setProcessingTimeMs(processingTimeMs);
@@ -618,7 +717,7 @@ public class ResumeAnalysisService {
             }
 
             if (analysis.getSuggestions() != null) {
-                entity.setSuggestionsJson(objectMapper.writeValueAsString(analysis.getSuggestions()));
+                entity.setSuggestionsJson(json.writer().writeValueAsString(analysis.getSuggestions()));
             }
 
             // 2. Save once to generate ID
@@ -632,28 +731,23 @@ public class ResumeAnalysisService {
 
             List<String> pageUrls = new ArrayList<>();
 
-            // 4. Render images and update entity
-            try (InputStream is = file.getInputStream(); PDDocument doc = PDDocument.load(is)) {
-                PDFRenderer renderer = new PDFRenderer(doc);
-                int total = Math.min(doc.getNumberOfPages(), MAX_IMAGE_PAGES);
-
-                for (int i = 0; i < total; i++) {
-                    BufferedImage img = renderer.renderImageWithDPI(i, IMAGE_DPI, ImageType.RGB);
-                    String filenameOut = "page-" + (i + 1) + ".png";
-                    File outFile = new File(baseDir, filenameOut);
-                    ImageIO.write(img, "png", outFile);
-
-                    String url = "/api/resume/image/" + savedEntity.getId() + "/" + (i + 1);
-                    pageUrls.add(url);
-
-                    if (i == 0) {
-                        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                        ImageIO.write(img, "png", baos);
-                        savedEntity.setFirstPageImage(baos.toByteArray());
-                        savedEntity.setFirstPageMime("image/png");
-                        savedEntity.setFirstPageWidth(img.getWidth());
-                        savedEntity.setFirstPageHeight(img.getHeight());
-                    }
+            // 4. Store page images (renders and PNG bytes shared with the analysis stages;
+            //    pages not rendered or encoded yet are done in one parallel batch first)
+            file.pagePngs(MAX_IMAGE_PAGES);
+            int total = Math.min(file.pageCount(), MAX_IMAGE_PAGES);
+            for (int i = 0; i < total; i++) {
+                byte[] png = file.pagePng(i);
+                Files.write(Paths.get(baseDir, "page-" + (i + 1) + ".png"), png);
+
+                String url = "/api/resume/image/" + savedEntity.getId() + "/" + (i + 1);
+                pageUrls.add(url);
+
+                if (i == 0) {
+                    BufferedImage img = file.pageImage(i);
+                    savedEntity.setFirstPageImage(png);
+                    savedEntity.setFirstPageMime("image/png");
+                    savedEntity.setFirstPageWidth(img.getWidth());
+                    savedEntity.setFirstPageHeight(img.getHeight());
                 }
             }
 
@@ -663,8 +757,8 @@ public class ResumeAnalysisService {
                     : new HashMap<>(analysis.getDetails());
             details.put("pageImages", pageUrls);
 
-            savedEntity.setAnalysisDetailsJson(objectMapper.writeValueAsString(details));
-            savedEntity.setPageImagesJson(objectMapper.writeValueAsString(pageUrls));
+            savedEntity.setAnalysisDetailsJson(json.writer().writeValueAsString(details));
+            savedEntity.setPageImagesJson(json.writer().writeValueAsString(pageUrls));
 
             // 6. Save again with images
             ResumeAnalysis finalEntity = resumeAnalysisRepository.save(savedEntity);
@@ -757,9 +851,7 @@ public class ResumeAnalysisService {
             if (entity.getSuggestionsJson() != null && !entity.getSuggestionsJson().isBlank()) {
                 try {
                     List<ResumeAnalysisResponse.Suggestion> sug =
-                            objectMapper.readValue(entity.getSuggestionsJson(),
-                                    objectMapper.getTypeFactory()
-                                            .constructCollectionType(List.class, ResumeAnalysisResponse.Suggestion.class));
+                            json.reader(SUGGESTIONS).readValue(entity.getSuggestionsJson());
                     resp.setSuggestions(sug);
                 } catch (Exception ex) {
                     resp.setSuggestions(new ArrayList<>());
@@ -771,7 +863,7 @@ public class ResumeAnalysisService {
             Map<String, Object> details = new HashMap<>();
             if (entity.getAnalysisDetailsJson() != null && !entity.getAnalysisDetailsJson().isBlank()) {
                 try {
-                    details.putAll(objectMapper.readValue(entity.getAnalysisDetailsJson(), Map.class));
+                    details.putAll(json.map().<Map<String, Object>>readValue(entity.getAnalysisDetailsJson()));
                 } catch (Exception ignore) { }
             }
             details.put("analysisId", entity.getId());
@@ -782,10 +874,7 @@ public class ResumeAnalysisService {
             resp.setDetails(details);
             if (entity.getPageImagesJson() != null && !entity.getPageImagesJson().isBlank()) {
                 try {
-                    List<String> pageImages = objectMapper.readValue(
-                            entity.getPageImagesJson(),
-                            objectMapper.getTypeFactory().constructCollectionType(List.class, String.class)
-                    );
+                    List<String> pageImages = json.stringList().readValue(entity.getPageImagesJson());
 
                     // ✅ set both places
                     details.put("pageImages", pageImages);
@@ -993,9 +1082,9 @@ public class ResumeAnalysisService {
     private ResumeAnalysisResponse performAIAnalysis(String resumeText) {
         try {
             String prompt = buildAnalysisPrompt(resumeText);
-            String ai = geminiService.askGemini(prompt);
-            if (ai == null || ai.isBlank()) return createFallbackAnalysis();
-            return parseAI(ai);
+            ResumeAnalysisResponse ai = geminiService.askGeminiJson(prompt, LlmProfile.RESUME_ANALYSIS,
+                    ResumeAnalysisResponse.class);
+            return ai != null ? ai : createFallbackAnalysis();
         } catch (Exception e) {
             return createFallbackAnalysis();
         }
@@ -1006,23 +1095,7 @@ public class ResumeAnalysisService {
                 "{overallScore,scores:{content,formatting,keywords,structure,contact,skills,experience,education}," +
                 "suggestions:[{title,description,category,severity}],details:{wordCount,hasContactInfo,hasSkillsSection,hasExperience,hasEducation},extractedText}.\n" +
                 "If short or sparse, produce conservative scores.\n" +
-                "Resume (first 2000 chars):\n" +
-                resumeText.substring(0, Math.min(2000, resumeText.length()));
-    }
-
-    private String cleanAIResponse(String response) {
-        if (response == null) return "";
-        String c = response.trim();
-        if (c.startsWith("```")) {
-            int firstNl = c.indexOf('\n');
-            if (firstNl > -1) c = c.substring(firstNl + 1);
-            int lastTicks = c.lastIndexOf("```");
-            if (lastTicks > -1) c = c.substring(0, lastTicks);
-        }
-        int fb = c.indexOf('{');
-        if (fb > 0) c = c.substring(fb);
-        int lb = c.lastIndexOf('}');
-        if (lb > 0 && lb < c.length() - 1) c = c.substring(0, lb + 1);
-        return c.trim();
+                "Resume:\n" +
+                promptCompactor.compact(LlmProfile.RESUME_ANALYSIS, resumeText);
     }
 }
\ No newline at end of file
@@ -0,0 +1,300 @@
+package com.preporbit.prep_orbit.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One uploaded resume PDF, parsed once per request and shared by every pipeline stage
+ * (capability check, text extraction, image analysis, page image storage).
+ *
+ * Features:
+ *  - The {@link PDDocument} is loaded lazily on first use and closed with the session;
+ *    a load failure is remembered and rethrown by every accessor (no re-parse attempts)
+ *  - SHA-256 of the upload computed while it is read for parsing (no extra pass)
+ *  - Memoized page count, full text, per-page text, rendered page images (at {@link #DPI})
+ *    and PNG-encoded page bytes
+ *  - A page that fails to render is remembered as failed and skipped by {@link #pageImages}
+ *  - With a {@link PdfRenderEngine}, batch accessors ({@link #pageImages}, {@link #pagePngs})
+ *    render and encode the missing pages in parallel
+ *  - Not a bean: open with {@link #of} in try-with-resources; accessors hold one lock
+ *    because PDFBox documents are not thread-safe. It is a {@link ReentrantLock}, not a
+ *    monitor: callers are virtual threads that wait on parallel renders while holding it,
+ *    and blocking inside {@code synchronized} would pin their carrier threads
+ */
+public final class ResumeDocumentSession implements AutoCloseable {
+
+    public static final int DPI = 200;
+
+    private final MultipartFile file;
+    private final PdfRenderEngine renderEngine;
+    private final ReentrantLock lock = new ReentrantLock();
+    private byte[] bytes;
+    private PDDocument document;
+    private IOException loadError;
+    private boolean closed;
+    private String contentHash;
+    private PDFRenderer renderer;
+    private String text;
+    private final Map<Integer, String> pageTexts = new HashMap<>();
+    private final Map<Integer, BufferedImage> images = new HashMap<>();
+    private final Map<Integer, IOException> renderErrors = new HashMap<>();
+    private final Map<Integer, byte[]> pngs = new HashMap<>();
+
+    private ResumeDocumentSession(MultipartFile file, PdfRenderEngine renderEngine) {
+        this.file = file;
+        this.renderEngine = renderEngine;
+    }
+
+    /** Session that renders pages one by one on the calling thread. */
+    public static ResumeDocumentSession of(MultipartFile file) {
+        return new ResumeDocumentSession(file, null);
+    }
+
+    public static ResumeDocumentSession of(MultipartFile file, PdfRenderEngine renderEngine) {
+        return new ResumeDocumentSession(file, renderEngine);
+    }
+
+    public String getFilename() {
+        return file.getOriginalFilename();
+    }
+
+    public long getSize() {
+        return file.getSize();
+    }
+
+    /**
+     * Hex SHA-256 of the uploaded bytes. Loads the document if not loaded yet; the hash is
+     * available even when the bytes are not a readable PDF.
+     */
+    public String contentHash() throws IOException {
+        lock.lock();
+        try {
+            if (contentHash == null) {
+                try {
+                    document();
+                } catch (IOException e) {
+                    if (contentHash == null) throw e;
+                }
+            }
+            return contentHash;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pageCount() throws IOException {
+        lock.lock();
+        try {
+            return document().getNumberOfPages();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Whole-document text in reading order (sorted by position). */
+    public String text() throws IOException {
+        lock.lock();
+        try {
+            if (text == null) {
+                text = stripper().getText(document());
+            }
+            return text;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Text of one page (0-based). */
+    public String pageText(int pageIndex) throws IOException {
+        lock.lock();
+        try {
+            String cached = pageTexts.get(pageIndex);
+            if (cached == null) {
+                PDFTextStripper stripper = stripper();
+                stripper.setStartPage(pageIndex + 1);
+                stripper.setEndPage(pageIndex + 1);
+                cached = stripper.getText(document());
+                pageTexts.put(pageIndex, cached);
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Page (0-based) rendered at {@link #DPI} as RGB. */
+    public BufferedImage pageImage(int pageIndex) throws IOException {
+        lock.lock();
+        try {
+            BufferedImage cached = images.get(pageIndex);
+            if (cached != null) return cached;
+            IOException failed = renderErrors.get(pageIndex);
+            if (failed != null) throw failed;
+
+            PDDocument doc = document();
+            if (renderer == null) renderer = new PDFRenderer(doc);
+            try {
+                cached = renderer.renderImageWithDPI(pageIndex, DPI, ImageType.RGB);
+            } catch (IOException | RuntimeException e) {
+                IOException error = e instanceof IOException io ? io
+                        : new IOException("Page " + (pageIndex + 1) + " render failed: " + e.getMessage(), e);
+                renderErrors.put(pageIndex, error);
+                throw error;
+            }
+            images.put(pageIndex, cached);
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** The first {@code maxPages} pages that render; pages that fail are skipped. */
+    public BufferedImage[] pageImages(int maxPages) throws IOException {
+        lock.lock();
+        try {
+            int total = Math.min(pageCount(), maxPages);
+            renderMissing(total);
+            List<BufferedImage> out = new ArrayList<>(total);
+            for (int i = 0; i < total; i++) {
+                try {
+                    out.add(pageImage(i));
+                } catch (IOException e) {
+                    System.err.println("   ↳ Page " + (i + 1) + " render error: " + e.getMessage());
+                }
+            }
+            return out.toArray(new BufferedImage[0]);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** PNG encoding of {@link #pageImage}. */
+    public byte[] pagePng(int pageIndex) throws IOException {
+        lock.lock();
+        try {
+            byte[] cached = pngs.get(pageIndex);
+            if (cached == null) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageIO.write(pageImage(pageIndex), "png", out);
+                cached = out.toByteArray();
+                pngs.put(pageIndex, cached);
+            }
+            return cached;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** PNG bytes of the first {@code maxPages} pages that render, encoded in parallel when possible. */
+    public List<byte[]> pagePngs(int maxPages) throws IOException {
+        lock.lock();
+        try {
+            List<Integer> pages = new ArrayList<>();
+            for (int i = 0, total = Math.min(pageCount(), maxPages); i < total; i++) pages.add(i);
+            renderMissing(pages.size());
+            List<Integer> encode = new ArrayList<>();
+            for (int i : pages) {
+                if (!pngs.containsKey(i) && images.containsKey(i)) encode.add(i);
+            }
+            if (renderEngine != null && encode.size() > 1) {
+                List<byte[]> encoded = renderEngine.encodePng(encode.stream().map(images::get).toList());
+                for (int k = 0; k < encode.size(); k++) pngs.put(encode.get(k), encoded.get(k));
+            }
+            List<byte[]> out = new ArrayList<>(pages.size());
+            for (int i : pages) {
+                try {
+                    out.add(pagePng(i));
+                } catch (IOException e) {
+                    System.err.println("   ↳ Page " + (i + 1) + " render error: " + e.getMessage());
+                }
+            }
+            return out;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            images.clear();
+            pngs.clear();
+            bytes = null;
+            if (document != null) {
+                try {
+                    document.close();
+                } catch (IOException e) {
+                    System.err.println("⚠️ Failed to close PDF " + getFilename() + ": " + e.getMessage());
+                }
+                document = null;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PDDocument document() throws IOException {
+        if (document != null) return document;
+        if (loadError != null) throw loadError;
+        if (closed) throw new IOException("Document session for " + getFilename() + " is closed");
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        // One read of the upload: hashed as it streams in, then parsed (and shared with render workers)
+        try (InputStream is = new DigestInputStream(file.getInputStream(), sha256)) {
+            bytes = is.readAllBytes();
+            contentHash = HexFormat.of().formatHex(sha256.digest());
+            document = PDDocument.load(bytes);
+            return document;
+        } catch (IOException e) {
+            loadError = e;
+            throw e;
+        }
+    }
+
+    /** Renders the pages below {@code total} that are neither cached nor failed, in one batch. */
+    private void renderMissing(int total) throws IOException {
+        if (renderEngine == null) return;
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            if (!images.containsKey(i) && !renderErrors.containsKey(i)) missing.add(i);
+        }
+        if (missing.size() < 2) return; // a single page renders inline on the session's document
+        for (PdfRenderEngine.PageRender r : renderEngine.render(bytes, missing, DPI)) {
+            if (r.error() == null) {
+                images.put(r.pageIndex(), r.image());
+            } else {
+                renderErrors.put(r.pageIndex(), r.error());
+            }
+        }
+    }
+
+    private static PDFTextStripper stripper() throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        stripper.setSortByPosition(true);
+        return stripper;
+    }
+}
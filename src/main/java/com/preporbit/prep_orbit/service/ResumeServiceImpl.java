@@ -1,12 +1,13 @@
 package com.preporbit.prep_orbit.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.core.io.ClassPathResource;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.PromptTemplate;
+import com.preporbit.prep_orbit.service.llm.PromptTemplateRegistry;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import com.preporbit.prep_orbit.util.JsonExtractor;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -14,21 +15,24 @@ import java.util.Map;
 public class ResumeServiceImpl implements ResumeService {
 
     private GeminiService geminiService;
+    private final PromptTemplateRegistry templates;
+    private final JsonCodecs json;
 
-    public ResumeServiceImpl(GeminiService geminiService) {
+    public ResumeServiceImpl(GeminiService geminiService, PromptTemplateRegistry templates, JsonCodecs json) {
         this.geminiService = geminiService;
+        this.templates = templates;
+        this.json = json;
     }
 
     @Override
     public Map<String, Object> generateResumeResponse(String userResumeDescription) throws IOException {
 
-        String promptString = this.loadPromptFromFile("resume_prompt.txt");
-        String promptContent = this.putValuesToTemplate(promptString, Map.of(
+        PromptTemplate.Rendered prompt = templates.render("resume-generation", Map.of(
                 "userDescription", userResumeDescription
         ));
 
         // Use the GeminiService to get the response
-        String response = geminiService.askGemini(promptContent);
+        String response = geminiService.askGemini(prompt, LlmProfile.RESUME_GENERATION);
 
         // Check if the response is null, which indicates an API error
         if (response == null) {
@@ -42,48 +46,26 @@ public class ResumeServiceImpl implements ResumeService {
     }
 
 
-    String loadPromptFromFile(String filename) throws IOException {
-        Path path = new ClassPathResource(filename).getFile().toPath();
-        return Files.readString(path);
-    }
-
-    String putValuesToTemplate(String template, Map<String, String> values) {
-        for (Map.Entry<String, String> entry : values.entrySet()) {
-            template = template.replace("{{" + entry.getKey() + "}}", entry.getValue());
-        }
-        return template;
-    }
-
-
-    public static Map<String, Object> parseMultipleResponses(String response) {
+    public Map<String, Object> parseMultipleResponses(String response) {
         Map<String, Object> jsonResponse = new HashMap<>();
 
         // Extract content inside <think> tags
-        int thinkStart = response.indexOf("<think>") + 7;
-        int thinkEnd = response.indexOf("</think>");
+        int thinkStart = response.indexOf("<think>");
+        int thinkEnd = thinkStart < 0 ? -1 : response.indexOf("</think>", thinkStart);
         if (thinkStart != -1 && thinkEnd != -1) {
-            String thinkContent = response.substring(thinkStart, thinkEnd).trim();
+            String thinkContent = response.substring(thinkStart + 7, thinkEnd).trim();
             jsonResponse.put("think", thinkContent);
         } else {
             jsonResponse.put("think", null); // Handle missing <think> tags
         }
 
-        // Extract content that is in JSON format
-        int jsonStart = response.indexOf("```json") + 7; // Start after ```json
-        int jsonEnd = response.lastIndexOf("```");       // End before ```
-        if (jsonStart != -1 && jsonEnd != -1 && jsonStart < jsonEnd) {
-            String jsonContent = response.substring(jsonStart, jsonEnd).trim();
-            try {
-                // Convert JSON string to Map using Jackson ObjectMapper
-                ObjectMapper objectMapper = new ObjectMapper();
-                Map<String, Object> dataContent = objectMapper.readValue(jsonContent, Map.class);
-                jsonResponse.put("data", dataContent);
-            } catch (Exception e) {
-                jsonResponse.put("data", null); // Handle invalid JSON
-                System.err.println("Invalid JSON format in the response: " + e.getMessage());
-            }
-        } else {
-            jsonResponse.put("data", null); // Handle missing JSON
+        // First JSON object after the thinking block (```json fence or bare), parsed in one pass
+        try {
+            Map<String, Object> dataContent = JsonExtractor.read(json.map(), response);
+            jsonResponse.put("data", dataContent); // null when the response has no JSON
+        } catch (Exception e) {
+            jsonResponse.put("data", null); // Handle invalid JSON
+            System.err.println("Invalid JSON format in the response: " + e.getMessage());
         }
 
         return jsonResponse;
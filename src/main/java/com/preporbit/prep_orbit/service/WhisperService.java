@@ -1,8 +1,9 @@
 package com.preporbit.prep_orbit.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.util.JsonCodecs;
 import okhttp3.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
@@ -15,9 +16,15 @@ public class WhisperService {
     @Value("${openai.api.key}")
     private String openaiApiKey;
 
-    private static final String OPENAI_WHISPER_URL = "https://api.openai.com/v1/audio/transcriptions";
+    // Base URL is overridable (OPENAI_API_BASE) so tests can point at a local stub
+    @Value("${OPENAI_API_BASE:https://api.openai.com/v1}")
+    private String openaiApiBase;
+
     private final OkHttpClient client = new OkHttpClient();
 
+    @Autowired
+    private JsonCodecs json;
+
     public String transcribeAudio(File audioFile) {
         try {
             RequestBody requestBody = new MultipartBody.Builder()
@@ -31,7 +38,7 @@ public class WhisperService {
                     .build();
 
             Request request = new Request.Builder()
-                    .url(OPENAI_WHISPER_URL)
+                    .url(openaiApiBase.replaceAll("/+$", "") + "/audio/transcriptions")
                     .header("Authorization", "Bearer " + openaiApiKey)
                     .post(requestBody)
                     .build();
@@ -41,8 +48,7 @@ public class WhisperService {
                     throw new RuntimeException("OpenAI Whisper API failed: " + response.code() + " - " + response.body().string());
                 }
 
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode jsonResponse = mapper.readTree(response.body().string());
+                JsonNode jsonResponse = json.tree().readTree(response.body().charStream());
                 return jsonResponse.get("text").asText();
             }
         } catch (IOException e) {
@@ -0,0 +1,20 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.model.LlmBatchJob;
+
+/**
+ * Writes the result of a batch job of one {@link #kind()} back into the domain
+ * (e.g. stores a generated challenge). Implementations are Spring beans and are
+ * picked up by {@link LlmBatchService}; a thrown exception is retried like a failed
+ * generation, up to {@code llm.batch.max-attempts}.
+ */
+public interface LlmBatchHandler {
+
+    String kind();
+
+    void onResult(LlmBatchJob job, String text);
+
+    /** Called once the job has failed for good (after its last attempt). */
+    default void onFailure(LlmBatchJob job, String error) {
+    }
+}
@@ -0,0 +1,343 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.preporbit.prep_orbit.model.LlmBatchJob;
+import com.preporbit.prep_orbit.repository.LlmBatchJobRepository;
+import com.preporbit.prep_orbit.service.GeminiRestClient;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Batch execution mode for AI work nobody is waiting on (daily challenge pool,
+ * bank refills, re-analysis).
+ *
+ * Features:
+ *  - Durable job table ({@code llm_batch_jobs}): enqueue now, results written back later
+ *    by the {@link LlmBatchHandler} registered for the job's kind
+ *  - Jobs are submitted in groups of up to {@code llm.batch.group-size} once
+ *    {@code min-group} are waiting or the oldest has waited {@code max-wait}
+ *  - Gemini routes go through the Batch API ({@code batchGenerateContent}), which has its
+ *    own quota and does not touch the interactive concurrency limit
+ *  - Other routes, or {@code llm.batch.mode=paced}, run through the gateway at BACKGROUND
+ *    priority, spaced to {@code llm.batch.paced-rpm}
+ *  - Failed jobs, handler errors included, are re-queued up to {@code max-attempts};
+ *    paced jobs lost to a restart are re-queued after {@code stale-after}
+ */
+@Service
+public class LlmBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmBatchService.class);
+
+    private static final String PACED_PREFIX = "paced:";
+
+    private final LlmBatchJobRepository jobs;
+    private final GeminiRestClient gemini;
+    private final LlmGateway gateway;
+    private final LlmProviderRegistry providers;
+    private final JsonCodecs json;
+    private final MeterRegistry meterRegistry;
+    private final ObjectProvider<LlmBatchHandler> handlerBeans;
+    private volatile Map<String, LlmBatchHandler> handlers;
+    private final boolean enabled;
+    private final boolean useBatchApi;
+    private final int groupSize;
+    private final int minGroup;
+    private final Duration maxWait;
+    private final long pacedIntervalMs;
+    private final int maxAttempts;
+    private final Duration staleAfter;
+    private final AtomicBoolean submitting = new AtomicBoolean();
+
+    public LlmBatchService(LlmBatchJobRepository jobs,
+                           GeminiRestClient gemini,
+                           LlmGateway gateway,
+                           LlmProviderRegistry providers,
+                           JsonCodecs json,
+                           MeterRegistry meterRegistry,
+                           ObjectProvider<LlmBatchHandler> handlerBeans,
+                           @Value("${llm.batch.enabled:true}") boolean enabled,
+                           @Value("${llm.batch.mode:gemini}") String mode,
+                           @Value("${llm.batch.group-size:100}") int groupSize,
+                           @Value("${llm.batch.min-group:10}") int minGroup,
+                           @Value("${llm.batch.max-wait:30m}") Duration maxWait,
+                           @Value("${llm.batch.paced-rpm:30}") int pacedRpm,
+                           @Value("${llm.batch.max-attempts:3}") int maxAttempts,
+                           @Value("${llm.batch.stale-after:30m}") Duration staleAfter) {
+        this.jobs = jobs;
+        this.gemini = gemini;
+        this.gateway = gateway;
+        this.providers = providers;
+        this.json = json;
+        this.meterRegistry = meterRegistry;
+        this.handlerBeans = handlerBeans;
+        this.enabled = enabled;
+        this.useBatchApi = !"paced".equalsIgnoreCase(mode);
+        this.groupSize = Math.max(1, groupSize);
+        this.minGroup = Math.max(1, Math.min(minGroup, this.groupSize));
+        this.maxWait = maxWait;
+        this.pacedIntervalMs = 60_000L / Math.max(1, pacedRpm);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.staleAfter = staleAfter;
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /** Persists a text-only request for batch execution; the {@code kind} handler receives the result. */
+    public LlmBatchJob enqueue(String kind, String refKey, LlmRequest request) {
+        if (request.hasImages()) {
+            throw new IllegalArgumentException("Batch jobs are text-only");
+        }
+        if (!handlers().containsKey(kind)) {
+            throw new IllegalArgumentException("No LlmBatchHandler for kind " + kind);
+        }
+        String model = request.getModel() == null || request.getModel().isBlank()
+                ? gateway.getDefaultModel() : request.getModel();
+        // Profile caps are applied now: the Batch API path does not go through the gateway
+        LlmBatchJob job = jobs.save(new LlmBatchJob(kind, refKey, request.getProfile().getKey(), model,
+                serialize(gateway.withProfileDefaults(request))));
+        meterRegistry.counter("llm.batch.enqueued", "kind", kind).increment();
+        return job;
+    }
+
+    /** Jobs of {@code kind} not yet finished (pending or in flight). */
+    public long outstanding(String kind) {
+        return jobs.countByKindAndStatusIn(kind, EnumSet.of(LlmBatchJob.Status.PENDING, LlmBatchJob.Status.SUBMITTED));
+    }
+
+    /* ====================== SUBMISSION ====================== */
+
+    @Scheduled(initialDelayString = "${llm.batch.submit-interval-ms:60000}",
+            fixedDelayString = "${llm.batch.submit-interval-ms:60000}")
+    public void submitPending() {
+        if (!enabled || !submitting.compareAndSet(false, true)) return;
+        try {
+            requeueStalePaced();
+            List<LlmBatchJob> pending = jobs.findByStatusOrderByCreatedAtAsc(LlmBatchJob.Status.PENDING,
+                    PageRequest.of(0, groupSize));
+            if (pending.isEmpty()) return;
+            boolean due = pending.size() >= minGroup
+                    || pending.get(0).getCreatedAt().isBefore(LocalDateTime.now().minus(maxWait));
+            if (!due) return;
+
+            Map<String, List<LlmBatchJob>> byModel = pending.stream()
+                    .collect(Collectors.groupingBy(LlmBatchJob::getModel, LinkedHashMap::new, Collectors.toList()));
+            byModel.forEach((model, group) -> {
+                boolean gemini = LlmProviderRegistry.GEMINI.equals(providers.resolve(model).provider().getName());
+                if (useBatchApi && gemini) {
+                    submitToBatchApi(model, group);
+                } else {
+                    submitPaced(group);
+                }
+            });
+        } finally {
+            submitting.set(false);
+        }
+    }
+
+    private void submitToBatchApi(String model, List<LlmBatchJob> group) {
+        Map<String, LlmRequest> requests = new LinkedHashMap<>();
+        for (LlmBatchJob job : group) requests.put(String.valueOf(job.getId()), deserialize(job));
+        try {
+            String name = gemini.submitBatch(model, "prep-orbit-" + group.get(0).getKind() + "-" + group.get(0).getId(),
+                    requests).join();
+            markSubmitted(group, name);
+            meterRegistry.counter("llm.batch.submitted", "mode", "batch-api").increment(group.size());
+            logger.info("📦 Submitted {} batch job(s) for {} as {}", group.size(), model, name);
+        } catch (RuntimeException e) {
+            logger.warn("📦 Batch API submit failed for {} ({}); pacing {} job(s) through the gateway",
+                    model, LlmGateway.unwrap(e).getMessage(), group.size());
+            submitPaced(group);
+        }
+    }
+
+    private void submitPaced(List<LlmBatchJob> group) {
+        String name = PACED_PREFIX + UUID.randomUUID();
+        markSubmitted(group, name);
+        meterRegistry.counter("llm.batch.submitted", "mode", "paced").increment(group.size());
+        logger.info("📦 Pacing {} batch job(s) through the gateway every {}ms", group.size(), pacedIntervalMs);
+        for (int i = 0; i < group.size(); i++) {
+            LlmBatchJob job = group.get(i);
+            CompletableFuture.delayedExecutor(i * pacedIntervalMs, TimeUnit.MILLISECONDS).execute(() ->
+                    gateway.generate(deserialize(job).toBuilder().priority(LlmPriority.BACKGROUND).build())
+                            .whenComplete((resp, err) -> {
+                                if (err == null) {
+                                    complete(job, resp.getText());
+                                } else {
+                                    retryOrFail(job, LlmGateway.unwrap(err).getMessage());
+                                }
+                            }));
+        }
+    }
+
+    private void markSubmitted(List<LlmBatchJob> group, String batchName) {
+        LocalDateTime now = LocalDateTime.now();
+        for (LlmBatchJob job : group) {
+            job.setStatus(LlmBatchJob.Status.SUBMITTED);
+            job.setBatchName(batchName);
+            job.setSubmittedAt(now);
+            job.setAttempts(job.getAttempts() + 1);
+        }
+        jobs.saveAll(group);
+    }
+
+    private void requeueStalePaced() {
+        List<LlmBatchJob> stale = jobs.findStalePaced(LocalDateTime.now().minus(staleAfter));
+        if (stale.isEmpty()) return;
+        stale.forEach(job -> job.setStatus(LlmBatchJob.Status.PENDING));
+        jobs.saveAll(stale);
+        logger.warn("📦 Re-queued {} paced batch job(s) without a result", stale.size());
+    }
+
+    /* ====================== POLLING ====================== */
+
+    @Scheduled(initialDelayString = "${llm.batch.poll-interval-ms:120000}",
+            fixedDelayString = "${llm.batch.poll-interval-ms:120000}")
+    public void pollSubmitted() {
+        if (!enabled) return;
+        for (String name : jobs.findSubmittedBatchNames()) {
+            List<LlmBatchJob> group = jobs.findByBatchNameAndStatus(name, LlmBatchJob.Status.SUBMITTED);
+            if (group.isEmpty()) continue;
+            GeminiRestClient.BatchStatus status;
+            try {
+                status = gemini.getBatch(name, group.get(0).getModel()).join();
+            } catch (RuntimeException e) {
+                logger.warn("📦 Polling {} failed: {}", name, LlmGateway.unwrap(e).getMessage());
+                continue;
+            }
+            if (!status.done()) continue;
+
+            Map<String, GeminiRestClient.BatchResult> results = new HashMap<>();
+            status.results().forEach(r -> results.put(r.key(), r));
+            for (LlmBatchJob job : group) {
+                GeminiRestClient.BatchResult r = results.get(String.valueOf(job.getId()));
+                if (r != null && r.response() != null) {
+                    complete(job, r.response().getText());
+                } else {
+                    retryOrFail(job, r != null ? r.error() : "No result in " + name + " (" + status.state() + ")");
+                }
+            }
+            logger.info("📦 Batch {} finished ({}): {} result(s)", name, status.state(), status.results().size());
+        }
+    }
+
+    /* ====================== RESULTS ====================== */
+
+    private void complete(LlmBatchJob job, String text) {
+        try {
+            handlers().get(job.getKind()).onResult(job, text);
+            job.setStatus(LlmBatchJob.Status.SUCCEEDED);
+            job.setResultText(text);
+            job.setError(null);
+            meterRegistry.counter("llm.batch.completed", "kind", job.getKind(), "outcome", "success").increment();
+        } catch (RuntimeException e) {
+            logger.warn("📦 Handler for batch job {} ({}) failed: {}", job.getId(), job.getKind(), e.getMessage());
+            meterRegistry.counter("llm.batch.completed", "kind", job.getKind(), "outcome", "handler-error").increment();
+            job.setResultText(text);
+            retryOrFail(job, "Handler failed: " + e.getMessage());
+            return;
+        }
+        job.setCompletedAt(LocalDateTime.now());
+        jobs.save(job);
+    }
+
+    // Handlers usually enqueue through this service too, so they are looked up on first use
+    private Map<String, LlmBatchHandler> handlers() {
+        Map<String, LlmBatchHandler> map = handlers;
+        if (map == null) {
+            map = handlerBeans.orderedStream()
+                    .collect(Collectors.toMap(LlmBatchHandler::kind, Function.identity()));
+            handlers = map;
+        }
+        return map;
+    }
+
+    private void retryOrFail(LlmBatchJob job, String error) {
+        job.setError(error);
+        if (job.getAttempts() < maxAttempts) {
+            job.setStatus(LlmBatchJob.Status.PENDING);
+            jobs.save(job);
+            return;
+        }
+        job.setStatus(LlmBatchJob.Status.FAILED);
+        job.setCompletedAt(LocalDateTime.now());
+        jobs.save(job);
+        meterRegistry.counter("llm.batch.completed", "kind", job.getKind(), "outcome", "failed").increment();
+        logger.warn("📦 Batch job {} ({}) failed after {} attempt(s): {}", job.getId(), job.getKind(),
+                job.getAttempts(), error);
+        try {
+            handlers().get(job.getKind()).onFailure(job, error);
+        } catch (RuntimeException e) {
+            logger.warn("📦 onFailure for batch job {} threw: {}", job.getId(), e.getMessage());
+        }
+    }
+
+    /* ====================== (DE)SERIALIZATION ====================== */
+
+    private String serialize(LlmRequest request) {
+        ObjectNode node = json.mapper().createObjectNode();
+        node.put("preamble", request.getPreamble());
+        node.put("prompt", request.getPrompt());
+        if (request.getTemplateName() != null) {
+            node.put("templateName", request.getTemplateName());
+            node.put("templateVersion", request.getTemplateVersion());
+        }
+        node.set("generationConfig", json.mapper().valueToTree(request.getGenerationConfig()));
+        try {
+            return json.writer().writeValueAsString(node);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    LlmRequest deserialize(LlmBatchJob job) {
+        try {
+            JsonNode node = json.tree().readTree(job.getRequestJson());
+            String preamble = node.path("preamble").asText("");
+            String prompt = node.path("prompt").asText("");
+            LlmRequest.Builder builder = LlmRequest.builder(LlmProfile.fromKey(job.getProfile()))
+                    .model(job.getModel());
+            if (node.hasNonNull("templateName")) {
+                builder.template(new PromptTemplate.Rendered(node.path("templateName").asText(),
+                        node.path("templateVersion").asText(null), preamble, prompt));
+            } else {
+                builder.preamble(preamble).prompt(prompt);
+            }
+            // The schema stays a tree (providers translate it); other params become plain values
+            List<String> names = new ArrayList<>();
+            node.path("generationConfig").fieldNames().forEachRemaining(names::add);
+            for (String name : names) {
+                JsonNode value = node.path("generationConfig").get(name);
+                builder.generationParam(name, "responseSchema".equals(name)
+                        ? value : json.mapper().treeToValue(value, Object.class));
+            }
+            return builder.build();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt batch job " + job.getId(), e);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-model circuit breaker.
+ *
+ * Features:
+ *  - Count-based sliding window of upstream outcomes per model
+ *  - OPEN when the failure rate crosses the threshold (after a minimum number of calls)
+ *  - HALF_OPEN after the cool-down: a single probe decides CLOSED vs OPEN again
+ *  - Only upstream health counts (timeouts, 429, 5xx); client errors and local
+ *    load-shedding are ignored
+ */
+@Component
+public class LlmCircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmCircuitBreaker.class);
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openDurationMs;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+    public LlmCircuitBreaker(MeterRegistry meterRegistry,
+                             @Value("${llm.circuit.window-size:20}") int windowSize,
+                             @Value("${llm.circuit.minimum-calls:10}") int minimumCalls,
+                             @Value("${llm.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                             @Value("${llm.circuit.open-duration-ms:30000}") long openDurationMs) {
+        this.meterRegistry = meterRegistry;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Whether a call to {@code model} may proceed. In HALF_OPEN only one probe is
+     * admitted; its outcome must be reported via {@link #onSuccess}, {@link #onFailure}
+     * or {@link #onIgnored}.
+     */
+    public boolean tryAcquire(String model) {
+        return circuit(model).tryAcquire();
+    }
+
+    public void onSuccess(String model) {
+        circuit(model).record(true);
+    }
+
+    public void onFailure(String model, LlmException error) {
+        if (countsAsFailure(error)) {
+            circuit(model).record(false);
+        } else {
+            onIgnored(model);
+        }
+    }
+
+    /** Outcome says nothing about upstream health (cancelled, rejected locally, bad request). */
+    public void onIgnored(String model) {
+        circuit(model).releaseProbe();
+    }
+
+    public State state(String model) {
+        return circuit(model).currentState();
+    }
+
+    /** Whether the circuit is open and still cooling down (read-only; never admits a probe). */
+    public boolean isRejecting(String model) {
+        Circuit c = circuits.get(model);
+        return c != null && c.rejecting();
+    }
+
+    public Map<String, State> states() {
+        Map<String, State> out = new TreeMap<>();
+        circuits.forEach((model, c) -> out.put(model, c.currentState()));
+        return out;
+    }
+
+    static boolean countsAsFailure(LlmException e) {
+        int code = e.getStatusCode();
+        return code == 0 ? e.isRetryable() : (code == 429 || code >= 500);
+    }
+
+    private Circuit circuit(String model) {
+        return circuits.computeIfAbsent(model, Circuit::new);
+    }
+
+    /* ====================== CIRCUIT ====================== */
+
+    private final class Circuit {
+        private final String model;
+        private final boolean[] outcomes = new boolean[windowSize];
+        private int count;
+        private int next;
+        private int failures;
+        private State state = State.CLOSED;
+        private long openedAt;
+        private boolean probeInFlight;
+
+        Circuit(String model) {
+            this.model = model;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (state == State.OPEN) {
+                if (System.currentTimeMillis() - openedAt < openDurationMs) return false;
+                transition(State.HALF_OPEN);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probeInFlight) return false;
+                probeInFlight = true;
+            }
+            return true;
+        }
+
+        synchronized void record(boolean success) {
+            if (state == State.HALF_OPEN) {
+                probeInFlight = false;
+                if (success) {
+                    reset();
+                    transition(State.CLOSED);
+                } else {
+                    trip();
+                }
+                return;
+            }
+            if (state == State.OPEN) return; // late result from before the trip
+
+            if (count == windowSize) {
+                if (!outcomes[next]) failures--;
+            } else {
+                count++;
+            }
+            outcomes[next] = success;
+            if (!success) failures++;
+            next = (next + 1) % windowSize;
+
+            if (count >= minimumCalls && (double) failures / count >= failureRateThreshold) {
+                trip();
+            }
+        }
+
+        synchronized void releaseProbe() {
+            probeInFlight = false;
+        }
+
+        synchronized boolean rejecting() {
+            return state == State.OPEN && System.currentTimeMillis() - openedAt < openDurationMs;
+        }
+
+        synchronized State currentState() {
+            return state;
+        }
+
+        private void trip() {
+            openedAt = System.currentTimeMillis();
+            reset();
+            transition(State.OPEN);
+            meterRegistry.counter("llm.circuit.opened", "model", model).increment();
+        }
+
+        private void reset() {
+            count = 0;
+            next = 0;
+            failures = 0;
+        }
+
+        private void transition(State to) {
+            if (state != to) {
+                logger.warn("🔌 Circuit for {}: {} → {}", model, state, to);
+                state = to;
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive concurrency limiter in front of the Gemini transport.
+ *
+ * Features:
+ *  - AIMD limit: additive increase on healthy responses, multiplicative decrease
+ *    on 429 / 503 / timeouts or when latency drifts far above the profile baseline
+ *  - Per-model token bucket enforcing the RPM quota ({@code llm.limiter.rpm.<model>})
+ *  - Strict priority queues (INTERACTIVE → STANDARD → BACKGROUND), bounded in size
+ *    and wait time; overflow fails fast with {@link LlmRejectedException}
+ *  - A model out of quota only holds back its own waiters; other models' traffic is
+ *    still admitted
+ *  - Fully asynchronous: waiting requests hold a future, never a thread
+ */
+@Component
+public class LlmConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmConcurrencyLimiter.class);
+
+    private static final double BACKOFF_RATIO = 0.7;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double BASELINE_ALPHA = 0.05;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int defaultRpm;
+
+    private final Map<LlmPriority, ArrayDeque<Waiter>> queues = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Integer> queueCapacity = new EnumMap<>(LlmPriority.class);
+    private final Map<LlmPriority, Long> maxQueueWaitMs = new EnumMap<>(LlmPriority.class);
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final Map<LlmProfile, Double> latencyBaselineMs = new EnumMap<>(LlmProfile.class);
+
+    private double limit;
+    private int inFlight;
+    private long wakeupAtNanos;
+
+    public LlmConcurrencyLimiter(Environment environment,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${llm.limiter.initial-limit:16}") int initialLimit,
+                                 @Value("${llm.limiter.min-limit:2}") int minLimit,
+                                 @Value("${llm.limiter.max-limit:64}") int maxLimit,
+                                 @Value("${llm.limiter.default-rpm:600}") int defaultRpm) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit));
+        this.defaultRpm = defaultRpm;
+
+        long[] defaultWaits = {5_000, 30_000, 120_000};
+        int[] defaultCapacity = {200, 200, 50};
+        for (LlmPriority p : LlmPriority.values()) {
+            String key = p.name().toLowerCase();
+            queues.put(p, new ArrayDeque<>());
+            queueCapacity.put(p, environment.getProperty("llm.limiter.queue-capacity." + key, Integer.class,
+                    defaultCapacity[p.ordinal()]));
+            maxQueueWaitMs.put(p, environment.getProperty("llm.limiter.max-queue-wait-ms." + key, Long.class,
+                    defaultWaits[p.ordinal()]));
+        }
+
+        meterRegistry.gauge("llm.limiter.limit", this, l -> l.currentLimit());
+        meterRegistry.gauge("llm.limiter.inflight", this, l -> l.currentInFlight());
+        meterRegistry.gauge("llm.limiter.queued", this, l -> l.currentQueued());
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Reserves a slot for one upstream call. Completes immediately when capacity and
+     * quota allow, otherwise queues by priority; completes exceptionally with
+     * {@link LlmRejectedException} when the queue is full or the wait limit is hit.
+     */
+    public CompletableFuture<Permit> acquire(LlmProfile profile, String model, LlmPriority priority) {
+        Waiter waiter = new Waiter(profile, model, priority);
+        List<Waiter> granted = null;
+        synchronized (this) {
+            ArrayDeque<Waiter> queue = queues.get(priority);
+            if (queue.size() < queueCapacity.get(priority)) {
+                queue.addLast(waiter);
+                granted = drainLocked();
+            }
+        }
+        if (granted == null) {
+            return reject(waiter, "LLM queue full for " + priority.name().toLowerCase() + " traffic");
+        }
+        complete(granted);
+
+        if (!waiter.future.isDone()) {
+            long waitMs = maxQueueWaitMs.get(priority);
+            CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS).execute(() -> expire(waiter, waitMs));
+        }
+        return waiter.future;
+    }
+
+    /**
+     * Returns a slot and feeds the outcome into the limit. {@code error} is null on
+     * success; cancelled calls should pass {@code null} and {@code success=false}.
+     */
+    public void release(Permit permit, LlmException error, boolean success) {
+        if (!permit.markReleased()) return;
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - permit.startNanos);
+
+        List<Waiter> granted;
+        synchronized (this) {
+            inFlight--;
+            if (success) {
+                onSuccess(permit.profile, latencyMs);
+            } else if (error != null && isOverload(error)) {
+                limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                logger.warn("⚠️ LLM limiter backing off to {} after overload ({})", (int) limit, error.getMessage());
+            }
+            granted = drainLocked();
+        }
+        complete(granted);
+    }
+
+    public Duration maxQueueWait(LlmPriority priority) {
+        return Duration.ofMillis(maxQueueWaitMs.get(priority));
+    }
+
+    public synchronized int currentLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int currentInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int currentQueued() {
+        int total = 0;
+        for (ArrayDeque<Waiter> q : queues.values()) total += q.size();
+        return total;
+    }
+
+    /* ====================== LIMIT ADJUSTMENT ====================== */
+
+    private void onSuccess(LlmProfile profile, long latencyMs) {
+        Double baseline = latencyBaselineMs.get(profile);
+        if (baseline == null) {
+            latencyBaselineMs.put(profile, (double) latencyMs);
+        } else {
+            latencyBaselineMs.put(profile, baseline + BASELINE_ALPHA * (latencyMs - baseline));
+        }
+
+        if (baseline != null && latencyMs > baseline * LATENCY_TOLERANCE) {
+            // queueing upstream: latency gradient says back off, gently
+            limit = Math.max(minLimit, limit * 0.9);
+        } else if ((int) limit <= inFlight + 1) {
+            // only grow while the limit is actually being used
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    private static boolean isOverload(LlmException e) {
+        int code = e.getStatusCode();
+        return code == 429 || code == 503 || (code == 0 && e.isRetryable());
+    }
+
+    /* ====================== QUEUE ====================== */
+
+    /**
+     * Admits queued waiters while capacity and quota allow; must hold the lock. Waiters are
+     * visited in priority order; once a model's bucket is empty its remaining waiters are
+     * skipped (strict order within a model) but other models keep being admitted.
+     */
+    private List<Waiter> drainLocked() {
+        List<Waiter> granted = new ArrayList<>();
+        Set<String> blocked = new HashSet<>();
+        long nextTokenMs = Long.MAX_VALUE;
+        for (LlmPriority p : LlmPriority.values()) {
+            Iterator<Waiter> it = queues.get(p).iterator();
+            while (inFlight < (int) limit && it.hasNext()) {
+                Waiter next = it.next();
+                if (next.future.isDone()) {
+                    it.remove(); // cancelled or expired while queued
+                    continue;
+                }
+                if (blocked.contains(next.model)) continue;
+
+                long waitMs = bucketFor(next.model).tryConsume();
+                if (waitMs > 0) {
+                    blocked.add(next.model);
+                    nextTokenMs = Math.min(nextTokenMs, waitMs);
+                    continue;
+                }
+                it.remove();
+                inFlight++;
+                granted.add(next);
+            }
+        }
+        if (!blocked.isEmpty()) scheduleWakeup(nextTokenMs);
+        return granted;
+    }
+
+    private void complete(List<Waiter> granted) {
+        for (Waiter w : granted) {
+            Permit permit = new Permit(w.profile, w.model);
+            if (!w.future.complete(permit)) {
+                release(permit, null, false); // caller went away in the meantime
+            }
+        }
+    }
+
+    private void expire(Waiter waiter, long waitMs) {
+        boolean removed;
+        synchronized (this) {
+            removed = queues.get(waiter.priority).remove(waiter);
+        }
+        if (removed) {
+            reject(waiter, "LLM queue wait exceeded " + waitMs + "ms for "
+                    + waiter.priority.name().toLowerCase() + " traffic");
+        }
+    }
+
+    private CompletableFuture<Permit> reject(Waiter waiter, String message) {
+        meterRegistry.counter("llm.limiter.rejected", "priority", waiter.priority.name().toLowerCase()).increment();
+        logger.warn("🚫 {}", message);
+        waiter.future.completeExceptionally(new LlmRejectedException(message, maxQueueWaitMs.get(waiter.priority)));
+        return waiter.future;
+    }
+
+    // One pending wakeup, moved earlier when a sooner token is due
+    private void scheduleWakeup(long delayMs) {
+        long at = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        if (wakeupAtNanos != 0 && wakeupAtNanos - at <= 0) return;
+        wakeupAtNanos = at;
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            List<Waiter> granted;
+            synchronized (this) {
+                if (wakeupAtNanos == at) wakeupAtNanos = 0;
+                granted = drainLocked();
+            }
+            complete(granted);
+        });
+    }
+
+    private TokenBucket bucketFor(String model) {
+        return buckets.computeIfAbsent(model, m ->
+                new TokenBucket(environment.getProperty("llm.limiter.rpm." + m, Integer.class, defaultRpm)));
+    }
+
+    /* ====================== TYPES ====================== */
+
+    /** A granted slot; must be released exactly once. */
+    public static final class Permit {
+        private final LlmProfile profile;
+        private final String model;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(LlmProfile profile, String model) {
+            this.profile = profile;
+            this.model = model;
+        }
+
+        public String getModel() { return model; }
+
+        private synchronized boolean markReleased() {
+            if (released) return false;
+            released = true;
+            return true;
+        }
+    }
+
+    private static final class Waiter {
+        final LlmProfile profile;
+        final String model;
+        final LlmPriority priority;
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        Waiter(LlmProfile profile, String model, LlmPriority priority) {
+            this.profile = profile;
+            this.model = model;
+            this.priority = priority;
+        }
+    }
+
+    /** Requests-per-minute bucket with a burst of ~6 seconds worth of quota. */
+    private static final class TokenBucket {
+        private final double capacity;
+        private final double tokensPerMs;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(int rpm) {
+            int safeRpm = Math.max(1, rpm);
+            this.capacity = Math.max(1.0, safeRpm / 10.0);
+            this.tokensPerMs = safeRpm / 60_000.0;
+            this.tokens = capacity;
+        }
+
+        /** Takes a token and returns 0, or returns the ms until one is available. */
+        synchronized long tryConsume() {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) / 1_000_000.0 * tokensPerMs);
+            lastRefill = now;
+            if (tokens >= 1.0) {
+                tokens -= 1.0;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1.0 - tokens) / tokensPerMs));
+        }
+    }
+}
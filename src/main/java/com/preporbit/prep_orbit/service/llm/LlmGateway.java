@@ -0,0 +1,557 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * LlmGateway – the single entry point for all text / multimodal generation.
+ *
+ * Features:
+ *  - Pluggable providers ({@link LlmProviderRegistry}): Gemini plus OpenAI-compatible
+ *    backends, one shared transport (connection pool + dispatcher) each
+ *  - Async CompletableFuture API; blocking {@link #call} for request-thread callers
+ *  - Streaming ({@link #stream}) relaying partial output as it is generated
+ *  - Per-use-case timeout / retry profiles ({@link LlmProfile})
+ *  - Per-use-case output caps, thinking budgets and temperature ({@link #withProfileDefaults})
+ *  - Content-addressed response cache for deterministic profiles ({@link LlmResponseCache})
+ *  - Single-flight coalescing of identical in-flight text requests ({@link LlmSingleFlight})
+ *  - Adaptive concurrency limit, RPM quota and priority queueing ({@link LlmConcurrencyLimiter})
+ *  - Non-blocking backoff between retries (no sleeping threads)
+ *  - Per-model circuit breaker ({@link LlmCircuitBreaker}) and model fallback chain
+ *    ({@code llm.fallback.chain.<model>}) ending in the request's local heuristic
+ *  - Latency / error-rate based route selection across providers ({@link LlmRouter})
+ *  - Passive per-route health from call outcomes ({@link LlmHealthRegistry}, {@link #isAvailable})
+ *  - Hedged duplicate request after the profile's p95 latency ({@code llm.hedge.profiles})
+ *  - Fixed prompt preambles sent first, so Gemini's implicit prefix caching can reuse them
+ *  - Latency / output size per prompt template version ({@link PromptTemplateRegistry})
+ */
+@Service
+public class LlmGateway {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmGateway.class);
+
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 8000;
+    static final String LOCAL_MODEL = "local-heuristic";
+
+    private final LlmProviderRegistry providers;
+    private final LlmRouter router;
+    private final LlmHealthRegistry health;
+    private final LlmResponseCache cache;
+    private final LlmSingleFlight singleFlight;
+    private final LlmConcurrencyLimiter limiter;
+    private final LlmCircuitBreaker breaker;
+    private final LlmLatencyTracker latency;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final String defaultModel;
+    private final Map<LlmProfile, Duration> timeouts = new EnumMap<>(LlmProfile.class);
+    private final Map<LlmProfile, Integer> maxAttempts = new EnumMap<>(LlmProfile.class);
+    private final Map<LlmProfile, Map<String, Object>> generationDefaults = new EnumMap<>(LlmProfile.class);
+    private final Map<String, List<String>> fallbackChains = new ConcurrentHashMap<>();
+    private final Set<LlmProfile> hedgedProfiles = EnumSet.noneOf(LlmProfile.class);
+    private final long hedgeMinDelayMs;
+    private final int hedgeMinSamples;
+
+    public LlmGateway(LlmProviderRegistry providers,
+                      LlmRouter router,
+                      LlmHealthRegistry health,
+                      LlmResponseCache cache,
+                      LlmSingleFlight singleFlight,
+                      LlmConcurrencyLimiter limiter,
+                      LlmCircuitBreaker breaker,
+                      LlmLatencyTracker latency,
+                      Environment environment,
+                      MeterRegistry meterRegistry,
+                      @Value("${llm.default-model:gemini-2.5-flash}") String defaultModel,
+                      @Value("${llm.hedge.profiles:live-feedback,quiz-hint}") List<String> hedgeProfiles,
+                      @Value("${llm.hedge.min-delay-ms:300}") long hedgeMinDelayMs,
+                      @Value("${llm.hedge.min-samples:20}") int hedgeMinSamples) {
+        this.providers = providers;
+        this.router = router;
+        this.health = health;
+        this.cache = cache;
+        this.singleFlight = singleFlight;
+        this.limiter = limiter;
+        this.breaker = breaker;
+        this.latency = latency;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.defaultModel = defaultModel;
+        this.hedgeMinDelayMs = hedgeMinDelayMs;
+        this.hedgeMinSamples = hedgeMinSamples;
+
+        for (LlmProfile p : LlmProfile.values()) {
+            String prefix = "llm.profile." + p.getKey() + ".";
+            long timeoutMs = environment.getProperty(prefix + "timeout-ms", Long.class,
+                    p.getDefaultTimeout().toMillis());
+            int attempts = environment.getProperty(prefix + "max-attempts", Integer.class,
+                    p.getDefaultMaxAttempts());
+            timeouts.put(p, Duration.ofMillis(timeoutMs));
+            maxAttempts.put(p, Math.max(1, attempts));
+            generationDefaults.put(p, generationDefaults(p, prefix));
+            if (hedgeProfiles.contains(p.getKey())) hedgedProfiles.add(p);
+        }
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Asynchronous generation. Completes exceptionally with {@link LlmException}.
+     */
+    public CompletableFuture<LlmResponse> generate(LlmRequest original) {
+        LlmRequest request = withProfileDefaults(original);
+        String model = resolveModel(request);
+        if (request.hasImages()) {
+            return resilient(request, model, null);
+        }
+
+        boolean cacheable = cache.isCacheable(request);
+        if (cacheable) {
+            LlmResponse cached = cache.get(request, model);
+            if (cached != null) {
+                logger.debug("LLM cache hit [{} / {}]", request.getProfile().getKey(), model);
+                return CompletableFuture.completedFuture(cached);
+            }
+        }
+
+        String key = LlmRequestKeys.of(request, model);
+        return singleFlight.execute(key, deadlineFor(request), () -> {
+            CompletableFuture<LlmResponse> upstream = resilient(request, model, null);
+            if (cacheable) {
+                upstream.whenComplete((resp, err) -> {
+                    if (err == null) cache.put(request, model, resp);
+                });
+            }
+            return upstream;
+        });
+    }
+
+    /**
+     * Blocking generation for callers still running on a request thread
+     * (cheap when request handling runs on virtual threads).
+     */
+    public LlmResponse call(LlmRequest request) {
+        return await(generate(request), deadlineFor(request));
+    }
+
+    /**
+     * Streaming generation: text deltas go to {@code onChunk} as they arrive and the
+     * future completes with the full response. Bypasses cache / single-flight; a
+     * failed attempt is only retried if nothing has been relayed yet.
+     */
+    public CompletableFuture<LlmResponse> stream(LlmRequest request, Consumer<String> onChunk) {
+        LlmRequest shaped = withProfileDefaults(request);
+        return resilient(shaped, resolveModel(shaped), onChunk);
+    }
+
+    /** Blocking form of {@link #stream} for callers running on a worker thread. */
+    public LlmResponse callStreaming(LlmRequest request, Consumer<String> onChunk) {
+        return await(stream(request, onChunk), deadlineFor(request));
+    }
+
+    public String getDefaultModel() {
+        return defaultModel;
+    }
+
+    /**
+     * {@code request} with its profile's output cap, thinking budget and temperature added
+     * where the caller's generation config doesn't set them. Applied by {@link #generate} /
+     * {@link #stream}; callers that bypass the gateway (batch submission) apply it themselves.
+     */
+    public LlmRequest withProfileDefaults(LlmRequest request) {
+        Map<String, Object> config = request.getGenerationConfig();
+        LlmRequest.Builder builder = null;
+        for (Map.Entry<String, Object> param : generationDefaults.get(request.getProfile()).entrySet()) {
+            if (config.containsKey(param.getKey())) continue;
+            if (builder == null) builder = request.toBuilder();
+            builder.generationParam(param.getKey(), param.getValue());
+        }
+        return builder == null ? request : builder.build();
+    }
+
+    public Duration timeoutFor(LlmProfile profile) {
+        return timeouts.get(profile);
+    }
+
+    /**
+     * Whether a {@code profile} call on {@code model} can currently be served by some
+     * route, judged from recent outcomes only (no request is sent). Callers use it to
+     * take their heuristic path up front instead of waiting out a timeout.
+     */
+    public boolean isAvailable(LlmProfile profile, String model) {
+        return health.anyAvailable(router.candidates(profile, chainFor(model == null ? defaultModel : model)));
+    }
+
+    /** Primary model followed by its configured fallbacks, e.g. 2.5-flash → 2.0-flash. */
+    public List<String> chainFor(String model) {
+        return fallbackChains.computeIfAbsent(model, m -> {
+            List<String> chain = new ArrayList<>();
+            chain.add(m);
+            for (String next : environment.getProperty("llm.fallback.chain." + m, "").split(",")) {
+                if (!next.isBlank() && !chain.contains(next.trim())) chain.add(next.trim());
+            }
+            return List.copyOf(chain);
+        });
+    }
+
+    /* ====================== FALLBACK CHAIN ====================== */
+
+    private CompletableFuture<LlmResponse> resilient(LlmRequest request, String model, Consumer<String> onChunk) {
+        List<String> routes = router.plan(request, chainFor(model), timeouts.get(request.getProfile()), onChunk != null);
+        CompletableFuture<LlmResponse> result = new ChainedCall(request, routes, onChunk).start();
+        if (request.getTemplateName() != null) recordTemplate(request, result);
+        return result;
+    }
+
+    /** Latency and output size per template version, for A/B comparison. */
+    private void recordTemplate(LlmRequest request, CompletableFuture<LlmResponse> result) {
+        long start = System.nanoTime();
+        result.whenComplete((resp, err) -> {
+            if (err != null || LOCAL_MODEL.equals(resp.getModel())) return;
+            String template = request.getTemplateName();
+            String version = request.getTemplateVersion();
+            meterRegistry.timer("llm.template.latency", "template", template, "version", version)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("llm.template.output.chars", "template", template, "version", version)
+                    .record(resp.getText() == null ? 0 : resp.getText().length());
+        });
+    }
+
+    /**
+     * Walks the model chain: a model whose circuit is open is skipped, a model that
+     * fails with an upstream error hands over to the next one. When every model is
+     * exhausted the request's local heuristic (if any) produces the response.
+     * Streaming calls never switch models once output has been relayed.
+     */
+    private final class ChainedCall {
+        private final LlmRequest request;
+        private final List<String> chain;
+        private final Consumer<String> onChunk;
+        private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        private volatile CompletableFuture<LlmResponse> current;
+        private volatile boolean relayed;
+
+        ChainedCall(LlmRequest request, List<String> chain, Consumer<String> onChunk) {
+            this.request = request;
+            this.chain = chain;
+            this.onChunk = onChunk == null ? null : chunk -> {
+                relayed = true;
+                onChunk.accept(chunk);
+            };
+            result.whenComplete((r, t) -> {
+                CompletableFuture<LlmResponse> pending = current;
+                if (result.isCancelled() && pending != null) pending.cancel(true);
+            });
+        }
+
+        CompletableFuture<LlmResponse> start() {
+            tryModel(0, null);
+            return result;
+        }
+
+        private void tryModel(int index, LlmException lastError) {
+            if (result.isDone()) return;
+            if (index >= chain.size()) {
+                finishWithLocalFallback(lastError);
+                return;
+            }
+            String model = chain.get(index);
+            if (index > 0) {
+                meterRegistry.counter("llm.fallback", "from", chain.get(index - 1), "to", model).increment();
+                logger.warn("↪️ Falling back [{}] to {} ({})", request.getProfile().getKey(), model,
+                        lastError == null ? "unknown" : lastError.getMessage());
+            }
+
+            CompletableFuture<LlmResponse> attempt = hedged(request.withModel(model), model, onChunk);
+            current = attempt;
+            if (result.isCancelled()) attempt.cancel(true);
+            attempt.whenComplete((resp, err) -> {
+                if (err == null) {
+                    result.complete(resp);
+                    return;
+                }
+                LlmException ex = unwrap(err);
+                boolean switchable = !relayed && !(ex instanceof LlmRejectedException)
+                        && (ex instanceof CircuitOpenException || LlmCircuitBreaker.countsAsFailure(ex));
+                if (switchable) {
+                    tryModel(index + 1, ex);
+                } else if (!(ex instanceof LlmRejectedException) && !relayed && request.getLocalFallback() != null) {
+                    finishWithLocalFallback(ex);
+                } else {
+                    result.completeExceptionally(ex);
+                }
+            });
+        }
+
+        private void finishWithLocalFallback(LlmException lastError) {
+            if (request.getLocalFallback() == null) {
+                result.completeExceptionally(lastError != null ? lastError
+                        : new LlmException("No model available for " + request.getProfile().getKey()));
+                return;
+            }
+            meterRegistry.counter("llm.fallback", "from", chain.get(chain.size() - 1), "to", LOCAL_MODEL).increment();
+            logger.warn("🧩 All models failed [{}]; using local heuristic", request.getProfile().getKey());
+            try {
+                result.complete(new LlmResponse(request.getLocalFallback().get(), LOCAL_MODEL, "FALLBACK", null, 0));
+            } catch (RuntimeException e) {
+                result.completeExceptionally(lastError != null ? lastError : unwrap(e));
+            }
+        }
+    }
+
+    /* ====================== HEDGING ====================== */
+
+    /**
+     * For latency-critical profiles, fires a duplicate request when the first one is
+     * still pending after the profile's p95; the first success wins and the loser is
+     * cancelled. Skipped while the limiter is queueing (no hedging into overload).
+     */
+    private CompletableFuture<LlmResponse> hedged(LlmRequest request, String model, Consumer<String> onChunk) {
+        LlmProfile profile = request.getProfile();
+        CompletableFuture<LlmResponse> primary = new Execution(request, model, onChunk).start();
+        if (onChunk != null || !hedgedProfiles.contains(profile)
+                || latency.sampleCount(profile.getKey()) < hedgeMinSamples) {
+            return primary;
+        }
+        long delayMs = Math.max(hedgeMinDelayMs, latency.percentile(profile.getKey(), 0.95));
+
+        CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        List<CompletableFuture<LlmResponse>> racers = new CopyOnWriteArrayList<>();
+        racers.add(primary);
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<Throwable> firstError = new AtomicReference<>();
+
+        Consumer<CompletableFuture<LlmResponse>> join = racer -> racer.whenComplete((resp, err) -> {
+            if (err == null) {
+                if (result.complete(resp)) {
+                    racers.forEach(other -> { if (other != racer) other.cancel(true); });
+                }
+            } else {
+                firstError.compareAndSet(null, err);
+                if (pending.decrementAndGet() == 0) result.completeExceptionally(firstError.get());
+            }
+        });
+        join.accept(primary);
+
+        CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone() || primary.isDone() || limiter.currentQueued() > 0) return;
+            pending.incrementAndGet();
+            meterRegistry.counter("llm.hedge.fired", "profile", profile.getKey()).increment();
+            logger.debug("Hedging [{} / {}] after {}ms", profile.getKey(), model, delayMs);
+            CompletableFuture<LlmResponse> hedge = new Execution(request, model, null).start();
+            racers.add(hedge);
+            if (result.isDone()) hedge.cancel(true);
+            join.accept(hedge);
+        });
+
+        result.whenComplete((r, t) -> {
+            if (result.isCancelled()) racers.forEach(f -> f.cancel(true));
+        });
+        return result;
+    }
+
+    /* ====================== RETRY ====================== */
+
+    /**
+     * One logical call: limiter permit → transport → retry with non-blocking backoff.
+     * Cancelling the result cancels whichever stage is currently pending.
+     */
+    private final class Execution {
+        private final LlmRequest request;
+        private final String model;
+        private final LlmProfile profile;
+        private final Consumer<String> onChunk;
+        private final CompletableFuture<LlmResponse> result = new CompletableFuture<>();
+        private volatile CompletableFuture<?> current;
+        private volatile boolean relayed;
+
+        Execution(LlmRequest request, String model, Consumer<String> onChunk) {
+            this.request = request;
+            this.model = model;
+            this.profile = request.getProfile();
+            this.onChunk = onChunk;
+            result.whenComplete((r, t) -> {
+                CompletableFuture<?> pending = current;
+                if (result.isCancelled() && pending != null) pending.cancel(true);
+            });
+        }
+
+        CompletableFuture<LlmResponse> start() {
+            run(1);
+            return result;
+        }
+
+        private void run(int attemptNo) {
+            if (result.isDone()) return;
+            if (!breaker.tryAcquire(model)) {
+                result.completeExceptionally(new CircuitOpenException(model));
+                return;
+            }
+            CompletableFuture<LlmConcurrencyLimiter.Permit> acquire =
+                    limiter.acquire(profile, model, request.getPriority());
+            track(acquire);
+            acquire.whenComplete((permit, err) -> {
+                if (err != null) {
+                    breaker.onIgnored(model);
+                    result.completeExceptionally(unwrap(err));
+                    return;
+                }
+                if (result.isDone()) {
+                    breaker.onIgnored(model);
+                    limiter.release(permit, null, false);
+                    return;
+                }
+                long started = System.nanoTime();
+                CompletableFuture<LlmResponse> call = onChunk == null
+                        ? providers.generate(request, model, timeouts.get(profile))
+                        : providers.stream(request, model, timeouts.get(profile), chunk -> {
+                            relayed = true;
+                            onChunk.accept(chunk);
+                        });
+                track(call);
+                call.whenComplete((resp, t) -> {
+                    if (t == null) {
+                        limiter.release(permit, null, true);
+                        breaker.onSuccess(model);
+                        latency.record(profile.getKey(), resp.getLatencyMs());
+                        router.record(model, resp.getLatencyMs(), true);
+                        health.onSuccess(model, resp.getLatencyMs());
+                        if ("MAX_TOKENS".equals(resp.getFinishReason())) {
+                            // Output hit the profile's cap: raise llm.profile.<key>.max-output-tokens if this climbs
+                            meterRegistry.counter("llm.output.truncated", "profile", profile.getKey()).increment();
+                        }
+                        result.complete(resp);
+                        return;
+                    }
+                    LlmException ex = unwrap(t);
+                    limiter.release(permit, ex, false);
+                    if (call.isCancelled()) {
+                        breaker.onIgnored(model);
+                    } else {
+                        breaker.onFailure(model, ex);
+                        if (LlmCircuitBreaker.countsAsFailure(ex)) {
+                            router.record(model, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), false);
+                            health.onFailure(model, ex);
+                        }
+                    }
+                    if (!ex.isRetryable() || relayed || attemptNo >= maxAttempts.get(profile)) {
+                        logger.warn("LLM call failed [{} / {}] after {} attempt(s): {}",
+                                profile.getKey(), model, attemptNo, ex.getMessage());
+                        result.completeExceptionally(ex);
+                        return;
+                    }
+                    long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attemptNo - 1));
+                    logger.info("Retrying LLM call [{} / {}] in {}ms (attempt {} failed: {})",
+                            profile.getKey(), model, backoff, attemptNo, ex.getMessage());
+                    track(CompletableFuture.runAsync(() -> run(attemptNo + 1),
+                            CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS)));
+                });
+            });
+        }
+
+        private void track(CompletableFuture<?> stage) {
+            current = stage;
+            if (result.isCancelled()) stage.cancel(true);
+        }
+    }
+
+    /* ====================== HELPERS ====================== */
+
+    /** Gemini-shaped params; other providers map or ignore them. Cap ≤ 0 or negative temperature = model default. */
+    private Map<String, Object> generationDefaults(LlmProfile profile, String prefix) {
+        LlmProfile.Generation defaults = profile.getDefaultGeneration();
+        Integer maxTokens = environment.getProperty(prefix + "max-output-tokens", Integer.class,
+                defaults.maxOutputTokens());
+        Integer thinkingBudget = environment.getProperty(prefix + "thinking-budget", Integer.class,
+                defaults.thinkingBudget());
+        Double temperature = environment.getProperty(prefix + "temperature", Double.class, defaults.temperature());
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        if (maxTokens != null && maxTokens > 0) params.put("maxOutputTokens", maxTokens);
+        if (thinkingBudget != null && thinkingBudget >= -1) {
+            params.put("thinkingConfig", Map.of("thinkingBudget", thinkingBudget));
+        }
+        if (temperature != null && temperature >= 0) params.put("temperature", temperature);
+        return Collections.unmodifiableMap(params);
+    }
+
+    private String resolveModel(LlmRequest request) {
+        return request.getModel() == null || request.getModel().isBlank()
+                ? defaultModel
+                : request.getModel();
+    }
+
+    /** Upper bound for a blocking wait: queueing, every attempt on every candidate route, plus backoff. */
+    private Duration deadlineFor(LlmRequest request) {
+        LlmProfile profile = request.getProfile();
+        int models = router.candidates(profile, chainFor(resolveModel(request))).size();
+        return timeouts.get(profile).multipliedBy((long) maxAttempts.get(profile) * models)
+                .plus(limiter.maxQueueWait(request.getPriority()))
+                .plusMillis(MAX_BACKOFF_MS * 2L * models);
+    }
+
+    /** Raised without touching the network when a model's circuit is open. */
+    static final class CircuitOpenException extends LlmException {
+        CircuitOpenException(String model) {
+            super("Circuit open for " + model, 0, true, null);
+        }
+    }
+
+    static LlmResponse await(CompletableFuture<LlmResponse> future, Duration deadline) {
+        try {
+            return future.get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new LlmException("Interrupted while waiting for LLM response", 0, false, e);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new LlmException("LLM response deadline exceeded (" + deadline.toMillis() + "ms)", 0, true, e);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    static LlmException unwrap(Throwable t) {
+        Throwable cur = t;
+        while ((cur instanceof CompletionException || cur instanceof ExecutionException) && cur.getCause() != null) {
+            cur = cur.getCause();
+        }
+        if (cur instanceof LlmException le) return le;
+        if (cur instanceof CancellationException) {
+            return new LlmException("LLM call cancelled", 0, false, cur);
+        }
+        if (cur instanceof TimeoutException) {
+            return new LlmException("LLM response deadline exceeded", 0, true, cur);
+        }
+        return new LlmException("LLM call failed: " + cur.getMessage(), 0, true, cur);
+    }
+}
@@ -0,0 +1,33 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code /actuator/llm}: full passive health per route (success ratio, latency EWMA,
+ * last error, circuit state); {@code /actuator/llm/{route}} for a single one.
+ */
+@Component
+@Endpoint(id = "llm")
+public class LlmHealthEndpoint {
+
+    private final LlmHealthRegistry registry;
+
+    public LlmHealthEndpoint(LlmHealthRegistry registry) {
+        this.registry = registry;
+    }
+
+    @ReadOperation
+    public Map<String, LlmHealthRegistry.RouteHealth> routes() {
+        return registry.snapshot();
+    }
+
+    @ReadOperation
+    public LlmHealthRegistry.RouteHealth route(@Selector(match = Selector.Match.ALL_REMAINING) String[] route) {
+        return registry.health(String.join("/", route)); // provider/model routes span two segments
+    }
+}
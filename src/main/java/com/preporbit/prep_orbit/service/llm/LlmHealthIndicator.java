@@ -0,0 +1,38 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * {@code llm} component of {@code /actuator/health}, from {@link LlmHealthRegistry}
+ * (no upstream call). An unreachable model must not fail the app's own liveness,
+ * so trouble is reported as {@code DEGRADED}, which keeps HTTP 200.
+ */
+@Component
+public class LlmHealthIndicator implements HealthIndicator {
+
+    static final Status DEGRADED = new Status("DEGRADED", "Some or all LLM routes are failing");
+
+    private final LlmHealthRegistry registry;
+    private final LlmGateway gateway;
+
+    public LlmHealthIndicator(LlmHealthRegistry registry, LlmGateway gateway) {
+        this.registry = registry;
+        this.gateway = gateway;
+    }
+
+    @Override
+    public Health health() {
+        Map<String, LlmHealthRegistry.RouteHealth> routes = registry.snapshot();
+        boolean troubled = routes.values().stream().anyMatch(r -> r.status() == LlmHealthRegistry.Status.DOWN
+                || r.status() == LlmHealthRegistry.Status.DEGRADED);
+        Health.Builder builder = troubled ? Health.status(DEGRADED) : Health.up();
+        builder.withDetail("defaultModel", gateway.getDefaultModel());
+        routes.forEach((route, h) -> builder.withDetail(route, h.status()));
+        return builder.build();
+    }
+}
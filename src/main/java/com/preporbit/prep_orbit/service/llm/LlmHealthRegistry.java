@@ -0,0 +1,178 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Passive health model per route, built from the gateway's own call outcomes.
+ * Nothing here sends a request: a status probe costs no quota and no latency.
+ *
+ * Features:
+ *  - Success ratio over the last {@code llm.health.window-size} upstream outcomes
+ *  - Latency EWMA of successful calls ({@code llm.health.ewma-alpha})
+ *  - Last error (message, HTTP status, time) and last success time
+ *  - Circuit state from {@link LlmCircuitBreaker}
+ *  - UP / DEGRADED / DOWN / UNKNOWN per route; callers check {@link #anyAvailable}
+ *    before starting an AI path and go straight to their heuristic fallback otherwise.
+ *    A DOWN route turns DEGRADED after {@code llm.health.recover-after-ms} without new
+ *    failures, so the next call re-tests it
+ */
+@Component
+public class LlmHealthRegistry {
+
+    public enum Status { UP, DEGRADED, DOWN, UNKNOWN }
+
+    private static final int MAX_ERROR_CHARS = 300;
+
+    /** Point-in-time view of one route, as exposed through Actuator. */
+    public record RouteHealth(String route, Status status, int samples, double successRatio, long latencyEwmaMs,
+                              LlmCircuitBreaker.State circuit, String lastError, Integer lastErrorStatus,
+                              Instant lastErrorAt, Instant lastSuccessAt) {
+    }
+
+    private final LlmCircuitBreaker breaker;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double ewmaAlpha;
+    private final double downBelow;
+    private final double degradedBelow;
+    private final long slowMs;
+    private final long recoverAfterMs;
+    private final Map<String, Tracker> trackers = new ConcurrentHashMap<>();
+
+    public LlmHealthRegistry(LlmCircuitBreaker breaker,
+                             @Value("${llm.health.window-size:50}") int windowSize,
+                             @Value("${llm.health.minimum-calls:5}") int minimumCalls,
+                             @Value("${llm.health.ewma-alpha:0.2}") double ewmaAlpha,
+                             @Value("${llm.health.down-below:0.5}") double downBelow,
+                             @Value("${llm.health.degraded-below:0.9}") double degradedBelow,
+                             @Value("${llm.health.slow-ms:15000}") long slowMs,
+                             @Value("${llm.health.recover-after-ms:${llm.circuit.open-duration-ms:30000}}") long recoverAfterMs) {
+        this.breaker = breaker;
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.ewmaAlpha = ewmaAlpha;
+        this.downBelow = downBelow;
+        this.degradedBelow = degradedBelow;
+        this.slowMs = slowMs;
+        this.recoverAfterMs = recoverAfterMs;
+    }
+
+    /* ====================== FEED (from LlmGateway) ====================== */
+
+    public void onSuccess(String route, long latencyMs) {
+        tracker(route).success(latencyMs);
+    }
+
+    /** Upstream failures only (timeouts, 429, 5xx); client errors say nothing about health. */
+    public void onFailure(String route, LlmException error) {
+        tracker(route).failure(error);
+    }
+
+    /* ====================== QUERIES ====================== */
+
+    public RouteHealth health(String route) {
+        Tracker t = trackers.get(route);
+        return t == null ? unknown(route) : t.snapshot();
+    }
+
+    public Status status(String route) {
+        return health(route).status();
+    }
+
+    /** True unless every route is DOWN (routes never called count as available). */
+    public boolean anyAvailable(Collection<String> routes) {
+        for (String route : routes) {
+            if (status(route) != Status.DOWN) return true;
+        }
+        return routes.isEmpty();
+    }
+
+    /** Every route seen so far, by name. */
+    public Map<String, RouteHealth> snapshot() {
+        Map<String, RouteHealth> out = new TreeMap<>();
+        trackers.forEach((route, t) -> out.put(route, t.snapshot()));
+        return out;
+    }
+
+    private RouteHealth unknown(String route) {
+        Status status = breaker.isRejecting(route) ? Status.DOWN : Status.UNKNOWN;
+        return new RouteHealth(route, status, 0, 1.0, -1, breaker.state(route), null, null, null, null);
+    }
+
+    private Tracker tracker(String route) {
+        return trackers.computeIfAbsent(route, Tracker::new);
+    }
+
+    /* ====================== TRACKER ====================== */
+
+    private final class Tracker {
+        private final String route;
+        private final boolean[] outcomes = new boolean[windowSize];
+        private int count;
+        private int next;
+        private int failures;
+        private double ewma = -1;
+        private String lastError;
+        private Integer lastErrorStatus;
+        private Instant lastErrorAt;
+        private Instant lastSuccessAt;
+
+        Tracker(String route) {
+            this.route = route;
+        }
+
+        synchronized void success(long latencyMs) {
+            add(true);
+            ewma = ewma < 0 ? latencyMs : ewmaAlpha * latencyMs + (1 - ewmaAlpha) * ewma;
+            lastSuccessAt = Instant.now();
+        }
+
+        synchronized void failure(LlmException error) {
+            add(false);
+            String message = String.valueOf(error.getMessage());
+            lastError = message.length() > MAX_ERROR_CHARS ? message.substring(0, MAX_ERROR_CHARS) + "…" : message;
+            lastErrorStatus = error.getStatusCode() == 0 ? null : error.getStatusCode();
+            lastErrorAt = Instant.now();
+        }
+
+        private void add(boolean ok) {
+            if (count == windowSize) {
+                if (!outcomes[next]) failures--;
+            } else {
+                count++;
+            }
+            outcomes[next] = ok;
+            if (!ok) failures++;
+            next = (next + 1) % windowSize;
+        }
+
+        synchronized RouteHealth snapshot() {
+            double ratio = count == 0 ? 1.0 : (count - failures) / (double) count;
+            LlmCircuitBreaker.State circuit = breaker.state(route);
+            return new RouteHealth(route, classify(ratio, circuit), count, ratio, Math.round(ewma), circuit,
+                    lastError, lastErrorStatus, lastErrorAt, lastSuccessAt);
+        }
+
+        private Status classify(double ratio, LlmCircuitBreaker.State circuit) {
+            if (breaker.isRejecting(route)) return Status.DOWN;
+            if (count < minimumCalls) return count == 0 ? Status.UNKNOWN : Status.UP;
+            // Callers stop sending traffic to a DOWN route, so let one through again after a quiet period
+            if (ratio < downBelow) {
+                boolean quiet = lastErrorAt.isBefore(Instant.now().minusMillis(recoverAfterMs));
+                return quiet ? Status.DEGRADED : Status.DOWN;
+            }
+            if (circuit != LlmCircuitBreaker.State.CLOSED || ratio < degradedBelow || ewma > slowMs) {
+                return Status.DEGRADED;
+            }
+            return Status.UP;
+        }
+    }
+}
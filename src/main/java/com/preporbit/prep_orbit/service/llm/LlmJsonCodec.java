@@ -0,0 +1,214 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.preporbit.prep_orbit.dto.LlmSchema;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import com.preporbit.prep_orbit.util.JsonExtractor;
+import com.preporbit.prep_orbit.util.JsonRepair;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Structured output support: Gemini {@code responseSchema} generated from DTO
+ * classes and direct decoding of the model's JSON into those classes.
+ *
+ * Features:
+ *  - Schema derived from Jackson's own property introspection (names honour
+ *    {@code @JsonProperty}), refined per property with {@link LlmSchema}
+ *  - Schemas built once per type; {@link ObjectReader}s come pre-resolved from
+ *    the shared {@link JsonCodecs}
+ *  - Decoding runs Jackson's streaming parser straight into the target type
+ *    (no tree, no regex / substring cleanup)
+ *  - {@link #decodeRepairing}: structural repair of truncated / malformed output when
+ *    the direct decode fails
+ */
+@Component
+public class LlmJsonCodec {
+
+    private static final int MAX_DEPTH = 8;
+    private static final Set<Class<?>> INTEGER_TYPES = Set.of(
+            int.class, long.class, short.class, byte.class,
+            Integer.class, Long.class, Short.class, Byte.class, BigInteger.class);
+    private static final Set<Class<?>> NUMBER_TYPES = Set.of(
+            double.class, float.class, Double.class, Float.class, BigDecimal.class, Number.class);
+
+    private final ObjectMapper mapper;
+    private final Map<JavaType, JsonNode> schemas = new ConcurrentHashMap<>();
+    private final JsonCodecs codecs;
+
+    public LlmJsonCodec(JsonCodecs codecs) {
+        this.codecs = codecs;
+        this.mapper = codecs.mapper();
+    }
+
+    /* ====================== TYPES ====================== */
+
+    public JavaType type(Class<?> type) {
+        return mapper.constructType(type);
+    }
+
+    public JavaType type(TypeReference<?> type) {
+        return mapper.getTypeFactory().constructType(type);
+    }
+
+    /* ====================== SCHEMA ====================== */
+
+    /** Gemini (OpenAPI subset) schema for {@code type}; cached, treat as read-only. */
+    public JsonNode schemaFor(JavaType type) {
+        return schemas.computeIfAbsent(type, t -> schemaOf(t, null, 0));
+    }
+
+    private ObjectNode schemaOf(JavaType type, LlmSchema hints, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Schema nesting too deep at " + type);
+        }
+        if (hints != null && hints.as() != Void.class) {
+            return schemaOf(type(hints.as()), null, depth);
+        }
+        ObjectNode node = mapper.createObjectNode();
+        Class<?> raw = type.getRawClass();
+
+        if (type.isArrayType() || type.isCollectionLikeType()) {
+            node.put("type", "ARRAY");
+            node.set("items", schemaOf(type.getContentType(), null, depth + 1));
+        } else if (type.isMapLikeType()) {
+            if (hints == null || hints.keys().length == 0) {
+                throw new IllegalArgumentException("Map property of type " + type
+                        + " needs @LlmSchema(keys = ...) for a response schema");
+            }
+            ObjectNode valueSchema = schemaOf(type.getContentType(), null, depth + 1);
+            node.put("type", "OBJECT");
+            ObjectNode props = node.putObject("properties");
+            ArrayNode required = node.putArray("required");
+            for (String key : hints.keys()) {
+                props.set(key, valueSchema.deepCopy());
+                required.add(key);
+            }
+            node.set("propertyOrdering", required.deepCopy());
+        } else if (type.isEnumType()) {
+            node.put("type", "STRING");
+            ArrayNode values = node.putArray("enum");
+            for (Object constant : raw.getEnumConstants()) values.add(constant.toString());
+        } else if (boolean.class == raw || Boolean.class == raw) {
+            node.put("type", "BOOLEAN");
+        } else if (INTEGER_TYPES.contains(raw)) {
+            node.put("type", "INTEGER");
+        } else if (NUMBER_TYPES.contains(raw)) {
+            node.put("type", "NUMBER");
+        } else if (raw == String.class || raw == Object.class || raw == char.class || raw == Character.class
+                || CharSequence.class.isAssignableFrom(raw)) {
+            node.put("type", "STRING");
+        } else {
+            objectSchema(node, type, depth);
+        }
+
+        if (hints != null) {
+            if (!hints.description().isEmpty()) node.put("description", hints.description());
+            if (hints.allowed().length > 0) {
+                ArrayNode values = node.putArray("enum");
+                for (String v : hints.allowed()) values.add(v);
+            }
+        }
+        return node;
+    }
+
+    private void objectSchema(ObjectNode node, JavaType type, int depth) {
+        BeanDescription bean = mapper.getDeserializationConfig().introspect(type);
+        node.put("type", "OBJECT");
+        ObjectNode props = node.putObject("properties");
+        ArrayNode required = node.putArray("required");
+        ArrayNode ordering = node.putArray("propertyOrdering");
+
+        for (BeanPropertyDefinition prop : bean.findProperties()) {
+            if (!prop.couldDeserialize()) continue;
+            LlmSchema hints = hintsOf(prop);
+            if (hints != null && hints.exclude()) continue;
+
+            props.set(prop.getName(), schemaOf(prop.getPrimaryType(), hints, depth + 1));
+            ordering.add(prop.getName());
+            if (hints == null || hints.required()) required.add(prop.getName());
+        }
+        if (props.isEmpty()) {
+            throw new IllegalArgumentException("No schema properties found for " + type);
+        }
+    }
+
+    private static LlmSchema hintsOf(BeanPropertyDefinition prop) {
+        for (AnnotatedMember member : new AnnotatedMember[]{
+                prop.getField(), prop.getSetter(), prop.getGetter(), prop.getConstructorParameter()}) {
+            if (member == null) continue;
+            LlmSchema hints = member.getAnnotation(LlmSchema.class);
+            if (hints != null) return hints;
+        }
+        return null;
+    }
+
+    /* ====================== DECODING ====================== */
+
+    /**
+     * Parses model output into {@code type}. Schema-constrained responses start at
+     * the JSON value; anything around it (a stray fence or prose from a fallback
+     * model) is skipped by {@link JsonExtractor}, which also repairs trailing commas
+     * and smart quotes while streaming the value into the reader.
+     */
+    public <T> T decode(String text, JavaType type) {
+        if (text == null || text.isBlank()) {
+            throw new LlmException("Empty JSON response from model", 0, false, null);
+        }
+        T value;
+        try {
+            value = JsonExtractor.read(codecs.reader(type), text);
+        } catch (IOException e) {
+            throw new LlmException("Unparseable JSON from model: " + e.getMessage(), 0, false, e);
+        }
+        if (value == null) {
+            throw new LlmException("Model response contains no JSON value", 0, false, null);
+        }
+        return value;
+    }
+
+    public <T> T decode(String text, Class<T> type) {
+        return decode(text, type(type));
+    }
+
+    /** Decoded value; {@code repaired} when {@link JsonRepair} was needed, {@code truncated} when it cut a partial tail. */
+    public record Decoded<T>(T value, boolean repaired, boolean truncated) {
+    }
+
+    /**
+     * {@link #decode} with a local repair pass when it fails (truncated arrays, missing
+     * brackets, unescaped quotes): complete elements are kept, the partial tail dropped.
+     * Throws the original decode error when nothing can be salvaged.
+     */
+    public <T> Decoded<T> decodeRepairing(String text, JavaType type) {
+        try {
+            return new Decoded<>(decode(text, type), false, false);
+        } catch (LlmException e) {
+            JsonRepair.Result repaired = JsonRepair.repair(text);
+            if (repaired == null) throw e;
+            try {
+                T value = codecs.reader(type).readValue(repaired.json());
+                if (value == null) throw e;
+                return new Decoded<>(value, true, repaired.truncated());
+            } catch (IOException notRepairable) {
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.preporbit.prep_orbit.exception.LlmException;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Consumer;
+
+/**
+ * Structured generation that salvages bad output instead of regenerating it.
+ *
+ * Features:
+ *  - Output that fails to decode is repaired locally ({@link LlmJsonCodec#decodeRepairing}):
+ *    missing brackets, unescaped quotes, stray commas cost no extra call
+ *  - Truncated output (cut partial tail, or finish reason MAX_TOKENS) gets at most one
+ *    "continue" call for the missing tail only, never a full regeneration; the joined text
+ *    goes through the same repair
+ *  - When the continuation fails, the complete elements of the first reply are returned
+ *  - Outcomes counted as {@code llm.json.recovery{profile, outcome}}
+ */
+@Component
+public class LlmJsonRecovery {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmJsonRecovery.class);
+
+    private static final String CONTINUE_INSTRUCTION = """
+
+
+            Your previous reply was cut off before the JSON was complete. It is repeated below.
+            Continue it from the exact character where it stops: output only the missing remainder
+            (no repetition, no markdown fences, no commentary) so that the previous reply followed
+            by your output is one valid JSON value.
+
+            PREVIOUS REPLY:
+            """;
+
+    private final LlmGateway gateway;
+    private final LlmJsonCodec codec;
+    private final MeterRegistry meterRegistry;
+    private final boolean continueEnabled;
+
+    public LlmJsonRecovery(LlmGateway gateway,
+                           LlmJsonCodec codec,
+                           MeterRegistry meterRegistry,
+                           @Value("${llm.json.continue-on-truncation:true}") boolean continueEnabled) {
+        this.gateway = gateway;
+        this.codec = codec;
+        this.meterRegistry = meterRegistry;
+        this.continueEnabled = continueEnabled;
+    }
+
+    public <T> T call(LlmRequest request, Class<T> type) {
+        return call(request, codec.type(type), null);
+    }
+
+    /**
+     * Generates and decodes {@code request} into {@code type}; partial JSON is relayed to
+     * {@code onChunk} when set. Throws {@link LlmException} when nothing can be decoded.
+     */
+    public <T> T call(LlmRequest request, JavaType type, Consumer<String> onChunk) {
+        LlmResponse response = onChunk == null
+                ? gateway.call(request)
+                : gateway.callStreaming(request, onChunk);
+        String text = response.getText() == null ? "" : response.getText();
+        boolean cut = "MAX_TOKENS".equals(response.getFinishReason());
+
+        LlmJsonCodec.Decoded<T> first;
+        try {
+            first = codec.decodeRepairing(text, type);
+        } catch (LlmException e) {
+            if (!cut) {
+                count(request, "failed");
+                throw e;
+            }
+            first = null;
+        }
+        // A clean decode is complete even when the cap was hit exactly at the end
+        if (first != null && !first.truncated() && (!cut || !first.repaired())) {
+            count(request, first.repaired() ? "repaired" : "clean");
+            return first.value();
+        }
+        if (!continueEnabled) {
+            return salvaged(request, first, null);
+        }
+
+        logger.info("🧩 [{}] JSON output truncated ({} chars); asking for the remainder",
+                request.getProfile().getKey(), text.length());
+        try {
+            String tail = stripFence(gateway.call(continuation(request, text)).getText());
+            LlmJsonCodec.Decoded<T> joined = codec.decodeRepairing(text + tail, type);
+            count(request, joined.truncated() ? "continued-partial" : "continued");
+            return joined.value();
+        } catch (LlmException e) {
+            return salvaged(request, first, e);
+        }
+    }
+
+    /** Complete elements of the first reply, or the failure when there are none. */
+    private <T> T salvaged(LlmRequest request, LlmJsonCodec.Decoded<T> first, LlmException error) {
+        if (first == null) {
+            count(request, "failed");
+            throw error != null ? error
+                    : new LlmException("Truncated JSON response from model", 0, false, null);
+        }
+        count(request, "salvaged");
+        logger.warn("🧩 [{}] Using the complete part of a truncated JSON reply{}", request.getProfile().getKey(),
+                error == null ? "" : " (continuation failed: " + error.getMessage() + ")");
+        return first.value();
+    }
+
+    /**
+     * Same prompt, preamble and model with the partial reply appended. No response schema:
+     * the remainder is a fragment, not a schema-valid value.
+     */
+    private static LlmRequest continuation(LlmRequest request, String partial) {
+        return request.toBuilder()
+                .prompt(request.getPrompt() + CONTINUE_INSTRUCTION + partial)
+                .generationParam("responseSchema", null)
+                .generationParam("responseMimeType", null)
+                .localFallback(null)
+                .build();
+    }
+
+    /** Drops a markdown fence around the remainder; leading whitespace may be part of the text. */
+    private static String stripFence(String tail) {
+        if (tail == null) return "";
+        String t = tail;
+        if (t.stripLeading().startsWith("```")) {
+            int nl = t.indexOf('\n');
+            t = nl < 0 ? "" : t.substring(nl + 1);
+        }
+        String end = t.stripTrailing();
+        return end.endsWith("```") ? end.substring(0, end.length() - 3) : t;
+    }
+
+    private void count(LlmRequest request, String outcome) {
+        meterRegistry.counter("llm.json.recovery", "profile", request.getProfile().getKey(),
+                "outcome", outcome).increment();
+    }
+}
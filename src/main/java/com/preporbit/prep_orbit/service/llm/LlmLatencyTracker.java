@@ -0,0 +1,58 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rolling latency samples (last {@value #WINDOW} successful calls per key) with
+ * on-demand percentiles. Used for hedging delays.
+ */
+@Component
+public class LlmLatencyTracker {
+
+    private static final int WINDOW = 256;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+
+    public void record(String key, long latencyMs) {
+        windows.computeIfAbsent(key, k -> new Window()).add(latencyMs);
+    }
+
+    public int sampleCount(String key) {
+        Window w = windows.get(key);
+        return w == null ? 0 : w.size();
+    }
+
+    /** p-th percentile (0..1) of the rolling window, or -1 when there are no samples. */
+    public long percentile(String key, double p) {
+        Window w = windows.get(key);
+        return w == null ? -1 : w.percentile(p);
+    }
+
+    private static final class Window {
+        private final long[] samples = new long[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long v) {
+            samples[next] = v;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) count++;
+        }
+
+        synchronized int size() {
+            return count;
+        }
+
+        synchronized long percentile(double p) {
+            if (count == 0) return -1;
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int idx = (int) Math.ceil(p * count) - 1;
+            return sorted[Math.max(0, Math.min(count - 1, idx))];
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.preporbit.prep_orbit.service.llm;
+
+/**
+ * Scheduling class used by {@link LlmConcurrencyLimiter}; queued requests are
+ * admitted strictly in this order (INTERACTIVE first).
+ */
+public enum LlmPriority {
+    INTERACTIVE,
+    STANDARD,
+    BACKGROUND
+}
@@ -0,0 +1,96 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import java.time.Duration;
+
+/**
+ * Per-use-case settings for AI traffic going through {@link LlmGateway}.
+ *
+ * Defaults live here; each one can be overridden with
+ * {@code llm.profile.<key>.timeout-ms} / {@code llm.profile.<key>.max-attempts}.
+ * The priority decides queueing order in {@link LlmConcurrencyLimiter}.
+ * A non-zero cache TTL marks prompts that are fully determined by their inputs
+ * (override with {@code llm.cache.ttl.<key>}, zero disables caching).
+ * Generation defaults cap output length, which bounds generation time; override with
+ * {@code llm.profile.<key>.max-output-tokens / thinking-budget / temperature}. Values a
+ * caller puts in the request's generation config win.
+ */
+public enum LlmProfile {
+
+    CHAT("chat", Duration.ofSeconds(60), 1, LlmPriority.INTERACTIVE,
+            new Generation(2048, 0, 0.7)),
+    QUIZ_GENERATION("quiz-generation", Duration.ofSeconds(60), 2, LlmPriority.INTERACTIVE,
+            new Generation(4096, 0, 0.8)),
+    QUIZ_HINT("quiz-hint", Duration.ofSeconds(20), 2, LlmPriority.STANDARD, Duration.ofHours(24),
+            new Generation(256, 0, 0.3)),
+    QUIZ_FEEDBACK("quiz-feedback", Duration.ofSeconds(30), 2, LlmPriority.STANDARD,
+            new Generation(1024, 0, 0.4)),
+    LIVE_QUESTIONS("live-questions", Duration.ofSeconds(45), 2, LlmPriority.INTERACTIVE,
+            new Generation(2048, 0, 0.8)),
+    LIVE_FEEDBACK("live-feedback", Duration.ofSeconds(20), 2, LlmPriority.INTERACTIVE,
+            new Generation(512, 0, 0.3)),
+    INTERVIEW_QUESTIONS("interview-questions", Duration.ofSeconds(30), 2, LlmPriority.INTERACTIVE, Duration.ofHours(6),
+            new Generation(2048, 0, 0.7)),
+    INTERVIEW_FEEDBACK("interview-feedback", Duration.ofSeconds(60), 2, LlmPriority.STANDARD,
+            new Generation(1536, 0, 0.6)),
+    RESUME_ANALYSIS("resume-analysis", Duration.ofSeconds(120), 3, LlmPriority.STANDARD,
+            new Generation(8192, 1024, 0.2)),
+    RESUME_IMAGE_ANALYSIS("resume-image-analysis", Duration.ofSeconds(180), 2, LlmPriority.STANDARD,
+            new Generation(8192, 1024, 0.2)),
+    RESUME_SUMMARY("resume-summary", Duration.ofSeconds(30), 2, LlmPriority.STANDARD, Duration.ofDays(7),
+            new Generation(256, 0, 0.3)),
+    RESUME_GENERATION("resume-generation", Duration.ofSeconds(60), 2, LlmPriority.STANDARD,
+            new Generation(4096, 0, 0.5)),
+    CHALLENGE_GENERATION("challenge-gen", Duration.ofSeconds(60), 2, LlmPriority.BACKGROUND,
+            new Generation(4096, 1024, 0.9)),
+    HEALTH_CHECK("health-check", Duration.ofSeconds(10), 1, LlmPriority.BACKGROUND,
+            new Generation(16, 0, 0.0));
+
+    /**
+     * Output shape per use case: token cap, thinking budget (0 = off, -1 = model decides)
+     * and temperature. A null field leaves the model default.
+     */
+    public record Generation(Integer maxOutputTokens, Integer thinkingBudget, Double temperature) {
+    }
+
+    private final String key;
+    private final Duration defaultTimeout;
+    private final int defaultMaxAttempts;
+    private final LlmPriority priority;
+    private final Duration defaultCacheTtl;
+    private final Generation defaultGeneration;
+
+    LlmProfile(String key, Duration defaultTimeout, int defaultMaxAttempts, LlmPriority priority,
+               Generation defaultGeneration) {
+        this(key, defaultTimeout, defaultMaxAttempts, priority, Duration.ZERO, defaultGeneration);
+    }
+
+    LlmProfile(String key, Duration defaultTimeout, int defaultMaxAttempts, LlmPriority priority,
+               Duration defaultCacheTtl, Generation defaultGeneration) {
+        this.key = key;
+        this.defaultTimeout = defaultTimeout;
+        this.defaultMaxAttempts = defaultMaxAttempts;
+        this.priority = priority;
+        this.defaultCacheTtl = defaultCacheTtl;
+        this.defaultGeneration = defaultGeneration;
+    }
+
+    /** Profile with the given {@link #getKey() key} (as stored in config and batch jobs). */
+    public static LlmProfile fromKey(String key) {
+        for (LlmProfile p : values()) {
+            if (p.key.equals(key)) return p;
+        }
+        throw new IllegalArgumentException("Unknown LLM profile: " + key);
+    }
+
+    public String getKey() { return key; }
+
+    public Duration getDefaultTimeout() { return defaultTimeout; }
+
+    public int getDefaultMaxAttempts() { return defaultMaxAttempts; }
+
+    public LlmPriority getPriority() { return priority; }
+
+    public Duration getDefaultCacheTtl() { return defaultCacheTtl; }
+
+    public Generation getDefaultGeneration() { return defaultGeneration; }
+}
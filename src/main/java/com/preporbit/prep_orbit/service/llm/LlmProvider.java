@@ -0,0 +1,39 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * A text-generation backend (Gemini, or any OpenAI-compatible server) as seen by
+ * {@link LlmGateway}. Implementations are transports only: retries, limits,
+ * breakers and routing stay in the gateway.
+ *
+ * Futures complete with an {@link LlmResponse} or an
+ * {@link com.preporbit.prep_orbit.exception.LlmException}; cancelling one cancels
+ * the HTTP call.
+ */
+public interface LlmProvider {
+
+    /** What a backend can do; routes lacking what a request needs are skipped. */
+    enum Capability {
+        MULTIMODAL,
+        JSON_SCHEMA,
+        STREAMING;
+
+        /** {@code multimodal}, {@code json-schema}, {@code streaming}. */
+        public static Capability parse(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    String getName();
+
+    Set<Capability> getCapabilities();
+
+    CompletableFuture<LlmResponse> generate(LlmRequest request, String model, Duration timeout);
+
+    CompletableFuture<LlmResponse> stream(LlmRequest request, String model, Duration timeout,
+                                          Consumer<String> onChunk);
+}
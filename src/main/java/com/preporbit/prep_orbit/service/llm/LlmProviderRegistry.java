@@ -0,0 +1,164 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.service.GeminiRestClient;
+import com.preporbit.prep_orbit.service.OpenAiRestClient;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * The configured generation backends, addressed by route.
+ *
+ * A route is what the rest of the gateway calls a "model": bare names
+ * ({@code gemini-2.5-flash}) go to Gemini, {@code <provider>/<model>}
+ * ({@code openai/gpt-4o-mini}, {@code local/llama3.1}) to the named
+ * OpenAI-compatible provider. Breakers, limiter quotas, fallback chains and
+ * router statistics are all keyed by route, so existing config keeps working.
+ *
+ * Features:
+ *  - Gemini always present
+ *  - OpenAI-compatible providers from {@code llm.providers=openai,local}, each with
+ *    {@code llm.providers.<name>.base-url / api-key / capabilities / max-requests}
+ *  - {@code openai} defaults to the OpenAI API and the existing {@code openai.api.key}
+ *  - Capability tags per provider for {@link LlmRouter}
+ */
+@Component
+public class LlmProviderRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmProviderRegistry.class);
+
+    static final String GEMINI = "gemini";
+    private static final String DEFAULT_OPENAI_BASE = "https://api.openai.com/v1";
+
+    /** A route resolved to its provider and the provider's own model name. */
+    public record Route(LlmProvider provider, String model) {
+    }
+
+    private final LlmProvider gemini;
+    private final Map<String, LlmProvider> providers = new LinkedHashMap<>();
+
+    public LlmProviderRegistry(GeminiRestClient geminiClient,
+                               JsonCodecs json,
+                               Environment environment,
+                               @Value("${llm.providers:}") List<String> names,
+                               @Value("${openai.api.key:}") String openAiKey) {
+        this.gemini = new GeminiProvider(geminiClient);
+        providers.put(GEMINI, gemini);
+
+        for (String raw : names) {
+            String name = raw.trim();
+            if (name.isEmpty() || providers.containsKey(name)) continue;
+            String prefix = "llm.providers." + name + ".";
+            boolean openai = "openai".equals(name);
+
+            String baseUrl = environment.getProperty(prefix + "base-url",
+                    openai ? environment.getProperty("OPENAI_API_BASE", DEFAULT_OPENAI_BASE) : "");
+            if (baseUrl.isBlank()) {
+                logger.warn("⚠️ LLM provider '{}' has no {}base-url; skipped", name, prefix);
+                continue;
+            }
+            String apiKey = environment.getProperty(prefix + "api-key", openai ? openAiKey : "");
+            Set<LlmProvider.Capability> capabilities = parseCapabilities(environment.getProperty(
+                    prefix + "capabilities", openai ? "multimodal,json-schema,streaming" : "streaming"));
+            int maxRequests = environment.getProperty(prefix + "max-requests", Integer.class, 32);
+
+            OpenAiRestClient client = new OpenAiRestClient(name, baseUrl, apiKey, capabilities, maxRequests, json);
+            providers.put(name, client);
+            logger.info("🔌 LLM provider '{}' → {} {}", name, client.getBaseUrl(), capabilities);
+        }
+    }
+
+    /** Splits {@code provider/model}; anything else (including unknown prefixes) is a Gemini model. */
+    public Route resolve(String route) {
+        int slash = route.indexOf('/');
+        if (slash > 0) {
+            LlmProvider provider = providers.get(route.substring(0, slash));
+            if (provider != null) return new Route(provider, route.substring(slash + 1));
+        }
+        return new Route(gemini, route);
+    }
+
+    public boolean supports(String route, Set<LlmProvider.Capability> required) {
+        return resolve(route).provider().getCapabilities().containsAll(required);
+    }
+
+    public Collection<LlmProvider> all() {
+        return providers.values();
+    }
+
+    public CompletableFuture<LlmResponse> generate(LlmRequest request, String route, Duration timeout) {
+        Route r = resolve(route);
+        return tagged(r.provider().generate(request, r.model(), timeout), route, r);
+    }
+
+    public CompletableFuture<LlmResponse> stream(LlmRequest request, String route, Duration timeout,
+                                                 Consumer<String> onChunk) {
+        Route r = resolve(route);
+        return tagged(r.provider().stream(request, r.model(), timeout, onChunk), route, r);
+    }
+
+    /** Responses carry the route, not the provider-local model name (cache keys, metrics, logs). */
+    private static CompletableFuture<LlmResponse> tagged(CompletableFuture<LlmResponse> call, String route, Route r) {
+        if (route.equals(r.model())) return call;
+        CompletableFuture<LlmResponse> result = call.thenApply(resp -> new LlmResponse(
+                resp.getText(), route, resp.getFinishReason(), resp.getUsage(), resp.getLatencyMs()));
+        result.whenComplete((resp, err) -> {
+            if (result.isCancelled()) call.cancel(true);
+        });
+        return result;
+    }
+
+    private static Set<LlmProvider.Capability> parseCapabilities(String csv) {
+        Set<LlmProvider.Capability> set = EnumSet.noneOf(LlmProvider.Capability.class);
+        Arrays.stream(csv.split(",")).filter(s -> !s.isBlank()).map(LlmProvider.Capability::parse).forEach(set::add);
+        return set;
+    }
+
+    /* ====================== GEMINI ====================== */
+
+    /** Gemini REST transport. */
+    private static final class GeminiProvider implements LlmProvider {
+        private static final Set<Capability> CAPABILITIES = EnumSet.allOf(Capability.class);
+
+        private final GeminiRestClient client;
+
+        GeminiProvider(GeminiRestClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public String getName() {
+            return GEMINI;
+        }
+
+        @Override
+        public Set<Capability> getCapabilities() {
+            return CAPABILITIES;
+        }
+
+        @Override
+        public CompletableFuture<LlmResponse> generate(LlmRequest request, String model, Duration timeout) {
+            return client.generateContent(request, model, timeout);
+        }
+
+        @Override
+        public CompletableFuture<LlmResponse> stream(LlmRequest request, String model, Duration timeout,
+                                                     Consumer<String> onChunk) {
+            return client.streamGenerateContent(request, model, timeout, onChunk);
+        }
+    }
+}
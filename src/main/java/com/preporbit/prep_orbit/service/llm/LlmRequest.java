@@ -0,0 +1,183 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Immutable description of one generation call: use-case profile, model,
+ * prompt text, optional inline images and generation config.
+ *
+ * The prompt may be split into a fixed {@code preamble} (instructions, rubric,
+ * output schema) and the variable {@code prompt}; the preamble is sent first so
+ * repeated calls share a prefix that Gemini's implicit caching can reuse.
+ */
+public class LlmRequest {
+
+    private final LlmProfile profile;
+    private final String model;
+    private final LlmPriority priority;
+    private final String preamble;
+    private final String prompt;
+    private final String templateName;
+    private final String templateVersion;
+    private final List<BufferedImage> images;
+    private final Map<String, Object> generationConfig;
+    private final Supplier<String> localFallback;
+
+    private LlmRequest(Builder b) {
+        this.profile = b.profile;
+        this.model = b.model;
+        this.priority = b.priority;
+        this.preamble = b.preamble;
+        this.prompt = b.prompt;
+        this.templateName = b.templateName;
+        this.templateVersion = b.templateVersion;
+        this.images = Collections.unmodifiableList(new ArrayList<>(b.images));
+        this.generationConfig = Collections.unmodifiableMap(new LinkedHashMap<>(b.generationConfig));
+        this.localFallback = b.localFallback;
+    }
+
+    public static Builder builder(LlmProfile profile) {
+        return new Builder(profile);
+    }
+
+    public static LlmRequest of(LlmProfile profile, String prompt) {
+        return builder(profile).prompt(prompt).build();
+    }
+
+    /** Copy of this request targeting another model (everything else unchanged). */
+    public LlmRequest withModel(String otherModel) {
+        return toBuilder().model(otherModel).build();
+    }
+
+    public Builder toBuilder() {
+        Builder b = new Builder(profile).model(model).priority(priority).preamble(preamble).prompt(prompt)
+                .generationConfig(generationConfig).localFallback(localFallback);
+        b.templateName = templateName;
+        b.templateVersion = templateVersion;
+        b.images.addAll(images);
+        return b;
+    }
+
+    public LlmProfile getProfile() { return profile; }
+
+    public String getModel() { return model; }
+
+    /** Explicit priority, or the profile default. */
+    public LlmPriority getPriority() { return priority != null ? priority : profile.getPriority(); }
+
+    /** Fixed instruction prefix ("" when the prompt is not split). */
+    public String getPreamble() { return preamble; }
+
+    public boolean hasPreamble() { return !preamble.isEmpty(); }
+
+    public String getPrompt() { return prompt; }
+
+
+    /** Prompt template the text was rendered from (null for ad-hoc prompts). */
+    public String getTemplateName() { return templateName; }
+
+    public String getTemplateVersion() { return templateVersion; }
+
+    public List<BufferedImage> getImages() { return images; }
+
+    public boolean hasImages() { return !images.isEmpty(); }
+
+    public Map<String, Object> getGenerationConfig() { return generationConfig; }
+
+    /** Last link of the fallback chain: local heuristic used when every model failed. */
+    public Supplier<String> getLocalFallback() { return localFallback; }
+
+    public static class Builder {
+        private final LlmProfile profile;
+        private String model;
+        private LlmPriority priority;
+        private String preamble = "";
+        private String prompt = "";
+        private String templateName;
+        private String templateVersion;
+        private final List<BufferedImage> images = new ArrayList<>();
+        private final Map<String, Object> generationConfig = new LinkedHashMap<>();
+        private Supplier<String> localFallback;
+
+        private Builder(LlmProfile profile) {
+            this.profile = profile == null ? LlmProfile.CHAT : profile;
+        }
+
+        public Builder model(String model) {
+            this.model = model;
+            return this;
+        }
+
+        public Builder priority(LlmPriority priority) {
+            this.priority = priority;
+            return this;
+        }
+
+        public Builder preamble(String preamble) {
+            this.preamble = preamble == null ? "" : preamble;
+            return this;
+        }
+
+        public Builder prompt(String prompt) {
+            this.prompt = prompt == null ? "" : prompt;
+            return this;
+        }
+
+        /** Preamble and prompt from a rendered template, tagged with its name and version. */
+        public Builder template(PromptTemplate.Rendered rendered) {
+            this.preamble = rendered.preamble();
+            this.prompt = rendered.prompt();
+            this.templateName = rendered.template();
+            this.templateVersion = rendered.version();
+            return this;
+        }
+
+        public Builder images(BufferedImage[] imgs) {
+            if (imgs != null) {
+                for (BufferedImage img : imgs) {
+                    if (img != null) images.add(img);
+                }
+            }
+            return this;
+        }
+
+        public Builder generationConfig(Map<String, Object> config) {
+            if (config != null) generationConfig.putAll(config);
+            return this;
+        }
+
+        /** Sets one generation param; {@code null} removes it. */
+        public Builder generationParam(String name, Object value) {
+            if (value == null) {
+                generationConfig.remove(name);
+            } else {
+                generationConfig.put(name, value);
+            }
+            return this;
+        }
+
+        /** Constrains output to JSON matching {@code schema} (see {@link LlmJsonCodec#schemaFor}). */
+        public Builder responseSchema(JsonNode schema) {
+            generationConfig.put("responseMimeType", "application/json");
+            generationConfig.put("responseSchema", schema);
+            return this;
+        }
+
+        public Builder localFallback(Supplier<String> fallback) {
+            this.localFallback = fallback;
+            return this;
+        }
+
+        public LlmRequest build() {
+            return new LlmRequest(this);
+        }
+    }
+}
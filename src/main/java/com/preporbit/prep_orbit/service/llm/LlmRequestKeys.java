@@ -0,0 +1,40 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Content-addressed request keys shared by the response cache and the
+ * single-flight layer: SHA-256 of model + preamble + prompt + generation config
+ * (map keys sorted so equivalent configs hash identically).
+ */
+final class LlmRequestKeys {
+
+    private static final ObjectMapper KEY_MAPPER = new ObjectMapper()
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private LlmRequestKeys() {
+    }
+
+    static String of(LlmRequest request, String model) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request.getPreamble().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(request.getPrompt().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(KEY_MAPPER.writeValueAsBytes(request.getGenerationConfig()));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | IOException e) {
+            throw new IllegalStateException("Unable to compute request key", e);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Result of a generation call: concatenated candidate text plus call metadata.
+ */
+public class LlmResponse {
+
+    private final String text;
+    private final String model;
+    private final String finishReason;
+    private final JsonNode usage;
+    private final long latencyMs;
+
+    public LlmResponse(String text, String model, String finishReason, JsonNode usage, long latencyMs) {
+        this.text = text;
+        this.model = model;
+        this.finishReason = finishReason;
+        this.usage = usage;
+        this.latencyMs = latencyMs;
+    }
+
+    public String getText() { return text; }
+
+    public String getModel() { return model; }
+
+    public String getFinishReason() { return finishReason; }
+
+    public JsonNode getUsage() { return usage; }
+
+    public long getLatencyMs() { return latencyMs; }
+}
@@ -0,0 +1,211 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Content-addressed cache for deterministic prompts.
+ *
+ * Features:
+ *  - Key = {@link LlmRequestKeys} content hash of model + prompt + generation config
+ *  - In-memory LRU bounded by {@code llm.cache.max-entries}
+ *  - TTL per use case ({@link LlmProfile#getDefaultCacheTtl()}, {@code llm.cache.ttl.<key>})
+ *  - Optional disk tier ({@code llm.cache.disk.enabled}) that survives restarts
+ *  - Micrometer counter {@code llm.cache.lookups} tagged by profile and result
+ *
+ * Image requests are never cached, and neither are truncated / blocked answers
+ * (finishReason other than STOP) or the gateway's local heuristic fallback.
+ */
+@Component
+public class LlmResponseCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+
+    private final int maxEntries;
+    private final Path diskDir;
+    private final Map<LlmProfile, Duration> ttls = new EnumMap<>(LlmProfile.class);
+    private final MeterRegistry meterRegistry;
+    private final JsonCodecs json;
+
+    private final LinkedHashMap<String, Entry> memory;
+
+    public LlmResponseCache(Environment environment,
+                            MeterRegistry meterRegistry,
+                            JsonCodecs json,
+                            @Value("${llm.cache.max-entries:1000}") int maxEntries,
+                            @Value("${llm.cache.disk.enabled:false}") boolean diskEnabled,
+                            @Value("${llm.cache.disk.dir:./llm-cache}") String diskDir) {
+        this.meterRegistry = meterRegistry;
+        this.json = json;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.memory = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > LlmResponseCache.this.maxEntries;
+            }
+        };
+
+        for (LlmProfile p : LlmProfile.values()) {
+            ttls.put(p, environment.getProperty("llm.cache.ttl." + p.getKey(), Duration.class,
+                    p.getDefaultCacheTtl()));
+        }
+
+        this.diskDir = diskEnabled ? initDiskDir(Paths.get(diskDir)) : null;
+        meterRegistry.gauge("llm.cache.size", memory, m -> {
+            synchronized (m) { return m.size(); }
+        });
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    public boolean isCacheable(LlmRequest request) {
+        Duration ttl = ttls.get(request.getProfile());
+        return ttl != null && !ttl.isZero() && !ttl.isNegative() && !request.hasImages();
+    }
+
+    /** Returns the cached response or {@code null}; records hit / miss metrics. */
+    public LlmResponse get(LlmRequest request, String model) {
+        String key = LlmRequestKeys.of(request, model);
+        long now = System.currentTimeMillis();
+
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+            if (entry != null && entry.expiresAt <= now) {
+                memory.remove(key);
+                entry = null;
+            }
+        }
+        if (entry != null) {
+            count(request.getProfile(), "hit");
+            return entry.toResponse();
+        }
+
+        entry = readDisk(key, now);
+        if (entry != null) {
+            synchronized (memory) {
+                memory.put(key, entry);
+            }
+            count(request.getProfile(), "disk_hit");
+            return entry.toResponse();
+        }
+
+        count(request.getProfile(), "miss");
+        return null;
+    }
+
+    public void put(LlmRequest request, String model, LlmResponse response) {
+        if (response == null || response.getText() == null || response.getText().isBlank()) return;
+        // A MAX_TOKENS / SAFETY cut or a heuristic stand-in must not be replayed for the whole TTL
+        if (!"STOP".equals(response.getFinishReason()) || LlmGateway.LOCAL_MODEL.equals(response.getModel())) return;
+
+        String key = LlmRequestKeys.of(request, model);
+        long expiresAt = System.currentTimeMillis() + ttls.get(request.getProfile()).toMillis();
+        Entry entry = new Entry(response.getText(), response.getModel(), response.getFinishReason(), expiresAt);
+        synchronized (memory) {
+            memory.put(key, entry);
+        }
+        writeDisk(key, entry);
+    }
+
+    /* ====================== DISK TIER ====================== */
+
+    private Path initDiskDir(Path dir) {
+        try {
+            Files.createDirectories(dir);
+            long now = System.currentTimeMillis();
+            int purged = 0;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path f : (Iterable<Path>) files::iterator) {
+                    if (f.toString().endsWith(".json") && readFile(f, now) == null) {
+                        Files.deleteIfExists(f);
+                        purged++;
+                    }
+                }
+            }
+            logger.info("💾 LLM response cache disk tier at {} ({} expired entries purged)", dir.toAbsolutePath(), purged);
+            return dir;
+        } catch (IOException e) {
+            logger.warn("LLM response cache disk tier disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Entry readDisk(String key, long now) {
+        if (diskDir == null) return null;
+        Path file = diskDir.resolve(key + ".json");
+        if (!Files.exists(file)) return null;
+        Entry entry = readFile(file, now);
+        if (entry == null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+        return entry;
+    }
+
+    private Entry readFile(Path file, long now) {
+        try {
+            JsonNode node = json.tree().readValue(file.toFile());
+            long expiresAt = node.path("expiresAt").asLong(0);
+            if (expiresAt <= now) return null;
+            return new Entry(node.path("text").asText(), node.path("model").asText(null),
+                    node.path("finishReason").asText(null), expiresAt);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeDisk(String key, Entry entry) {
+        if (diskDir == null) return;
+        try {
+            ObjectNode node = json.mapper().createObjectNode();
+            node.put("expiresAt", entry.expiresAt);
+            node.put("model", entry.model);
+            node.put("finishReason", entry.finishReason);
+            node.put("text", entry.text);
+            Path tmp = Files.createTempFile(diskDir, key, ".tmp");
+            json.writer().writeValue(tmp.toFile(), node);
+            Files.move(tmp, diskDir.resolve(key + ".json"),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.debug("Failed to persist LLM cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    /* ====================== HELPERS ====================== */
+
+    private void count(LlmProfile profile, String result) {
+        Counter.builder("llm.cache.lookups")
+                .tag("profile", profile.getKey())
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private record Entry(String text, String model, String finishReason, long expiresAt) {
+        LlmResponse toResponse() {
+            return new LlmResponse(text, model, finishReason, null, 0);
+        }
+    }
+}
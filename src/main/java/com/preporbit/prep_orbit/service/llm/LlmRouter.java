@@ -0,0 +1,232 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Orders the routes a request may use, from rolling per-route statistics.
+ *
+ * Features:
+ *  - Rolling p50 / p95 latency and error rate per route (provider + model), time-bounded
+ *    by {@code llm.route.stats-window}
+ *  - Candidates: primary model, its fallback chain, then {@code llm.route.alternates.<profile>}
+ *    (or {@code llm.route.alternates}); routes lacking a required capability
+ *    (images → multimodal, response schema → JSON schema, streaming) are dropped
+ *  - Score = latency × (1 + error-penalty × error rate); INTERACTIVE traffic is scored on
+ *    p95, everything else on p50
+ *  - The configured order is kept unless the primary is {@code switch-ratio} times worse than
+ *    the best candidate, or (INTERACTIVE) its p95 exceeds {@code slow-fraction} of the timeout
+ *  - Small exploration share of non-interactive traffic to unsampled alternates so they get measured
+ */
+@Component
+public class LlmRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRouter.class);
+
+    private static final int WINDOW = 256;
+
+    /** Snapshot of one route's recent outcomes. */
+    public record Stats(int samples, long p50, long p95, double errorRate) {
+        static final Stats EMPTY = new Stats(0, -1, -1, 0);
+    }
+
+    private final LlmProviderRegistry providers;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final long windowMs;
+    private final int minSamples;
+    private final double switchRatio;
+    private final double slowFraction;
+    private final double errorPenalty;
+    private final double exploreRate;
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Map<String, List<String>> alternates = new ConcurrentHashMap<>();
+
+    public LlmRouter(LlmProviderRegistry providers,
+                     Environment environment,
+                     MeterRegistry meterRegistry,
+                     @Value("${llm.route.stats-window:5m}") Duration statsWindow,
+                     @Value("${llm.route.min-samples:10}") int minSamples,
+                     @Value("${llm.route.switch-ratio:1.5}") double switchRatio,
+                     @Value("${llm.route.slow-fraction:0.5}") double slowFraction,
+                     @Value("${llm.route.error-penalty:4}") double errorPenalty,
+                     @Value("${llm.route.explore-rate:0.02}") double exploreRate) {
+        this.providers = providers;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.windowMs = statsWindow.toMillis();
+        this.minSamples = Math.max(1, minSamples);
+        this.switchRatio = switchRatio;
+        this.slowFraction = slowFraction;
+        this.errorPenalty = errorPenalty;
+        this.exploreRate = exploreRate;
+    }
+
+    /* ====================== STATISTICS ====================== */
+
+    /** Outcome of one upstream call; {@code ok=false} only for upstream failures (timeout, 429, 5xx). */
+    public void record(String route, long latencyMs, boolean ok) {
+        windows.computeIfAbsent(route, k -> new Window()).add(System.currentTimeMillis(), latencyMs, ok);
+    }
+
+    public Stats stats(String route) {
+        Window w = windows.get(route);
+        return w == null ? Stats.EMPTY : w.snapshot(System.currentTimeMillis() - windowMs);
+    }
+
+    /* ====================== PLANNING ====================== */
+
+    /** Every route a request of this profile may end up on, in configured order (capabilities not applied). */
+    public List<String> candidates(LlmProfile profile, List<String> chain) {
+        List<String> extra = alternates.computeIfAbsent(profile.getKey(), k -> Arrays.stream(environment
+                        .getProperty("llm.route.alternates." + k, environment.getProperty("llm.route.alternates", ""))
+                        .split(","))
+                .map(String::trim).filter(s -> !s.isEmpty()).toList());
+        if (extra.isEmpty()) return chain;
+        List<String> all = new ArrayList<>(chain);
+        for (String route : extra) {
+            if (!all.contains(route)) all.add(route);
+        }
+        return all;
+    }
+
+    /**
+     * Routes to try for {@code request}, best first. {@code chain} is the primary model
+     * followed by its configured fallbacks.
+     */
+    public List<String> plan(LlmRequest request, List<String> chain, Duration timeout, boolean streaming) {
+        Set<LlmProvider.Capability> required = required(request, streaming);
+        List<String> routes = new ArrayList<>();
+        for (String route : candidates(request.getProfile(), chain)) {
+            if (providers.supports(route, required)) routes.add(route);
+        }
+        if (routes.isEmpty()) return chain;
+        if (routes.size() == 1) return routes;
+
+        boolean interactive = request.getPriority() == LlmPriority.INTERACTIVE;
+        String primary = routes.get(0);
+        String chosen = choose(routes, chain, interactive, timeout);
+        if (chosen.equals(primary)) return routes;
+
+        routes.remove(chosen);
+        routes.add(0, chosen);
+        meterRegistry.counter("llm.route.shifted", "profile", request.getProfile().getKey(),
+                "from", primary, "to", chosen).increment();
+        logger.debug("Routing [{}] to {} instead of {}", request.getProfile().getKey(), chosen, primary);
+        return routes;
+    }
+
+    private String choose(List<String> routes, List<String> chain, boolean interactive, Duration timeout) {
+        String primary = routes.get(0);
+        Stats primaryStats = stats(primary);
+
+        if (!interactive && exploreRate > 0 && ThreadLocalRandom.current().nextDouble() < exploreRate) {
+            for (String route : routes) {
+                if (!chain.contains(route) && stats(route).samples() < minSamples) return route;
+            }
+        }
+        if (primaryStats.samples() < minSamples) return primary;
+
+        String best = primary;
+        double bestScore = score(primaryStats, interactive);
+        for (String route : routes.subList(1, routes.size())) {
+            Stats s = stats(route);
+            if (s.samples() < minSamples) continue;
+            double score = score(s, interactive);
+            if (score < bestScore) {
+                best = route;
+                bestScore = score;
+            }
+        }
+
+        double primaryScore = score(primaryStats, interactive);
+        if (!best.equals(primary) && primaryScore > switchRatio * bestScore) return best;
+
+        // Interactive calls must not sit out a slow provider until they time out
+        boolean slow = interactive && (primaryStats.p95() < 0
+                || primaryStats.p95() > slowFraction * timeout.toMillis());
+        if (slow) {
+            if (!best.equals(primary)) return best;
+            // Nothing measured is faster: try the next route that is not known to be slow
+            for (String route : routes.subList(1, routes.size())) {
+                Stats s = stats(route);
+                if (s.samples() < minSamples || (s.p95() >= 0 && s.p95() <= slowFraction * timeout.toMillis())) {
+                    return route;
+                }
+            }
+        }
+        return primary;
+    }
+
+    /** Lower is better; a route with only failures scores infinitely bad. */
+    double score(Stats s, boolean interactive) {
+        long latency = interactive ? s.p95() : s.p50();
+        if (latency < 0) return Double.POSITIVE_INFINITY;
+        return Math.max(1, latency) * (1 + errorPenalty * s.errorRate());
+    }
+
+    private static Set<LlmProvider.Capability> required(LlmRequest request, boolean streaming) {
+        Set<LlmProvider.Capability> required = EnumSet.noneOf(LlmProvider.Capability.class);
+        if (request.hasImages()) required.add(LlmProvider.Capability.MULTIMODAL);
+        if (request.getGenerationConfig().get("responseSchema") != null) {
+            required.add(LlmProvider.Capability.JSON_SCHEMA);
+        }
+        if (streaming) required.add(LlmProvider.Capability.STREAMING);
+        return required;
+    }
+
+    /* ====================== WINDOW ====================== */
+
+    /** Last {@value #WINDOW} outcomes; percentiles over successes inside the time window. */
+    private static final class Window {
+        private final long[] at = new long[WINDOW];
+        private final long[] latency = new long[WINDOW];
+        private final boolean[] ok = new boolean[WINDOW];
+        private int count;
+        private int next;
+
+        synchronized void add(long now, long latencyMs, boolean success) {
+            at[next] = now;
+            latency[next] = latencyMs;
+            ok[next] = success;
+            next = (next + 1) % WINDOW;
+            if (count < WINDOW) count++;
+        }
+
+        synchronized Stats snapshot(long since) {
+            long[] successes = new long[count];
+            int samples = 0;
+            int good = 0;
+            for (int i = 0; i < count; i++) {
+                if (at[i] < since) continue;
+                samples++;
+                if (ok[i]) successes[good++] = latency[i];
+            }
+            if (samples == 0) return Stats.EMPTY;
+            double errorRate = (samples - good) / (double) samples;
+            if (good == 0) return new Stats(samples, -1, -1, errorRate);
+            long[] sorted = Arrays.copyOf(successes, good);
+            Arrays.sort(sorted);
+            return new Stats(samples, percentile(sorted, 0.5), percentile(sorted, 0.95), errorRate);
+        }
+
+        private static long percentile(long[] sorted, double p) {
+            int idx = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+        }
+    }
+}
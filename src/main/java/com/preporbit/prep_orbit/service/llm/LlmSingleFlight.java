@@ -0,0 +1,91 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight coalescing of identical in-flight requests.
+ *
+ * Concurrent callers with the same request key share one upstream
+ * {@link CompletableFuture}; each caller gets its own view of it with its own
+ * timeout. Cancelling / timing out a view only detaches that caller; the
+ * upstream call is cancelled once the last waiter has gone away.
+ */
+@Component
+public class LlmSingleFlight {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmSingleFlight.class);
+
+    private final Map<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry meterRegistry;
+
+    public LlmSingleFlight(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        meterRegistry.gaugeMapSize("llm.singleflight.inflight", List.of(), inFlight);
+    }
+
+    /**
+     * Joins the in-flight call for {@code key}, starting it with {@code upstream}
+     * if none exists. The returned future times out after {@code timeout}.
+     */
+    public CompletableFuture<LlmResponse> execute(String key, Duration timeout,
+                                                  Supplier<CompletableFuture<LlmResponse>> upstream) {
+        while (true) {
+            Flight flight = inFlight.computeIfAbsent(key, k -> new Flight());
+            synchronized (flight) {
+                if (flight.closed) {
+                    continue; // last waiter just left; start a fresh flight
+                }
+                boolean leader = flight.upstream == null;
+                if (leader) {
+                    flight.upstream = upstream.get();
+                    flight.upstream.whenComplete((r, t) -> inFlight.remove(key, flight));
+                } else {
+                    meterRegistry.counter("llm.singleflight.coalesced").increment();
+                    logger.debug("Coalesced onto in-flight LLM call {}", key);
+                }
+                flight.waiters++;
+                return attach(key, flight, timeout);
+            }
+        }
+    }
+
+    private CompletableFuture<LlmResponse> attach(String key, Flight flight, Duration timeout) {
+        CompletableFuture<LlmResponse> view = new CompletableFuture<>();
+        flight.upstream.whenComplete((r, t) -> {
+            if (t != null) view.completeExceptionally(t);
+            else view.complete(r);
+        });
+        view.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .whenComplete((r, t) -> leave(key, flight));
+        return view;
+    }
+
+    private void leave(String key, Flight flight) {
+        synchronized (flight) {
+            flight.waiters--;
+            if (flight.waiters == 0 && !flight.upstream.isDone()) {
+                flight.closed = true;
+                inFlight.remove(key, flight);
+                flight.upstream.cancel(true);
+                logger.debug("All waiters left LLM call {}; cancelled upstream", key);
+            }
+        }
+    }
+
+    private static final class Flight {
+        CompletableFuture<LlmResponse> upstream;
+        int waiters;
+        boolean closed;
+    }
+}
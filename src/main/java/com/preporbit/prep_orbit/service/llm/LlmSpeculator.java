@@ -0,0 +1,204 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Speculative prefetch: when a flow step completes, the artifact the next step will most
+ * likely need is produced in the background, so the follow-up request is served from memory.
+ *
+ * Features:
+ *  - Results are keyed by {@code kind} + key and held for {@code llm.speculation.ttl};
+ *    a claim consumes the entry, unclaimed entries expire and are counted as wasted
+ *  - LLM speculation runs at BACKGROUND priority and is capped at
+ *    {@code llm.speculation.quota-share} of the model's RPM quota per rolling minute;
+ *    nothing is started while the limiter has queued requests
+ *  - Non-LLM work (e.g. speech synthesis) runs on virtual threads, capped at
+ *    {@code llm.speculation.tasks-per-minute}
+ *  - A claim waits up to {@code llm.speculation.claim-wait-ms} for work still in flight;
+ *    on a miss the caller simply does the live call
+ *  - Outcomes counted as {@code llm.speculation{kind, outcome}}
+ */
+@Component
+public class LlmSpeculator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmSpeculator.class);
+
+    private static final long WINDOW_MS = 60_000;
+
+    private record Entry(String kind, CompletableFuture<?> future, long expiresAtMs) {
+    }
+
+    private final LlmGateway gateway;
+    private final LlmConcurrencyLimiter limiter;
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final double quotaShare;
+    private final int tasksPerMinute;
+    private final long ttlMs;
+    private final int maxEntries;
+    private final long claimWaitMs;
+    private final String defaultModel;
+    private final int defaultRpm;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Insertion order == expiry order (one TTL), so expired entries are always at the head
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+    private final ArrayDeque<Long> llmStarts = new ArrayDeque<>();
+    private final ArrayDeque<Long> taskStarts = new ArrayDeque<>();
+
+    public LlmSpeculator(LlmGateway gateway,
+                         LlmConcurrencyLimiter limiter,
+                         Environment environment,
+                         MeterRegistry meterRegistry,
+                         @Value("${llm.speculation.enabled:true}") boolean enabled,
+                         @Value("${llm.speculation.quota-share:0.1}") double quotaShare,
+                         @Value("${llm.speculation.tasks-per-minute:30}") int tasksPerMinute,
+                         @Value("${llm.speculation.ttl:30m}") Duration ttl,
+                         @Value("${llm.speculation.max-entries:500}") int maxEntries,
+                         @Value("${llm.speculation.claim-wait-ms:2000}") long claimWaitMs,
+                         @Value("${llm.default-model:gemini-2.5-flash}") String defaultModel,
+                         @Value("${llm.limiter.default-rpm:600}") int defaultRpm) {
+        this.gateway = gateway;
+        this.limiter = limiter;
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.quotaShare = Math.max(0, Math.min(1, quotaShare));
+        this.tasksPerMinute = Math.max(0, tasksPerMinute);
+        this.ttlMs = ttl.toMillis();
+        this.maxEntries = Math.max(1, maxEntries);
+        this.claimWaitMs = Math.max(0, claimWaitMs);
+        this.defaultModel = defaultModel;
+        this.defaultRpm = defaultRpm;
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /**
+     * Generates {@code request} in the background and keeps its text under {@code kind}/{@code key}.
+     * Returns false when the speculation was not started (disabled, duplicate, busy, over quota).
+     */
+    public boolean speculate(String kind, String key, LlmRequest request) {
+        if (!enabled || limiter.currentQueued() > 0) {
+            count(kind, "skipped");
+            return false;
+        }
+        String model = request.getModel() != null ? request.getModel() : defaultModel;
+        int budget = (int) (quotaShare * environment.getProperty("llm.limiter.rpm." + model, Integer.class, defaultRpm));
+        return start(kind, key, llmStarts, budget, () -> gateway
+                .generate(request.toBuilder().priority(LlmPriority.BACKGROUND).build())
+                .thenApply(LlmResponse::getText));
+    }
+
+    /** Runs blocking non-LLM {@code work} (speech synthesis, rendering) in the background. */
+    public <T> boolean speculate(String kind, String key, Supplier<T> work) {
+        if (!enabled) {
+            count(kind, "skipped");
+            return false;
+        }
+        return start(kind, key, taskStarts, tasksPerMinute, () -> CompletableFuture.supplyAsync(work, workers));
+    }
+
+    /**
+     * The speculated result for {@code kind}/{@code key}, waiting briefly for work still in
+     * flight; null when there is none, it failed, or it is not ready in time.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T claim(String kind, String key) {
+        Entry entry;
+        synchronized (this) {
+            expire(System.currentTimeMillis());
+            entry = entries.remove(id(kind, key));
+        }
+        if (entry == null) {
+            count(kind, "miss");
+            return null;
+        }
+        try {
+            T value = (T) entry.future().get(claimWaitMs, TimeUnit.MILLISECONDS);
+            count(kind, value != null ? "hit" : "miss");
+            return value;
+        } catch (TimeoutException e) {
+            count(kind, "late");
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            count(kind, "failed");
+            return null;
+        }
+    }
+
+    /* ====================== INTERNALS ====================== */
+
+    private boolean start(String kind, String key, ArrayDeque<Long> starts, int perMinute,
+                          Supplier<CompletableFuture<?>> work) {
+        String id = id(kind, key);
+        long now = System.currentTimeMillis();
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        synchronized (this) {
+            expire(now);
+            if (entries.containsKey(id)) return false;
+            while (!starts.isEmpty() && starts.peekFirst() <= now - WINDOW_MS) starts.pollFirst();
+            if (starts.size() >= perMinute || entries.size() >= maxEntries) {
+                count(kind, "skipped");
+                return false;
+            }
+            starts.addLast(now);
+            // Reserved before the work starts so a concurrent duplicate sees it
+            entries.put(id, new Entry(kind, result, now + ttlMs));
+        }
+        count(kind, "started");
+        CompletableFuture<?> future;
+        try {
+            future = work.get();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                logger.debug("🔮 Speculation {} failed: {}", id, error.getMessage());
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        return true;
+    }
+
+    private void expire(long now) {
+        Iterator<Entry> it = entries.values().iterator();
+        while (it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.expiresAtMs() > now) break;
+            it.remove();
+            count(entry.kind(), "wasted");
+        }
+    }
+
+    private static String id(String kind, String key) {
+        return kind + ":" + key;
+    }
+
+    private void count(String kind, String outcome) {
+        meterRegistry.counter("llm.speculation", "kind", kind, "outcome", outcome).increment();
+    }
+}
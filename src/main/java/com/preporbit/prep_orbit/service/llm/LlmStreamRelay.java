@@ -0,0 +1,83 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Bridges streamed model output to Server-Sent Events.
+ *
+ * Event protocol (same for every streaming endpoint):
+ *  - {@code chunk}    partial model text, in order
+ *  - {@code complete} final persisted payload (JSON), then the stream closes
+ *  - {@code error}    {"error": message}, then the stream closes
+ */
+@Component
+public class LlmStreamRelay implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmStreamRelay.class);
+
+    /** Work that produces the final payload while pushing text deltas to the sink. */
+    @FunctionalInterface
+    public interface StreamingTask {
+        Object run(Consumer<String> onChunk) throws Exception;
+    }
+
+    private final long emitterTimeoutMs;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+
+    public LlmStreamRelay(@Value("${llm.stream.emitter-timeout-ms:300000}") long emitterTimeoutMs) {
+        this.emitterTimeoutMs = emitterTimeoutMs;
+    }
+
+    /**
+     * Opens an emitter and runs {@code task} off the request thread. The request thread
+     * returns immediately; the first bytes reach the client with the first model token.
+     */
+    public SseEmitter relay(String label, StreamingTask task) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        workers.submit(() -> {
+            try {
+                Object payload = task.run(chunk -> send(emitter, "chunk", chunk));
+                send(emitter, "complete", payload);
+                emitter.complete();
+            } catch (Exception e) {
+                logger.error("❌ Streaming {} failed: {}", label, e.getMessage());
+                send(emitter, "error", Map.of("error", String.valueOf(e.getMessage())));
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    /** Emitter that immediately delivers an already-available payload. */
+    public SseEmitter completed(Object payload) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        send(emitter, "complete", payload);
+        emitter.complete();
+        return emitter;
+    }
+
+    private void send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+        } catch (IOException | IllegalStateException e) {
+            // client went away; generation still completes and is persisted
+            logger.debug("SSE client disconnected during '{}' event: {}", event, e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
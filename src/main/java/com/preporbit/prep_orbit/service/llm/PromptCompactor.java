@@ -0,0 +1,304 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Token-budget aware prompt compaction for long inputs (resume text, transcripts).
+ *
+ * Features:
+ *  - Local token estimate (no tokenizer round trip)
+ *  - Boilerplate removal (page numbers, separator rules, "references on request"),
+ *    whitespace collapsing and duplicate-line removal
+ *  - Section-aware trimming: when still over budget, the highest-value sections
+ *    (contact header, experience, skills, projects, education) are kept whole and
+ *    the rest is cut at line boundaries, preserving original order
+ *  - Per-profile budgets: {@code llm.prompt.budget.<profile-key>} (tokens)
+ */
+@Component
+public class PromptCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptCompactor.class);
+
+    private static final int MIN_PARTIAL_TOKENS = 48;
+    private static final int MIN_DUPLICATE_CHARS = 20;
+    private static final String OMISSION_MARKER = "[…]";
+
+    private static final Pattern HORIZONTAL_WS = Pattern.compile("[ \\t\\x0B\\f\\u00A0]+");
+    private static final Pattern BULLET = Pattern.compile("^[•·▪●■◦‣⁃]\\s*");
+    private static final List<Pattern> BOILERPLATE = List.of(
+            Pattern.compile("(?i)^page\\s+\\d+(\\s+of\\s+\\d+)?$"),
+            Pattern.compile("^\\d+\\s*(/|of)\\s*\\d+$"),
+            Pattern.compile("^\\d{1,3}$"),
+            Pattern.compile("(?i)^references\\s+(are\\s+)?available\\s+(up)?on\\s+request\\.?$"),
+            Pattern.compile("(?i)^(curriculum\\s+vitae|resume|résumé|cv)$"),
+            Pattern.compile("^[\\p{Punct}\\s_=~*•·–—-]+$"));
+
+    /** Section heading keyword → value weight (higher survives trimming first). */
+    private static final Map<String, Integer> SECTION_WEIGHTS = Map.ofEntries(
+            Map.entry("experience", 5), Map.entry("employment", 5), Map.entry("history", 5),
+            Map.entry("skills", 4), Map.entry("technical", 4), Map.entry("projects", 4),
+            Map.entry("education", 3), Map.entry("summary", 3), Map.entry("objective", 2),
+            Map.entry("profile", 3), Map.entry("certification", 2), Map.entry("achievements", 2),
+            Map.entry("awards", 2), Map.entry("publications", 1), Map.entry("volunteer", 1),
+            Map.entry("interests", 0), Map.entry("hobbies", 0), Map.entry("references", 0),
+            Map.entry("declaration", 0));
+    /** Words that may accompany a keyword in a heading ("Professional Experience", "Work History"). */
+    private static final Set<String> HEADING_QUALIFIERS = Set.of(
+            "and", "&", "of", "work", "professional", "relevant", "key", "core", "personal", "academic",
+            "additional", "other", "selected", "career", "areas", "languages", "tools", "honors");
+    private static final Pattern HEADING_WORD = Pattern.compile("[^\\p{L}&]+");
+    private static final int HEADER_WEIGHT = 5;   // untitled first block: name / contact
+    private static final int DEFAULT_WEIGHT = 1;
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+    private final int defaultBudget;
+
+    public PromptCompactor(Environment environment,
+                           MeterRegistry meterRegistry,
+                           @Value("${llm.prompt.default-budget:8000}") int defaultBudget) {
+        this.environment = environment;
+        this.meterRegistry = meterRegistry;
+        this.defaultBudget = defaultBudget;
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /** Token budget for the variable part of a profile's prompt. */
+    public int budgetFor(LlmProfile profile) {
+        return environment.getProperty("llm.prompt.budget." + profile.getKey(), Integer.class, defaultBudget);
+    }
+
+    /**
+     * Rough token count: ~4 ASCII chars per token, one token per non-ASCII char.
+     * Deliberately pessimistic for code points outside Latin so budgets hold.
+     */
+    public static int estimateTokens(CharSequence text) {
+        if (text == null) return 0;
+        int ascii = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) < 128) ascii++;
+            else other++;
+        }
+        return (ascii + 3) / 4 + other;
+    }
+
+    /** Normalises and trims {@code text} to the profile's budget. */
+    public String compact(LlmProfile profile, String text) {
+        return compact(profile, text, budgetFor(profile));
+    }
+
+    public String compact(LlmProfile profile, String text, int budgetTokens) {
+        if (text == null || text.isBlank()) return "";
+        int before = estimateTokens(text);
+        String normalized = normalize(text);
+        String result = estimateTokens(normalized) <= budgetTokens
+                ? normalized
+                : trimSections(normalized, budgetTokens);
+
+        int after = estimateTokens(result);
+        if (after < before) {
+            meterRegistry.counter("llm.prompt.tokens.saved", "profile", profile.getKey()).increment(before - after);
+            logger.debug("✂️ Compacted [{}] prompt input {} → {} tokens (budget {})",
+                    profile.getKey(), before, after, budgetTokens);
+        }
+        return result;
+    }
+
+    /**
+     * Collapses whitespace, drops boilerplate and repeated lines, keeps single blank
+     * lines as section separators.
+     */
+    public String normalize(String text) {
+        if (text == null) return "";
+        StringBuilder out = new StringBuilder(text.length());
+        Set<String> seen = new HashSet<>();
+        boolean pendingBlank = false;
+
+        for (String rawLine : text.split("\\R")) {
+            String line = HORIZONTAL_WS.matcher(rawLine).replaceAll(" ").strip();
+            line = BULLET.matcher(line).replaceFirst("- ");
+            if (line.isEmpty()) {
+                pendingBlank = out.length() > 0;
+                continue;
+            }
+            if (isBoilerplate(line)) continue;
+            if (line.length() >= MIN_DUPLICATE_CHARS && !seen.add(line.toLowerCase(Locale.ROOT))) continue;
+
+            if (out.length() > 0) out.append(pendingBlank ? "\n\n" : "\n");
+            out.append(line);
+            pendingBlank = false;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Collapses whitespace only, keeping single blank lines; for conversational text
+     * where a bare "42" or "Resume" is a real answer, not page furniture.
+     */
+    public String collapseWhitespace(String text) {
+        if (text == null) return "";
+        StringBuilder out = new StringBuilder(text.length());
+        boolean pendingBlank = false;
+
+        for (String rawLine : text.split("\\R")) {
+            String line = HORIZONTAL_WS.matcher(rawLine).replaceAll(" ").strip();
+            if (line.isEmpty()) {
+                pendingBlank = out.length() > 0;
+                continue;
+            }
+            if (out.length() > 0) out.append(pendingBlank ? "\n\n" : "\n");
+            out.append(line);
+            pendingBlank = false;
+        }
+        return out.toString();
+    }
+
+    /** Cuts {@code text} at a line boundary so it fits {@code budgetTokens}. */
+    public String truncate(String text, int budgetTokens) {
+        if (text == null || estimateTokens(text) <= budgetTokens) return text == null ? "" : text;
+        StringBuilder out = new StringBuilder();
+        int used = 0;
+        for (String line : text.split("\n")) {
+            int lineTokens = estimateTokens(line) + 1;
+            if (used + lineTokens > budgetTokens) break;
+            if (out.length() > 0) out.append('\n');
+            out.append(line);
+            used += lineTokens;
+        }
+        if (out.isEmpty()) {
+            // single oversized line: hard cut
+            out.append(text, 0, Math.max(0, Math.min(text.length(), budgetTokens * 4)));
+        }
+        return out.append(' ').append(OMISSION_MARKER).toString();
+    }
+
+    /* ====================== SECTIONS ====================== */
+
+    private String trimSections(String text, int budgetTokens) {
+        List<Section> sections = split(text);
+        List<Section> byValue = new ArrayList<>(sections);
+        byValue.sort(Comparator.comparingInt((Section s) -> -s.weight).thenComparingInt(s -> s.index));
+
+        int remaining = budgetTokens;
+        for (Section s : byValue) {
+            if (s.weight == 0) continue;   // hobbies, references… never worth budget once trimming
+            if (s.tokens <= remaining) {
+                s.kept = s.text;
+                remaining -= s.tokens;
+            } else if (remaining >= MIN_PARTIAL_TOKENS) {
+                s.kept = truncate(s.text, remaining);
+                remaining -= estimateTokens(s.kept);
+            }
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (Section s : sections) {
+            if (s.kept == null) continue;
+            if (out.length() > 0) out.append("\n\n");
+            out.append(s.kept);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Blocks separated by blank lines or heading-looking lines. Every paragraph under a
+     * heading carries that heading's weight until the next heading; only the untitled
+     * first block gets the header weight.
+     */
+    private List<Section> split(String text) {
+        List<Section> sections = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int weight = HEADER_WEIGHT;
+        int sectionWeight = DEFAULT_WEIGHT;   // weight of the last heading seen
+
+        for (String line : text.split("\n", -1)) {
+            Integer headingWeight = headingWeight(line);
+            boolean boundary = line.isEmpty() || headingWeight != null;
+            if (boundary && !current.isEmpty()) {
+                sections.add(new Section(sections.size(), current.toString(), weight));
+                current.setLength(0);
+                weight = sectionWeight;
+            }
+            if (headingWeight != null) {
+                sectionWeight = headingWeight;
+                weight = headingWeight;
+            }
+            if (!line.isEmpty()) {
+                if (!current.isEmpty()) current.append('\n');
+                current.append(line);
+            }
+        }
+        if (!current.isEmpty()) sections.add(new Section(sections.size(), current.toString(), weight));
+        return sections;
+    }
+
+    /**
+     * Weight if the line looks like a section heading ("EXPERIENCE", "Technical Skills:"), else
+     * null. Every word must be a section keyword or a heading qualifier, so a role line such as
+     * "Technical Lead" or "Profile Manager" is content, not a heading; the strongest keyword wins.
+     */
+    static Integer headingWeight(String line) {
+        if (line.isEmpty() || line.length() > 40) return null;
+        String lower = line.toLowerCase(Locale.ROOT).replaceAll("[:\\-–—]+$", "").strip();
+        boolean shaped = line.equals(line.toUpperCase(Locale.ROOT)) || line.endsWith(":")
+                || lower.split(" ").length <= 3;
+        if (!shaped) return null;
+        Integer weight = null;
+        for (String word : HEADING_WORD.split(lower)) {
+            if (word.isEmpty()) continue;
+            Integer w = keywordWeight(word);
+            if (w != null) {
+                weight = weight == null ? w : Math.max(weight, w);
+            } else if (!HEADING_QUALIFIERS.contains(word)) {
+                return null;
+            }
+        }
+        return weight;
+    }
+
+    /** Weight of a heading word, allowing plural / -ing forms ("project", "certifications"). */
+    private static Integer keywordWeight(String word) {
+        for (Map.Entry<String, Integer> e : SECTION_WEIGHTS.entrySet()) {
+            if (word.startsWith(e.getKey()) || e.getKey().equals(word + "s")) return e.getValue();
+        }
+        return null;
+    }
+
+    private static boolean isBoilerplate(String line) {
+        for (Pattern p : BOILERPLATE) {
+            if (p.matcher(line).matches()) return true;
+        }
+        return false;
+    }
+
+    private static final class Section {
+        final int index;
+        final String text;
+        final int weight;
+        final int tokens;
+        String kept;
+
+        Section(int index, String text, int weight) {
+            this.index = index;
+            this.text = text;
+            this.weight = weight;
+            this.tokens = estimateTokens(text) + 1;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * A prompt template compiled once into alternating literal / placeholder segments.
+ *
+ * Placeholders are {@code {{name}}}. Rendering is a single presized StringBuilder
+ * pass over the segments (no regex, no per-placeholder String.replace copies).
+ * Everything before the line holding the first placeholder is fixed text and is
+ * rendered as the request {@link LlmRequest#getPreamble() preamble}, so every call of
+ * a template starts with the same prefix (Gemini's implicit prefix caching).
+ */
+public final class PromptTemplate {
+
+    private static final Pattern NAME = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    private final String name;
+    private final String version;
+    private final String preamble;
+    // literals.length == placeholders.length + 1; literal i precedes placeholder i
+    private final String[] literals;
+    private final String[] placeholders;
+    private final Set<String> placeholderNames;
+    private final int literalChars;
+
+    private PromptTemplate(String name, String version, String preamble,
+                           List<String> literals, List<String> placeholders) {
+        this.name = name;
+        this.version = version;
+        this.preamble = preamble;
+        this.literals = literals.toArray(String[]::new);
+        this.placeholders = placeholders.toArray(String[]::new);
+        this.placeholderNames = Collections.unmodifiableSet(new LinkedHashSet<>(placeholders));
+        this.literalChars = literals.stream().mapToInt(String::length).sum();
+    }
+
+    /**
+     * Parses {@code source}; throws {@link IllegalArgumentException} on an unclosed
+     * {@code {{} or a placeholder name that is not an identifier.
+     */
+    public static PromptTemplate compile(String name, String version, String source) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int pos = 0;
+        while (true) {
+            int open = source.indexOf("{{", pos);
+            if (open < 0) break;
+            int close = source.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder at offset " + open
+                        + " in prompt template " + name + "@" + version);
+            }
+            String placeholder = source.substring(open + 2, close).strip();
+            if (!NAME.matcher(placeholder).matches()) {
+                throw new IllegalArgumentException("Invalid placeholder {{" + placeholder
+                        + "}} in prompt template " + name + "@" + version);
+            }
+            literals.add(source.substring(pos, open));
+            placeholders.add(placeholder);
+            pos = close + 2;
+        }
+        literals.add(source.substring(pos));
+
+        // Split the first literal at the start of the line holding the first placeholder
+        String first = literals.get(0);
+        int cut = placeholders.isEmpty() ? first.length() : first.lastIndexOf('\n') + 1;
+        literals.set(0, first.substring(cut));
+        return new PromptTemplate(name, version, first.substring(0, cut), literals, placeholders);
+    }
+
+    /**
+     * Renders the template. Every placeholder must have a (non-null) value;
+     * extra entries in {@code values} are ignored.
+     */
+    public Rendered render(Map<String, ?> values) {
+        int capacity = literalChars;
+        for (String placeholder : placeholders) {
+            Object value = values.get(placeholder);
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for {{" + placeholder
+                        + "}} in prompt template " + name + "@" + version);
+            }
+            if (value instanceof CharSequence cs) capacity += cs.length();
+        }
+
+        StringBuilder out = new StringBuilder(capacity + 16);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            Object value = values.get(placeholders[i]);
+            if (value instanceof CharSequence cs) out.append(cs);
+            else out.append(value);
+        }
+        out.append(literals[literals.length - 1]);
+        return new Rendered(name, version, preamble, out.toString());
+    }
+
+    public String getName() { return name; }
+
+    public String getVersion() { return version; }
+
+    public Set<String> getPlaceholders() { return placeholderNames; }
+
+    /** Fixed leading text (identical for every render). */
+    public String getPreamble() { return preamble; }
+
+    /** A rendered prompt: fixed preamble plus the variable remainder, tagged with its template. */
+    public record Rendered(String template, String version, String preamble, String prompt) {
+
+        /** Preamble and prompt as one string, for callers that don't split them. */
+        public String text() {
+            return preamble + prompt;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PromptTemplateRegistry – every prompt template, loaded and compiled once at startup.
+ *
+ * Features:
+ *  - Loads {@code classpath*:prompts/*.txt} through the resource stream (works
+ *    inside the packaged jar, unlike {@code ClassPathResource.getFile()})
+ *  - Compiles each file into a {@link PromptTemplate} (segment list, no per-call parsing)
+ *  - Fails startup on malformed placeholders, or when versions of one template
+ *    disagree on their placeholders
+ *  - Versioned templates for A/B runs: {@code <name>.txt} is {@code v1},
+ *    {@code <name>.v2.txt} is {@code v2}; traffic split by
+ *    {@code llm.prompt.template.<name>.weights=v1:90,v2:10} (sticky per key when one
+ *    is given). LlmGateway tags latency and output size with template and version.
+ */
+@Component
+public class PromptTemplateRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptTemplateRegistry.class);
+
+    static final String LOCATION = "classpath*:prompts/*.txt";
+    private static final Pattern FILE_NAME = Pattern.compile("([a-z0-9-]+)(?:\\.(v\\d+))?\\.txt");
+    private static final String DEFAULT_VERSION = "v1";
+
+    private final Map<String, Variants> templates;
+
+    @Autowired
+    public PromptTemplateRegistry(Environment environment) {
+        this(environment, new PathMatchingResourcePatternResolver());
+    }
+
+    PromptTemplateRegistry(Environment environment, ResourcePatternResolver resolver) {
+        Map<String, Map<String, PromptTemplate>> byName = new TreeMap<>();
+        try {
+            for (Resource resource : resolver.getResources(LOCATION)) {
+                String fileName = resource.getFilename();
+                Matcher m = fileName == null ? null : FILE_NAME.matcher(fileName);
+                if (m == null || !m.matches()) {
+                    throw new IllegalStateException("Unexpected prompt template file name: " + fileName
+                            + " (expected <name>.txt or <name>.v<N>.txt)");
+                }
+                String name = m.group(1);
+                String version = m.group(2) == null ? DEFAULT_VERSION : m.group(2);
+                PromptTemplate template = PromptTemplate.compile(name, version, read(resource));
+                if (byName.computeIfAbsent(name, k -> new TreeMap<>()).putIfAbsent(version, template) != null) {
+                    throw new IllegalStateException("Duplicate prompt template " + name + "@" + version);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load prompt templates from " + LOCATION, e);
+        }
+
+        Map<String, Variants> compiled = new TreeMap<>();
+        byName.forEach((name, versions) -> {
+            validate(name, versions);
+            String weights = environment.getProperty("llm.prompt.template." + name + ".weights", "");
+            compiled.put(name, new Variants(name, versions, weights));
+        });
+        this.templates = Collections.unmodifiableMap(compiled);
+        logger.info("📝 Loaded {} prompt template(s): {}", templates.size(), templates.values());
+    }
+
+    /* ====================== PUBLIC API ====================== */
+
+    /** Renders {@code name} with the version picked by the A/B weights. */
+    public PromptTemplate.Rendered render(String name, Map<String, ?> values) {
+        return select(name, null).render(values);
+    }
+
+    /** Same, with a sticky key (e.g. the user) so one caller always sees the same version. */
+    public PromptTemplate.Rendered render(String name, String stickyKey, Map<String, ?> values) {
+        return select(name, stickyKey).render(values);
+    }
+
+    public PromptTemplate select(String name, String stickyKey) {
+        return variants(name).pick(stickyKey);
+    }
+
+    public PromptTemplate get(String name, String version) {
+        PromptTemplate template = variants(name).versions.get(version);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown prompt template version " + name + "@" + version);
+        }
+        return template;
+    }
+
+    public Set<String> names() {
+        return templates.keySet();
+    }
+
+    /* ====================== HELPERS ====================== */
+
+    private Variants variants(String name) {
+        Variants variants = templates.get(name);
+        if (variants == null) throw new IllegalArgumentException("Unknown prompt template: " + name);
+        return variants;
+    }
+
+    private static void validate(String name, Map<String, PromptTemplate> versions) {
+        Set<String> expected = null;
+        for (PromptTemplate t : versions.values()) {
+            if (expected == null) {
+                expected = t.getPlaceholders();
+            } else if (!expected.equals(t.getPlaceholders())) {
+                throw new IllegalStateException("Prompt template " + name + "@" + t.getVersion()
+                        + " uses placeholders " + t.getPlaceholders() + " but other versions use " + expected);
+            }
+        }
+    }
+
+    private static String read(Resource resource) throws IOException {
+        try (InputStream in = resource.getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /** Versions of one template plus the cumulative weight table used to pick one. */
+    private static final class Variants {
+        final String name;
+        final Map<String, PromptTemplate> versions;
+        final List<PromptTemplate> slots = new ArrayList<>();
+        final List<Integer> cumulative = new ArrayList<>();
+        int total;
+
+        Variants(String name, Map<String, PromptTemplate> versions, String weights) {
+            this.name = name;
+            this.versions = versions;
+            for (String entry : weights.split(",")) {
+                if (entry.isBlank()) continue;
+                String[] kv = entry.trim().split(":");
+                PromptTemplate t = versions.get(kv[0].trim());
+                int weight = kv.length > 1 ? Integer.parseInt(kv[1].trim()) : 1;
+                if (t == null) {
+                    throw new IllegalStateException("llm.prompt.template." + name + ".weights names unknown version " + kv[0]);
+                }
+                if (weight <= 0) continue;
+                total += weight;
+                slots.add(t);
+                cumulative.add(total);
+            }
+            if (slots.isEmpty()) {
+                // No split configured: v1 when present, otherwise the lowest version
+                PromptTemplate fallback = versions.getOrDefault(DEFAULT_VERSION, versions.values().iterator().next());
+                slots.add(fallback);
+                cumulative.add(total = 1);
+            }
+        }
+
+        PromptTemplate pick(String stickyKey) {
+            if (slots.size() == 1) return slots.get(0);
+            int roll = stickyKey == null
+                    ? ThreadLocalRandom.current().nextInt(total)
+                    : Math.floorMod(stickyKey.hashCode() * 31 + name.hashCode(), total);
+            for (int i = 0; i < slots.size(); i++) {
+                if (roll < cumulative.get(i)) return slots.get(i);
+            }
+            return slots.get(slots.size() - 1);
+        }
+
+        @Override
+        public String toString() {
+            return name + versions.keySet();
+        }
+    }
+}
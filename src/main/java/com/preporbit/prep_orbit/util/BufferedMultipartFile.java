@@ -0,0 +1,56 @@
+package com.preporbit.prep_orbit.util;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+/**
+ * In-memory copy of an uploaded file.
+ *
+ * Unlike a multipart upload it is not cleaned up when the request ends. Uploads that
+ * outlive the request are spooled to disk instead ({@link SpooledMultipartFile}).
+ */
+public class BufferedMultipartFile implements MultipartFile {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final byte[] content;
+
+    public BufferedMultipartFile(String name, String originalFilename, String contentType, byte[] content) {
+        this.name = name;
+        this.originalFilename = originalFilename;
+        this.contentType = contentType;
+        this.content = content != null ? content : new byte[0];
+    }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public String getOriginalFilename() { return originalFilename; }
+
+    @Override
+    public String getContentType() { return contentType; }
+
+    @Override
+    public boolean isEmpty() { return content.length == 0; }
+
+    @Override
+    public long getSize() { return content.length; }
+
+    @Override
+    public byte[] getBytes() { return content; }
+
+    @Override
+    public InputStream getInputStream() { return new ByteArrayInputStream(content); }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.write(dest.toPath(), content);
+    }
+}
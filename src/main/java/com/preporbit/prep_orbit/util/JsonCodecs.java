@@ -0,0 +1,101 @@
+package com.preporbit.prep_orbit.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pre-resolved {@link ObjectReader}s / {@link ObjectWriter}s over the one shared
+ * application {@link ObjectMapper} (see {@code JacksonConfig}).
+ *
+ * Readers and writers are immutable and thread-safe; creating one for a type
+ * resolves its root (de)serializer, so holding them avoids the per-call cache
+ * lookups of {@code mapper.readValue(..., Type.class)} and, for types passed to
+ * {@link #warm}, moves serializer construction (and Blackbird's accessor
+ * generation) to startup instead of the first request.
+ */
+public final class JsonCodecs {
+
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+    private static final TypeReference<Map<String, Object>> OBJECT_MAP = new TypeReference<>() {};
+
+    private final ObjectMapper mapper;
+    private final Map<JavaType, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<JavaType, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    private final ObjectReader treeReader;
+    private final ObjectReader stringListReader;
+    private final ObjectReader mapReader;
+    private final ObjectWriter writer;
+
+    public JsonCodecs(ObjectMapper mapper) {
+        this.mapper = mapper;
+        this.treeReader = reader(JsonNode.class);
+        this.stringListReader = reader(STRING_LIST);
+        this.mapReader = reader(OBJECT_MAP);
+        this.writer = mapper.writer();
+    }
+
+    /** Resolves readers and writers for {@code types} now. */
+    public JsonCodecs warm(Collection<Class<?>> types) {
+        for (Class<?> type : types) {
+            reader(type);
+            writer(type);
+        }
+        return this;
+    }
+
+    /* ====================== READERS ====================== */
+
+    public ObjectReader reader(JavaType type) {
+        return readers.computeIfAbsent(type, mapper::readerFor);
+    }
+
+    public ObjectReader reader(Class<?> type) {
+        return reader(mapper.constructType(type));
+    }
+
+    public ObjectReader reader(TypeReference<?> type) {
+        return reader(mapper.getTypeFactory().constructType(type));
+    }
+
+    public ObjectReader tree() {
+        return treeReader;
+    }
+
+    public ObjectReader stringList() {
+        return stringListReader;
+    }
+
+    /** {@code Map<String, Object>} reader. */
+    public ObjectReader map() {
+        return mapReader;
+    }
+
+    /* ====================== WRITERS ====================== */
+
+    public ObjectWriter writer(JavaType type) {
+        return writers.computeIfAbsent(type, mapper::writerFor);
+    }
+
+    public ObjectWriter writer(Class<?> type) {
+        return writer(mapper.constructType(type));
+    }
+
+    /** Untyped writer, for values whose runtime type varies (maps, lists of mixed values). */
+    public ObjectWriter writer() {
+        return writer;
+    }
+
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+}
@@ -0,0 +1,305 @@
+package com.preporbit.prep_orbit.util;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass, tolerant extraction of the first JSON value from model output.
+ *
+ * Features:
+ *  - Skips {@code <think>…</think>} blocks, markdown fences and leading prose
+ *  - Streams only the first balanced object / array to the parser and stops at its
+ *    closing bracket, so trailing text is never read (no substring copies)
+ *  - Repairs common defects on the fly: trailing commas before {@code }} / {@code ]},
+ *    smart double quotes used as string delimiters, raw newlines / tabs inside strings
+ *  - Feeds Jackson through a {@link Reader}: {@link #read(ObjectReader, CharSequence)}.
+ *    A tight pre-scan detects the common already-valid case, which is bulk-copied;
+ *    only output that needs repair goes through the per-character state machine
+ */
+public final class JsonExtractor {
+
+    private static final String THINK_OPEN = "<think>";
+    private static final String THINK_CLOSE = "</think>";
+
+    private JsonExtractor() {
+    }
+
+    /** Index of the first '{' or '[' outside think blocks, or -1. */
+    public static int findStart(CharSequence text) {
+        if (text == null) return -1;
+        int len = text.length();
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '{' || c == '[') return i;
+            if (c == '<' && regionMatches(text, i, THINK_OPEN)) {
+                int close = indexOf(text, THINK_CLOSE, i + THINK_OPEN.length());
+                if (close < 0) return -1; // unterminated thinking: nothing after it
+                i = close + THINK_CLOSE.length() - 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Repaired JSON text of the first value, or null when there is none. */
+    public static Reader reader(CharSequence text) {
+        int start = findStart(text);
+        if (start < 0) return null;
+        int end = cleanEnd(text, start);
+        return end < 0 ? new ValueReader(text, start) : new RegionReader(text, start, end);
+    }
+
+    /**
+     * Parses the first JSON value with {@code reader}. Returns null when the text
+     * holds no JSON value; malformed JSON surfaces as Jackson's IOException.
+     */
+    public static <T> T read(ObjectReader reader, CharSequence text) throws IOException {
+        int start = findStart(text);
+        if (start < 0) return null;
+        int end = cleanEnd(text, start);
+        Reader source = end < 0 ? new ValueReader(text, start) : new RegionReader(text, start, end);
+        return reader.readValue(source);
+    }
+
+    /** The first JSON value as a (repaired) string, or null. */
+    public static String extract(CharSequence text) {
+        int start = findStart(text);
+        if (start < 0) return null;
+        int end = cleanEnd(text, start);
+        if (end >= 0) return text.subSequence(start, end).toString();
+        ValueReader source = new ValueReader(text, start);
+        StringBuilder out = new StringBuilder(Math.min(text.length() - start, 1 << 16));
+        int c;
+        while ((c = source.next()) >= 0) out.append((char) c);
+        return out.toString();
+    }
+
+    /**
+     * Tight pre-scan from the opening bracket. Returns the end (exclusive) of the
+     * value when it needs no repair, or -1 when it does (smart quotes, raw control
+     * characters inside strings, a trailing comma) and must go through {@link ValueReader}.
+     * A truncated value ends at the end of the text.
+     */
+    private static int cleanEnd(CharSequence text, int start) {
+        int len = text.length();
+        int depth = 0;
+        boolean inString = false;
+        int lastSignificant = 0;
+        for (int i = start; i < len; i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '"') inString = false;
+                else if (c == '\\') i++;
+                else if (c < 0x20) return -1;
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> depth++;
+                case '}', ']' -> {
+                    if (lastSignificant == ',') return -1;
+                    if (--depth <= 0) return i + 1;
+                }
+                case '“', '”' -> {
+                    return -1;
+                }
+                default -> {
+                    if (c <= ' ') continue;
+                }
+            }
+            lastSignificant = c;
+        }
+        return len;
+    }
+
+    /* ====================== READERS ====================== */
+
+    /** Bulk-copies an already-valid region of the text (no per-character state machine). */
+    private static final class RegionReader extends Reader {
+        private final CharSequence text;
+        private final int end;
+        private int pos;
+
+        RegionReader(CharSequence text, int start, int end) {
+            this.text = text;
+            this.pos = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int n) {
+            if (pos >= end) return n == 0 ? 0 : -1;
+            int count = Math.min(n, end - pos);
+            if (text instanceof String s) {
+                s.getChars(pos, pos + count, buf, off);
+            } else {
+                for (int i = 0; i < count; i++) buf[off + i] = text.charAt(pos + i);
+            }
+            pos += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+            pos = end;
+        }
+    }
+
+    /** Walks the text once from the opening bracket, emitting repaired JSON until depth returns to 0. */
+    private static final class ValueReader extends Reader {
+        private final CharSequence text;
+        private final int len;
+        private int pos;
+        private int depth;
+        private boolean inString;
+        private boolean smartString;  // opened by “ or ”: closed by either (or a plain quote)
+        private boolean escaped;
+        private boolean done;
+        private int pending = -1;     // second char of a two-char replacement (escape sequences)
+
+        ValueReader(CharSequence text, int start) {
+            this.text = text;
+            this.len = text.length();
+            this.pos = start;
+        }
+
+        int next() {
+            if (pending >= 0) {
+                int c = pending;
+                pending = -1;
+                return c;
+            }
+            while (!done && pos < len) {
+                char c = text.charAt(pos++);
+                if (inString) {
+                    if (escaped) {
+                        escaped = false;
+                        return c;
+                    }
+                    switch (c) {
+                        case '\\' -> {
+                            escaped = true;
+                            return c;
+                        }
+                        case '"' -> {
+                            inString = false;
+                            return c;
+                        }
+                        case '“', '”' -> {
+                            if (smartString) {
+                                inString = false;
+                                return '"';
+                            }
+                            return c;
+                        }
+                        case '\n' -> {
+                            return escape('n');
+                        }
+                        case '\r' -> {
+                            return escape('r');
+                        }
+                        case '\t' -> {
+                            return escape('t');
+                        }
+                        default -> {
+                            return c < 0x20 ? ' ' : c;
+                        }
+                    }
+                }
+                switch (c) {
+                    case '"', '“', '”' -> {
+                        inString = true;
+                        smartString = c != '"';
+                        return '"';
+                    }
+                    case '{', '[' -> {
+                        depth++;
+                        return c;
+                    }
+                    case '}', ']' -> {
+                        if (--depth <= 0) done = true;
+                        return c;
+                    }
+                    case ',' -> {
+                        if (closesNext()) continue; // trailing comma
+                        return c;
+                    }
+                    default -> {
+                        return c;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        private int escape(char code) {
+            pending = code;
+            return '\\';
+        }
+
+        private boolean closesNext() {
+            for (int i = pos; i < len; i++) {
+                char c = text.charAt(i);
+                if (!Character.isWhitespace(c)) return c == '}' || c == ']';
+            }
+            return false;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int n) {
+            int count = 0;
+            while (count < n) {
+                // Fast path: runs of ordinary characters are copied without the state machine
+                if (pending < 0 && !escaped && !done) {
+                    int p = pos;
+                    int limit = Math.min(len, p + (n - count));
+                    while (p < limit) {
+                        char c = text.charAt(p);
+                        if (inString ? c == '"' || c == '\\' || c < 0x20 || c == '“' || c == '”'
+                                : c == '"' || c == '{' || c == '[' || c == '}' || c == ']' || c == ','
+                                || c == '“' || c == '”') {
+                            break;
+                        }
+                        buf[off + count++] = c;
+                        p++;
+                    }
+                    pos = p;
+                    if (count == n) break;
+                }
+                int c = next();
+                if (c < 0) break;
+                buf[off + count++] = (char) c;
+            }
+            return count == 0 && n > 0 ? -1 : count;
+        }
+
+        @Override
+        public int read() {
+            return next();
+        }
+
+        @Override
+        public void close() {
+            done = true;
+        }
+    }
+
+    /* ====================== HELPERS ====================== */
+
+    private static boolean regionMatches(CharSequence text, int offset, String token) {
+        if (offset + token.length() > text.length()) return false;
+        for (int i = 0; i < token.length(); i++) {
+            if (text.charAt(offset + i) != token.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence text, String token, int from) {
+        int last = text.length() - token.length();
+        for (int i = from; i <= last; i++) {
+            if (regionMatches(text, i, token)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,277 @@
+package com.preporbit.prep_orbit.util;
+
+/**
+ * Structural repair of model JSON that {@link JsonExtractor} could not parse.
+ *
+ * Features:
+ *  - Truncated output: keeps every complete element, drops the partial tail and closes
+ *    the open brackets. Inside an open array the partial element is dropped whole (a half
+ *    question is worse than none); outside arrays an object keeps its complete fields
+ *  - Missing closing braces / brackets and mismatched closers
+ *  - Unescaped double quotes inside strings (a quote only ends a string when what follows
+ *    can continue the JSON)
+ *  - Missing commas and colons, trailing / doubled commas, unquoted keys, smart quotes,
+ *    raw newlines
+ *  - Single pass over the first JSON value; trailing text is ignored
+ */
+public final class JsonRepair {
+
+    /** Repaired JSON text; {@code truncated} when the input ended inside the value. */
+    public record Result(String json, boolean truncated) {
+    }
+
+    private static final int MAX_DEPTH = 256;
+
+    private JsonRepair() {
+    }
+
+    /** Best-effort valid JSON for the first value in {@code text}, or null when there is none. */
+    public static Result repair(CharSequence text) {
+        int start = JsonExtractor.findStart(text);
+        return start < 0 ? null : new Repairer(text).run(start);
+    }
+
+    /* ====================== REPAIRER ====================== */
+
+    private static final class Repairer {
+        // What the innermost container expects next
+        private static final int KEY = 0;
+        private static final int COLON = 1;
+        private static final int VALUE = 2;
+        private static final int AFTER_VALUE = 3;
+
+        private final CharSequence text;
+        private final StringBuilder out;
+        private final char[] stack = new char[MAX_DEPTH];
+        private final int[] state = new int[MAX_DEPTH];
+        private final int[] safe = new int[MAX_DEPTH];  // out length after the last complete member
+        private int depth;
+
+        Repairer(CharSequence text) {
+            this.text = text;
+            this.out = new StringBuilder(text.length() + 16);
+        }
+
+        Result run(int start) {
+            int len = text.length();
+            boolean inString = false;
+            boolean smartString = false;
+            boolean bare = false;       // number / true / false / null
+            int bareStart = 0;
+            boolean bareKey = false;    // unquoted key, emitted quoted
+
+            for (int i = start; i < len; i++) {
+                char c = text.charAt(i);
+
+                if (inString) {
+                    if (c == '\\') {
+                        if (i + 1 < len) out.append(c).append(text.charAt(++i));
+                        continue;
+                    }
+                    if (c == '"' || (smartString && (c == '“' || c == '”'))) {
+                        boolean key = state[depth - 1] == KEY;
+                        if (closesString(i + 1, key)) {
+                            inString = false;
+                            out.append('"');
+                            if (key) {
+                                state[depth - 1] = COLON;
+                            } else {
+                                completed();
+                            }
+                        } else {
+                            out.append("\\\"");
+                        }
+                        continue;
+                    }
+                    switch (c) {
+                        case '\n' -> out.append("\\n");
+                        case '\r' -> out.append("\\r");
+                        case '\t' -> out.append("\\t");
+                        default -> out.append(c < 0x20 ? ' ' : c);
+                    }
+                    continue;
+                }
+
+                if (isBare(c) || c == '_') {
+                    if (state[depth - 1] == KEY || bareKey) {
+                        if (!bareKey) out.append('"');
+                        bareKey = true;
+                        out.append(c);
+                        continue;
+                    }
+                    if (!bare) {
+                        separate();
+                        bare = true;
+                        bareStart = out.length();
+                    }
+                    out.append(c);
+                    continue;
+                }
+                if (bareKey) {
+                    bareKey = false;
+                    out.append('"');
+                    state[depth - 1] = COLON;
+                }
+                if (bare) {
+                    bare = false;
+                    completed();
+                }
+
+                switch (c) {
+                    case '"', '“', '”' -> {
+                        separate();
+                        inString = true;
+                        smartString = c != '"';
+                        out.append('"');
+                    }
+                    case '{', '[' -> {
+                        if (depth == MAX_DEPTH) return null;
+                        if (depth > 0) {
+                            if (state[depth - 1] == KEY) continue; // a container can't be a key
+                            separate();
+                        }
+                        out.append(c);
+                        stack[depth] = c;
+                        state[depth] = c == '{' ? KEY : VALUE;
+                        safe[depth] = out.length();
+                        depth++;
+                    }
+                    case '}', ']' -> {
+                        // The open container is closed with its own bracket; dangling keys / commas are cut
+                        out.setLength(safe[depth - 1]);
+                        out.append(stack[depth - 1] == '{' ? '}' : ']');
+                        if (--depth == 0) return new Result(out.toString(), false);
+                        completed();
+                    }
+                    case ',' -> {
+                        if (state[depth - 1] == AFTER_VALUE) {
+                            out.append(',');
+                            state[depth - 1] = stack[depth - 1] == '{' ? KEY : VALUE;
+                        }
+                    }
+                    case ':' -> {
+                        if (state[depth - 1] == COLON) {
+                            out.append(':');
+                            state[depth - 1] = VALUE;
+                        }
+                    }
+                    default -> {
+                        if (Character.isWhitespace(c)) out.append(c);
+                    }
+                }
+            }
+            if (bare && isLiteral(out, bareStart)) {
+                // A closing bracket was all that was missing after it
+                completed();
+            }
+            return truncated();
+        }
+
+        /**
+         * Text ended inside the value: cut back to the last complete member and close up.
+         * Only closing brackets missing (nothing cut) does not count as truncated.
+         */
+        private Result truncated() {
+            int cut = depth - 1;
+            for (int d = depth - 1; d >= 0; d--) {
+                if (stack[d] == '[') {
+                    cut = d;
+                    break;
+                }
+            }
+            boolean lost = false;
+            for (int k = safe[cut]; k < out.length() && !lost; k++) {
+                lost = !Character.isWhitespace(out.charAt(k));
+            }
+            out.setLength(safe[cut]);
+            for (int d = cut; d >= 0; d--) {
+                out.append(stack[d] == '{' ? '}' : ']');
+            }
+            return new Result(out.toString(), lost);
+        }
+
+        /** A value just ended in the innermost container: it is safe to cut after it. */
+        private void completed() {
+            safe[depth - 1] = out.length();
+            state[depth - 1] = AFTER_VALUE;
+        }
+
+        /** Inserts the comma or colon a model left out before the next token. */
+        private void separate() {
+            if (state[depth - 1] == AFTER_VALUE) {
+                out.append(',');
+                state[depth - 1] = stack[depth - 1] == '{' ? KEY : VALUE;
+            } else if (state[depth - 1] == COLON) {
+                out.append(':');
+                state[depth - 1] = VALUE;
+            }
+        }
+
+        /**
+         * Whether a quote ends the string: the next significant character must be able to
+         * follow it (':' after a key; ',', '}' or ']' after a value, and a ',' must lead to
+         * another member rather than prose; an unquoted key followed by ':' counts as a member).
+         */
+        private boolean closesString(int from, boolean key) {
+            int i = skipWhitespace(from);
+            if (i >= text.length()) return true;
+            char c = text.charAt(i);
+            if (key) return c == ':';
+            if (c == '}' || c == ']') return true;
+            if (c == '"' && stack[depth - 1] == '{') {
+                // Comma left out before the next key: "value" "key": …
+                int close = indexOf('"', i + 1);
+                return close > 0 && skipWhitespace(close + 1) < text.length()
+                        && text.charAt(skipWhitespace(close + 1)) == ':';
+            }
+            if (c != ',') return false;
+            int j = skipWhitespace(i + 1);
+            if (j >= text.length()) return true;
+            char n = text.charAt(j);
+            return n == '"' || n == '“' || n == '”' || n == '{' || n == '[' || n == '}' || n == ']' || n == ','
+                    || n == '-' || Character.isDigit(n)
+                    || startsWith(j, "true") || startsWith(j, "false") || startsWith(j, "null")
+                    || unquotedKeyAt(j);
+        }
+
+        /** An identifier followed by ':' (a key the model left unquoted) starts at {@code i}. */
+        private boolean unquotedKeyAt(int i) {
+            if (stack[depth - 1] != '{' || !Character.isJavaIdentifierStart(text.charAt(i))) return false;
+            int end = i + 1;
+            while (end < text.length() && (Character.isJavaIdentifierPart(text.charAt(end))
+                    || text.charAt(end) == '-')) end++;
+            int colon = skipWhitespace(end);
+            return colon < text.length() && text.charAt(colon) == ':';
+        }
+
+        private int indexOf(char c, int from) {
+            for (int i = from; i < text.length(); i++) {
+                if (text.charAt(i) == c) return i;
+            }
+            return -1;
+        }
+
+        private int skipWhitespace(int i) {
+            while (i < text.length() && Character.isWhitespace(text.charAt(i))) i++;
+            return i;
+        }
+
+        private boolean startsWith(int offset, String token) {
+            if (offset + token.length() > text.length()) return false;
+            for (int k = 0; k < token.length(); k++) {
+                if (text.charAt(offset + k) != token.charAt(k)) return false;
+            }
+            return true;
+        }
+
+        private static boolean isLiteral(StringBuilder out, int from) {
+            String token = out.substring(from);
+            return token.equals("true") || token.equals("false") || token.equals("null")
+                    || token.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?");
+        }
+
+        private static boolean isBare(char c) {
+            return Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.';
+        }
+    }
+}
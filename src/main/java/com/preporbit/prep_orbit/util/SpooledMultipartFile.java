@@ -0,0 +1,84 @@
+package com.preporbit.prep_orbit.util;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Copy of an uploaded file in a private temp file.
+ *
+ * Like {@link BufferedMultipartFile} it outlives the request, but the content stays on disk
+ * until read, so queued work does not pin whole uploads on the heap. {@link #close} deletes
+ * the file.
+ */
+public class SpooledMultipartFile implements MultipartFile, AutoCloseable {
+
+    private final String name;
+    private final String originalFilename;
+    private final String contentType;
+    private final Path path;
+    private final long size;
+
+    private SpooledMultipartFile(MultipartFile file, Path path, long size) {
+        this.name = file.getName();
+        this.originalFilename = file.getOriginalFilename();
+        this.contentType = file.getContentType();
+        this.path = path;
+        this.size = size;
+    }
+
+    /** Streams {@code file} into a new temp file under {@code dir}. */
+    public static SpooledMultipartFile spool(MultipartFile file, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Path path = Files.createTempFile(dir, "upload-", ".tmp");
+        try (InputStream in = file.getInputStream()) {
+            long size = Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+            return new SpooledMultipartFile(file, path, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(path);
+            throw e;
+        }
+    }
+
+    public Path getPath() { return path; }
+
+    @Override
+    public String getName() { return name; }
+
+    @Override
+    public String getOriginalFilename() { return originalFilename; }
+
+    @Override
+    public String getContentType() { return contentType; }
+
+    @Override
+    public boolean isEmpty() { return size == 0; }
+
+    @Override
+    public long getSize() { return size; }
+
+    @Override
+    public byte[] getBytes() throws IOException { return Files.readAllBytes(path); }
+
+    @Override
+    public InputStream getInputStream() throws IOException { return Files.newInputStream(path); }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        Files.copy(path, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("⚠️ Failed to delete spooled upload " + path + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.preporbit.prep_orbit.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Scoped fork/join of independent pipeline stages on virtual threads, with the semantics of
+ * {@code StructuredTaskScope.ShutdownOnFailure} (a preview API in Java 21) on the stable API.
+ *
+ * Features:
+ *  - {@link #fork} starts a named stage; its {@link Supplier} yields the result after {@link #join}
+ *  - The first failing stage cancels (interrupts) the others and {@link #join} rethrows it
+ *    wrapped in an {@link ExecutionException}; an interrupted join cancels every stage
+ *  - {@link #close} cancels what is still running and waits for it: no stage outlives the
+ *    try-with-resources block
+ *  - Per-stage wall time in fork order via {@link #timings} (stages that did not finish are absent)
+ */
+public final class StageScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final ExecutorCompletionService<Object> completion;
+    private final List<Future<Object>> forks = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Long> timingsMs = new ConcurrentHashMap<>();
+
+    private StageScope(String name) {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+        this.completion = new ExecutorCompletionService<>(executor);
+    }
+
+    public static StageScope open(String name) {
+        return new StageScope(name);
+    }
+
+    /** Starts {@code stage}; call {@link Supplier#get} on the result only after {@link #join}. */
+    @SuppressWarnings("unchecked")
+    public <T> Supplier<T> fork(String name, Callable<T> stage) {
+        Future<Object> future = completion.submit(() -> {
+            long start = System.nanoTime();
+            Object result = stage.call();
+            timingsMs.put(name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        });
+        forks.add(future);
+        names.add(name);
+        return () -> (T) future.resultNow();
+    }
+
+    /** Waits for every forked stage; fails fast on the first failure. */
+    public void join() throws InterruptedException, ExecutionException {
+        try {
+            for (int i = 0; i < forks.size(); i++) {
+                Future<Object> done = completion.take();
+                if (done.state() == Future.State.FAILED) {
+                    cancelAll();
+                    throw new ExecutionException(done.exceptionNow());
+                }
+            }
+        } catch (InterruptedException e) {
+            cancelAll();
+            throw e;
+        }
+    }
+
+    /** Stage name → wall time in ms, in fork order. */
+    public Map<String, Long> timings() {
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        for (String name : names) {
+            Long ms = timingsMs.get(name);
+            if (ms != null) ordered.put(name, ms);
+        }
+        return ordered;
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+        executor.close();
+    }
+
+    private void cancelAll() {
+        forks.forEach(f -> f.cancel(true));
+    }
+}
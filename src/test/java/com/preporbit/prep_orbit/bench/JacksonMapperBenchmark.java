@@ -0,0 +1,176 @@
+package com.preporbit.prep_orbit.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.preporbit.prep_orbit.dto.CodingChallengeDto;
+import com.preporbit.prep_orbit.dto.InterviewFeedbackDto;
+import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mapper-per-call (the old pattern) versus one shared mapper, pre-resolved
+ * {@link JsonCodecs} readers / writers, and the same with Blackbird.
+ * Run with {@code -prof gc} to compare allocation per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonMapperBenchmark {
+
+    @Param({"feedback", "resume", "challenge"})
+    public String dto;
+
+    private Class<?> type;
+    private String json;
+    private Object value;
+
+    private ObjectMapper shared;
+    private ObjectReader reader;
+    private ObjectWriter writer;
+    private ObjectReader blackbirdReader;
+    private ObjectWriter blackbirdWriter;
+
+    @Setup
+    public void setUp() throws Exception {
+        switch (dto) {
+            case "feedback" -> { type = InterviewFeedbackDto.class; json = feedbackJson(); }
+            case "resume" -> { type = ResumeAnalysisResponse.class; json = resumeJson(); }
+            default -> { type = CodingChallengeDto.class; json = challengeJson(); }
+        }
+        shared = newMapper();
+        JsonCodecs codecs = new JsonCodecs(shared).warm(List.of(type));
+        reader = codecs.reader(type);
+        writer = codecs.writer(type);
+
+        JsonCodecs blackbird = new JsonCodecs(newMapper().registerModule(new BlackbirdModule())).warm(List.of(type));
+        blackbirdReader = blackbird.reader(type);
+        blackbirdWriter = blackbird.writer(type);
+
+        value = reader.readValue(json);
+    }
+
+    /** Roughly what Spring Boot configures (Java time, lenient unknown properties). */
+    private static ObjectMapper newMapper() {
+        return new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    /* ====================== READ ====================== */
+
+    @Benchmark
+    public Object readMapperPerCall() throws Exception {
+        return newMapper().readValue(json, type);
+    }
+
+    @Benchmark
+    public Object readSharedMapper() throws Exception {
+        return shared.readValue(json, type);
+    }
+
+    @Benchmark
+    public Object readPreResolved() throws Exception {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public Object readPreResolvedBlackbird() throws Exception {
+        return blackbirdReader.readValue(json);
+    }
+
+    /* ====================== WRITE ====================== */
+
+    @Benchmark
+    public String writeMapperPerCall() throws Exception {
+        return newMapper().writeValueAsString(value);
+    }
+
+    @Benchmark
+    public String writeSharedMapper() throws Exception {
+        return shared.writeValueAsString(value);
+    }
+
+    @Benchmark
+    public String writePreResolved() throws Exception {
+        return writer.writeValueAsString(value);
+    }
+
+    @Benchmark
+    public String writePreResolvedBlackbird() throws Exception {
+        return blackbirdWriter.writeValueAsString(value);
+    }
+
+    /* ====================== INPUTS ====================== */
+
+    private static String feedbackJson() {
+        StringBuilder transcript = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) transcript.append(',');
+            transcript.append("{\"role\":\"").append(i % 2 == 0 ? "assistant" : "user")
+                    .append("\",\"content\":\"Turn ").append(i)
+                    .append(": let's talk about how you would design a rate limiter for a public API.\",")
+                    .append("\"timestamp\":\"2025-01-01T10:00:").append(10 + i).append("\"}");
+        }
+        return "{\"interviewId\":42,\"userId\":7,\"transcript\":[" + transcript + "],"
+                + "\"feedback\":\"Solid structure, could go deeper on trade-offs.\",\"duration\":1800,"
+                + "\"totalQuestions\":10,\"totalAnswers\":9,\"interviewMetadata\":{\"role\":\"backend\",\"level\":\"mid\"},"
+                + "\"overallScore\":7,\"communicationScore\":8,\"technicalScore\":7,\"problemSolvingScore\":6,"
+                + "\"strengths\":\"Clear communication\",\"improvements\":\"Quantify impact\","
+                + "\"createdAt\":\"2025-01-01 10:30:00\"}";
+    }
+
+    private static String resumeJson() {
+        StringBuilder suggestions = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            if (i > 0) suggestions.append(',');
+            suggestions.append("{\"title\":\"Suggestion ").append(i)
+                    .append("\",\"description\":\"Quantify the impact of project ").append(i)
+                    .append(" with metrics.\",\"category\":\"experience\",\"severity\":\"medium\"}");
+        }
+        return "{\"id\":3,\"overallScore\":78,\"scores\":{\"content\":80,\"contact\":90,\"skills\":75,"
+                + "\"experience\":70,\"education\":85,\"formatting\":72,\"keywords\":64,\"structure\":77},"
+                + "\"suggestions\":[" + suggestions + "],"
+                + "\"extractedText\":\"" + "Senior engineer with experience in distributed systems. ".repeat(20) + "\","
+                + "\"details\":{\"wordCount\":540,\"hasContactInfo\":true,\"analysisMethod\":\"text\"},"
+                + "\"pageImages\":[\"/uploads/3/page-1.png\",\"/uploads/3/page-2.png\"]}";
+    }
+
+    private static String challengeJson() {
+        return "{\"id\":11,\"title\":\"Two Sum\",\"problem_statement\":\"Given an array of integers, return indices "
+                + "of the two numbers that add up to a target.\",\"timeLimitMs\":1000,\"memoryLimitKb\":65536,"
+                + "\"input_specification\":\"n, then n integers, then target\",\"output_specification\":\"two indices\","
+                + "\"topics\":[\"arrays\",\"hashing\"],\"difficulty\":\"easy\",\"test_cases\":["
+                + "{\"input\":\"4\\n2 7 11 15\\n9\",\"expected_output\":\"0 1\",\"visible\":true},"
+                + "{\"input\":\"3\\n3 2 4\\n6\",\"expected_output\":\"1 2\",\"visible\":true},"
+                + "{\"input\":\"2\\n3 3\\n6\",\"expected_output\":\"0 1\",\"visible\":false}]}";
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JacksonMapperBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
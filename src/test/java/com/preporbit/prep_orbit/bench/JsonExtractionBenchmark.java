@@ -0,0 +1,172 @@
+package com.preporbit.prep_orbit.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.preporbit.prep_orbit.util.JsonExtractor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JsonExtractor} against the ad-hoc extractors it replaced (copied here
+ * verbatim as baselines). Run from the IDE via {@link #main}, or with
+ * {@code -prof gc} added to the options to compare allocation per operation.
+ *
+ * Inputs: a small fenced quiz-feedback object, and a large resume analysis with a
+ * {@code <think>} block, leading prose and trailing commentary (kept free of braces
+ * so the baselines, which slice first '{' to last '}', can parse it at all).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonExtractionBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final ObjectReader MAP_READER = MAPPER.readerFor(Map.class);
+
+    @Param({"small", "large"})
+    public String shape;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = "small".equals(shape) ? smallFenced() : largeWithThinking();
+    }
+
+    /* ====================== BASELINES ====================== */
+
+    /** QuizService: stripMarkdownCodeBlock → JsonUtils.extractFirstJsonObject → readTree. */
+    @Benchmark
+    public JsonNode legacyQuizFeedback() throws Exception {
+        String cleaned = extractFirstJsonObject(stripMarkdownCodeBlock(text));
+        return MAPPER.readTree(cleaned);
+    }
+
+    /** ResumeAnalysisService: cleanAIResponse → readValue. */
+    @Benchmark
+    public Object legacyResumeAnalysis() throws Exception {
+        return MAPPER.readValue(cleanAIResponse(text), Map.class);
+    }
+
+    /** InterviewFeedbackService: trim → first '{' / last '}' substring → readValue. */
+    @Benchmark
+    public Object legacyInterviewFeedback() throws Exception {
+        String trimmed = text.trim();
+        int start = trimmed.indexOf('{');
+        int end = trimmed.lastIndexOf('}');
+        if (start != -1 && end != -1 && end > start) {
+            trimmed = trimmed.substring(start, end + 1);
+        }
+        return MAPPER.readValue(trimmed, Map.class);
+    }
+
+    /* ====================== EXTRACTOR ====================== */
+
+    @Benchmark
+    public Object extractor() throws Exception {
+        return JsonExtractor.read(MAP_READER, text);
+    }
+
+    @Benchmark
+    public String extractorToString() {
+        return JsonExtractor.extract(text);
+    }
+
+    /* ====================== LEGACY COPIES ====================== */
+
+    private static String stripMarkdownCodeBlock(String input) {
+        if (input == null) return "";
+        input = input.trim();
+        if (input.startsWith("```")) {
+            int start = input.indexOf("\n") + 1;
+            int end = input.lastIndexOf("```");
+            if (start > 0 && end > start) {
+                return input.substring(start, end).trim();
+            }
+        }
+        return input;
+    }
+
+    private static String extractFirstJsonObject(String input) {
+        if (input == null) return null;
+        int start = input.indexOf('{');
+        int end = input.lastIndexOf('}');
+        if (start != -1 && end != -1 && end > start) {
+            return input.substring(start, end + 1);
+        }
+        return null;
+    }
+
+    private static String cleanAIResponse(String response) {
+        if (response == null) return "";
+        String c = response.trim();
+        if (c.startsWith("```")) {
+            int firstNl = c.indexOf('\n');
+            if (firstNl > -1) c = c.substring(firstNl + 1);
+            int lastTicks = c.lastIndexOf("```");
+            if (lastTicks > -1) c = c.substring(0, lastTicks);
+        }
+        int fb = c.indexOf('{');
+        if (fb > 0) c = c.substring(fb);
+        int lb = c.lastIndexOf('}');
+        if (lb > 0 && lb < c.length() - 1) c = c.substring(0, lb + 1);
+        return c.trim();
+    }
+
+    /* ====================== INPUTS ====================== */
+
+    private static String smallFenced() {
+        return """
+                ```json
+                {
+                  "strengths": ["Clear explanations", "Good use of examples"],
+                  "weaknesses": ["Missed edge cases"],
+                  "suggestions": ["Practice complexity analysis", "Review hash map internals"]
+                }
+                ```
+                """;
+    }
+
+    private static String largeWithThinking() {
+        StringBuilder sb = new StringBuilder(24_000);
+        sb.append("<think>Scoring the resume; contact and skills sections look fine.</think>\n");
+        sb.append("Here is the analysis you asked for:\n```json\n{\n  \"overallScore\": 78,\n");
+        sb.append("  \"scores\": {\"content\": 80, \"contact\": 90, \"skills\": 75, \"experience\": 70},\n");
+        sb.append("  \"suggestions\": [\n");
+        for (int i = 0; i < 60; i++) {
+            sb.append("    {\"title\": \"Suggestion ").append(i)
+                    .append("\", \"description\": \"Quantify the impact of project ").append(i)
+                    .append(" with metrics such as latency, throughput or revenue; recruiters skim for numbers.\",")
+                    .append(" \"category\": \"experience\", \"severity\": \"medium\"}")
+                    .append(i < 59 ? ",\n" : "\n");
+        }
+        sb.append("  ],\n  \"extractedText\": \"")
+                .append("Senior engineer with experience in distributed systems. ".repeat(80))
+                .append("\"\n}\n```\nLet me know if you want a rewrite of any section.");
+        return sb.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        new Runner(new OptionsBuilder()
+                .include(JsonExtractionBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,39 @@
+package com.preporbit.prep_orbit.service;
+
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiRestClientTest {
+
+    private static LlmRequest withThinking(int budget) {
+        return LlmRequest.builder(LlmProfile.QUIZ_HINT)
+                .prompt("hint")
+                .generationParam("maxOutputTokens", 256)
+                .generationParam("thinkingConfig", Map.of("thinkingBudget", budget))
+                .build();
+    }
+
+    @Test
+    void thinkingConfigIsDroppedForModelsWithoutThinking() {
+        LlmRequest adapted = GeminiRestClient.forModel(withThinking(0), "gemini-2.0-flash-001");
+
+        assertFalse(adapted.getGenerationConfig().containsKey("thinkingConfig"));
+        assertEquals(256, adapted.getGenerationConfig().get("maxOutputTokens"));
+    }
+
+    @Test
+    void thinkingBudgetIsKeptOnFlashAndRaisedToTheMinimumOnPro() {
+        LlmRequest request = withThinking(0);
+
+        assertSame(request, GeminiRestClient.forModel(request, "gemini-2.5-flash"));
+        assertEquals(Map.of("thinkingBudget", 128),
+                GeminiRestClient.forModel(request, "gemini-2.5-pro").getGenerationConfig().get("thinkingConfig"));
+        assertEquals(Map.of("thinkingBudget", -1),
+                GeminiRestClient.forModel(withThinking(-1), "gemini-2.5-pro").getGenerationConfig().get("thinkingConfig"));
+    }
+}
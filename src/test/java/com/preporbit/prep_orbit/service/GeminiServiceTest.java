@@ -0,0 +1,62 @@
+package com.preporbit.prep_orbit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import com.preporbit.prep_orbit.service.llm.LlmGateway;
+import com.preporbit.prep_orbit.service.llm.LlmJsonCodec;
+import com.preporbit.prep_orbit.service.llm.LlmJsonRecovery;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmResponse;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GeminiServiceTest {
+
+    /** Gateway stand-in that fails every call with {@code error}. */
+    private static final class FailingGateway extends LlmGateway {
+        private final LlmException error;
+
+        FailingGateway(LlmException error) {
+            super(null, null, null, null, null, null, null, null, new MockEnvironment(),
+                    new SimpleMeterRegistry(), "gemini-2.5-flash", List.of(), 300, 20);
+            this.error = error;
+        }
+
+        @Override
+        public LlmResponse call(LlmRequest request) {
+            throw error;
+        }
+    }
+
+    private static GeminiService service(LlmException error) {
+        LlmGateway gateway = new FailingGateway(error);
+        LlmJsonCodec codec = new LlmJsonCodec(new JsonCodecs(new ObjectMapper()));
+        return new GeminiService(gateway, codec, new LlmJsonRecovery(gateway, codec, new SimpleMeterRegistry(), true),
+                null, null, "gemini-2.5-flash");
+    }
+
+    @Test
+    void modelFailuresBecomeNullForTheCallersFallback() {
+        GeminiService service = service(new LlmException("quota", 429, true, null));
+
+        assertNull(service.askGemini("hi", LlmProfile.CHAT));
+        assertNull(service.askGeminiJson("hi", LlmProfile.QUIZ_GENERATION, String.class));
+    }
+
+    @Test
+    void shedRequestsPropagateForThe503Handler() {
+        GeminiService service = service(new LlmRejectedException("queue full", 2000));
+
+        assertThrows(LlmRejectedException.class, () -> service.askGemini("hi", LlmProfile.CHAT));
+        assertThrows(LlmRejectedException.class,
+                () -> service.askGeminiJson("hi", LlmProfile.QUIZ_GENERATION, String.class));
+    }
+}
@@ -0,0 +1,82 @@
+package com.preporbit.prep_orbit.service;
+
+import com.preporbit.prep_orbit.util.BufferedMultipartFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PdfRenderEngineTest {
+
+    /** Pages of distinct widths, so each render can be matched to its page. */
+    private static byte[] pdf(int pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (int i = 0; i < pages; i++) {
+                doc.addPage(new PDPage(new PDRectangle(72 * (i + 1), 72)));
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    @Test
+    void pagesRenderInParallelInRequestOrder() throws IOException {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PdfRenderEngine engine = new PdfRenderEngine(registry, 3, 3, 8);
+
+        List<PdfRenderEngine.PageRender> renders = engine.render(pdf(5), List.of(4, 0, 2, 1), 72);
+
+        assertEquals(List.of(4, 0, 2, 1), renders.stream().map(PdfRenderEngine.PageRender::pageIndex).toList());
+        for (PdfRenderEngine.PageRender r : renders) {
+            assertNull(r.error());
+            assertEquals(72 * (r.pageIndex() + 1), r.image().getWidth());
+        }
+        assertEquals(4, registry.timer("pdf.render.page").count());
+
+        List<BufferedImage> images = renders.stream().map(PdfRenderEngine.PageRender::image).toList();
+        List<byte[]> pngs = engine.encodePng(images);
+        assertEquals(4, pngs.size());
+        assertEquals((byte) 0x89, pngs.get(0)[0]); // PNG signature
+        engine.destroy();
+    }
+
+    @Test
+    void unreadablePagesAreReportedPerPage() {
+        PdfRenderEngine engine = new PdfRenderEngine(new SimpleMeterRegistry(), 2, 2, 8);
+
+        List<PdfRenderEngine.PageRender> renders = engine.render(new byte[]{1, 2, 3}, List.of(0, 1), 72);
+
+        assertEquals(2, renders.size());
+        renders.forEach(r -> assertNotNull(r.error()));
+        engine.destroy();
+    }
+
+    @Test
+    void sessionBatchesMatchSequentialRenders() throws IOException {
+        PdfRenderEngine engine = new PdfRenderEngine(new SimpleMeterRegistry(), 2, 2, 8);
+        BufferedMultipartFile upload = new BufferedMultipartFile("resume", "resume.pdf", "application/pdf", pdf(3));
+
+        try (ResumeDocumentSession parallel = ResumeDocumentSession.of(upload, engine);
+             ResumeDocumentSession sequential = ResumeDocumentSession.of(upload)) {
+            BufferedImage[] batch = parallel.pageImages(5);
+            assertEquals(3, batch.length);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(sequential.pageImage(i).getWidth(), batch[i].getWidth());
+                assertSame(batch[i], parallel.pageImage(i));
+            }
+            List<byte[]> pngs = parallel.pagePngs(5);
+            assertEquals(3, pngs.size());
+            assertSame(pngs.get(2), parallel.pagePng(2));
+        }
+        engine.destroy();
+    }
+}
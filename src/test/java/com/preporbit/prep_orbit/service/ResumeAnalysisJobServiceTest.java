@@ -0,0 +1,152 @@
+package com.preporbit.prep_orbit.service;
+
+import com.preporbit.prep_orbit.dto.ResumeAnalysisResponse;
+import com.preporbit.prep_orbit.exception.ResumeJobLimitException;
+import com.preporbit.prep_orbit.service.ResumeAnalysisService.Stage;
+import com.preporbit.prep_orbit.util.BufferedMultipartFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumeAnalysisJobServiceTest {
+
+    private static final BufferedMultipartFile PDF =
+            new BufferedMultipartFile("resume", "resume.pdf", "application/pdf", new byte[]{1});
+
+    @TempDir
+    Path spoolDir;
+
+    /** Pipeline stand-in: reports the stages, then returns (or fails) once released. */
+    private static final class FakePipeline extends ResumeAnalysisService {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Stage> seen = new CopyOnWriteArrayList<>();
+        volatile boolean fail;
+
+        FakePipeline() {
+            super(null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public ResumeAnalysisResponse analyzeResume(ResumeDocumentSession file, String userEmail,
+                                                    Consumer<String> onChunk, Consumer<Stage> onStage,
+                                                    boolean force) {
+            for (Stage s : List.of(Stage.EXTRACTING, Stage.ANALYZING, Stage.SAVING)) {
+                onStage.accept(s);
+                seen.add(s);
+            }
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (fail) throw new IllegalStateException("model down");
+            ResumeAnalysisResponse response = new ResumeAnalysisResponse();
+            response.setId(42L);
+            return response;
+        }
+    }
+
+    private static ResumeAnalysisJobService.JobView await(ResumeAnalysisJobService jobs, String id, Stage stage)
+            throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            ResumeAnalysisJobService.JobView view = jobs.find(id, "a@x.io");
+            if (view.stage() == stage) return view;
+            Thread.sleep(10);
+        }
+        fail("job never reached " + stage);
+        return null;
+    }
+
+    private long spooledUploads() throws IOException {
+        try (Stream<Path> files = Files.list(spoolDir)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void jobReportsStagesAndResultToItsOwnerOnly() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        ResumeAnalysisJobService jobs = new ResumeAnalysisJobService(pipeline, 1, 1, 10, spoolDir.toString(), Duration.ofMinutes(5), 1_000);
+
+        ResumeAnalysisJobService.JobView queued = jobs.submit(PDF, "a@x.io", false, a -> Map.of("analysisId", a.getId()));
+        assertEquals(Stage.QUEUED, queued.stage());
+        assertNull(jobs.find(queued.jobId(), "b@x.io"));
+
+        await(jobs, queued.jobId(), Stage.SAVING);
+        pipeline.release.countDown();
+        ResumeAnalysisJobService.JobView saved = await(jobs, queued.jobId(), Stage.SAVED);
+
+        assertEquals(42L, saved.analysisId());
+        assertEquals(Map.of("analysisId", 42L), saved.result());
+        assertEquals(List.of(Stage.EXTRACTING, Stage.ANALYZING, Stage.SAVING), pipeline.seen);
+        jobs.destroy();
+    }
+
+    @Test
+    void failuresAreReportedAndAFullQueueRejects() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        pipeline.fail = true;
+        ResumeAnalysisJobService jobs = new ResumeAnalysisJobService(pipeline, 1, 1, 10, spoolDir.toString(), Duration.ofMinutes(5), 1_000);
+
+        String running = jobs.submit(PDF, "a@x.io", false, a -> Map.of()).jobId();
+        await(jobs, running, Stage.SAVING);
+        jobs.submit(PDF, "a@x.io", false, a -> Map.of()); // fills the queue
+        assertThrows(RejectedExecutionException.class, () -> jobs.submit(PDF, "a@x.io", false, a -> Map.of()));
+
+        pipeline.release.countDown();
+        ResumeAnalysisJobService.JobView failed = await(jobs, running, Stage.FAILED);
+        assertEquals("model down", failed.error());
+        jobs.destroy();
+    }
+
+    @Test
+    void perUserLimitAndSpooledUploadsAreReleasedWhenJobsFinish() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        ResumeAnalysisJobService jobs = new ResumeAnalysisJobService(pipeline, 1, 5, 2, spoolDir.toString(),
+                Duration.ofMinutes(5), 1_000);
+
+        String first = jobs.submit(PDF, "a@x.io", false, a -> Map.of()).jobId();
+        jobs.submit(PDF, "a@x.io", false, a -> Map.of());
+        assertThrows(ResumeJobLimitException.class, () -> jobs.submit(PDF, "a@x.io", false, a -> Map.of()));
+        jobs.submit(PDF, "b@x.io", false, a -> Map.of()); // other users are not affected
+        assertEquals(3, spooledUploads());
+
+        await(jobs, first, Stage.SAVING);
+        pipeline.release.countDown();
+        await(jobs, first, Stage.SAVED);
+        jobs.submit(PDF, "a@x.io", false, a -> Map.of()); // a slot is free again
+        for (int i = 0; i < 200 && spooledUploads() > 0; i++) Thread.sleep(10);
+        assertEquals(0, spooledUploads());
+        jobs.destroy();
+    }
+
+    @Test
+    void streamingSubmissionsAreSpooledAndShareThePerUserLimit() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        ResumeAnalysisJobService jobs = new ResumeAnalysisJobService(pipeline, 1, 5, 2, spoolDir.toString(),
+                Duration.ofMinutes(5), 1_000);
+
+        assertNotNull(jobs.submitAndSubscribe(PDF, "a@x.io", false, a -> Map.of()));
+        jobs.submit(PDF, "a@x.io", false, a -> Map.of());
+        assertThrows(ResumeJobLimitException.class,
+                () -> jobs.submitAndSubscribe(PDF, "a@x.io", false, a -> Map.of()));
+        assertEquals(2, spooledUploads());
+
+        pipeline.release.countDown();
+        jobs.destroy();
+    }
+}
@@ -0,0 +1,80 @@
+package com.preporbit.prep_orbit.service;
+
+import com.preporbit.prep_orbit.util.BufferedMultipartFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumeDocumentSessionTest {
+
+    private static BufferedMultipartFile pdf(String... pages) throws IOException {
+        try (PDDocument doc = new PDDocument()) {
+            for (String text : pages) {
+                PDPage page = new PDPage();
+                doc.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(doc, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 12);
+                    content.newLineAtOffset(72, 700);
+                    content.showText(text);
+                    content.endText();
+                }
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            doc.save(out);
+            return new BufferedMultipartFile("resume", "resume.pdf", "application/pdf", out.toByteArray());
+        }
+    }
+
+    @Test
+    void everyStageReadsTheSameParsedDocument() throws IOException {
+        try (ResumeDocumentSession session = ResumeDocumentSession.of(pdf("Jane Doe", "Experience"))) {
+            assertEquals(2, session.pageCount());
+            assertTrue(session.text().contains("Jane Doe"));
+            assertTrue(session.pageText(1).contains("Experience"));
+
+            assertSame(session.pageImage(0), session.pageImage(0));
+            assertSame(session.pageImage(0), session.pageImages(5)[0]);
+            assertEquals(2, session.pageImages(5).length);
+            assertSame(session.pagePng(0), session.pagePng(0));
+            assertEquals((byte) 0x89, session.pagePng(0)[0]); // PNG signature
+        }
+    }
+
+    @Test
+    void contentHashCoversTheUploadedBytesEvenWhenTheyAreNotAPdf() throws Exception {
+        BufferedMultipartFile upload = pdf("Jane Doe");
+        String expected = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(upload.getBytes()));
+        try (ResumeDocumentSession session = ResumeDocumentSession.of(upload)) {
+            assertEquals(1, session.pageCount());
+            assertEquals(expected, session.contentHash());
+        }
+
+        byte[] junk = {1, 2, 3};
+        ResumeDocumentSession broken = ResumeDocumentSession.of(
+                new BufferedMultipartFile("resume", "bad.pdf", "application/pdf", junk));
+        assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(junk)),
+                broken.contentHash());
+    }
+
+    @Test
+    void loadFailureIsRememberedAndClosedSessionsRefuseWork() throws IOException {
+        ResumeDocumentSession broken = ResumeDocumentSession.of(
+                new BufferedMultipartFile("resume", "bad.pdf", "application/pdf", new byte[]{1, 2, 3}));
+        IOException first = assertThrows(IOException.class, broken::pageCount);
+        assertSame(first, assertThrows(IOException.class, broken::text));
+
+        ResumeDocumentSession session = ResumeDocumentSession.of(pdf("Jane Doe"));
+        session.close();
+        assertThrows(IOException.class, session::pageCount);
+    }
+}
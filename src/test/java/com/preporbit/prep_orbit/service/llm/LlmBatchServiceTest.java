@@ -0,0 +1,327 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.model.LlmBatchJob;
+import com.preporbit.prep_orbit.repository.LlmBatchJobRepository;
+import com.preporbit.prep_orbit.service.GeminiRestClient;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmBatchServiceTest {
+
+    private static final String KIND = "test-kind";
+    private static final String GEMINI_MODEL = "gemini-2.5-flash";
+    private static final String LOCAL_MODEL = "local/llama3.1";
+
+    private final JsonCodecs json = new JsonCodecs(new ObjectMapper());
+    private final InMemoryJobs jobs = new InMemoryJobs();
+    private final FakeGemini gemini = new FakeGemini(json);
+    private final RecordingHandler handler = new RecordingHandler();
+    private final LlmProviderRegistry providers = new LlmProviderRegistry(gemini, json,
+            new MockEnvironment().withProperty("llm.providers.local.base-url", "http://127.0.0.1:1/v1"),
+            List.of("local"), "");
+
+    /** Repository stand-in: the derived queries the service uses, over a map. */
+    private static final class InMemoryJobs implements InvocationHandler {
+        final Map<Long, LlmBatchJob> rows = new LinkedHashMap<>();
+        final LlmBatchJobRepository repository = (LlmBatchJobRepository) Proxy.newProxyInstance(
+                LlmBatchJobRepository.class.getClassLoader(), new Class<?>[]{LlmBatchJobRepository.class}, this);
+
+        @Override
+        public synchronized Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "save" -> save((LlmBatchJob) args[0]);
+                case "saveAll" -> {
+                    List<LlmBatchJob> saved = new ArrayList<>();
+                    ((Iterable<?>) args[0]).forEach(job -> saved.add(save((LlmBatchJob) job)));
+                    yield saved;
+                }
+                case "findByStatusOrderByCreatedAtAsc" -> rows.values().stream()
+                        .filter(job -> job.getStatus() == args[0])
+                        .sorted(Comparator.comparing(LlmBatchJob::getCreatedAt).thenComparing(LlmBatchJob::getId))
+                        .limit(((Pageable) args[1]).getPageSize())
+                        .toList();
+                case "findByBatchNameAndStatus" -> rows.values().stream()
+                        .filter(job -> args[0].equals(job.getBatchName()) && job.getStatus() == args[1])
+                        .toList();
+                case "countByKindAndStatusIn" -> rows.values().stream()
+                        .filter(job -> args[0].equals(job.getKind()) && ((Collection<?>) args[1]).contains(job.getStatus()))
+                        .count();
+                case "findSubmittedBatchNames" -> rows.values().stream()
+                        .filter(job -> job.getStatus() == LlmBatchJob.Status.SUBMITTED
+                                && job.getBatchName().startsWith("batches/"))
+                        .map(LlmBatchJob::getBatchName)
+                        .distinct()
+                        .toList();
+                case "findStalePaced" -> rows.values().stream()
+                        .filter(job -> job.getStatus() == LlmBatchJob.Status.SUBMITTED
+                                && job.getBatchName().startsWith("paced:")
+                                && job.getSubmittedAt().isBefore((LocalDateTime) args[0]))
+                        .toList();
+                default -> throw new UnsupportedOperationException(method.getName());
+            };
+        }
+
+        private LlmBatchJob save(LlmBatchJob job) {
+            if (job.getId() == null) job.setId(rows.size() + 1L);
+            if (job.getCreatedAt() == null) job.setCreatedAt(LocalDateTime.now());
+            rows.put(job.getId(), job);
+            return job;
+        }
+
+        synchronized LlmBatchJob.Status status(LlmBatchJob job) {
+            return job.getStatus();
+        }
+    }
+
+    /** Batch API stand-in: records submissions and answers polls from {@link #poll}. */
+    private static final class FakeGemini extends GeminiRestClient {
+        final List<Map<String, LlmRequest>> submitted = new ArrayList<>();
+        final List<String> models = new ArrayList<>();
+        Function<String, BatchStatus> poll = name -> new BatchStatus(name, "BATCH_STATE_RUNNING", false, List.of());
+
+        FakeGemini(JsonCodecs json) {
+            super("key", "http://127.0.0.1:1/v1beta/models", 4, 2, 30, json);
+        }
+
+        @Override
+        public CompletableFuture<String> submitBatch(String model, String displayName, Map<String, LlmRequest> requests) {
+            models.add(model);
+            submitted.add(requests);
+            return CompletableFuture.completedFuture("batches/" + submitted.size());
+        }
+
+        @Override
+        public CompletableFuture<BatchStatus> getBatch(String name, String model) {
+            return CompletableFuture.completedFuture(poll.apply(name));
+        }
+    }
+
+    /** Gateway stand-in for paced jobs: echoes the prompt back. */
+    private static final class EchoGateway extends LlmGateway {
+        EchoGateway() {
+            super(null, null, null, null, null, null, null, null, new MockEnvironment(),
+                    new SimpleMeterRegistry(), GEMINI_MODEL, List.of(), 300, 20);
+        }
+
+        @Override
+        public CompletableFuture<LlmResponse> generate(LlmRequest request) {
+            return CompletableFuture.completedFuture(
+                    new LlmResponse("echo: " + request.getPrompt(), request.getModel(), "STOP", null, 1));
+        }
+    }
+
+    private static final class RecordingHandler implements LlmBatchHandler {
+        final List<String> results = new CopyOnWriteArrayList<>();
+        final List<String> failures = new CopyOnWriteArrayList<>();
+        int throwTimes;
+
+        @Override
+        public String kind() {
+            return KIND;
+        }
+
+        @Override
+        public void onResult(LlmBatchJob job, String text) {
+            if (throwTimes > 0) {
+                throwTimes--;
+                throw new IllegalStateException("bad challenge");
+            }
+            results.add(text);
+        }
+
+        @Override
+        public void onFailure(LlmBatchJob job, String error) {
+            failures.add(error);
+        }
+    }
+
+    private LlmBatchService service(int minGroup, Duration maxWait, int maxAttempts) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory(Map.of("handler", handler));
+        return new LlmBatchService(jobs.repository, gemini, new EchoGateway(), providers, json,
+                new SimpleMeterRegistry(), beans.getBeanProvider(LlmBatchHandler.class),
+                true, "gemini", 100, minGroup, maxWait, 60_000, maxAttempts, Duration.ofMinutes(30));
+    }
+
+    private LlmBatchService service(int minGroup, Duration maxWait) {
+        return service(minGroup, maxWait, 3);
+    }
+
+    private static LlmRequest request(String prompt, String model) {
+        return LlmRequest.builder(LlmProfile.CHALLENGE_GENERATION).prompt(prompt).model(model).build();
+    }
+
+    private static GeminiRestClient.BatchResult ok(LlmBatchJob job, String text) {
+        return new GeminiRestClient.BatchResult(String.valueOf(job.getId()),
+                new LlmResponse(text, GEMINI_MODEL, "STOP", null, 1), null);
+    }
+
+    private void awaitStatus(LlmBatchJob job, LlmBatchJob.Status status) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (jobs.status(job) != status && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(status, jobs.status(job));
+    }
+
+    @Test
+    void groupsByModelAndSendsOnlyGeminiRoutesToTheBatchApi() throws InterruptedException {
+        LlmBatchService service = service(3, Duration.ofMinutes(30));
+        LlmBatchJob first = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+        LlmBatchJob local = service.enqueue(KIND, "b", request("two", LOCAL_MODEL));
+        LlmBatchJob second = service.enqueue(KIND, "c", request("three", GEMINI_MODEL));
+
+        service.submitPending();
+
+        assertEquals(List.of(GEMINI_MODEL), gemini.models);
+        assertEquals(List.of(String.valueOf(first.getId()), String.valueOf(second.getId())),
+                List.copyOf(gemini.submitted.get(0).keySet()));
+        assertEquals("batches/1", first.getBatchName());
+        assertEquals(LlmBatchJob.Status.SUBMITTED, second.getStatus());
+        assertTrue(local.getBatchName().startsWith("paced:"));
+
+        awaitStatus(local, LlmBatchJob.Status.SUCCEEDED);
+        assertEquals(List.of("echo: two"), handler.results);
+    }
+
+    @Test
+    void waitsForAFullGroupUnlessTheOldestJobIsOverdue() {
+        LlmBatchService service = service(3, Duration.ofMinutes(30));
+        LlmBatchJob job = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+
+        service.submitPending();
+        assertEquals(LlmBatchJob.Status.PENDING, job.getStatus());
+        assertTrue(gemini.submitted.isEmpty());
+
+        job.setCreatedAt(LocalDateTime.now().minusMinutes(31));
+        service.submitPending();
+        assertEquals(LlmBatchJob.Status.SUBMITTED, job.getStatus());
+        assertEquals(1, job.getAttempts());
+    }
+
+    @Test
+    void pollMapsResultsByKeyAndRequeuesJobsWithoutOne() {
+        LlmBatchService service = service(1, Duration.ofMinutes(30));
+        LlmBatchJob answered = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+        LlmBatchJob missing = service.enqueue(KIND, "b", request("two", GEMINI_MODEL));
+        service.submitPending();
+
+        service.pollSubmitted();
+        assertEquals(LlmBatchJob.Status.SUBMITTED, answered.getStatus(), "batch still running");
+
+        gemini.poll = name -> new GeminiRestClient.BatchStatus(name, "BATCH_STATE_SUCCEEDED", true,
+                List.of(ok(answered, "challenge json")));
+        service.pollSubmitted();
+
+        assertEquals(LlmBatchJob.Status.SUCCEEDED, answered.getStatus());
+        assertEquals("challenge json", answered.getResultText());
+        assertEquals(List.of("challenge json"), handler.results);
+        assertEquals(LlmBatchJob.Status.PENDING, missing.getStatus());
+        assertTrue(missing.getError().startsWith("No result in batches/1"), missing.getError());
+    }
+
+    @Test
+    void failedJobsAreRetriedUntilMaxAttemptsThenReportedOnce() {
+        LlmBatchService service = service(1, Duration.ofMinutes(30), 2);
+        LlmBatchJob job = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+        gemini.poll = name -> new GeminiRestClient.BatchStatus(name, "BATCH_STATE_SUCCEEDED", true,
+                List.of(new GeminiRestClient.BatchResult(String.valueOf(job.getId()), null, "RESOURCE_EXHAUSTED")));
+
+        service.submitPending();
+        service.pollSubmitted();
+        assertEquals(LlmBatchJob.Status.PENDING, job.getStatus());
+        assertTrue(handler.failures.isEmpty());
+
+        service.submitPending();
+        service.pollSubmitted();
+        assertEquals(LlmBatchJob.Status.FAILED, job.getStatus());
+        assertEquals(2, job.getAttempts());
+        assertEquals(List.of("RESOURCE_EXHAUSTED"), handler.failures);
+        assertEquals(2, gemini.submitted.size());
+    }
+
+    @Test
+    void handlerErrorsAreRetriedLikeFailedGenerations() {
+        LlmBatchService service = service(1, Duration.ofMinutes(30), 2);
+        LlmBatchJob job = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+        gemini.poll = name -> new GeminiRestClient.BatchStatus(name, "BATCH_STATE_SUCCEEDED", true,
+                List.of(ok(job, "not a challenge")));
+        handler.throwTimes = 2;
+
+        service.submitPending();
+        service.pollSubmitted();
+        assertEquals(LlmBatchJob.Status.PENDING, job.getStatus());
+        assertEquals("Handler failed: bad challenge", job.getError());
+        assertEquals("not a challenge", job.getResultText());
+
+        service.submitPending();
+        service.pollSubmitted();
+        assertEquals(LlmBatchJob.Status.FAILED, job.getStatus());
+        assertEquals(List.of("Handler failed: bad challenge"), handler.failures);
+    }
+
+    @Test
+    void pacedJobsLeftWithoutAResultAreRequeued() {
+        LlmBatchService service = service(5, Duration.ofMinutes(30));
+        LlmBatchJob stale = service.enqueue(KIND, "a", request("one", GEMINI_MODEL));
+        stale.setStatus(LlmBatchJob.Status.SUBMITTED);
+        stale.setBatchName("paced:lost");
+        stale.setSubmittedAt(LocalDateTime.now().minusHours(1));
+        LlmBatchJob recent = service.enqueue(KIND, "b", request("two", GEMINI_MODEL));
+        recent.setStatus(LlmBatchJob.Status.SUBMITTED);
+        recent.setBatchName("paced:running");
+        recent.setSubmittedAt(LocalDateTime.now());
+
+        service.submitPending();
+
+        assertEquals(LlmBatchJob.Status.PENDING, stale.getStatus());
+        assertEquals(LlmBatchJob.Status.SUBMITTED, recent.getStatus());
+    }
+
+    @Test
+    void queuedRequestsSurviveTheRoundTrip() {
+        LlmBatchService service = service(1, Duration.ofMinutes(30));
+        JsonNode schema = json.mapper().createObjectNode().put("type", "OBJECT");
+        LlmRequest request = LlmRequest.builder(LlmProfile.CHALLENGE_GENERATION)
+                .template(new PromptTemplate.Rendered("daily-challenge", "v2", "You write challenges.\n", "Topic: arrays"))
+                .generationParam("temperature", 0.3)
+                .responseSchema(schema)
+                .build();
+
+        LlmRequest restored = service.deserialize(service.enqueue(KIND, "a", request));
+
+        assertEquals(LlmProfile.CHALLENGE_GENERATION, restored.getProfile());
+        assertEquals(GEMINI_MODEL, restored.getModel());
+        assertEquals("daily-challenge", restored.getTemplateName());
+        assertEquals("v2", restored.getTemplateVersion());
+        assertEquals("You write challenges.\n", restored.getPreamble());
+        assertEquals("Topic: arrays", restored.getPrompt());
+        assertEquals(0.3, restored.getGenerationConfig().get("temperature"));
+        assertEquals(schema, restored.getGenerationConfig().get("responseSchema"));
+        // Profile defaults were applied before the request was stored
+        assertTrue(restored.getGenerationConfig().keySet().containsAll(
+                new EchoGateway().withProfileDefaults(request).getGenerationConfig().keySet()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmCircuitBreakerTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+    private static final LlmException UNAVAILABLE = new LlmException("unavailable", 503, true, null);
+
+    private static void fail(LlmCircuitBreaker breaker, int times) {
+        for (int i = 0; i < times; i++) {
+            assertTrue(breaker.tryAcquire(MODEL));
+            breaker.onFailure(MODEL, UNAVAILABLE);
+        }
+    }
+
+    @Test
+    void opensOnceTheFailureRateCrossesTheThresholdAfterTheMinimumCalls() {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(new SimpleMeterRegistry(), 10, 4, 0.5, 60_000);
+
+        fail(breaker, 3);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.state(MODEL), "below minimum calls");
+
+        fail(breaker, 1);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state(MODEL));
+        assertTrue(breaker.isRejecting(MODEL));
+        assertFalse(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void halfOpenAdmitsOneProbeThatClosesOrReopensTheCircuit() {
+        // Zero cool-down: the next acquire after a trip is the half-open probe
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(new SimpleMeterRegistry(), 2, 2, 0.5, 0);
+        fail(breaker, 2);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state(MODEL));
+
+        assertTrue(breaker.tryAcquire(MODEL));
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.state(MODEL));
+        assertFalse(breaker.tryAcquire(MODEL), "only one probe at a time");
+        breaker.onFailure(MODEL, UNAVAILABLE);
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state(MODEL));
+
+        assertTrue(breaker.tryAcquire(MODEL));
+        breaker.onSuccess(MODEL);
+        assertEquals(LlmCircuitBreaker.State.CLOSED, breaker.state(MODEL));
+        assertTrue(breaker.tryAcquire(MODEL));
+    }
+
+    @Test
+    void clientErrorsAndLocalSheddingDoNotCountAgainstTheModel() {
+        LlmCircuitBreaker breaker = new LlmCircuitBreaker(new SimpleMeterRegistry(), 2, 2, 0.5, 0);
+        fail(breaker, 2);
+        assertTrue(breaker.tryAcquire(MODEL));
+
+        // An ignored outcome frees the probe without deciding the state
+        breaker.onFailure(MODEL, new LlmRejectedException("queue full", 1000));
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.state(MODEL));
+        assertTrue(breaker.tryAcquire(MODEL));
+        breaker.onFailure(MODEL, new LlmException("bad request", 400, false, null));
+        assertEquals(LlmCircuitBreaker.State.HALF_OPEN, breaker.state(MODEL));
+
+        assertTrue(LlmCircuitBreaker.countsAsFailure(new LlmException("quota", 429, true, null)));
+        assertFalse(LlmCircuitBreaker.countsAsFailure(new LlmException("not found", 404, false, null)));
+    }
+}
@@ -0,0 +1,136 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmConcurrencyLimiterTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+
+    // The limit starts at its maximum so successes cannot grow it mid-test
+    private static LlmConcurrencyLimiter limiter(MockEnvironment env, int limit) {
+        return new LlmConcurrencyLimiter(env, new SimpleMeterRegistry(), limit, 1, limit, 600);
+    }
+
+    private static CompletableFuture<LlmConcurrencyLimiter.Permit> acquire(LlmConcurrencyLimiter limiter,
+                                                                          LlmPriority priority) {
+        return acquire(limiter, MODEL, priority);
+    }
+
+    private static CompletableFuture<LlmConcurrencyLimiter.Permit> acquire(LlmConcurrencyLimiter limiter,
+                                                                          String model, LlmPriority priority) {
+        return limiter.acquire(LlmProfile.CHAT, model, priority);
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+
+    @Test
+    void shedsWhenThePriorityQueueIsFull() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment()
+                .withProperty("llm.limiter.queue-capacity.interactive", "1"), 1);
+
+        assertTrue(acquire(limiter, LlmPriority.INTERACTIVE).isDone());
+        CompletableFuture<LlmConcurrencyLimiter.Permit> queued = acquire(limiter, LlmPriority.INTERACTIVE);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> shed = acquire(limiter, LlmPriority.INTERACTIVE);
+
+        assertFalse(queued.isDone());
+        assertInstanceOf(LlmRejectedException.class, failure(shed));
+        assertEquals(1, limiter.currentQueued());
+    }
+
+    @Test
+    void waitersExpireAfterTheWaitLimitAndDoNotTakeTheNextSlot() throws Exception {
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment()
+                .withProperty("llm.limiter.max-queue-wait-ms.interactive", "50"), 1);
+        LlmConcurrencyLimiter.Permit running = acquire(limiter, LlmPriority.INTERACTIVE).join();
+        CompletableFuture<LlmConcurrencyLimiter.Permit> waiting = acquire(limiter, LlmPriority.INTERACTIVE);
+
+        LlmRejectedException rejected = assertInstanceOf(LlmRejectedException.class, failure(waiting));
+        assertEquals(50, rejected.getRetryAfterMs());
+        assertEquals(0, limiter.currentQueued());
+
+        limiter.release(running, null, true);
+        assertEquals(0, limiter.currentInFlight());
+    }
+
+    @Test
+    void freedSlotsGoToTheHighestPriorityFirst() {
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment(), 1);
+        LlmConcurrencyLimiter.Permit running = acquire(limiter, LlmPriority.BACKGROUND).join();
+        CompletableFuture<LlmConcurrencyLimiter.Permit> background = acquire(limiter, LlmPriority.BACKGROUND);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> standard = acquire(limiter, LlmPriority.STANDARD);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> interactive = acquire(limiter, LlmPriority.INTERACTIVE);
+
+        limiter.release(running, null, true);
+        assertTrue(interactive.isDone());
+        assertFalse(standard.isDone());
+
+        limiter.release(interactive.join(), null, true);
+        assertTrue(standard.isDone());
+        assertFalse(background.isDone());
+
+        limiter.release(standard.join(), null, true);
+        assertTrue(background.isDone());
+    }
+
+    @Test
+    void abandonedWaitersAndDoubleReleasesDoNotLeakSlots() {
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment(), 1);
+        LlmConcurrencyLimiter.Permit running = acquire(limiter, LlmPriority.INTERACTIVE).join();
+        CompletableFuture<LlmConcurrencyLimiter.Permit> abandoned = acquire(limiter, LlmPriority.INTERACTIVE);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> next = acquire(limiter, LlmPriority.INTERACTIVE);
+
+        abandoned.cancel(true);
+        limiter.release(running, null, true);
+        limiter.release(running, null, true);
+
+        assertTrue(next.isDone());
+        assertEquals(1, limiter.currentInFlight());
+        assertEquals(0, limiter.currentQueued());
+
+        limiter.release(next.join(), null, false);
+        assertEquals(0, limiter.currentInFlight());
+    }
+
+    @Test
+    void aModelOutOfQuotaOnlyHoldsBackItsOwnWaiters() {
+        // 1 rpm: a single token, the next one a minute away
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment()
+                .withProperty("llm.limiter.rpm.local/llama3.1", "1"), 8);
+        limiter.release(acquire(limiter, "local/llama3.1", LlmPriority.INTERACTIVE).join(), null, true);
+
+        CompletableFuture<LlmConcurrencyLimiter.Permit> blocked = acquire(limiter, "local/llama3.1", LlmPriority.INTERACTIVE);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> sameModel = acquire(limiter, "local/llama3.1", LlmPriority.BACKGROUND);
+        CompletableFuture<LlmConcurrencyLimiter.Permit> otherModel = acquire(limiter, MODEL, LlmPriority.STANDARD);
+
+        assertFalse(blocked.isDone());
+        assertFalse(sameModel.isDone());
+        assertTrue(otherModel.isDone());
+        assertEquals(2, limiter.currentQueued());
+    }
+
+    @Test
+    void overloadShrinksTheLimitMultiplicatively() {
+        LlmConcurrencyLimiter limiter = limiter(new MockEnvironment(), 10);
+
+        limiter.release(acquire(limiter, LlmPriority.STANDARD).join(),
+                new LlmException("quota", 429, true, null), false);
+        assertEquals(7, limiter.currentLimit());
+
+        limiter.release(acquire(limiter, LlmPriority.STANDARD).join(),
+                new LlmException("bad request", 400, false, null), false);
+        assertEquals(7, limiter.currentLimit(), "client errors are not overload");
+    }
+}
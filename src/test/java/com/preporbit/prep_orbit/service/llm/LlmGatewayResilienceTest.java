@@ -0,0 +1,196 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.exception.LlmRejectedException;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmGatewayResilienceTest {
+
+    private static final String PRIMARY = "gemini-2.5-flash";
+    private static final String SECONDARY = "gemini-2.0-flash";
+
+    private final JsonCodecs json = new JsonCodecs(new ObjectMapper());
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("llm.fallback.chain." + PRIMARY, SECONDARY)
+            .withProperty("llm.profile.chat.max-attempts", "1")
+            .withProperty("llm.profile.live-feedback.max-attempts", "1")
+            .withProperty("llm.profile.quiz-hint.max-attempts", "2");
+    private final ScriptedProviders providers = new ScriptedProviders(json);
+    private final LlmLatencyTracker latency = new LlmLatencyTracker();
+
+    /** Provider registry stand-in: each call to a route takes the next scripted future. */
+    private static final class ScriptedProviders extends LlmProviderRegistry {
+        final Map<String, Deque<CompletableFuture<LlmResponse>>> replies = new ConcurrentHashMap<>();
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final List<CompletableFuture<LlmResponse>> issued = new CopyOnWriteArrayList<>();
+
+        ScriptedProviders(JsonCodecs json) {
+            super(null, json, new MockEnvironment(), List.of(), "");
+        }
+
+        ScriptedProviders reply(String route, String text) {
+            return next(route, CompletableFuture.completedFuture(new LlmResponse(text, route, "STOP", null, 5)));
+        }
+
+        ScriptedProviders fail(String route, LlmException error) {
+            return next(route, CompletableFuture.failedFuture(error));
+        }
+
+        ScriptedProviders hang(String route) {
+            return next(route, new CompletableFuture<>());
+        }
+
+        private ScriptedProviders next(String route, CompletableFuture<LlmResponse> future) {
+            replies.computeIfAbsent(route, r -> new ArrayDeque<>()).add(future);
+            return this;
+        }
+
+        @Override
+        public CompletableFuture<LlmResponse> generate(LlmRequest request, String route, Duration timeout) {
+            calls.add(route);
+            CompletableFuture<LlmResponse> future = replies.get(route).removeFirst();
+            issued.add(future);
+            return future;
+        }
+    }
+
+    private LlmGateway gateway(LlmCircuitBreaker breaker, LlmConcurrencyLimiter limiter) {
+        LlmRouter router = new LlmRouter(providers, env, new SimpleMeterRegistry(),
+                Duration.ofMinutes(5), 10, 1.5, 0.5, 4, 0);
+        LlmHealthRegistry health = new LlmHealthRegistry(breaker, 50, 5, 0.2, 0.5, 0.9, 15_000, 30_000);
+        LlmResponseCache cache = new LlmResponseCache(env, new SimpleMeterRegistry(), json, 100, false, "unused");
+        return new LlmGateway(providers, router, health, cache, new LlmSingleFlight(new SimpleMeterRegistry()),
+                limiter, breaker, latency, env, new SimpleMeterRegistry(), PRIMARY,
+                List.of("live-feedback"), 10, 1);
+    }
+
+    private LlmGateway gateway(LlmCircuitBreaker breaker) {
+        return gateway(breaker, new LlmConcurrencyLimiter(env, new SimpleMeterRegistry(), 8, 1, 8, 600));
+    }
+
+    private static LlmCircuitBreaker breaker() {
+        return new LlmCircuitBreaker(new SimpleMeterRegistry(), 1, 1, 0.5, 60_000);
+    }
+
+    private static LlmResponse await(CompletableFuture<LlmResponse> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    // The loser is cancelled right after the winner completes the result, on the winner's thread
+    private static void awaitCancelled(CompletableFuture<?> future) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!future.isCancelled() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    void retryableFailureMovesOnToTheNextRoute() throws Exception {
+        providers.fail(PRIMARY, new LlmException("unavailable", 503, true, null)).reply(SECONDARY, "from fallback");
+
+        LlmResponse response = await(gateway(breaker()).generate(LlmRequest.of(LlmProfile.CHAT, "hi")));
+
+        assertEquals("from fallback", response.getText());
+        assertEquals(List.of(PRIMARY, SECONDARY), providers.calls);
+    }
+
+    @Test
+    void retryableFailureIsRetriedOnTheSameRouteWithinMaxAttempts() throws Exception {
+        LlmCircuitBreaker lenient = new LlmCircuitBreaker(new SimpleMeterRegistry(), 10, 10, 0.5, 60_000);
+        providers.fail(PRIMARY, new LlmException("quota", 429, true, null)).reply(PRIMARY, "after backoff");
+
+        LlmResponse response = await(gateway(lenient).generate(LlmRequest.of(LlmProfile.QUIZ_HINT, "hint")));
+
+        assertEquals("after backoff", response.getText());
+        assertEquals(List.of(PRIMARY, PRIMARY), providers.calls);
+    }
+
+    @Test
+    void openCircuitSkipsTheRouteWithoutCallingIt() throws Exception {
+        LlmCircuitBreaker breaker = breaker();
+        LlmGateway gateway = gateway(breaker);
+        providers.fail(PRIMARY, new LlmException("unavailable", 503, true, null))
+                .reply(SECONDARY, "first")
+                .reply(SECONDARY, "second");
+
+        await(gateway.generate(LlmRequest.of(LlmProfile.CHAT, "one")));
+        assertEquals(LlmCircuitBreaker.State.OPEN, breaker.state(PRIMARY));
+
+        assertEquals("second", await(gateway.generate(LlmRequest.of(LlmProfile.CHAT, "two"))).getText());
+        assertEquals(List.of(PRIMARY, SECONDARY, SECONDARY), providers.calls);
+    }
+
+    @Test
+    void sheddingStopsTheChainAndSkipsTheLocalFallback() {
+        LlmConcurrencyLimiter full = new LlmConcurrencyLimiter(new MockEnvironment()
+                .withProperty("llm.limiter.queue-capacity.interactive", "0"), new SimpleMeterRegistry(), 1, 1, 1, 600);
+        LlmRequest request = LlmRequest.builder(LlmProfile.CHAT).prompt("hi")
+                .localFallback(() -> "heuristic").build();
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> await(gateway(breaker(), full).generate(request)));
+
+        assertInstanceOf(LlmRejectedException.class, e.getCause());
+        assertTrue(providers.calls.isEmpty());
+    }
+
+    @Test
+    void nonRetryableFailureUsesTheLocalFallbackInsteadOfTheNextRoute() throws Exception {
+        providers.fail(PRIMARY, new LlmException("bad request", 400, false, null));
+        LlmRequest request = LlmRequest.builder(LlmProfile.CHAT).prompt("hi")
+                .localFallback(() -> "heuristic").build();
+
+        LlmResponse response = await(gateway(breaker()).generate(request));
+
+        assertEquals("heuristic", response.getText());
+        assertEquals(LlmGateway.LOCAL_MODEL, response.getModel());
+        assertEquals(List.of(PRIMARY), providers.calls);
+    }
+
+    @Test
+    void hedgeWinsAndTheSlowPrimaryIsCancelled() throws Exception {
+        latency.record(LlmProfile.LIVE_FEEDBACK.getKey(), 5);
+        providers.hang(PRIMARY).reply(PRIMARY, "hedged");
+
+        LlmResponse response = await(gateway(breaker()).generate(LlmRequest.of(LlmProfile.LIVE_FEEDBACK, "answer")));
+
+        assertEquals("hedged", response.getText());
+        assertEquals(List.of(PRIMARY, PRIMARY), providers.calls);
+        awaitCancelled(providers.issued.get(0));
+    }
+
+    @Test
+    void primaryWinningCancelsTheHedge() throws Exception {
+        latency.record(LlmProfile.LIVE_FEEDBACK.getKey(), 5);
+        CompletableFuture<LlmResponse> primary = new CompletableFuture<>();
+        providers.next(PRIMARY, primary).hang(PRIMARY);
+
+        CompletableFuture<LlmResponse> result = gateway(breaker()).generate(LlmRequest.of(LlmProfile.LIVE_FEEDBACK, "answer"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (providers.issued.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        primary.complete(new LlmResponse("primary", PRIMARY, "STOP", null, 5));
+
+        assertEquals("primary", await(result).getText());
+        awaitCancelled(providers.issued.get(1));
+    }
+}
@@ -0,0 +1,51 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.preporbit.prep_orbit.exception.LlmException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmHealthRegistryTest {
+
+    private final LlmCircuitBreaker breaker = new LlmCircuitBreaker(new SimpleMeterRegistry(), 10, 4, 0.5, 60_000);
+    private final LlmHealthRegistry health = new LlmHealthRegistry(breaker, 10, 4, 0.5, 0.5, 0.9, 5_000, 60_000);
+
+    @Test
+    void unseenRoutesCountAsAvailable() {
+        assertEquals(LlmHealthRegistry.Status.UNKNOWN, health.status("gemini-2.5-flash"));
+        assertTrue(health.anyAvailable(List.of("gemini-2.5-flash")));
+    }
+
+    @Test
+    void tracksRatioEwmaAndLastError() {
+        health.onSuccess("gemini-2.5-flash", 100);
+        health.onSuccess("gemini-2.5-flash", 200);
+        health.onSuccess("gemini-2.5-flash", 200);
+        health.onFailure("gemini-2.5-flash", new LlmException("Gemini API error: 503", 503, true, null));
+
+        LlmHealthRegistry.RouteHealth h = health.health("gemini-2.5-flash");
+        assertEquals(0.75, h.successRatio(), 1e-9);
+        assertEquals(175, h.latencyEwmaMs()); // alpha 0.5: 100 → 150 → 175
+        assertEquals(503, h.lastErrorStatus());
+        assertNotNull(h.lastErrorAt());
+        assertEquals(LlmHealthRegistry.Status.DEGRADED, h.status());
+    }
+
+    @Test
+    void routeIsDownWhileItsCircuitIsOpenAndOthersKeepTheChainAvailable() {
+        LlmException unavailable = new LlmException("Gemini API error: 503", 503, true, null);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire("gemini-2.5-flash"));
+            breaker.onFailure("gemini-2.5-flash", unavailable);
+            health.onFailure("gemini-2.5-flash", unavailable);
+        }
+
+        assertEquals(LlmCircuitBreaker.State.OPEN, health.health("gemini-2.5-flash").circuit());
+        assertEquals(LlmHealthRegistry.Status.DOWN, health.status("gemini-2.5-flash"));
+        assertFalse(health.anyAvailable(List.of("gemini-2.5-flash")));
+        assertTrue(health.anyAvailable(List.of("gemini-2.5-flash", "gemini-2.0-flash")));
+    }
+}
@@ -0,0 +1,113 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmJsonRecoveryTest {
+
+    private static final LlmJsonCodec CODEC = new LlmJsonCodec(new JsonCodecs(new ObjectMapper()));
+    private static final JavaType STRINGS = CODEC.type(new TypeReference<List<String>>() {});
+
+    /** Gateway stand-in: answers calls from a script; an {@link LlmException} entry is thrown. */
+    private static final class ScriptedGateway extends LlmGateway {
+        final Deque<Object> replies = new ArrayDeque<>();
+        final List<LlmRequest> requests = new ArrayList<>();
+
+        ScriptedGateway() {
+            super(null, null, null, null, null, null, null, null, new MockEnvironment(),
+                    new SimpleMeterRegistry(), "gemini-2.5-flash", List.of(), 300, 20);
+        }
+
+        ScriptedGateway reply(String text, String finishReason) {
+            replies.add(new LlmResponse(text, "gemini-2.5-flash", finishReason, null, 1));
+            return this;
+        }
+
+        ScriptedGateway fail(LlmException e) {
+            replies.add(e);
+            return this;
+        }
+
+        @Override
+        public LlmResponse call(LlmRequest request) {
+            requests.add(request);
+            Object next = replies.removeFirst();
+            if (next instanceof LlmException e) throw e;
+            return (LlmResponse) next;
+        }
+    }
+
+    private static LlmRequest request() {
+        return LlmRequest.of(LlmProfile.RESUME_ANALYSIS, "List three skills as a JSON array.");
+    }
+
+    private static double outcome(SimpleMeterRegistry registry, String outcome) {
+        return registry.counter("llm.json.recovery", "profile", LlmProfile.RESUME_ANALYSIS.getKey(),
+                "outcome", outcome).count();
+    }
+
+    @Test
+    void cleanReplyNeedsNoSecondCall() {
+        ScriptedGateway gateway = new ScriptedGateway().reply("[\"java\", \"sql\"]", "STOP");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        List<String> skills = new LlmJsonRecovery(gateway, CODEC, registry, true).call(request(), STRINGS, null);
+
+        assertEquals(List.of("java", "sql"), skills);
+        assertEquals(1, gateway.requests.size());
+        assertEquals(1, outcome(registry, "clean"));
+    }
+
+    @Test
+    void maxTokensReplyIsCompletedByAContinuationCall() {
+        ScriptedGateway gateway = new ScriptedGateway()
+                .reply("[\"java\", \"sql\", \"kot", "MAX_TOKENS")
+                .reply("```\nlin\"]\n```", "STOP");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        List<String> skills = new LlmJsonRecovery(gateway, CODEC, registry, true).call(request(), STRINGS, null);
+
+        assertEquals(List.of("java", "sql", "kotlin"), skills);
+        assertEquals(2, gateway.requests.size());
+        LlmRequest continuation = gateway.requests.get(1);
+        assertTrue(continuation.getPrompt().endsWith("[\"java\", \"sql\", \"kot"));
+        assertEquals(1, outcome(registry, "continued"));
+    }
+
+    @Test
+    void failedContinuationFallsBackToTheCompleteElements() {
+        ScriptedGateway gateway = new ScriptedGateway()
+                .reply("[\"java\", \"sql\", \"kot", "MAX_TOKENS")
+                .fail(new LlmException("quota", 429, true, null));
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        List<String> skills = new LlmJsonRecovery(gateway, CODEC, registry, true).call(request(), STRINGS, null);
+
+        assertEquals(List.of("java", "sql"), skills);
+        assertEquals(1, outcome(registry, "salvaged"));
+    }
+
+    @Test
+    void undecodableReplyThatWasNotCutFails() {
+        ScriptedGateway gateway = new ScriptedGateway().reply("I cannot help with that.", "STOP");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+        assertThrows(LlmException.class,
+                () -> new LlmJsonRecovery(gateway, CODEC, registry, true).call(request(), STRINGS, null));
+        assertEquals(1, gateway.requests.size());
+        assertEquals(1, outcome(registry, "failed"));
+    }
+}
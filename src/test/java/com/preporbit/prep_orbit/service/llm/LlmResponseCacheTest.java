@@ -0,0 +1,36 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmResponseCacheTest {
+
+    private static final String MODEL = "gemini-2.5-flash";
+
+    private final LlmResponseCache cache = new LlmResponseCache(new MockEnvironment(), new SimpleMeterRegistry(),
+            new JsonCodecs(new ObjectMapper()), 100, false, "unused");
+
+    @Test
+    void completedAnswersAreCached() {
+        LlmRequest request = LlmRequest.of(LlmProfile.QUIZ_HINT, "hint for q1");
+        cache.put(request, MODEL, new LlmResponse("use a set", MODEL, "STOP", null, 5));
+
+        assertEquals("use a set", cache.get(request, MODEL).getText());
+    }
+
+    @Test
+    void truncatedAnswersAndLocalFallbacksAreNotCached() {
+        LlmRequest truncated = LlmRequest.of(LlmProfile.QUIZ_HINT, "hint for q2");
+        cache.put(truncated, MODEL, new LlmResponse("use a", MODEL, "MAX_TOKENS", null, 5));
+        LlmRequest local = LlmRequest.of(LlmProfile.QUIZ_HINT, "hint for q3");
+        cache.put(local, MODEL, new LlmResponse("review the basics", LlmGateway.LOCAL_MODEL, "STOP", null, 0));
+
+        assertNull(cache.get(truncated, MODEL));
+        assertNull(cache.get(local, MODEL));
+    }
+}
@@ -0,0 +1,82 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.service.GeminiRestClient;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmRouterTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final List<String> CHAIN = List.of("gemini-2.5-flash", "gemini-2.0-flash");
+
+    private LlmRouter router;
+
+    @BeforeEach
+    void setUp() {
+        JsonCodecs json = new JsonCodecs(new ObjectMapper());
+        MockEnvironment env = new MockEnvironment()
+                .withProperty("llm.providers.local.base-url", "http://127.0.0.1:1/v1")
+                .withProperty("llm.providers.local.capabilities", "streaming")
+                .withProperty("llm.route.alternates", "local/llama3.1");
+        GeminiRestClient gemini = new GeminiRestClient("key", "http://127.0.0.1:1/v1beta/models", 4, 2, 30, json);
+        LlmProviderRegistry providers = new LlmProviderRegistry(gemini, json, env,
+                List.of("local"), "");
+        router = new LlmRouter(providers, env, new SimpleMeterRegistry(),
+                Duration.ofMinutes(5), 5, 1.5, 0.5, 4, 0);
+    }
+
+    @Test
+    void keepsConfiguredOrderUntilRoutesAreMeasured() {
+        assertEquals(List.of("gemini-2.5-flash", "gemini-2.0-flash", "local/llama3.1"),
+                router.plan(LlmRequest.of(LlmProfile.CHAT, "hi"), CHAIN, TIMEOUT, false));
+    }
+
+    @Test
+    void shiftsInteractiveTrafficOffASlowPrimary() {
+        record("gemini-2.5-flash", 7000, true);
+        record("local/llama3.1", 400, true);
+
+        List<String> plan = router.plan(LlmRequest.builder(LlmProfile.LIVE_FEEDBACK).prompt("hi").build(),
+                CHAIN, TIMEOUT, false);
+
+        assertEquals(List.of("local/llama3.1", "gemini-2.5-flash", "gemini-2.0-flash"), plan);
+    }
+
+    @Test
+    void standardTrafficSwitchesOnlyPastTheRatioOrOnErrors() {
+        record("gemini-2.5-flash", 1000, true);
+        record("gemini-2.0-flash", 800, true);
+        LlmRequest request = LlmRequest.of(LlmProfile.RESUME_ANALYSIS, "resume");
+
+        assertEquals("gemini-2.5-flash", router.plan(request, CHAIN, TIMEOUT, false).get(0));
+
+        record("gemini-2.5-flash", 1000, false);
+        LlmRouter.Stats stats = router.stats("gemini-2.5-flash");
+        assertEquals(0.5, stats.errorRate(), 1e-9);
+        assertEquals("gemini-2.0-flash", router.plan(request, CHAIN, TIMEOUT, false).get(0));
+    }
+
+    @Test
+    void dropsRoutesLackingARequiredCapability() {
+        LlmRequest structured = LlmRequest.builder(LlmProfile.CHAT).prompt("hi")
+                .responseSchema(new ObjectMapper().createObjectNode().put("type", "OBJECT"))
+                .build();
+
+        assertEquals(CHAIN, router.plan(structured, CHAIN, TIMEOUT, false));
+        assertTrue(router.plan(LlmRequest.of(LlmProfile.CHAT, "hi"), CHAIN, TIMEOUT, true)
+                .contains("local/llama3.1"));
+    }
+
+    private void record(String route, long latencyMs, boolean ok) {
+        for (int i = 0; i < 10; i++) router.record(route, latencyMs, ok);
+    }
+}
@@ -0,0 +1,63 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LlmSpeculatorTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    // Only the non-LLM path is exercised, so no gateway, limiter or environment is needed
+    private LlmSpeculator speculator(int tasksPerMinute, Duration ttl) {
+        return new LlmSpeculator(null, null, null, meters, true, 0.1, tasksPerMinute, ttl, 10, 2_000,
+                "gemini-2.5-flash", 600);
+    }
+
+    private double count(String outcome) {
+        var counter = meters.find("llm.speculation").tag("outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void speculatedResultIsClaimedOnce() {
+        LlmSpeculator speculator = speculator(5, Duration.ofMinutes(1));
+
+        assertTrue(speculator.speculate("tts", "q1", () -> "audio"));
+        assertFalse(speculator.speculate("tts", "q1", () -> "again")); // already pending
+
+        assertEquals("audio", speculator.claim("tts", "q1"));
+        assertNull(speculator.claim("tts", "q1"));
+        assertEquals(1, count("hit"));
+        assertEquals(1, count("miss"));
+    }
+
+    @Test
+    void speculationStopsAtThePerMinuteShare() {
+        LlmSpeculator speculator = speculator(2, Duration.ofMinutes(1));
+
+        assertTrue(speculator.speculate("tts", "a", () -> "a"));
+        assertTrue(speculator.speculate("tts", "b", () -> "b"));
+        assertFalse(speculator.speculate("tts", "c", () -> "c"));
+        assertEquals(1, count("skipped"));
+    }
+
+    @Test
+    void failedOrExpiredSpeculationFallsBackToTheLiveCall() {
+        LlmSpeculator speculator = speculator(5, Duration.ZERO);
+
+        speculator.speculate("tts", "gone", () -> "audio");
+        assertNull(speculator.claim("tts", "gone"));
+        assertEquals(1, count("wasted"));
+
+        LlmSpeculator failing = speculator(5, Duration.ofMinutes(1));
+        failing.speculate("tts", "broken", () -> {
+            throw new IllegalStateException("TTS down");
+        });
+        assertNull(failing.claim("tts", "broken"));
+        assertEquals(1, count("failed"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptCompactorTest {
+
+    private final PromptCompactor compactor =
+            new PromptCompactor(new MockEnvironment(), new SimpleMeterRegistry(), 8000);
+
+    private static String paragraph(String lead, int sentences) {
+        return (lead + " delivered measurable results for the team. ").repeat(sentences).strip();
+    }
+
+    @Test
+    void everyParagraphOfASectionKeepsTheHeadingWeight() {
+        String resume = String.join("\n",
+                "Jane Doe", "jane@example.com",
+                "",
+                "EXPERIENCE",
+                paragraph("Acme: led the platform rewrite and", 3),
+                "",
+                paragraph("Globex: built the billing pipeline and", 3),
+                "",
+                paragraph("Initech: automated the release process and", 3),
+                "",
+                "EDUCATION",
+                paragraph("BSc Computer Science, State University,", 6),
+                "",
+                "INTERESTS",
+                paragraph("Chess and hiking", 4));
+        int experienceAndHeader = PromptCompactor.estimateTokens(resume.substring(0, resume.indexOf("EDUCATION")));
+
+        String compacted = compactor.compact(LlmProfile.RESUME_ANALYSIS, resume, experienceAndHeader + 60);
+
+        assertTrue(compacted.contains("Globex"), compacted);
+        assertTrue(compacted.contains("Initech"), compacted);
+        assertTrue(compacted.contains("[…]"), "education is cut, not the later experience paragraphs");
+        assertFalse(compacted.contains("Chess"));
+    }
+
+    @Test
+    void onlyKeywordLinesCountAsHeadings() {
+        assertEquals(5, PromptCompactor.headingWeight("EXPERIENCE"));
+        assertEquals(5, PromptCompactor.headingWeight("Professional Experience:"));
+        assertEquals(5, PromptCompactor.headingWeight("Work History"));
+        assertEquals(4, PromptCompactor.headingWeight("Technical Skills"));
+        assertEquals(4, PromptCompactor.headingWeight("Projects"));
+        assertEquals(2, PromptCompactor.headingWeight("Certifications"));
+
+        assertNull(PromptCompactor.headingWeight("Technical Lead"));
+        assertNull(PromptCompactor.headingWeight("Profile Manager"));
+        assertNull(PromptCompactor.headingWeight("Skills were applied across three teams"));
+    }
+
+    @Test
+    void normalizeDropsBoilerplateAndRepeatedLines() {
+        String text = "Jane Doe\n\n\nPage 2 of 3\n- Built a search service in Java\n• Built a search service in Java\n";
+
+        assertEquals("Jane Doe\n\n- Built a search service in Java", compactor.normalize(text));
+    }
+
+    @Test
+    void collapseWhitespaceKeepsShortAnswersAndRepeats() {
+        assertEquals("100", compactor.collapseWhitespace("  100 \n"));
+        assertEquals("?", compactor.collapseWhitespace("?"));
+        assertEquals("Resume", compactor.collapseWhitespace("Resume"));
+        assertEquals("I would use a hash map here\n\nI would use a hash map here",
+                compactor.collapseWhitespace("I  would use a\thash map here\n\n\nI would use a hash map here"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.preporbit.prep_orbit.service.llm;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptTemplateRegistryTest {
+
+    @Test
+    void loadsEveryBundledTemplateAndSplitsOffTheFixedPreamble() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(new MockEnvironment());
+
+        assertTrue(registry.names().containsAll(
+                List.of("resume-text-analysis", "resume-generation", "live-questions")));
+
+        PromptTemplate.Rendered rendered = registry.render("resume-text-analysis", Map.of("resumeText", "JANE DOE"));
+        assertEquals("resume-text-analysis", rendered.template());
+        assertEquals("v1", rendered.version());
+        assertTrue(rendered.preamble().startsWith("Analyze this resume text"));
+        assertFalse(rendered.preamble().contains("JANE DOE"));
+        // The line holding the first placeholder starts the variable part
+        assertEquals("JANE DOE\n", rendered.prompt().replace("\r", ""));
+        assertEquals(rendered.preamble() + rendered.prompt(), rendered.text());
+    }
+
+    @Test
+    void missingValuesAndUnknownTemplatesAreRejected() {
+        PromptTemplateRegistry registry = new PromptTemplateRegistry(new MockEnvironment());
+
+        assertThrows(IllegalArgumentException.class, () -> registry.render("resume-text-analysis", Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> registry.render("no-such-template", Map.of()));
+    }
+
+    @Test
+    void springCanCreateTheBean() {
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext(PromptTemplateRegistry.class)) {
+            assertFalse(context.getBean(PromptTemplateRegistry.class).names().isEmpty());
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package com.preporbit.prep_orbit.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded stand-in for the external APIs the app calls, for offline load and
+ * throughput testing without spending real quota.
+ *
+ * Endpoints:
+ *  - Gemini {@code /v1beta/models/{model}:generateContent} and
+ *    {@code :streamGenerateContent?alt=sse}; when the request carries a
+ *    {@code responseSchema} the reply is synthesised to match it
+ *  - Judge0 {@code /submissions} (echoes stdin as stdout)
+ *  - OpenAI-compatible {@code /v1/chat/completions} (plain and {@code stream: true} SSE),
+ *    schema-shaped when {@code response_format} carries a JSON schema
+ *  - OpenAI Whisper {@code /v1/audio/transcriptions}
+ *
+ * Each upstream has its own {@link StubProfile} (latency, error rate, payload size),
+ * switchable at runtime. Point the app at it with {@link #registerProperties}
+ * ({@code @DynamicPropertySource}) or the printed overrides when run via {@link #main}.
+ * The Vapi side (webhook calls into the app) is driven by {@link VapiWebhookCaller}.
+ */
+public final class ExternalApiStubServer implements AutoCloseable {
+
+    private static final String LOREM = "Stubbed model output for offline performance testing. ";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, AtomicLong> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, ObjectNode> batches = new ConcurrentHashMap<>();
+
+    private volatile StubProfile geminiProfile;
+    private volatile StubProfile judge0Profile;
+    private volatile StubProfile whisperProfile;
+    private volatile StubProfile chatProfile;
+
+    private ExternalApiStubServer(int port) throws IOException {
+        this.geminiProfile = StubProfile.fromSystemProperties("gemini", StubProfile.FAST);
+        this.judge0Profile = StubProfile.fromSystemProperties("judge0", StubProfile.FAST);
+        this.whisperProfile = StubProfile.fromSystemProperties("whisper", StubProfile.FAST);
+        this.chatProfile = StubProfile.fromSystemProperties("chat", StubProfile.FAST);
+
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 512);
+        server.setExecutor(executor);
+        server.createContext("/v1beta/models/", this::handleGemini);
+        server.createContext("/v1beta/batches/", this::handleBatches);
+        server.createContext("/submissions", this::handleJudge0);
+        server.createContext("/v1/audio/transcriptions", this::handleWhisper);
+        server.createContext("/v1/chat/completions", this::handleChat);
+        server.start();
+    }
+
+    /** Starts on an ephemeral port. */
+    public static ExternalApiStubServer start() throws IOException {
+        return start(0);
+    }
+
+    public static ExternalApiStubServer start(int port) throws IOException {
+        return new ExternalApiStubServer(port);
+    }
+
+    /* ====================== WIRING ====================== */
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + getPort();
+    }
+
+    public String geminiApiBase() {
+        return baseUrl() + "/v1beta/models";
+    }
+
+    public String judge0Url() {
+        return baseUrl();
+    }
+
+    public String openAiApiBase() {
+        return baseUrl() + "/v1";
+    }
+
+    /** Property overrides that route the app's outbound calls to this stub. */
+    public Map<String, String> properties() {
+        Map<String, String> props = new TreeMap<>();
+        props.put("GEMINI_API_BASE", geminiApiBase());
+        props.put("interview.ai.api.url", geminiApiBase());
+        props.put("JUDGE0_URL", judge0Url());
+        props.put("OPENAI_API_BASE", openAiApiBase());
+        props.put("GOOGLE_API_KEY", "stub-key");
+        props.put("judge0.api.key", "stub-key");
+        props.put("openai.api.key", "stub-key");
+        return props;
+    }
+
+    public void registerProperties(DynamicPropertyRegistry registry) {
+        properties().forEach((name, value) -> registry.add(name, () -> value));
+    }
+
+    /* ====================== PROFILES / STATS ====================== */
+
+    public ExternalApiStubServer geminiProfile(StubProfile profile) {
+        this.geminiProfile = profile;
+        return this;
+    }
+
+    public ExternalApiStubServer judge0Profile(StubProfile profile) {
+        this.judge0Profile = profile;
+        return this;
+    }
+
+    public ExternalApiStubServer whisperProfile(StubProfile profile) {
+        this.whisperProfile = profile;
+        return this;
+    }
+
+    public ExternalApiStubServer chatProfile(StubProfile profile) {
+        this.chatProfile = profile;
+        return this;
+    }
+
+    /**
+     * Requests served per endpoint ("gemini.generate", "gemini.stream", "gemini.cache", "gemini.batch",
+     * "chat", "chat.stream", "judge0", "whisper").
+     */
+    public long requestCount(String endpoint) {
+        AtomicLong count = requestCounts.get(endpoint);
+        return count == null ? 0 : count.get();
+    }
+
+    public void resetCounts() {
+        requestCounts.clear();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /* ====================== GEMINI ====================== */
+
+    private void handleGemini(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith(":batchGenerateContent")) {
+                createBatch(exchange);
+                return;
+            }
+            boolean streaming = path.endsWith(":streamGenerateContent");
+            if (!streaming && !path.endsWith(":generateContent")) {
+                sendJson(exchange, 404, errorBody(404, "NOT_FOUND", "Unknown stub path " + path));
+                return;
+            }
+            count(streaming ? "gemini.stream" : "gemini.generate");
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            StubProfile profile = geminiProfile;
+
+            if (profile.shouldFail()) {
+                pause(profile.sampleLatencyMs());
+                sendJson(exchange, profile.getErrorStatus(),
+                        errorBody(profile.getErrorStatus(), "UNAVAILABLE", "Stubbed upstream failure"));
+                return;
+            }
+
+            JsonNode schema = request.path("generationConfig").path("responseSchema");
+            String text = schema.isMissingNode()
+                    ? lorem(profile.getPayloadChars())
+                    : mapper.writeValueAsString(sample(schema, profile.getPayloadChars()));
+
+            if (streaming) {
+                streamCandidates(exchange, text, profile.sampleLatencyMs());
+            } else {
+                pause(profile.sampleLatencyMs());
+                sendJson(exchange, 200, candidateBody(text, "STOP"));
+            }
+        }
+    }
+
+    /** Batches complete immediately: the first GET already sees the inlined responses. */
+    private void createBatch(HttpExchange exchange) throws IOException {
+        count("gemini.batch");
+        JsonNode batch = mapper.readTree(exchange.getRequestBody()).path("batch");
+        String name = "batches/" + UUID.randomUUID().toString().replace("-", "");
+
+        ObjectNode operation = mapper.createObjectNode().put("name", name).put("done", true);
+        operation.putObject("metadata").put("state", "BATCH_STATE_SUCCEEDED");
+        ArrayNode responses = operation.putObject("response").putObject("inlinedResponses")
+                .putArray("inlinedResponses");
+        for (JsonNode entry : batch.path("input_config").path("requests").path("requests")) {
+            JsonNode schema = entry.path("request").path("generationConfig").path("responseSchema");
+            String text = schema.isMissingNode()
+                    ? lorem(geminiProfile.getPayloadChars())
+                    : mapper.writeValueAsString(sample(schema, geminiProfile.getPayloadChars()));
+            ObjectNode result = responses.addObject();
+            result.set("metadata", entry.path("metadata"));
+            result.set("response", candidateBody(text, "STOP"));
+        }
+        batches.put(name, operation);
+        sendJson(exchange, 200, mapper.createObjectNode().put("name", name)
+                .set("metadata", mapper.createObjectNode().put("state", "BATCH_STATE_PENDING")));
+    }
+
+    private void handleBatches(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            count("gemini.batch");
+            String path = exchange.getRequestURI().getPath();
+            ObjectNode operation = batches.get(path.substring(path.indexOf("batches/")));
+            if (operation == null) {
+                sendJson(exchange, 404, errorBody(404, "NOT_FOUND", "Batch not found: " + path));
+                return;
+            }
+            sendJson(exchange, 200, operation);
+        }
+    }
+
+    /** SSE stream: first chunk after ~30% of the latency budget, the rest spread evenly. */
+    private void streamCandidates(HttpExchange exchange, String text, long latencyMs) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        int chunks = Math.max(1, Math.min(8, text.length() / 32));
+        int size = (text.length() + chunks - 1) / chunks;
+        OutputStream out = exchange.getResponseBody();
+
+        pause(latencyMs * 3 / 10);
+        for (int i = 0; i < chunks; i++) {
+            if (i > 0) pause(latencyMs * 7 / 10 / chunks);
+            int from = i * size;
+            String piece = text.substring(from, Math.min(text.length(), from + size));
+            ObjectNode event = candidateBody(piece, i == chunks - 1 ? "STOP" : null);
+            out.write(("data: " + mapper.writeValueAsString(event) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private ObjectNode candidateBody(String text, String finishReason) {
+        ObjectNode root = mapper.createObjectNode();
+        ObjectNode candidate = root.putArray("candidates").addObject();
+        candidate.putObject("content").put("role", "model").putArray("parts").addObject().put("text", text);
+        if (finishReason != null) {
+            candidate.put("finishReason", finishReason);
+            ObjectNode usage = root.putObject("usageMetadata");
+            usage.put("promptTokenCount", 100);
+            usage.put("candidatesTokenCount", Math.max(1, text.length() / 4));
+        }
+        return root;
+    }
+
+    /** Minimal JSON value conforming to a Gemini (OpenAPI subset) schema. */
+    private JsonNode sample(JsonNode schema, int payloadChars) {
+        JsonNode enumValues = schema.get("enum");
+        if (enumValues != null && enumValues.size() > 0) return enumValues.get(0);
+
+        switch (schema.path("type").asText("STRING").toUpperCase()) {
+            case "OBJECT" -> {
+                ObjectNode obj = mapper.createObjectNode();
+                schema.path("properties").fields()
+                        .forEachRemaining(e -> obj.set(e.getKey(), sample(e.getValue(), payloadChars)));
+                return obj;
+            }
+            case "ARRAY" -> {
+                ArrayNode arr = mapper.createArrayNode();
+                for (int i = 0; i < 3; i++) arr.add(sample(schema.path("items"), payloadChars / 3));
+                return arr;
+            }
+            case "INTEGER" -> {
+                return mapper.getNodeFactory().numberNode(7);
+            }
+            case "NUMBER" -> {
+                return mapper.getNodeFactory().numberNode(7.5);
+            }
+            case "BOOLEAN" -> {
+                return mapper.getNodeFactory().booleanNode(true);
+            }
+            default -> {
+                return mapper.getNodeFactory().textNode(lorem(Math.max(8, payloadChars / 8)));
+            }
+        }
+    }
+
+    /* ====================== OPENAI-COMPATIBLE CHAT ====================== */
+
+    private void handleChat(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            boolean streaming = request.path("stream").asBoolean(false);
+            count(streaming ? "chat.stream" : "chat");
+            StubProfile profile = chatProfile;
+            long latencyMs = profile.sampleLatencyMs();
+
+            if (profile.shouldFail()) {
+                pause(latencyMs);
+                sendJson(exchange, profile.getErrorStatus(),
+                        errorBody(profile.getErrorStatus(), "server_error", "Stubbed upstream failure"));
+                return;
+            }
+
+            JsonNode schema = request.path("response_format").path("json_schema").path("schema");
+            String text = schema.isMissingNode()
+                    ? lorem(profile.getPayloadChars())
+                    : mapper.writeValueAsString(sample(schema, profile.getPayloadChars()));
+            String model = request.path("model").asText("stub");
+
+            if (!streaming) {
+                pause(latencyMs);
+                ObjectNode root = mapper.createObjectNode().put("object", "chat.completion").put("model", model);
+                ObjectNode choice = root.putArray("choices").addObject().put("index", 0).put("finish_reason", "stop");
+                choice.putObject("message").put("role", "assistant").put("content", text);
+                root.putObject("usage").put("prompt_tokens", 100).put("completion_tokens", Math.max(1, text.length() / 4));
+                sendJson(exchange, 200, root);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            int chunks = Math.max(1, Math.min(8, text.length() / 32));
+            int size = (text.length() + chunks - 1) / chunks;
+            OutputStream out = exchange.getResponseBody();
+            pause(latencyMs * 3 / 10);
+            for (int i = 0; i < chunks; i++) {
+                if (i > 0) pause(latencyMs * 7 / 10 / chunks);
+                int from = i * size;
+                ObjectNode event = mapper.createObjectNode().put("object", "chat.completion.chunk").put("model", model);
+                ObjectNode choice = event.putArray("choices").addObject().put("index", 0);
+                choice.putObject("delta").put("content", text.substring(from, Math.min(text.length(), from + size)));
+                if (i == chunks - 1) choice.put("finish_reason", "stop");
+                else choice.putNull("finish_reason");
+                out.write(("data: " + mapper.writeValueAsString(event) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /* ====================== JUDGE0 / WHISPER ====================== */
+
+    private void handleJudge0(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            count("judge0");
+            JsonNode submission = mapper.readTree(exchange.getRequestBody());
+            StubProfile profile = judge0Profile;
+            pause(profile.sampleLatencyMs());
+            if (profile.shouldFail()) {
+                sendJson(exchange, profile.getErrorStatus(), mapper.createObjectNode().put("error", "Stubbed failure"));
+                return;
+            }
+            ObjectNode result = mapper.createObjectNode();
+            result.put("stdout", submission.path("stdin").asText(""));
+            result.putNull("stderr");
+            result.putObject("status").put("id", 3).put("description", "Accepted");
+            result.put("time", "0.010");
+            result.put("memory", 1024);
+            sendJson(exchange, 200, result);
+        }
+    }
+
+    private void handleWhisper(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            count("whisper");
+            drain(exchange.getRequestBody());
+            StubProfile profile = whisperProfile;
+            pause(profile.sampleLatencyMs());
+            if (profile.shouldFail()) {
+                sendJson(exchange, profile.getErrorStatus(),
+                        errorBody(profile.getErrorStatus(), "server_error", "Stubbed failure"));
+                return;
+            }
+            sendJson(exchange, 200, mapper.createObjectNode().put("text", lorem(profile.getPayloadChars())));
+        }
+    }
+
+    /* ====================== HELPERS ====================== */
+
+    private ObjectNode errorBody(int code, String status, String message) {
+        ObjectNode root = mapper.createObjectNode();
+        root.putObject("error").put("code", code).put("status", status).put("message", message);
+        return root;
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = mapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private void count(String endpoint) {
+        requestCounts.computeIfAbsent(endpoint, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    private static String lorem(int chars) {
+        StringBuilder sb = new StringBuilder(chars);
+        while (sb.length() < chars) sb.append(LOREM);
+        return sb.substring(0, chars).trim();
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        in.transferTo(OutputStream.nullOutputStream());
+    }
+
+    private static void pause(long ms) {
+        if (ms <= 0) return;
+        try {
+            Thread.sleep(ms); // handlers run on virtual threads
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Standalone mode for laptop load tests:
+     * {@code mvn -q exec:java -Dexec.classpathScope=test
+     *   -Dexec.mainClass=com.preporbit.prep_orbit.stub.ExternalApiStubServer -Dstub.port=8089}
+     * then start the app with the printed property overrides.
+     */
+    public static void main(String[] args) throws Exception {
+        ExternalApiStubServer stub = start(Integer.getInteger("stub.port", 8089));
+        System.out.println("🧪 External API stub listening on " + stub.baseUrl());
+        System.out.println("   gemini=" + stub.geminiProfile + " chat=" + stub.chatProfile
+                + " judge0=" + stub.judge0Profile + " whisper=" + stub.whisperProfile);
+        stub.properties().forEach((k, v) -> System.out.println("   --" + k + "=" + v));
+        Runtime.getRuntime().addShutdownHook(new Thread(stub::close));
+        Thread.currentThread().join();
+    }
+}
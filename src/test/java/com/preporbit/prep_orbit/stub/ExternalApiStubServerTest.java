@@ -0,0 +1,165 @@
+package com.preporbit.prep_orbit.stub;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.preporbit.prep_orbit.dto.LiveFeedbackDto;
+import com.preporbit.prep_orbit.exception.LlmException;
+import com.preporbit.prep_orbit.service.GeminiRestClient;
+import com.preporbit.prep_orbit.service.Judge0Service;
+import com.preporbit.prep_orbit.service.OpenAiRestClient;
+import com.preporbit.prep_orbit.service.llm.LlmJsonCodec;
+import com.preporbit.prep_orbit.service.llm.LlmProfile;
+import com.preporbit.prep_orbit.service.llm.LlmProvider;
+import com.preporbit.prep_orbit.service.llm.LlmRequest;
+import com.preporbit.prep_orbit.service.llm.LlmResponse;
+import com.preporbit.prep_orbit.util.JsonCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.awt.image.BufferedImage;
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalApiStubServerTest {
+
+    private ExternalApiStubServer stub;
+    private final JsonCodecs json = new JsonCodecs(new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false));
+    private GeminiRestClient gemini;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        stub = ExternalApiStubServer.start();
+        gemini = new GeminiRestClient("stub-key", stub.geminiApiBase(), 8, 4, 30, json);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stub.close();
+    }
+
+    @Test
+    void generateContentReturnsSchemaShapedJson() {
+        LlmJsonCodec codec = new LlmJsonCodec(json);
+        LlmRequest request = LlmRequest.builder(LlmProfile.LIVE_FEEDBACK)
+                .prompt("Evaluate the answer")
+                .responseSchema(codec.schemaFor(codec.type(LiveFeedbackDto.class)))
+                .build();
+
+        LlmResponse response = gemini.generateContent(request, "gemini-2.5-flash", Duration.ofSeconds(5)).join();
+        LiveFeedbackDto feedback = codec.decode(response.getText(), LiveFeedbackDto.class);
+
+        assertEquals("STOP", response.getFinishReason());
+        assertEquals(7, feedback.getRating());
+        assertNotNull(feedback.getFeedback());
+        assertEquals(1, stub.requestCount("gemini.generate"));
+    }
+
+    @Test
+    void streamGenerateContentRelaysChunks() {
+        stub.geminiProfile(StubProfile.FAST.withPayloadChars(600));
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        LlmResponse response = gemini.streamGenerateContent(LlmRequest.of(LlmProfile.CHAT, "hi"),
+                "gemini-2.5-flash", Duration.ofSeconds(5), chunks::add).join();
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(response.getText(), String.join("", chunks));
+        assertEquals(1, stub.requestCount("gemini.stream"));
+    }
+
+    @Test
+    void errorProfileSurfacesRetryableFailure() {
+        stub.geminiProfile(StubProfile.FAST.withErrors(1.0, 503));
+
+        CompletionException thrown = assertThrows(CompletionException.class, () -> gemini
+                .generateContent(LlmRequest.of(LlmProfile.CHAT, "hi"), "gemini-2.5-flash", Duration.ofSeconds(5))
+                .join());
+
+        LlmException cause = assertInstanceOf(LlmException.class, thrown.getCause());
+        assertEquals(503, cause.getStatusCode());
+        assertTrue(cause.isRetryable());
+    }
+
+    @Test
+    void batchResultsComeBackByKey() {
+        LlmJsonCodec codec = new LlmJsonCodec(json);
+        Map<String, LlmRequest> requests = new LinkedHashMap<>();
+        requests.put("11", LlmRequest.builder(LlmProfile.LIVE_FEEDBACK)
+                .prompt("Evaluate the answer")
+                .responseSchema(codec.schemaFor(codec.type(LiveFeedbackDto.class)))
+                .build());
+        requests.put("12", LlmRequest.of(LlmProfile.CHAT, "Say something"));
+
+        String name = gemini.submitBatch("gemini-2.5-flash", "stub-batch", requests).join();
+        assertTrue(name.startsWith("batches/"));
+
+        GeminiRestClient.BatchStatus status = gemini.getBatch(name, "gemini-2.5-flash").join();
+        assertTrue(status.succeeded());
+        assertEquals(2, status.results().size());
+        GeminiRestClient.BatchResult first = status.results().get(0);
+        assertEquals("11", first.key());
+        assertEquals(7, codec.decode(first.response().getText(), LiveFeedbackDto.class).getRating());
+        assertEquals("12", status.results().get(1).key());
+        assertNotNull(status.results().get(1).response().getText());
+        assertEquals(2, stub.requestCount("gemini.batch"));
+        assertEquals(0, stub.requestCount("gemini.generate"));
+    }
+
+    @Test
+    void openAiCompatibleChatHonoursTranslatedSchema() {
+        OpenAiRestClient chat = new OpenAiRestClient("local", stub.openAiApiBase(), "",
+                EnumSet.allOf(LlmProvider.Capability.class), 4, json);
+        LlmJsonCodec codec = new LlmJsonCodec(json);
+        LlmRequest request = LlmRequest.builder(LlmProfile.LIVE_FEEDBACK)
+                .preamble("You are an interviewer.")
+                .prompt("Evaluate the answer")
+                .images(new BufferedImage[]{new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB)})
+                .responseSchema(codec.schemaFor(codec.type(LiveFeedbackDto.class)))
+                .build();
+
+        LlmResponse response = chat.generate(request, "llama3.1", Duration.ofSeconds(5)).join();
+        LiveFeedbackDto feedback = codec.decode(response.getText(), LiveFeedbackDto.class);
+
+        assertEquals("STOP", response.getFinishReason());
+        assertEquals(7, feedback.getRating());
+        assertEquals(1, stub.requestCount("chat"));
+    }
+
+    @Test
+    void openAiCompatibleChatStreamsDeltas() {
+        stub.chatProfile(StubProfile.FAST.withPayloadChars(600));
+        OpenAiRestClient chat = new OpenAiRestClient("openai", stub.openAiApiBase(), "stub-key",
+                EnumSet.of(LlmProvider.Capability.STREAMING), 4, json);
+        List<String> chunks = new CopyOnWriteArrayList<>();
+
+        LlmResponse response = chat.stream(LlmRequest.of(LlmProfile.CHAT, "hi"), "gpt-4o-mini",
+                Duration.ofSeconds(5), chunks::add).join();
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(response.getText(), String.join("", chunks));
+        assertEquals("STOP", response.getFinishReason());
+        assertEquals(1, stub.requestCount("chat.stream"));
+    }
+
+    @Test
+    void judge0SubmissionEchoesStdin() {
+        Judge0Service judge0 = new Judge0Service();
+        ReflectionTestUtils.setField(judge0, "apiKey", "stub-key");
+        ReflectionTestUtils.setField(judge0, "judge0BaseUrl", stub.judge0Url());
+        ReflectionTestUtils.setField(judge0, "json", json);
+
+        assertEquals("1 2 3", judge0.executeCode("print(input())", 71, "1 2 3"));
+        assertEquals(1, stub.requestCount("judge0"));
+    }
+}
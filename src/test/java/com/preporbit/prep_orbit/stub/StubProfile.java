@@ -0,0 +1,78 @@
+package com.preporbit.prep_orbit.stub;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Behaviour of one stubbed upstream endpoint: latency, error rate and payload size.
+ *
+ * Profiles are immutable; use the {@code with*} methods to derive variants, or
+ * {@link #fromSystemProperties(String, StubProfile)} to let a load-test run override
+ * them (e.g. {@code -Dstub.gemini.latency-ms=800 -Dstub.gemini.error-rate=0.05}).
+ */
+public final class StubProfile {
+
+    public static final StubProfile FAST = new StubProfile(5, 5, 0.0, 503, 400);
+    public static final StubProfile REALISTIC_LLM = new StubProfile(900, 600, 0.01, 503, 2_000);
+    public static final StubProfile FLAKY = new StubProfile(300, 300, 0.2, 503, 800);
+
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double errorRate;
+    private final int errorStatus;
+    private final int payloadChars;
+
+    public StubProfile(long latencyMs, long jitterMs, double errorRate, int errorStatus, int payloadChars) {
+        this.latencyMs = Math.max(0, latencyMs);
+        this.jitterMs = Math.max(0, jitterMs);
+        this.errorRate = Math.max(0, Math.min(1, errorRate));
+        this.errorStatus = errorStatus;
+        this.payloadChars = Math.max(1, payloadChars);
+    }
+
+    public static StubProfile fromSystemProperties(String endpoint, StubProfile defaults) {
+        String prefix = "stub." + endpoint + ".";
+        return new StubProfile(
+                Long.getLong(prefix + "latency-ms", defaults.latencyMs),
+                Long.getLong(prefix + "jitter-ms", defaults.jitterMs),
+                Double.parseDouble(System.getProperty(prefix + "error-rate", String.valueOf(defaults.errorRate))),
+                Integer.getInteger(prefix + "error-status", defaults.errorStatus),
+                Integer.getInteger(prefix + "payload-chars", defaults.payloadChars));
+    }
+
+    public StubProfile withLatency(long latencyMs, long jitterMs) {
+        return new StubProfile(latencyMs, jitterMs, errorRate, errorStatus, payloadChars);
+    }
+
+    public StubProfile withErrors(double errorRate, int errorStatus) {
+        return new StubProfile(latencyMs, jitterMs, errorRate, errorStatus, payloadChars);
+    }
+
+    public StubProfile withPayloadChars(int payloadChars) {
+        return new StubProfile(latencyMs, jitterMs, errorRate, errorStatus, payloadChars);
+    }
+
+    /** Latency for one request: base plus uniform jitter. */
+    long sampleLatencyMs() {
+        return jitterMs == 0 ? latencyMs : latencyMs + ThreadLocalRandom.current().nextLong(jitterMs + 1);
+    }
+
+    boolean shouldFail() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    public long getLatencyMs() { return latencyMs; }
+
+    public long getJitterMs() { return jitterMs; }
+
+    public double getErrorRate() { return errorRate; }
+
+    public int getErrorStatus() { return errorStatus; }
+
+    public int getPayloadChars() { return payloadChars; }
+
+    @Override
+    public String toString() {
+        return "StubProfile{latency=" + latencyMs + "±" + jitterMs + "ms, errorRate=" + errorRate
+                + ", errorStatus=" + errorStatus + ", payloadChars=" + payloadChars + "}";
+    }
+}
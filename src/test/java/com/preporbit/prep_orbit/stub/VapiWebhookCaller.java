@@ -0,0 +1,99 @@
+package com.preporbit.prep_orbit.stub;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays the Vapi side: fires {@code function-call} webhook events
+ * ({@code generateInterview}) at the app's {@code /api/vapi/webhook} with bounded
+ * concurrency and reports status counts and latency percentiles.
+ */
+public final class VapiWebhookCaller {
+
+    private final URI webhookUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    public VapiWebhookCaller(String appBaseUrl) {
+        this.webhookUrl = URI.create(appBaseUrl.replaceAll("/+$", "") + "/api/vapi/webhook");
+    }
+
+    public Result fire(int calls, int concurrency, long userId) throws Exception {
+        byte[] payload = mapper.writeValueAsBytes(Map.of(
+                "message", "function-call",
+                "functionCall", Map.of(
+                        "name", "generateInterview",
+                        "parameters", Map.of(
+                                "role", "Backend Engineer",
+                                "type", "technical",
+                                "level", "mid",
+                                "techstack", "java,spring",
+                                "amount", 5,
+                                "userId", userId))));
+
+        Semaphore inFlight = new Semaphore(Math.max(1, concurrency));
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < calls; i++) {
+                inFlight.acquire();
+                futures.add(executor.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(webhookUrl)
+                                        .header("Content-Type", "application/json")
+                                        .timeout(Duration.ofSeconds(120))
+                                        .POST(HttpRequest.BodyPublishers.ofByteArray(payload))
+                                        .build(),
+                                HttpResponse.BodyHandlers.discarding());
+                        (response.statusCode() < 400 ? ok : failed).incrementAndGet();
+                    } catch (Exception e) {
+                        failed.incrementAndGet();
+                    } finally {
+                        latencies.add((System.nanoTime() - start) / 1_000_000);
+                        inFlight.release();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        }
+        return new Result(ok.get(), failed.get(), latencies);
+    }
+
+    public record Result(int succeeded, int failed, List<Long> latenciesMs) {
+
+        public long percentile(double p) {
+            if (latenciesMs.isEmpty()) return -1;
+            List<Long> sorted = new ArrayList<>(latenciesMs);
+            Collections.sort(sorted);
+            int idx = (int) Math.ceil(p * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, idx)));
+        }
+
+        @Override
+        public String toString() {
+            return "succeeded=" + succeeded + " failed=" + failed
+                    + " p50=" + percentile(0.5) + "ms p95=" + percentile(0.95) + "ms";
+        }
+    }
+}
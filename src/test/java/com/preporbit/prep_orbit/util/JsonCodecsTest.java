@@ -0,0 +1,45 @@
+package com.preporbit.prep_orbit.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import com.preporbit.prep_orbit.dto.CodingChallengeDto;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCodecsTest {
+
+    private final JsonCodecs codecs = new JsonCodecs(new ObjectMapper()
+            .registerModule(new BlackbirdModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false))
+            .warm(List.of(CodingChallengeDto.class));
+
+    @Test
+    void warmedReadersAndWritersAreReused() {
+        assertSame(codecs.reader(CodingChallengeDto.class), codecs.reader(CodingChallengeDto.class));
+        assertSame(codecs.writer(CodingChallengeDto.class), codecs.writer(CodingChallengeDto.class));
+    }
+
+    @Test
+    void roundTripsRenamedPropertiesThroughBlackbirdAccessors() throws Exception {
+        String json = "{\"title\":\"Two Sum\",\"problem_statement\":\"Find two numbers\",\"topics\":[\"arrays\"],"
+                + "\"test_cases\":[{\"input\":\"1 2\",\"expected_output\":\"3\",\"visible\":true}],\"extra\":1}";
+
+        CodingChallengeDto dto = codecs.reader(CodingChallengeDto.class).readValue(json);
+        Map<String, Object> written = codecs.map().readValue(codecs.writer(CodingChallengeDto.class).writeValueAsString(dto));
+
+        assertEquals("Find two numbers", dto.getDescription());
+        assertEquals("Find two numbers", written.get("problem_statement"));
+        assertEquals(1, ((List<?>) written.get("test_cases")).size());
+    }
+
+    @Test
+    void sharedReadersParseCommonShapes() throws Exception {
+        assertEquals(List.of("a", "b"), codecs.stringList().readValue("[\"a\",\"b\"]"));
+        assertEquals(2, codecs.tree().readTree("{\"x\":[1,2]}").path("x").size());
+    }
+}
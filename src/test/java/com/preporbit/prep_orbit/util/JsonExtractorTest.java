@@ -0,0 +1,49 @@
+package com.preporbit.prep_orbit.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonExtractorTest {
+
+    private static final ObjectReader TREE = new ObjectMapper().readerFor(JsonNode.class);
+
+    @Test
+    void skipsThinkBlockFenceAndTrailingText() throws Exception {
+        String text = "<think>maybe {\"a\": 0}</think>\nSure:\n```json\n{\"a\": {\"b\": [1, 2]}}\n```\nHope this {helps}.";
+
+        JsonNode node = JsonExtractor.read(TREE, text);
+
+        assertEquals(2, node.path("a").path("b").size());
+        assertEquals("{\"a\": {\"b\": [1, 2]}}", JsonExtractor.extract(text));
+    }
+
+    @Test
+    void repairsTrailingCommasSmartQuotesAndRawNewlines() throws Exception {
+        String text = "{“title”: “Line one\nline two”, \"tags\": [\"x\", \"y\",], \"q\": \"say “hi”\",}";
+
+        JsonNode node = JsonExtractor.read(TREE, text);
+
+        assertEquals("Line one\nline two", node.get("title").asText());
+        assertEquals(2, node.get("tags").size());
+        assertEquals("say “hi”", node.get("q").asText());
+    }
+
+    @Test
+    void bracesInsideStringsDoNotEndTheValue() throws Exception {
+        JsonNode node = JsonExtractor.read(TREE, "[\"a } b\", \"c ] \\\" d\"] trailing ]");
+
+        assertEquals("a } b", node.get(0).asText());
+        assertEquals("c ] \" d", node.get(1).asText());
+    }
+
+    @Test
+    void returnsNullWithoutJson() throws Exception {
+        assertNull(JsonExtractor.read(TREE, "no json here"));
+        assertNull(JsonExtractor.extract("<think>{\"only\": \"thinking\"}"));
+        assertEquals(-1, JsonExtractor.findStart(null));
+    }
+}
@@ -0,0 +1,73 @@
+package com.preporbit.prep_orbit.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonRepairTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static JsonNode parse(JsonRepair.Result result) throws Exception {
+        return MAPPER.readTree(result.json());
+    }
+
+    @Test
+    void truncatedArrayKeepsOnlyCompleteElements() throws Exception {
+        JsonRepair.Result result = JsonRepair.repair("```json\n[\"Question one?\", \"Question two?\", \"Question th");
+
+        assertTrue(result.truncated());
+        JsonNode node = parse(result);
+        assertEquals(2, node.size());
+        assertEquals("Question two?", node.get(1).asText());
+    }
+
+    @Test
+    void partialElementInsideNestedArrayIsDroppedAndObjectsClosed() throws Exception {
+        JsonRepair.Result result = JsonRepair.repair(
+                "{\"title\": \"Two Sum\", \"test_cases\": [{\"input\": \"1 2\", \"expected_output\": \"3\"}, {\"input\": \"4");
+
+        assertTrue(result.truncated());
+        JsonNode node = parse(result);
+        assertEquals("Two Sum", node.get("title").asText());
+        assertEquals(1, node.get("test_cases").size());
+        assertEquals("3", node.get("test_cases").get(0).get("expected_output").asText());
+    }
+
+    @Test
+    void escapesStrayQuotesAndClosesMissingBraceWithoutCountingAsTruncated() throws Exception {
+        JsonRepair.Result result = JsonRepair.repair(
+                "{\"feedback\": \"You said \"it depends\" twice, be specific\", \"rating\": 6");
+
+        assertFalse(result.truncated());
+        JsonNode node = parse(result);
+        assertEquals("You said \"it depends\" twice, be specific", node.get("feedback").asText());
+        assertEquals(6, node.get("rating").asInt());
+    }
+
+    @Test
+    void fixesCommasUnquotedKeysAndMismatchedClosers() throws Exception {
+        JsonRepair.Result result = JsonRepair.repair("{title: \"T\" \"tags\": [\"a\",, \"b\",} trailing");
+
+        JsonNode node = parse(result);
+        assertEquals("T", node.get("title").asText());
+        assertEquals(2, node.get("tags").size());
+        assertNull(JsonRepair.repair("no json at all"));
+    }
+
+    @Test
+    void unquotedKeyAfterAStringValueStartsANewMember() throws Exception {
+        JsonRepair.Result result = JsonRepair.repair("{\"title\": \"T\", tags: [\"a\"], \"d\": 1}");
+
+        assertFalse(result.truncated());
+        JsonNode node = parse(result);
+        assertEquals("T", node.get("title").asText());
+        assertEquals("a", node.get("tags").get(0).asText());
+        assertEquals(1, node.get("d").asInt());
+
+        // A quote followed by ", words" without a colon is still inside the string
+        assertEquals("say \"a\", then b", parse(JsonRepair.repair("{\"x\": \"say \"a\", then b\"}")).get("x").asText());
+    }
+}
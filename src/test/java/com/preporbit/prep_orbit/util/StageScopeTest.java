@@ -0,0 +1,64 @@
+package com.preporbit.prep_orbit.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageScopeTest {
+
+    @Test
+    void stagesRunConcurrentlyAndReportTimingsInForkOrder() throws Exception {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        try (StageScope scope = StageScope.open("test")) {
+            Supplier<String> a = scope.fork("a", () -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS)); // deadlocks if run one after the other
+                return "A";
+            });
+            Supplier<Integer> b = scope.fork("b", () -> {
+                bothStarted.countDown();
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+                return 2;
+            });
+            scope.join();
+
+            assertEquals("A", a.get());
+            assertEquals(2, b.get());
+            assertEquals(List.of("a", "b"), List.copyOf(scope.timings().keySet()));
+        }
+    }
+
+    @Test
+    void firstFailureCancelsTheOtherStages() {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        CountDownLatch slowStarted = new CountDownLatch(1);
+        try (StageScope scope = StageScope.open("test")) {
+            scope.fork("slow", () -> {
+                slowStarted.countDown();
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    throw e;
+                }
+                return null;
+            });
+            scope.fork("failing", () -> {
+                slowStarted.await();
+                throw new IllegalStateException("model down");
+            });
+
+            ExecutionException e = assertThrows(ExecutionException.class, scope::join);
+            assertEquals("model down", e.getCause().getMessage());
+            assertFalse(scope.timings().containsKey("slow"));
+        }
+        assertTrue(interrupted.get()); // close() waited for the cancelled stage to finish
+    }
+}